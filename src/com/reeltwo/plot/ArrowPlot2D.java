@@ -73,6 +73,7 @@ public class ArrowPlot2D extends Plot2D {
    */
   public void setHeadType(ArrowHead type) {
     mHeadType = type;
+    modified();
   }
 
   /**
@@ -91,6 +92,7 @@ public class ArrowPlot2D extends Plot2D {
    */
   public void setDirection(ArrowDirection dir) {
     mDirection = dir;
+    modified();
   }
 
   /**
@@ -112,6 +114,7 @@ public class ArrowPlot2D extends Plot2D {
       throw new IllegalArgumentException("Invalid arrow head width: " + w);
     }
     mHeadWidth = w;
+    modified();
   }
 
   /**
@@ -133,6 +136,7 @@ public class ArrowPlot2D extends Plot2D {
       throw new IllegalArgumentException("Invalid arrow head height: " + h);
     }
     mHeadHeight = h;
+    modified();
   }
 
   /**
@@ -156,4 +160,29 @@ public class ArrowPlot2D extends Plot2D {
     }
     super.setData(data);
   }
+
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y, x2 and y2 columns (start and end points).
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.X2, Column.Y2);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final Arrow2D[] points = new Arrow2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Arrow2D(data.get(Column.X, i), data.get(Column.Y, i), data.get(Column.X2, i), data.get(Column.Y2, i));
+    }
+    return points;
+  }
+
 }
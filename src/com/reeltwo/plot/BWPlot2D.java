@@ -52,6 +52,7 @@ public class BWPlot2D extends Plot2D {
    */
   public void setType(BoxWhiskerStyle style) {
     mStyle = style;
+    modified();
   }
 
 
@@ -75,6 +76,7 @@ public class BWPlot2D extends Plot2D {
       throw new IllegalArgumentException("width must be >= 1: " + pixels);
     }
     mWidth = pixels;
+    modified();
   }
 
 
@@ -100,4 +102,29 @@ public class BWPlot2D extends Plot2D {
     }
     super.setData(data);
   }
+
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y (minimum), quartile and y2 (maximum) columns.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.LOWER_QUARTILE, Column.MEDIAN, Column.UPPER_QUARTILE, Column.Y2);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final BWPoint2D[] points = new BWPoint2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new BWPoint2D(data.get(Column.X, i), data.get(Column.Y, i), data.get(Column.LOWER_QUARTILE, i), data.get(Column.MEDIAN, i), data.get(Column.UPPER_QUARTILE, i), data.get(Column.Y2, i));
+    }
+    return points;
+  }
+
 }
@@ -0,0 +1,17 @@
+package com.reeltwo.plot;
+
+/**
+ * Listener told when the range of values in a data source changes.
+ *
+ * @author Richard Littin
+ */
+public interface BoundsListener {
+
+  /**
+   * Called after the lowest or highest value on either axis of
+   * <code>source</code> has changed.
+   *
+   * @param source the data source that changed
+   */
+  void boundsChanged(DataSource2D source);
+}
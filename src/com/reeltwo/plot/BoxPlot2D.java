@@ -40,4 +40,29 @@ public class BoxPlot2D extends FillablePlot2D {
     super.setData(data);
   }
 
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y, x2 and y2 columns (left, bottom, right and top).
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.X2, Column.Y2);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final Box2D[] points = new Box2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Box2D(data.get(Column.X, i), data.get(Column.Y, i), data.get(Column.X2, i), data.get(Column.Y2, i));
+    }
+    return points;
+  }
+
+
 }
@@ -39,4 +39,29 @@ public class CirclePlot2D extends FillablePlot2D {
     }
     super.setData(data);
   }
+
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y and diameter columns.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.DIAMETER);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final Circle2D[] points = new Circle2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Circle2D(data.get(Column.X, i), data.get(Column.Y, i), data.get(Column.DIAMETER, i));
+    }
+    return points;
+  }
+
 }
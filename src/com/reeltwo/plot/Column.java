@@ -0,0 +1,46 @@
+package com.reeltwo.plot;
+
+/**
+ * Columns that may be present in a columnar plot data source.  Which
+ * columns a plot needs depends on the type of plot.
+ *
+ * @author Richard Littin
+ */
+public enum Column {
+  /** x co-ordinate, left edge of a box or start x of an arrow */
+  X(Axis.X),
+  /** y co-ordinate, bottom edge of a box, start y of an arrow or box and whisker minimum */
+  Y(Axis.Y),
+  /** right edge of a box or end x of an arrow */
+  X2(Axis.X),
+  /** top edge of a box, end y of an arrow or box and whisker maximum */
+  Y2(Axis.Y),
+  /** box and whisker lower quartile */
+  LOWER_QUARTILE(Axis.Y),
+  /** box and whisker median */
+  MEDIAN(Axis.Y),
+  /** box and whisker upper quartile */
+  UPPER_QUARTILE(Axis.Y),
+  /** circle diameter in screen units */
+  DIAMETER(null),
+  /** number of points in a scatter point */
+  COUNT(null),
+  /** associated object, such as the text of a text point */
+  OBJECT(null);
+
+  private final Axis mAxis;
+
+  Column(Axis axis) {
+    mAxis = axis;
+  }
+
+  /**
+   * Returns the axis that values in this column lie on, or null if
+   * the column does not contribute to the plot bounds.
+   *
+   * @return an axis
+   */
+  public Axis getAxis() {
+    return mAxis;
+  }
+}
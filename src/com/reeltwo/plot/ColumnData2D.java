@@ -0,0 +1,205 @@
+package com.reeltwo.plot;
+
+import java.util.EnumMap;
+
+/**
+ * Plot data held as parallel primitive arrays, one per column.  The
+ * arrays given are used directly and not copied, so a single series
+ * of millions of points costs only the arrays themselves.  If the
+ * values in an array are changed after it has been set call
+ * <code>invalidateBounds()</code> before setting the data in a plot
+ * again.
+ *
+ * @author Richard Littin
+ */
+public class ColumnData2D implements DataSource2D {
+
+  private final int mSize;
+  private final EnumMap<Column, float[]> mColumns = new EnumMap<Column, float[]>(Column.class);
+  private Object[] mObjects = null;
+
+  /** range bounds of values, valid when <code>mBoundsValid</code> is set */
+  private boolean mBoundsValid = false;
+  private float mXLo, mXHi;
+  private float mYLo, mYHi;
+
+  /**
+   * Creates an empty set of columns holding <code>size</code> data
+   * points.
+   *
+   * @param size number of data points
+   * @exception IllegalArgumentException if <code>size</code> is negative
+   */
+  public ColumnData2D(int size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("size must be >= 0: " + size);
+    }
+    mSize = size;
+  }
+
+  /**
+   * Creates columns of x and y co-ordinates.
+   *
+   * @param xs x co-ordinates
+   * @param ys y co-ordinates
+   * @exception IllegalArgumentException if the arrays differ in length
+   */
+  public ColumnData2D(float[] xs, float[] ys) {
+    this(xs.length);
+    if (ys.length != xs.length) {
+      throw new IllegalArgumentException("x and y columns differ in length: " + xs.length + " != " + ys.length);
+    }
+    setColumn(Column.X, xs);
+    setColumn(Column.Y, ys);
+  }
+
+  /**
+   * Sets the values of a numeric column.  Only the first
+   * <code>size()</code> values of the array are used.
+   *
+   * @param column a numeric column
+   * @param values column values
+   * @exception IllegalArgumentException if <code>column</code> is the
+   * object column or <code>values</code> is too short
+   */
+  public void setColumn(Column column, float[] values) {
+    if (column == Column.OBJECT) {
+      throw new IllegalArgumentException("Use setObjects to set the object column.");
+    }
+    if (values == null) {
+      mColumns.remove(column);
+    } else {
+      if (values.length < mSize) {
+        throw new IllegalArgumentException("Column " + column + " has " + values.length + " values, need " + mSize);
+      }
+      mColumns.put(column, values);
+    }
+    invalidateBounds();
+  }
+
+  /**
+   * Returns the array holding the values of a numeric column, or null
+   * if the column is not present.
+   *
+   * @param column a numeric column
+   * @return the column values
+   */
+  public float[] getColumn(Column column) {
+    return mColumns.get(column);
+  }
+
+  /**
+   * Sets the objects associated with each data point, such as the
+   * text of text points.
+   *
+   * @param objects an array of objects
+   * @exception IllegalArgumentException if <code>objects</code> is too short
+   */
+  public void setObjects(Object[] objects) {
+    if (objects != null && objects.length < mSize) {
+      throw new IllegalArgumentException("Object column has " + objects.length + " values, need " + mSize);
+    }
+    mObjects = objects;
+  }
+
+  /**
+   * Marks the cached bounds as out of date.  Call this after changing
+   * values in any of the column arrays.
+   */
+  public void invalidateBounds() {
+    mBoundsValid = false;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasColumn(Column column) {
+    return column == Column.OBJECT ? mObjects != null : mColumns.containsKey(column);
+  }
+
+  private float[] column(Column column) {
+    final float[] values = mColumns.get(column);
+    if (values == null) {
+      throw new IllegalArgumentException("No values for column " + column);
+    }
+    return values;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float get(Column column, int index) {
+    return column(column)[index];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void get(Column column, int index, float[] dest, int offset, int length) {
+    System.arraycopy(column(column), index, dest, offset, length);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object getObject(int index) {
+    return mObjects == null ? null : mObjects[index];
+  }
+
+  private void calculateBounds() {
+    float xLo = Float.POSITIVE_INFINITY;
+    float xHi = Float.NEGATIVE_INFINITY;
+    float yLo = Float.POSITIVE_INFINITY;
+    float yHi = Float.NEGATIVE_INFINITY;
+    for (Column column : mColumns.keySet()) {
+      final Axis axis = column.getAxis();
+      if (axis != null) {
+        final float[] values = mColumns.get(column);
+        float lo = axis == Axis.X ? xLo : yLo;
+        float hi = axis == Axis.X ? xHi : yHi;
+        for (int i = 0; i < mSize; i++) {
+          final float v = values[i];
+          if (v < lo || Float.isNaN(v)) {
+            lo = v;
+          }
+          if (v > hi || Float.isNaN(v)) {
+            hi = v;
+          }
+        }
+        if (axis == Axis.X) {
+          xLo = lo;
+          xHi = hi;
+        } else {
+          yLo = lo;
+          yHi = hi;
+        }
+      }
+    }
+    // no values on an axis gives an empty range at the origin
+    mXLo = xLo > xHi ? 0.0f : xLo;
+    mXHi = xLo > xHi ? 0.0f : xHi;
+    mYLo = yLo > yHi ? 0.0f : yLo;
+    mYHi = yLo > yHi ? 0.0f : yHi;
+    mBoundsValid = true;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getLo(Axis axis) {
+    if (!mBoundsValid) {
+      calculateBounds();
+    }
+    return axis == Axis.X ? mXLo : mYLo;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getHi(Axis axis) {
+    if (!mBoundsValid) {
+      calculateBounds();
+    }
+    return axis == Axis.X ? mXHi : mYHi;
+  }
+}
@@ -1,5 +1,7 @@
 package com.reeltwo.plot;
 
+import com.reeltwo.plot.sampling.Downsampler;
+
 /**
  * Structure to hold attributes of a curve denoted by points on a 2D graph.
  *
@@ -16,6 +18,10 @@ public class CurvePlot2D extends FillablePlot2D {
 
   /** the curve type */
   private int mType = BSPLINE;
+  /** reduces data before drawing, may be null */
+  private Downsampler mDownsampler = null;
+  /** number of points to reduce data to */
+  private int mDownsamplePoints = 0;
 
   /**
    * Default constructor setting the default axes used to the bottom
@@ -49,6 +55,7 @@ public class CurvePlot2D extends FillablePlot2D {
       throw new IllegalArgumentException("Invalid curve type: " + type);
     }
     mType = type;
+    modified();
   }
 
 
@@ -62,6 +69,42 @@ public class CurvePlot2D extends FillablePlot2D {
   }
 
 
+  /**
+   * Sets a downsampler used to reduce the data in this plot to at
+   * most <code>points</code> points before it is drawn.  The data
+   * itself is not changed.  Default is not to downsample.
+   *
+   * @param downsampler the downsampler, or null to draw all points.
+   * @param points number of points to reduce data to.
+   */
+  public void setDownsampler(Downsampler downsampler, int points) {
+    mDownsampler = downsampler;
+    mDownsamplePoints = points;
+    modified();
+  }
+
+
+  /**
+   * Returns the downsampler used to reduce data before it is drawn.
+   *
+   * @return the downsampler, may be null.
+   */
+  public Downsampler getDownsampler() {
+    return mDownsampler;
+  }
+
+
+  /**
+   * Returns the number of points data is reduced to before it is
+   * drawn.
+   *
+   * @return number of points.
+   */
+  public int getDownsamplePoints() {
+    return mDownsamplePoints;
+  }
+
+
   /**
    * Sets the data used in this plot.
    *
@@ -0,0 +1,74 @@
+package com.reeltwo.plot;
+
+/**
+ * Columnar view of the data in a plot.  Each data point is a row
+ * index into a set of parallel primitive columns, which lets
+ * renderers read values directly without a <code>Datum2D</code>
+ * object per point.
+ *
+ * @author Richard Littin
+ */
+public interface DataSource2D {
+
+  /**
+   * Returns the number of data points.
+   *
+   * @return number of rows
+   */
+  int size();
+
+  /**
+   * Returns whether the given column is present.
+   *
+   * @param column a column
+   * @return whether the column has values
+   */
+  boolean hasColumn(Column column);
+
+  /**
+   * Returns the value of <code>column</code> for the data point at
+   * <code>index</code>.
+   *
+   * @param column a numeric column
+   * @param index row index
+   * @return a value
+   */
+  float get(Column column, int index);
+
+  /**
+   * Copies <code>length</code> values of <code>column</code>
+   * starting at row <code>index</code> into <code>dest</code>.
+   *
+   * @param column a numeric column
+   * @param index first row to copy
+   * @param dest array to copy values into
+   * @param offset position in <code>dest</code> of first value
+   * @param length number of values to copy
+   */
+  void get(Column column, int index, float[] dest, int offset, int length);
+
+  /**
+   * Returns the object associated with the data point at
+   * <code>index</code>.
+   *
+   * @param index row index
+   * @return an object, may be null
+   */
+  Object getObject(int index);
+
+  /**
+   * Returns the lowest value over all columns on the given axis.
+   *
+   * @param axis graph axis
+   * @return a number
+   */
+  float getLo(Axis axis);
+
+  /**
+   * Returns the highest value over all columns on the given axis.
+   *
+   * @param axis graph axis
+   * @return a number
+   */
+  float getHi(Axis axis);
+}
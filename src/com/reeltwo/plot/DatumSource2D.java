@@ -0,0 +1,187 @@
+package com.reeltwo.plot;
+
+/**
+ * Adapts an array of <code>Datum2D</code> objects to the columnar
+ * <code>DataSource2D</code> interface.  The columns available depend
+ * on the component type of the array.
+ *
+ * @author Richard Littin
+ */
+final class DatumSource2D implements DataSource2D {
+
+  /** The kinds of datum array we know how to read columns from. */
+  private enum Kind {
+    POINT, CIRCLE, SCATTER, OBJECT, BOX, ARROW, BW, OTHER
+  }
+
+  private final Datum2D[] mData;
+  private final Kind mKind;
+  private final float mXLo, mXHi;
+  private final float mYLo, mYHi;
+
+  DatumSource2D(Datum2D[] data, float xLo, float xHi, float yLo, float yHi) {
+    mData = data;
+    mKind = kind(data.getClass().getComponentType());
+    mXLo = xLo;
+    mXHi = xHi;
+    mYLo = yLo;
+    mYHi = yHi;
+  }
+
+  private static Kind kind(Class<?> c) {
+    if (Circle2D.class.isAssignableFrom(c)) {
+      return Kind.CIRCLE;
+    } else if (ScatterPoint2D.class.isAssignableFrom(c)) {
+      return Kind.SCATTER;
+    } else if (ObjectPoint2D.class.isAssignableFrom(c)) {
+      return Kind.OBJECT;
+    } else if (Point2D.class.isAssignableFrom(c)) {
+      return Kind.POINT;
+    } else if (Box2D.class.isAssignableFrom(c)) {
+      return Kind.BOX;
+    } else if (Arrow2D.class.isAssignableFrom(c)) {
+      return Kind.ARROW;
+    } else if (BWPoint2D.class.isAssignableFrom(c)) {
+      return Kind.BW;
+    }
+    return Kind.OTHER;
+  }
+
+  /**
+   * Returns the wrapped array.
+   *
+   * @return an array of Datum2D's
+   */
+  Datum2D[] getData() {
+    return mData;
+  }
+
+  @Override
+  public int size() {
+    return mData.length;
+  }
+
+  @Override
+  public boolean hasColumn(Column column) {
+    switch (column) {
+    case X:
+    case Y:
+      return true;
+    case X2:
+    case Y2:
+      return mKind == Kind.BOX || mKind == Kind.ARROW || mKind == Kind.BW || mKind == Kind.OTHER;
+    case LOWER_QUARTILE:
+    case MEDIAN:
+    case UPPER_QUARTILE:
+      return mKind == Kind.BW;
+    case DIAMETER:
+      return mKind == Kind.CIRCLE;
+    case COUNT:
+      return mKind == Kind.SCATTER;
+    case OBJECT:
+      return mKind == Kind.OBJECT || mData instanceof Note2D[];
+    default:
+      return false;
+    }
+  }
+
+  @Override
+  public float get(Column column, int index) {
+    final Datum2D d = mData[index];
+    switch (mKind) {
+    case POINT:
+    case CIRCLE:
+    case SCATTER:
+    case OBJECT:
+      final Point2D p = (Point2D) d;
+      switch (column) {
+      case X: return p.getX();
+      case Y: return p.getY();
+      case DIAMETER:
+        if (mKind == Kind.CIRCLE) {
+          return ((Circle2D) p).getDiameter();
+        }
+        break;
+      case COUNT:
+        if (mKind == Kind.SCATTER) {
+          return ((ScatterPoint2D) p).getNumberOfPoints();
+        }
+        break;
+      default: break;
+      }
+      break;
+    case BOX:
+      final Box2D b = (Box2D) d;
+      switch (column) {
+      case X: return b.getLeft();
+      case Y: return b.getBottom();
+      case X2: return b.getRight();
+      case Y2: return b.getTop();
+      default: break;
+      }
+      break;
+    case ARROW:
+      final Arrow2D a = (Arrow2D) d;
+      switch (column) {
+      case X: return a.getX1();
+      case Y: return a.getY1();
+      case X2: return a.getX2();
+      case Y2: return a.getY2();
+      default: break;
+      }
+      break;
+    case BW:
+      final BWPoint2D bw = (BWPoint2D) d;
+      switch (column) {
+      case X: return bw.getX();
+      case Y: return bw.getY(0);
+      case LOWER_QUARTILE: return bw.getY(1);
+      case MEDIAN: return bw.getY(2);
+      case UPPER_QUARTILE: return bw.getY(3);
+      case Y2: return bw.getY(4);
+      default: break;
+      }
+      break;
+    default:
+      switch (column) {
+      case X: return d.getXLo();
+      case Y: return d.getYLo();
+      case X2: return d.getXHi();
+      case Y2: return d.getYHi();
+      default: break;
+      }
+      break;
+    }
+    throw new IllegalArgumentException("No values for column " + column);
+  }
+
+  @Override
+  public void get(Column column, int index, float[] dest, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      dest[offset + i] = get(column, index + i);
+    }
+  }
+
+  @Override
+  public Object getObject(int index) {
+    final Datum2D d = mData[index];
+    if (d instanceof TextPoint2D) {
+      return ((TextPoint2D) d).getText();
+    } else if (d instanceof ObjectPoint2D) {
+      return ((ObjectPoint2D) d).getObject();
+    } else if (d instanceof Note2D) {
+      return ((Note2D) d).getText();
+    }
+    return null;
+  }
+
+  @Override
+  public float getLo(Axis axis) {
+    return axis == Axis.X ? mXLo : mYLo;
+  }
+
+  @Override
+  public float getHi(Axis axis) {
+    return axis == Axis.X ? mXHi : mYHi;
+  }
+}
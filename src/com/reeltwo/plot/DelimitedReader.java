@@ -0,0 +1,532 @@
+package com.reeltwo.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads plot data from delimited text such as CSV or TSV files.  Each
+ * field of a line may be assigned a column; fields without a column
+ * are ignored.  Numbers are parsed straight from the bytes read into
+ * growing primitive arrays, without creating a string for each field,
+ * and the arrays are used for the columns of the data returned.  The
+ * object column holds the text of its field.  For example, to plot
+ * the second and third fields of a file with a header line:<p>
+ *
+ * <pre>
+ *   final DelimitedReader reader = new DelimitedReader(',');
+ *   reader.setColumn(1, Column.X);
+ *   reader.setColumn(2, Column.Y);
+ *   reader.setSkipLines(1);
+ *   plot.setData(reader.read(file));
+ * </pre>
+ *
+ * Large files are split into parts at line ends and the parts are
+ * read on several threads.  Fields may be surrounded by spaces or
+ * double quotes, but quoted fields may not contain delimiters or line
+ * ends.  Blank lines are ignored.
+ *
+ * @author Richard Littin
+ */
+public class DelimitedReader {
+
+  /** powers of ten that are exact as doubles */
+  private static final double[] POW10 = new double[23];
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) {
+      POW10[i] = POW10[i - 1] * 10;
+    }
+  }
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final byte mDelimiter;
+  private Column[] mColumns = new Column[0];
+  private int mSkipLines = 0;
+  private int mThreads = Runtime.getRuntime().availableProcessors();
+  /** fewest bytes read by each thread */
+  private int mPartSize = 1 << 24;
+
+  /**
+   * Creates a reader of fields separated by <code>delimiter</code>.
+   *
+   * @param delimiter field separator, such as ',' or '\t'
+   * @exception IllegalArgumentException if the delimiter is not an
+   * ASCII character, or is a double quote or line end
+   */
+  public DelimitedReader(char delimiter) {
+    if (delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+      throw new IllegalArgumentException("Invalid delimiter: " + delimiter);
+    }
+    mDelimiter = (byte) delimiter;
+  }
+
+  /**
+   * Sets the column the values of a field are read into.  A column may
+   * be read from only one field, so it is removed from any other field
+   * it was set for.
+   *
+   * @param field index of the field in each line, starting at 0
+   * @param column column for the field, or null to ignore the field
+   * @exception IllegalArgumentException if <code>field</code> is negative
+   */
+  public void setColumn(int field, Column column) {
+    if (field < 0) {
+      throw new IllegalArgumentException("field must be >= 0: " + field);
+    }
+    for (int i = 0; i < mColumns.length; i++) {
+      if (column != null && mColumns[i] == column) {
+        mColumns[i] = null;
+      }
+    }
+    if (field >= mColumns.length) {
+      mColumns = Arrays.copyOf(mColumns, field + 1);
+    }
+    mColumns[field] = column;
+  }
+
+  /**
+   * Returns the column the values of a field are read into.
+   *
+   * @param field index of the field
+   * @return a column, or null if the field is ignored
+   */
+  public Column getColumn(int field) {
+    return field >= 0 && field < mColumns.length ? mColumns[field] : null;
+  }
+
+  /**
+   * Sets the number of lines, such as headers, to skip at the start of
+   * the input.
+   *
+   * @param lines number of lines
+   * @exception IllegalArgumentException if <code>lines</code> is negative
+   */
+  public void setSkipLines(int lines) {
+    if (lines < 0) {
+      throw new IllegalArgumentException("lines must be >= 0: " + lines);
+    }
+    mSkipLines = lines;
+  }
+
+  /**
+   * Sets the most threads used to read a file.  The default is the
+   * number of processors available.
+   *
+   * @param threads number of threads
+   * @exception IllegalArgumentException if <code>threads</code> is less than 1
+   */
+  public void setThreads(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1: " + threads);
+    }
+    mThreads = threads;
+  }
+
+  // sets the fewest bytes each thread reads
+  void setPartSize(int bytes) {
+    mPartSize = bytes;
+  }
+
+  /**
+   * Reads data from a stream, which is read to its end but not closed.
+   *
+   * @param in stream to read
+   * @return the columns read
+   * @exception IOException if reading fails, or a line is missing a
+   * field or has an invalid number
+   */
+  public ColumnData2D read(InputStream in) throws IOException {
+    final Part part = new Part(mColumns.clone(), mDelimiter, mSkipLines);
+    part.read(in);
+    return combine(new Part[] {part});
+  }
+
+  /**
+   * Reads data from a file, reading parts of a large file on
+   * several threads.
+   *
+   * @param file file to read
+   * @return the columns read
+   * @exception IOException if reading fails, or a line is missing a
+   * field or has an invalid number
+   */
+  public ColumnData2D read(File file) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = raf.getChannel();
+      final long length = channel.size();
+      final long start = skipLines(channel, mSkipLines);
+      final int count = (int) Math.max(1, Math.min(mThreads, (length - start) / mPartSize));
+      // divide the file at the line ends following equally spaced points
+      final long[] ends = new long[count + 1];
+      ends[0] = start;
+      for (int i = 1; i < count; i++) {
+        ends[i] = Math.max(ends[i - 1], lineEnd(channel, start + (length - start) * i / count));
+      }
+      ends[count] = length;
+      final Part[] parts = new Part[count];
+      for (int i = 0; i < count; i++) {
+        parts[i] = new Part(mColumns.clone(), mDelimiter, 0);
+        parts[i].mLines = i == 0 ? mSkipLines : 0;
+      }
+      final Thread[] threads = new Thread[count - 1];
+      for (int i = 0; i < threads.length; i++) {
+        threads[i] = new Thread(parts[i + 1].reader(channel, ends[i + 1], ends[i + 2]), "Delimited reader " + (i + 1));
+        threads[i].setDaemon(true);
+        threads[i].start();
+      }
+      parts[0].reader(channel, ends[0], ends[1]).run();
+      join(threads);
+      return combine(parts);
+    } finally {
+      raf.close();
+    }
+  }
+
+  private static void join(Thread[] threads) {
+    boolean interrupted = false;
+    for (final Thread thread : threads) {
+      while (true) {
+        try {
+          thread.join();
+          break;
+        } catch (final InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // position following the given number of lines from the start of the file
+  private static long skipLines(FileChannel channel, int lines) throws IOException {
+    long position = 0;
+    for (int i = 0; i < lines && position < channel.size(); i++) {
+      position = lineEnd(channel, position);
+    }
+    return position;
+  }
+
+  // position following the first line end at or after position, or the end of the file
+  private static long lineEnd(FileChannel channel, long position) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(4096);
+    long p = position;
+    while (true) {
+      buffer.clear();
+      final int read = channel.read(buffer, p);
+      if (read < 0) {
+        return p;
+      }
+      for (int i = 0; i < read; i++) {
+        if (buffer.get(i) == '\n') {
+          return p + i + 1;
+        }
+      }
+      p += read;
+    }
+  }
+
+  // joins the columns read by each part
+  private static ColumnData2D combine(Part[] parts) throws IOException {
+    long size = 0;
+    int lines = 0;
+    for (final Part part : parts) {
+      if (part.mError != null) {
+        if (part.mInvalid) {
+          throw new IOException("Line " + (lines + part.mLines) + ": " + part.mError.getMessage());
+        }
+        throw part.mError;
+      } else if (!part.mDone) {
+        throw new IOException("Failed reading part of the input");
+      }
+      lines += part.mLines;
+      size += part.mSize;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("More than " + Integer.MAX_VALUE + " lines of data");
+    }
+    final ColumnData2D data = new ColumnData2D((int) size);
+    final Column[] columns = parts[0].mColumns;
+    for (int f = 0; f < columns.length; f++) {
+      if (columns[f] == Column.OBJECT) {
+        final Object[] text = parts.length == 1 ? parts[0].mText[f] : new Object[(int) size];
+        if (parts.length > 1) {
+          int offset = 0;
+          for (final Part part : parts) {
+            System.arraycopy(part.mText[f], 0, text, offset, part.mSize);
+            offset += part.mSize;
+          }
+        }
+        data.setObjects(text);
+      } else if (columns[f] != null) {
+        final float[] values = parts.length == 1 ? parts[0].mValues[f] : new float[(int) size];
+        if (parts.length > 1) {
+          int offset = 0;
+          for (final Part part : parts) {
+            System.arraycopy(part.mValues[f], 0, values, offset, part.mSize);
+            offset += part.mSize;
+          }
+        }
+        data.setColumn(columns[f], values);
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Parses a number from ASCII text.  Numbers of at most 18
+   * significant digits with a power of ten of at most 22 are parsed
+   * directly; others, including infinities and NaN, are parsed by
+   * <code>Float.parseFloat</code>.
+   *
+   * @param b bytes holding the text
+   * @param start index of the first byte of the number
+   * @param end index following the last byte of the number
+   * @return the number
+   * @exception NumberFormatException if the text is not a number
+   */
+  static float parseFloat(byte[] b, int start, int end) {
+    int p = start;
+    final boolean negative = p < end && b[p] == '-';
+    if (p < end && (b[p] == '-' || b[p] == '+')) {
+      p++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean any = false;
+    for (; p < end && b[p] >= '0' && b[p] <= '9'; p++) {
+      any = true;
+      if (digits < 18) {
+        mantissa = mantissa * 10 + b[p] - '0';
+        digits += mantissa == 0 ? 0 : 1;
+      } else {
+        exponent++;
+      }
+    }
+    if (p < end && b[p] == '.') {
+      for (p++; p < end && b[p] >= '0' && b[p] <= '9'; p++) {
+        any = true;
+        if (digits < 18) {
+          mantissa = mantissa * 10 + b[p] - '0';
+          digits += mantissa == 0 ? 0 : 1;
+          exponent--;
+        }
+      }
+    }
+    if (any && p < end && (b[p] == 'e' || b[p] == 'E')) {
+      p++;
+      final boolean negativeExponent = p < end && b[p] == '-';
+      if (p < end && (b[p] == '-' || b[p] == '+')) {
+        p++;
+      }
+      int e = 0;
+      any = false;
+      for (; p < end && b[p] >= '0' && b[p] <= '9'; p++) {
+        any = true;
+        e = Math.min(e * 10 + b[p] - '0', 100000);
+      }
+      exponent += negativeExponent ? -e : e;
+    }
+    if (!any || p != end || (mantissa != 0 && Math.abs(exponent) >= POW10.length)) {
+      return Float.parseFloat(new String(b, start, end - start, StandardCharsets.US_ASCII));
+    }
+    final double v = exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent];
+    return (float) (negative ? -v : v);
+  }
+
+  // reads the lines of one part of the input
+  private static final class Part {
+    final Column[] mColumns;
+    private final byte mDelimiter;
+    private final int mSkipLines;
+    /** index of the last field assigned a column */
+    private final int mLastField;
+    /** values of each field, indexed by field */
+    final float[][] mValues;
+    final Object[][] mText;
+    int mSize = 0;
+    /** lines read, including skipped and blank lines */
+    int mLines = 0;
+    IOException mError = null;
+    /** set when the part has been read, even if with an error */
+    boolean mDone = false;
+    /** whether the error is in the text rather than in reading it */
+    boolean mInvalid = false;
+
+    Part(Column[] columns, byte delimiter, int skipLines) {
+      mColumns = columns;
+      mDelimiter = delimiter;
+      mSkipLines = skipLines;
+      mValues = new float[columns.length][];
+      mText = new Object[columns.length][];
+      int last = -1;
+      for (int f = 0; f < columns.length; f++) {
+        if (columns[f] == Column.OBJECT) {
+          mText[f] = new Object[256];
+          last = f;
+        } else if (columns[f] != null) {
+          mValues[f] = new float[256];
+          last = f;
+        }
+      }
+      mLastField = last;
+    }
+
+    Runnable reader(final FileChannel channel, final long start, final long end) {
+      return new Runnable() {
+          @Override
+          public void run() {
+            read(new InputStream() {
+                private long mPosition = start;
+
+                @Override
+                public int read() throws IOException {
+                  final byte[] b = new byte[1];
+                  return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                  if (mPosition >= end) {
+                    return -1;
+                  }
+                  final int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - mPosition)), mPosition);
+                  mPosition += Math.max(read, 0);
+                  return read;
+                }
+              });
+          }
+        };
+    }
+
+    // reads to the end of the stream, keeping any error
+    void read(InputStream in) {
+      try {
+        lines(in);
+      } catch (final IOException e) {
+        mError = e;
+      }
+      mDone = true;
+    }
+
+    private void lines(InputStream in) throws IOException {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int length = 0;
+      int lineStart = 0;
+      int scan = 0;
+      boolean eof = false;
+      while (true) {
+        while (scan < length && buffer[scan] != '\n') {
+          scan++;
+        }
+        if (scan < length) {
+          line(buffer, lineStart, scan);
+          scan++;
+          lineStart = scan;
+        } else if (eof) {
+          if (lineStart < length) {
+            line(buffer, lineStart, length);
+          }
+          break;
+        } else {
+          // keep the partial line and read more
+          if (lineStart > 0) {
+            System.arraycopy(buffer, lineStart, buffer, 0, length - lineStart);
+            length -= lineStart;
+            scan -= lineStart;
+            lineStart = 0;
+          } else if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+          }
+          final int read = in.read(buffer, length, buffer.length - length);
+          if (read < 0) {
+            eof = true;
+          } else {
+            length += read;
+          }
+        }
+      }
+    }
+
+    private void invalid(String message) throws IOException {
+      mInvalid = true;
+      throw new IOException(message);
+    }
+
+    private void line(byte[] b, int start, int end) throws IOException {
+      mLines++;
+      final int e = end > start && b[end - 1] == '\r' ? end - 1 : end;
+      if (mLines <= mSkipLines || e == start) {
+        return;
+      }
+      if (mSize == Integer.MAX_VALUE) {
+        invalid("too many lines of data");
+      }
+      int field = 0;
+      int p = start;
+      while (field <= mLastField) {
+        int q = p;
+        while (q < e && b[q] != mDelimiter) {
+          q++;
+        }
+        if (field < mColumns.length && mColumns[field] != null) {
+          value(field, b, p, q);
+        }
+        field++;
+        if (q == e) {
+          break;
+        }
+        p = q + 1;
+      }
+      if (field <= mLastField) {
+        invalid("found " + field + " fields, need " + (mLastField + 1));
+      }
+      mSize++;
+    }
+
+    // stores the value of a field, without surrounding spaces and quotes
+    private void value(int field, byte[] b, int start, int end) throws IOException {
+      int s = start;
+      int e = end;
+      while (s < e && (b[s] == ' ' || b[s] == '\t')) {
+        s++;
+      }
+      while (e > s && (b[e - 1] == ' ' || b[e - 1] == '\t')) {
+        e--;
+      }
+      if (e - s >= 2 && b[s] == '"' && b[e - 1] == '"') {
+        s++;
+        e--;
+      }
+      if (mValues[field] != null) {
+        if (mSize == mValues[field].length) {
+          mValues[field] = Arrays.copyOf(mValues[field], grow(mSize));
+        }
+        try {
+          mValues[field][mSize] = parseFloat(b, s, e);
+        } catch (final NumberFormatException nfe) {
+          invalid("invalid number \"" + new String(b, s, e - s, StandardCharsets.UTF_8) + "\" in field " + (field + 1));
+        }
+      } else {
+        if (mSize == mText[field].length) {
+          mText[field] = Arrays.copyOf(mText[field], grow(mSize));
+        }
+        mText[field][mSize] = new String(b, s, e - s, StandardCharsets.UTF_8);
+      }
+    }
+
+    private static int grow(int size) {
+      return (int) Math.min(Integer.MAX_VALUE, 2L * size);
+    }
+  }
+}
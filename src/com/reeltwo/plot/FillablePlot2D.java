@@ -52,6 +52,7 @@ public abstract class FillablePlot2D extends Plot2D {
    */
   public void setFill(FillStyle fill) {
     mFill = fill;
+    modified();
   }
 
   /**
@@ -80,6 +81,7 @@ public abstract class FillablePlot2D extends Plot2D {
    */
   public void setBorder(boolean flag) {
     mBorder = flag;
+    modified();
   }
 
 
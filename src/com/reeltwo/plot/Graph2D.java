@@ -35,6 +35,9 @@ public class Graph2D implements Cloneable {
   /** whether to display border lines and labels */
   private boolean mDisplayBorder = true;
 
+  /** incremented whenever a property of the graph or its axes is set */
+  private long mVersion = 0;
+
   /** list of plots in graph */
   private ArrayList<Plot2D> mPlots = new ArrayList<Plot2D>();
 
@@ -54,6 +57,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTitle(String title) {
     mTitle = (title == null) ? "" : title;
+    mVersion++;
   }
 
   /**
@@ -72,6 +76,7 @@ public class Graph2D implements Cloneable {
    */
   public void setKeyTitle(String title) {
     mKeyTitle = (title == null) ? "" : title;
+    mVersion++;
   }
 
   /**
@@ -90,6 +95,7 @@ public class Graph2D implements Cloneable {
    */
   public void setShowKey(boolean flag) {
     mShowKey = flag;
+    mVersion++;
   }
 
   /**
@@ -109,6 +115,7 @@ public class Graph2D implements Cloneable {
    */
   public void setColoredKey(final boolean flag) {
     mColoredKey = flag;
+    mVersion++;
   }
 
   /**
@@ -140,6 +147,7 @@ public class Graph2D implements Cloneable {
     default:
       throw new IllegalArgumentException("Invalid horizontal position: " + position);
     }
+    mVersion++;
   }
 
   /**
@@ -171,6 +179,7 @@ public class Graph2D implements Cloneable {
     default:
       throw new IllegalArgumentException("Invalid vertical position: " + position);
     }
+    mVersion++;
   }
 
   /**
@@ -195,6 +204,7 @@ public class Graph2D implements Cloneable {
    */
   public void setLabel(Axis axis, Edge side, String label) {
     getAxis(axis, side).setTitle(label);
+    mVersion++;
   }
 
   /**
@@ -241,6 +251,7 @@ public class Graph2D implements Cloneable {
    */
   public void setGrid(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setShowGrid(flag);
+    mVersion++;
   }
 
   /**
@@ -262,6 +273,7 @@ public class Graph2D implements Cloneable {
    */
   public void setBorder(boolean flag) {
     mDisplayBorder = flag;
+    mVersion++;
   }
 
   /**
@@ -284,6 +296,7 @@ public class Graph2D implements Cloneable {
     final GraphAxis ga = getAxis(axis, side);
     ga.setLoAuto(true);
     ga.setHiAuto(true);
+    mVersion++;
     setRanges();
   }
 
@@ -299,6 +312,7 @@ public class Graph2D implements Cloneable {
    */
   public void setRange(Axis axis, Edge side, float lo, float hi) {
     getAxis(axis, side).setRange(lo, hi);
+    mVersion++;
     setRanges();
   }
 
@@ -322,6 +336,7 @@ public class Graph2D implements Cloneable {
    */
   public void setLo(Axis axis, Edge side, float x) {
     getAxis(axis, side).setLo(x);
+    mVersion++;
     setRanges();
   }
 
@@ -345,6 +360,7 @@ public class Graph2D implements Cloneable {
    */
   public void setHi(Axis axis, Edge side, float x) {
     getAxis(axis, side).setHi(x);
+    mVersion++;
     setRanges();
   }
 
@@ -367,6 +383,7 @@ public class Graph2D implements Cloneable {
    */
   public void setAutoScaleTic(Axis axis, Edge side) {
     getAxis(axis, side).setTicAuto(true);
+    mVersion++;
     setRanges();
   }
 
@@ -381,6 +398,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTic(Axis axis, Edge side, float tic) {
     getAxis(axis, side).setTic(tic);
+    mVersion++;
   }
 
   /**
@@ -409,6 +427,7 @@ public class Graph2D implements Cloneable {
    */
   public void setMinorTic(Axis axis, Edge side, float tic) {
     getAxis(axis, side).setMinorTic(tic);
+    mVersion++;
   }
 
   /**
@@ -434,6 +453,7 @@ public class Graph2D implements Cloneable {
    */
   public void setShowTics(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setShowTics(flag);
+    mVersion++;
   }
 
   /**
@@ -458,6 +478,7 @@ public class Graph2D implements Cloneable {
    */
   public void setTicLabelFormatter(Axis axis, Edge side, LabelFormatter lf) {
     getAxis(axis, side).setLabelFormatter(lf);
+    mVersion++;
   }
 
   /**
@@ -481,6 +502,7 @@ public class Graph2D implements Cloneable {
    */
   public void setLogScale(Axis axis, Edge side, boolean flag) {
     getAxis(axis, side).setLogScale(flag);
+    mVersion++;
     setRanges();
   }
 
@@ -503,10 +525,32 @@ public class Graph2D implements Cloneable {
   public void addPlot(Plot2D plot) {
     if (plot != null) {
       mPlots.add(plot);
+      plot.addGraph(this);
+      mVersion++;
       setRanges();
     }
   }
+
+  /**
+   * Called by a plot in this graph when its bounds change, to update
+   * the automatic axis ranges.
+   */
+  void plotBoundsChanged() {
+    setRanges();
+  }
   
+  /**
+   * Returns a number that changes whenever a property of this graph
+   * or its axes is set, a plot is added, or the automatic axis ranges
+   * change.  The version does not include changes to the plots
+   * themselves, which have their own versions.
+   *
+   * @return the graph version
+   */
+  public long getVersion() {
+    return mVersion;
+  }
+
   /**
    * Returns an array of the plots that are in this graph.
    *
@@ -563,7 +607,7 @@ public class Graph2D implements Cloneable {
         if (!rangeSet) {
           xlo = xhi = 0.0f;
         }
-        xAxis.setAutoRange(xlo, xhi);
+        setAutoRange(xAxis, xlo, xhi);
       }
     }
 
@@ -592,12 +636,23 @@ public class Graph2D implements Cloneable {
         if (!rangeSet) {
           ylo = yhi = 0.0f;
         }
-        yAxis.setAutoRange(ylo, yhi);
+        setAutoRange(yAxis, ylo, yhi);
       }
     }
   }
 
 
+  // sets the automatic range of an axis, recording whether it changed
+  private void setAutoRange(GraphAxis axis, float lo, float hi) {
+    final float oldLo = axis.getLo();
+    final float oldHi = axis.getHi();
+    final float oldTic = axis.getTic();
+    axis.setAutoRange(lo, hi);
+    if (axis.getLo() != oldLo || axis.getHi() != oldHi || axis.getTic() != oldTic) {
+      mVersion++;
+    }
+  }
+
   /** {@inheritDoc} */
   @Override
   public Object clone() throws CloneNotSupportedException {
@@ -618,6 +673,7 @@ public class Graph2D implements Cloneable {
       g.mXAxes.put(i, (GraphAxis) mXAxes.get(i).clone());
       g.mYAxes.put(i, (GraphAxis) mYAxes.get(i).clone());
     }
+    // a copy is a snapshot, so its ranges do not follow later changes to the plots
     g.mPlots = new ArrayList<Plot2D>(mPlots);
     return g;
   }
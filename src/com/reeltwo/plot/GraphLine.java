@@ -76,6 +76,7 @@ public class GraphLine extends Plot2D {
    */
   public void setStyle(LineStyle type) {
     mStyle = type;
+    modified();
   }
 
   /**
@@ -93,12 +94,24 @@ public class GraphLine extends Plot2D {
     throw new UnsupportedOperationException("not applicable.");
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public void setData(DataSource2D data) {
+    throw new UnsupportedOperationException("not applicable.");
+  }
+
   /** {@inheritDoc} */
   @Override
   public Datum2D[] getData() {
     throw new UnsupportedOperationException("not applicable.");
   }
 
+  /** {@inheritDoc} */
+  @Override
+  public DataSource2D getDataSource() {
+    throw new UnsupportedOperationException("not applicable.");
+  }
+
   /** {@inheritDoc} */
   @Override
   public float getLo(Axis axis) {
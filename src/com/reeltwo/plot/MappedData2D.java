@@ -0,0 +1,313 @@
+package com.reeltwo.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plot data read straight from a memory mapped file of x and y
+ * co-ordinate pairs, each a little endian float or double.  No values
+ * are copied onto the heap: points are read from the mapping as they
+ * are drawn, so files far larger than the heap can be plotted.  The
+ * file is mapped in chunks of at most <code>CHUNK_BYTES</code> bytes,
+ * as a single mapping cannot exceed 2GB.<p>
+ *
+ * The bounds of the data and whether it is sorted by x are found in a
+ * single pass over the file the first time either is asked for, with
+ * the chunks shared between the available processors.  The file must
+ * not be changed while the data is in use.  Reading points is thread
+ * safe.
+ *
+ * @author Richard Littin
+ */
+public class MappedData2D implements DataSource2D {
+
+  /** most bytes mapped by a single chunk */
+  public static final int CHUNK_BYTES = 1 << 30;
+
+  private final boolean mDoubles;
+  private final int mSize;
+  /** points in a chunk are <code>1 &lt;&lt; mShift</code> */
+  private final int mShift;
+  private final int mMask;
+  /** one of these holds the chunks, depending on the type of value */
+  private final FloatBuffer[] mFloats;
+  private final DoubleBuffer[] mDoubleValues;
+
+  /** results of the pass over the file, valid when <code>mScanned</code> is set */
+  private boolean mScanned = false;
+  private boolean mSortedX;
+  private float mXLo, mXHi;
+  private float mYLo, mYHi;
+
+  /**
+   * Maps a file of x and y co-ordinate pairs.  The file is closed
+   * before this returns; the mapping remains valid.
+   *
+   * @param file file to map
+   * @param doubles true if the values are doubles, false if floats
+   * @exception IOException if the file cannot be mapped
+   * @exception IllegalArgumentException if the file is not a whole
+   * number of pairs or holds more than <code>Integer.MAX_VALUE</code>
+   * pairs
+   */
+  public MappedData2D(File file, boolean doubles) throws IOException {
+    this(file, doubles, Integer.numberOfTrailingZeros(CHUNK_BYTES / (doubles ? 16 : 8)));
+  }
+
+  // maps chunks of 1 << shift points
+  MappedData2D(File file, boolean doubles, int shift) throws IOException {
+    if (file == null) {
+      throw new NullPointerException("null file given.");
+    }
+    mDoubles = doubles;
+    mShift = shift;
+    mMask = (1 << shift) - 1;
+    final int pointBytes = doubles ? 16 : 8;
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      final FileChannel channel = raf.getChannel();
+      final long length = channel.size();
+      if (length % pointBytes != 0) {
+        throw new IllegalArgumentException("File length " + length + " is not a multiple of " + pointBytes + " bytes: " + file);
+      }
+      if (length / pointBytes > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("File holds more than " + Integer.MAX_VALUE + " points: " + file);
+      }
+      mSize = (int) (length / pointBytes);
+      final int chunks = (int) ((mSize + (long) mMask) >>> shift);
+      mFloats = doubles ? null : new FloatBuffer[chunks];
+      mDoubleValues = doubles ? new DoubleBuffer[chunks] : null;
+      final long chunkBytes = (long) pointBytes << shift;
+      for (int i = 0; i < chunks; i++) {
+        final long start = i * chunkBytes;
+        final ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkBytes, length - start));
+        bytes.order(ByteOrder.LITTLE_ENDIAN);
+        if (doubles) {
+          mDoubleValues[i] = bytes.asDoubleBuffer();
+        } else {
+          mFloats[i] = bytes.asFloatBuffer();
+        }
+      }
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Returns whether the values in the file are doubles.
+   *
+   * @return true for doubles, false for floats
+   */
+  public boolean isDoubles() {
+    return mDoubles;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasColumn(Column column) {
+    return column == Column.X || column == Column.Y;
+  }
+
+  // offset of the first value of the point within its chunk
+  private int offset(Column column, int index) {
+    if (column != Column.X && column != Column.Y) {
+      throw new IllegalArgumentException("No values for column " + column);
+    }
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("index " + index + " not in [0, " + mSize + ")");
+    }
+    return 2 * (index & mMask) + (column == Column.X ? 0 : 1);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float get(Column column, int index) {
+    final int offset = offset(column, index);
+    return mDoubles ? (float) mDoubleValues[index >>> mShift].get(offset) : mFloats[index >>> mShift].get(offset);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void get(Column column, int index, float[] dest, int offset, int length) {
+    if (length > 0) {
+      offset(column, index + length - 1);
+    }
+    int d = offset;
+    int i = index;
+    while (i < index + length) {
+      // copy the points that lie in the chunk holding point i
+      final int chunk = i >>> mShift;
+      final int end = (int) Math.min(index + length, (long) (chunk + 1) << mShift);
+      int o = offset(column, i);
+      if (mDoubles) {
+        final DoubleBuffer values = mDoubleValues[chunk];
+        for (; i < end; i++, o += 2) {
+          dest[d++] = (float) values.get(o);
+        }
+      } else {
+        final FloatBuffer values = mFloats[chunk];
+        for (; i < end; i++, o += 2) {
+          dest[d++] = values.get(o);
+        }
+      }
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object getObject(int index) {
+    return null;
+  }
+
+  /**
+   * Returns whether the x values in the file are in non-decreasing
+   * order.
+   *
+   * @return whether the data is sorted by x
+   */
+  public boolean isSortedX() {
+    scan();
+    return mSortedX;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getLo(Axis axis) {
+    scan();
+    return axis == Axis.X ? mXLo : mYLo;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getHi(Axis axis) {
+    scan();
+    return axis == Axis.X ? mXHi : mYHi;
+  }
+
+  // summary of the points in one chunk
+  private static final class Scan {
+    float mXLo = Float.POSITIVE_INFINITY;
+    float mXHi = Float.NEGATIVE_INFINITY;
+    float mYLo = Float.POSITIVE_INFINITY;
+    float mYHi = Float.NEGATIVE_INFINITY;
+    float mFirstX;
+    float mLastX;
+    boolean mSorted = true;
+
+    void add(int i, float x, float y) {
+      if (i == 0) {
+        mFirstX = x;
+      } else if (x < mLastX) {
+        mSorted = false;
+      }
+      mLastX = x;
+      mXLo = lo(mXLo, x);
+      mXHi = hi(mXHi, x);
+      mYLo = lo(mYLo, y);
+      mYHi = hi(mYHi, y);
+    }
+
+    // adds the points summarized by the scan of the following chunk
+    void merge(int i, Scan next) {
+      mSorted &= next.mSorted && (i == 0 || !(next.mFirstX < mLastX));
+      if (i == 0) {
+        mFirstX = next.mFirstX;
+      }
+      mLastX = next.mLastX;
+      mXLo = lo(mXLo, next.mXLo);
+      mXHi = hi(mXHi, next.mXHi);
+      mYLo = lo(mYLo, next.mYLo);
+      mYHi = hi(mYHi, next.mYHi);
+    }
+
+    // NaN values are kept, so they show as invalid bounds
+    private static float lo(float a, float b) {
+      return b < a || Float.isNaN(b) ? b : a;
+    }
+
+    private static float hi(float a, float b) {
+      return b > a || Float.isNaN(b) ? b : a;
+    }
+  }
+
+  private Scan scan(int chunk) {
+    final Scan scan = new Scan();
+    final int points = Math.min(mSize - (chunk << mShift), 1 << mShift);
+    if (mDoubles) {
+      final DoubleBuffer values = mDoubleValues[chunk];
+      for (int i = 0; i < points; i++) {
+        scan.add(i, (float) values.get(2 * i), (float) values.get(2 * i + 1));
+      }
+    } else {
+      final FloatBuffer values = mFloats[chunk];
+      for (int i = 0; i < points; i++) {
+        scan.add(i, values.get(2 * i), values.get(2 * i + 1));
+      }
+    }
+    return scan;
+  }
+
+  // finds the bounds and sortedness, scanning chunks on several threads
+  private synchronized void scan() {
+    if (mScanned) {
+      return;
+    }
+    final int chunks = mDoubles ? mDoubleValues.length : mFloats.length;
+    final Scan[] scans = new Scan[chunks];
+    final AtomicInteger next = new AtomicInteger();
+    final Runnable worker = new Runnable() {
+        @Override
+        public void run() {
+          for (int chunk = next.getAndIncrement(); chunk < chunks; chunk = next.getAndIncrement()) {
+            scans[chunk] = scan(chunk);
+          }
+        }
+      };
+    final Thread[] threads = new Thread[Math.max(0, Math.min(chunks, Runtime.getRuntime().availableProcessors()) - 1)];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(worker, "Mapped data scan " + (i + 1));
+      threads[i].setDaemon(true);
+      threads[i].start();
+    }
+    worker.run();
+    boolean interrupted = false;
+    for (final Thread thread : threads) {
+      while (true) {
+        try {
+          thread.join();
+          break;
+        } catch (final InterruptedException ie) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+
+    final Scan all = new Scan();
+    for (int i = 0; i < chunks; i++) {
+      all.merge(i, scans[i]);
+    }
+    mSortedX = all.mSorted;
+    // no points gives an empty range at the origin
+    mXLo = chunks == 0 ? 0.0f : all.mXLo;
+    mXHi = chunks == 0 ? 0.0f : all.mXHi;
+    mYLo = chunks == 0 ? 0.0f : all.mYLo;
+    mYHi = chunks == 0 ? 0.0f : all.mYHi;
+    mScanned = true;
+  }
+}
@@ -40,6 +40,16 @@ public class NotePlot2D extends FillablePlot2D {
     super.setData(data);
   }
 
+  /**
+   * Notes can only be set as an array of Note2D's.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    throw new UnsupportedOperationException("Cannot set " + DataSource2D.class.getName() + " in NotePlot2D.");
+  }
+
   /**
    * Gets the data used as a <code>BoxPlot2D</code>.
    *
@@ -1,7 +1,10 @@
 package com.reeltwo.plot;
 
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -28,6 +31,32 @@ public abstract class Plot2D {
 
   /** data points in plot */
   private Datum2D[] mData = null;
+  /** columnar view of data points in plot */
+  private DataSource2D mSource = null;
+  /** whether the data x values are in non-decreasing order */
+  private boolean mSortedX = true;
+  /** incremented whenever a property or the data of this plot is set */
+  private long mVersion = 0;
+  /**
+   * graphs this plot is in, told when the bounds of the plot change;
+   * weakly held so graphs no longer used can be collected
+   */
+  private final List<WeakReference<Graph2D>> mGraphs = new ArrayList<WeakReference<Graph2D>>();
+  /** keeps the bounds up to date when points are appended to streamed data */
+  private final BoundsListener mStreamListener = new BoundsListener() {
+      @Override
+      public void boundsChanged(DataSource2D source) {
+        final float xLo = mXLo;
+        final float xHi = mXHi;
+        final float yLo = mYLo;
+        final float yHi = mYHi;
+        mXLo = source.getLo(Axis.X);
+        mXHi = source.getHi(Axis.X);
+        mYLo = source.getLo(Axis.Y);
+        mYHi = source.getHi(Axis.Y);
+        fireBoundsChanged(xLo, xHi, yLo, yHi);
+      }
+    };
 
 
   /**
@@ -70,6 +99,7 @@ public abstract class Plot2D {
     if (title != null) {
       mTitle = title;
     }
+    modified();
   }
 
 
@@ -90,6 +120,7 @@ public abstract class Plot2D {
    */
   public void setColor(int color) {
     mColor = color;
+    modified();
   }
 
 
@@ -114,6 +145,7 @@ public abstract class Plot2D {
       throw new IllegalArgumentException("Line width must be greater than or equal to 1: " + width);
     }
     mLineWidth = width;
+    modified();
   }
 
 
@@ -134,9 +166,15 @@ public abstract class Plot2D {
    * @param data an array of Datum2D's
    */
   public void setData(Datum2D[] data) {
+    final float oldXLo = mXLo;
+    final float oldXHi = mXHi;
+    final float oldYLo = mYLo;
+    final float oldYHi = mYHi;
+    final DataSource2D source;
     if (data == null || data.length == 0) {
       mXLo = mXHi = 0.0f;
       mYLo = mYHi = 0.0f;
+      source = data == null ? null : new DatumSource2D(data, 0.0f, 0.0f, 0.0f, 0.0f);
     } else {
       Datum2D d = data[0];
       float xLo = d.getXLo();
@@ -167,8 +205,163 @@ public abstract class Plot2D {
       mXHi = xHi;
       mYLo = yLo;
       mYHi = yHi;
+      source = new DatumSource2D(data, xLo, xHi, yLo, yHi);
     }
     mData = data;
+    setSource(source);
+    modified();
+    fireBoundsChanged(oldXLo, oldXHi, oldYLo, oldYHi);
+  }
+
+  /**
+   * Sets the data used in this plot from a columnar data source.
+   * The source must have the x and y columns.  Override this to check
+   * any other columns the plot needs are present.
+   *
+   * @param data a data source
+   * @exception IllegalArgumentException if the data contains invalid values
+   */
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.X, Column.Y);
+    }
+    final float oldXLo = mXLo;
+    final float oldXHi = mXHi;
+    final float oldYLo = mYLo;
+    final float oldYHi = mYHi;
+    if (data == null || data.size() == 0) {
+      mXLo = mXHi = 0.0f;
+      mYLo = mYHi = 0.0f;
+    } else {
+      final float xLo = data.getLo(Axis.X);
+      final float xHi = data.getHi(Axis.X);
+      final float yLo = data.getLo(Axis.Y);
+      final float yHi = data.getHi(Axis.Y);
+      checkValid(xLo);
+      checkValid(yLo);
+      checkValid(xHi);
+      checkValid(yHi);
+
+      mXLo = xLo;
+      mXHi = xHi;
+      mYLo = yLo;
+      mYHi = yHi;
+    }
+    mData = null;
+    setSource(data);
+    modified();
+    fireBoundsChanged(oldXLo, oldXHi, oldYLo, oldYHi);
+  }
+
+  // replaces the data source, listening for changes to streamed data
+  private void setSource(DataSource2D data) {
+    if (mSource instanceof StreamingData2D && mSource != data) {
+      ((StreamingData2D) mSource).removeBoundsListener(mStreamListener);
+    }
+    mSource = data;
+    mSortedX = isSortedX(data);
+    if (data instanceof StreamingData2D) {
+      ((StreamingData2D) data).addBoundsListener(mStreamListener);
+    }
+  }
+
+  // tells the graphs this plot is in if the bounds differ from the old bounds
+  private void fireBoundsChanged(float oldXLo, float oldXHi, float oldYLo, float oldYHi) {
+    if (mXLo != oldXLo || mXHi != oldXHi || mYLo != oldYLo || mYHi != oldYHi) {
+      for (int i = 0; i < mGraphs.size(); i++) {
+        final Graph2D graph = mGraphs.get(i).get();
+        if (graph == null) {
+          mGraphs.remove(i--);
+        } else {
+          graph.plotBoundsChanged();
+        }
+      }
+    }
+  }
+
+  /**
+   * Records a change to a property of this plot.  Subclasses call
+   * this from each of their setters.
+   */
+  protected final void modified() {
+    mVersion++;
+  }
+
+  /**
+   * Returns a number that changes whenever a property or the data of
+   * this plot is set, or points are appended to streamed data.
+   * Renderers compare versions to tell whether a plot needs drawing
+   * again.
+   *
+   * @return the plot version
+   */
+  public long getVersion() {
+    if (mSource instanceof StreamingData2D) {
+      return mVersion + ((StreamingData2D) mSource).getVersion();
+    }
+    return mVersion;
+  }
+
+  /**
+   * Records that this plot is in <code>graph</code>, so the graph is
+   * told when the bounds of the plot change.  The graph is forgotten
+   * once it is no longer referenced elsewhere.
+   *
+   * @param graph a graph containing this plot
+   */
+  void addGraph(Graph2D graph) {
+    for (int i = 0; i < mGraphs.size(); i++) {
+      final Graph2D g = mGraphs.get(i).get();
+      if (g == graph) {
+        return;
+      } else if (g == null) {
+        mGraphs.remove(i--);
+      }
+    }
+    mGraphs.add(new WeakReference<Graph2D>(graph));
+  }
+
+  private static boolean isSortedX(DataSource2D data) {
+    if (data instanceof MappedData2D) {
+      return ((MappedData2D) data).isSortedX();
+    } else if (data != null) {
+      final int size = data.size();
+      for (int i = 1; i < size; i++) {
+        if (data.get(Column.X, i) < data.get(Column.X, i - 1)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the x values of the data are in non-decreasing
+   * order.  Renderers use this to find the data points within the
+   * visible part of a graph without looking at every point.
+   *
+   * @return whether the data is sorted by x
+   */
+  public boolean isSortedX() {
+    if (mSource instanceof StreamingData2D) {
+      return ((StreamingData2D) mSource).isSortedX();
+    }
+    return mSortedX;
+  }
+
+  /**
+   * Checks that the given data source has all of the given columns.
+   *
+   * @param data a data source
+   * @param columns columns that must be present
+   * @exception UnsupportedOperationException if a column is missing
+   */
+  protected void checkColumns(DataSource2D data, Column... columns) {
+    for (Column column : columns) {
+      if (!data.hasColumn(column)) {
+        throw new UnsupportedOperationException("Cannot set data without column " + column + " in " + getClass().getSimpleName() + ".");
+      }
+    }
   }
 
   /**
@@ -191,14 +384,54 @@ public abstract class Plot2D {
   }
   
   /**
-   * Returns the data used in this plot.
+   * Returns the data used in this plot.  If the data was set from a
+   * columnar data source a new array of Datum2D's is created on each
+   * call, so renderers should use <code>getDataSource()</code> instead.
    *
    * @return an array of Datum2D's
    */
   public Datum2D[] getData() {
+    if (mData == null && mSource != null) {
+      return createData(mSource);
+    }
     return mData;
   }
 
+  /**
+   * Creates Datum2D's holding the values in a columnar data source.
+   * Plots with data types other than <code>Point2D</code> override
+   * this.
+   *
+   * @param data a data source
+   * @return an array of Datum2D's
+   */
+  protected Datum2D[] createData(DataSource2D data) {
+    final Point2D[] points = new Point2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new Point2D(data.get(Column.X, i), data.get(Column.Y, i));
+    }
+    return points;
+  }
+
+  /**
+   * Returns a columnar view of the data used in this plot.  Data set
+   * as an array of Datum2D's is viewed through an adapter.
+   *
+   * @return a data source, or null if no data has been set
+   */
+  public DataSource2D getDataSource() {
+    return mSource;
+  }
+
+  /**
+   * Returns the number of data points in this plot.
+   *
+   * @return number of data points
+   */
+  public int getDataCount() {
+    return mSource == null ? 0 : mSource.size();
+  }
+
 
   private void checkValid(float f) {
     if (!isValid(f)) {
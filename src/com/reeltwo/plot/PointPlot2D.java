@@ -1,5 +1,8 @@
 package com.reeltwo.plot;
 
+import com.reeltwo.plot.sampling.Downsampler;
+import com.reeltwo.plot.sampling.MinMaxPyramid;
+
 /**
  * Structure to hold attributes of a single plot on a 2D graph.
  *
@@ -13,6 +16,14 @@ public class PointPlot2D extends FillablePlot2D {
   private boolean mLines = false;
   /** whether to draw dots */
   private boolean mDots = false;
+  /** whether to decimate lines to the screen resolution */
+  private boolean mDecimate = false;
+  /** reduces data before drawing, may be null */
+  private Downsampler mDownsampler = null;
+  /** number of points to reduce data to */
+  private int mDownsamplePoints = 0;
+  /** level of detail pyramid of the data for decimating lines, built when first needed */
+  private MinMaxPyramid mPyramid = null;
 
   /**
    * Default constructor setting the default axes used to the bottom
@@ -42,6 +53,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setDots(boolean flag) {
     mDots = flag;
+    modified();
   }
 
 
@@ -63,6 +75,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setPoints(boolean flag) {
     mPoints = flag;
+    modified();
   }
 
 
@@ -84,6 +97,7 @@ public class PointPlot2D extends FillablePlot2D {
    */
   public void setLines(boolean flag) {
     mLines = flag;
+    modified();
   }
 
 
@@ -97,6 +111,101 @@ public class PointPlot2D extends FillablePlot2D {
   }
 
 
+  /**
+   * Sets whether or not to reduce lines to at most four points per
+   * screen pixel column before drawing them.  The result is drawn
+   * pixel for pixel the same, so drawing time depends on the plot
+   * width rather than the number of points.  Decimation only applies
+   * to unfilled plots drawn with lines but without points or dots,
+   * and whose data is sorted by x.  Default is not to decimate.<p>
+   *
+   * The first time a plot is decimated a level of detail pyramid of
+   * its data is built, so later drawings at any zoom need only look at
+   * a few points per pixel column.
+   *
+   * @param flag whether to decimate lines.
+   */
+  public void setDecimate(boolean flag) {
+    mDecimate = flag;
+    modified();
+  }
+
+
+  /**
+   * Returns whether or not to reduce lines to the screen resolution
+   * before drawing them.
+   *
+   * @return whether to decimate lines.
+   */
+  public boolean isDecimate() {
+    return mDecimate;
+  }
+
+
+  /**
+   * Sets a downsampler used to reduce the data in this plot to at
+   * most <code>points</code> points before it is drawn.  The data
+   * itself is not changed.  Default is not to downsample.
+   *
+   * @param downsampler the downsampler, or null to draw all points.
+   * @param points number of points to reduce data to.
+   */
+  public void setDownsampler(Downsampler downsampler, int points) {
+    mDownsampler = downsampler;
+    mDownsamplePoints = points;
+    modified();
+  }
+
+
+  /**
+   * Returns the downsampler used to reduce data before it is drawn.
+   *
+   * @return the downsampler, may be null.
+   */
+  public Downsampler getDownsampler() {
+    return mDownsampler;
+  }
+
+
+  /**
+   * Returns the number of points data is reduced to before it is
+   * drawn.
+   *
+   * @return number of points.
+   */
+  public int getDownsamplePoints() {
+    return mDownsamplePoints;
+  }
+
+
+  /**
+   * Returns a level of detail pyramid of the data in this plot, used
+   * by renderers to decimate lines.  The pyramid is built the first
+   * time this is called after the data is set, even if the same data
+   * source is set again, and brought up to date with any points
+   * appended since on later calls.
+   *
+   * @return the pyramid, or null if there is no data.
+   */
+  public synchronized MinMaxPyramid getPyramid() {
+    final DataSource2D data = getDataSource();
+    if (data == null) {
+      mPyramid = null;
+    } else if (mPyramid == null || mPyramid.getSource() != data) {
+      mPyramid = new MinMaxPyramid(data);
+    } else {
+      mPyramid.update();
+    }
+    return mPyramid;
+  }
+
+
+  // the values of a source set again may have changed since the pyramid was built
+  private synchronized void clearPyramid() {
+    mPyramid = null;
+  }
+
+
   /**
    * Sets the data used in this plot.
    *
@@ -108,5 +217,20 @@ public class PointPlot2D extends FillablePlot2D {
       throw new UnsupportedOperationException("Cannot set " + data.getClass().getName() + " in PointPlot2D.");
     }
     super.setData(data);
+    clearPyramid();
+  }
+
+
+  /**
+   * Sets the data used in this plot from a columnar data source.  Set
+   * a source again after changing its values so they are decimated
+   * afresh.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    super.setData(data);
+    clearPyramid();
   }
 }
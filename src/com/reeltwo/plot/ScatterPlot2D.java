@@ -38,6 +38,7 @@ public class ScatterPlot2D extends Plot2D {
    */
   public void setScatterFactor(float sf) {
     mScatterFactor = Math.abs(sf);
+    modified();
   }
 
 
@@ -63,4 +64,29 @@ public class ScatterPlot2D extends Plot2D {
     }
     super.setData(data);
   }
+
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y and count columns.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.COUNT);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final ScatterPoint2D[] points = new ScatterPoint2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new ScatterPoint2D(data.get(Column.X, i), data.get(Column.Y, i), (int) data.get(Column.COUNT, i));
+    }
+    return points;
+  }
+
 }
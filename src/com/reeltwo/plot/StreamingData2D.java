@@ -0,0 +1,307 @@
+package com.reeltwo.plot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plot data for live series that have points appended over time.
+ * Holds at most a fixed number of x and y co-ordinates in a ring
+ * buffer, evicting the oldest point when a new point is appended to a
+ * full buffer.  Appending a point takes constant time: the bounds of
+ * the data are kept up to date incrementally, and listeners are told
+ * only when the bounds change.  A plot given this data keeps its own
+ * bounds and those of its graphs up to date as points are appended.<p>
+ *
+ * This class is not thread safe.  Points should be appended on the
+ * thread that renders the plot, such as the Swing event thread.
+ *
+ * @author Richard Littin
+ */
+public class StreamingData2D implements DataSource2D {
+
+  // tracks the lowest or highest value in a sliding window of values
+  private static final class WindowExtreme {
+    private final boolean mMax;
+    // candidate values and the sequence numbers of the points they came from
+    private final float[] mValues;
+    private final long[] mSequences;
+    private int mHead = 0;
+    private int mSize = 0;
+
+    WindowExtreme(int capacity, boolean max) {
+      mMax = max;
+      mValues = new float[capacity];
+      mSequences = new long[capacity];
+    }
+
+    void add(long sequence, float value) {
+      // drop candidates that can never be the extreme while value is in the window
+      while (mSize > 0) {
+        final float last = mValues[(mHead + mSize - 1) % mValues.length];
+        if (mMax ? last > value : last < value) {
+          break;
+        }
+        mSize--;
+      }
+      final int tail = (mHead + mSize) % mValues.length;
+      mValues[tail] = value;
+      mSequences[tail] = sequence;
+      mSize++;
+    }
+
+    void evict(long sequence) {
+      if (mSize > 0 && mSequences[mHead] == sequence) {
+        mHead = (mHead + 1) % mValues.length;
+        mSize--;
+      }
+    }
+
+    float get() {
+      return mSize == 0 ? 0.0f : mValues[mHead];
+    }
+
+    void clear() {
+      mHead = 0;
+      mSize = 0;
+    }
+  }
+
+  private final float[] mXs;
+  private final float[] mYs;
+  /** buffer index of the oldest point */
+  private int mStart = 0;
+  private int mSize = 0;
+  /** number of points ever appended, the sequence number of the next point */
+  private long mAppended = 0;
+  /** number of adjacent pairs of points whose x values decrease */
+  private int mDescents = 0;
+  /** incremented whenever points are appended or cleared */
+  private long mVersion = 0;
+
+  private final WindowExtreme mXLo;
+  private final WindowExtreme mXHi;
+  private final WindowExtreme mYLo;
+  private final WindowExtreme mYHi;
+
+  private final List<BoundsListener> mListeners = new ArrayList<BoundsListener>();
+
+  /**
+   * Creates an empty series holding at most <code>capacity</code>
+   * points.
+   *
+   * @param capacity maximum number of points
+   * @exception IllegalArgumentException if <code>capacity</code> is
+   * less than 1
+   */
+  public StreamingData2D(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("capacity must be >= 1: " + capacity);
+    }
+    mXs = new float[capacity];
+    mYs = new float[capacity];
+    mXLo = new WindowExtreme(capacity, false);
+    mXHi = new WindowExtreme(capacity, true);
+    mYLo = new WindowExtreme(capacity, false);
+    mYHi = new WindowExtreme(capacity, true);
+  }
+
+  /**
+   * Returns the maximum number of points held.
+   *
+   * @return capacity
+   */
+  public int getCapacity() {
+    return mXs.length;
+  }
+
+  private int slot(int index) {
+    final int slot = mStart + index;
+    return slot >= mXs.length ? slot - mXs.length : slot;
+  }
+
+  /**
+   * Appends a point, evicting the oldest point if the series is full.
+   *
+   * @param x x co-ordinate
+   * @param y y co-ordinate
+   * @exception IllegalArgumentException if either co-ordinate is NaN
+   * or infinite
+   */
+  public void append(float x, float y) {
+    if (!Plot2D.isValid(x) || !Plot2D.isValid(y)) {
+      throw new IllegalArgumentException("Bad data value: " + x + "," + y);
+    }
+    final float xLo = getLo(Axis.X);
+    final float xHi = getHi(Axis.X);
+    final float yLo = getLo(Axis.Y);
+    final float yHi = getHi(Axis.Y);
+    final boolean empty = mSize == 0;
+
+    if (mSize == mXs.length) {
+      final long oldest = mAppended - mSize;
+      if (mSize > 1 && mXs[slot(1)] < mXs[mStart]) {
+        mDescents--;
+      }
+      mXLo.evict(oldest);
+      mXHi.evict(oldest);
+      mYLo.evict(oldest);
+      mYHi.evict(oldest);
+      mStart = slot(1);
+      mSize--;
+    }
+    if (mSize > 0 && x < mXs[slot(mSize - 1)]) {
+      mDescents++;
+    }
+    final int tail = slot(mSize);
+    mXs[tail] = x;
+    mYs[tail] = y;
+    mXLo.add(mAppended, x);
+    mXHi.add(mAppended, x);
+    mYLo.add(mAppended, y);
+    mYHi.add(mAppended, y);
+    mSize++;
+    mAppended++;
+    mVersion++;
+
+    if (empty || xLo != getLo(Axis.X) || xHi != getHi(Axis.X) || yLo != getLo(Axis.Y) || yHi != getHi(Axis.Y)) {
+      fireBoundsChanged();
+    }
+  }
+
+  /**
+   * Removes all points.
+   */
+  public void clear() {
+    final boolean empty = mSize == 0;
+    mStart = 0;
+    mSize = 0;
+    mDescents = 0;
+    mVersion++;
+    mXLo.clear();
+    mXHi.clear();
+    mYLo.clear();
+    mYHi.clear();
+    if (!empty) {
+      fireBoundsChanged();
+    }
+  }
+
+  /**
+   * Returns a number that changes whenever points are appended or
+   * cleared.
+   *
+   * @return the data version
+   */
+  public long getVersion() {
+    return mVersion;
+  }
+
+  /**
+   * Returns the number of points ever appended, including those since
+   * evicted or cleared.  The point at index <code>i</code> was
+   * appended <code>getAppended() - size() + i</code>'th, counting
+   * from zero.
+   *
+   * @return number of points appended
+   */
+  public long getAppended() {
+    return mAppended;
+  }
+
+  /**
+   * Returns whether the x values of the points held are in
+   * non-decreasing order.
+   *
+   * @return whether the data is sorted by x
+   */
+  public boolean isSortedX() {
+    return mDescents == 0;
+  }
+
+  /**
+   * Adds a listener to be told when the bounds of the data change.
+   *
+   * @param listener a listener
+   */
+  public void addBoundsListener(BoundsListener listener) {
+    if (listener != null && !mListeners.contains(listener)) {
+      mListeners.add(listener);
+    }
+  }
+
+  /**
+   * Removes a listener added with <code>addBoundsListener</code>.
+   *
+   * @param listener a listener
+   */
+  public void removeBoundsListener(BoundsListener listener) {
+    mListeners.remove(listener);
+  }
+
+  private void fireBoundsChanged() {
+    for (int i = 0; i < mListeners.size(); i++) {
+      mListeners.get(i).boundsChanged(this);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mSize;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasColumn(Column column) {
+    return column == Column.X || column == Column.Y;
+  }
+
+  private float[] column(Column column) {
+    if (column == Column.X) {
+      return mXs;
+    } else if (column == Column.Y) {
+      return mYs;
+    }
+    throw new IllegalArgumentException("No values for column " + column);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float get(Column column, int index) {
+    if (index < 0 || index >= mSize) {
+      throw new IndexOutOfBoundsException("Index " + index + " not in 0.." + (mSize - 1));
+    }
+    return column(column)[slot(index)];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void get(Column column, int index, float[] dest, int offset, int length) {
+    if (index < 0 || length < 0 || index + length > mSize) {
+      throw new IndexOutOfBoundsException("Range " + index + "+" + length + " not in 0.." + (mSize - 1));
+    }
+    final float[] values = column(column);
+    final int start = slot(index);
+    final int first = Math.min(length, values.length - start);
+    System.arraycopy(values, start, dest, offset, first);
+    System.arraycopy(values, 0, dest, offset + first, length - first);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object getObject(int index) {
+    return null;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getLo(Axis axis) {
+    return axis == Axis.X ? mXLo.get() : mYLo.get();
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getHi(Axis axis) {
+    return axis == Axis.X ? mXHi.get() : mYHi.get();
+  }
+}
@@ -51,6 +51,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setVertical(boolean v) {
     mVertical = v;
+    modified();
   }
 
   /**
@@ -92,6 +93,7 @@ public class TextPlot2D extends Plot2D {
     default:
       throw new IllegalArgumentException("Bad horizontal alignment value: " + alignment);
     }
+    modified();
   }
 
 
@@ -125,6 +127,7 @@ public class TextPlot2D extends Plot2D {
     default:
       throw new IllegalArgumentException("Bad vertical alignment value: " + alignment);
     }
+    modified();
   }
 
 
@@ -145,6 +148,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setInvert(boolean flag) {
     mInvert = flag;
+    modified();
   }
 
 
@@ -165,6 +169,7 @@ public class TextPlot2D extends Plot2D {
    */
   public void setUseFGColor(boolean flag) {
     mUseFGColor = flag;
+    modified();
   }
 
 
@@ -189,4 +194,33 @@ public class TextPlot2D extends Plot2D {
     }
     super.setData(data);
   }
+
+  /**
+   * Sets the data used in this plot from a columnar data source with
+   * the x, y and object columns, the objects giving the text.
+   *
+   * @param data a data source
+   */
+  @Override
+  public void setData(DataSource2D data) {
+    if (data != null) {
+      checkColumns(data, Column.OBJECT);
+    }
+    super.setData(data);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  protected Datum2D[] createData(DataSource2D data) {
+    final TextPoint2D[] points = new TextPoint2D[data.size()];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new TextPoint2D(data.get(Column.X, i), data.get(Column.Y, i), text(data.getObject(i)));
+    }
+    return points;
+  }
+
+  private static String text(Object o) {
+    return o == null ? "" : o.toString();
+  }
+
 }
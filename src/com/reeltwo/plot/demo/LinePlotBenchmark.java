@@ -0,0 +1,96 @@
+package com.reeltwo.plot.demo;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+
+/**
+ * Renders a line plot of a million points repeatedly and reports the
+ * time, heap allocation and garbage collections per render.  Run
+ * with:<p>
+ *
+ * java com.reeltwo.plot.demo.LinePlotBenchmark [points] [renders]
+ *
+ * @author Richard Littin
+ */
+public final class LinePlotBenchmark {
+
+  // Prevent instantiation.
+  private LinePlotBenchmark() { }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long allocatedBytes() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  /**
+   * Main loop.
+   *
+   * @param args command line arguments
+   */
+  public static void main(String[] args) {
+    final int size = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    final int renders = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+    final Random random = new Random(1);
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    float y = 0.0f;
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      y += random.nextGaussian();
+      ys[i] = y;
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(new ColumnData2D(xs, ys));
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+
+    final BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    for (int i = 0; i < 3; i++) { // warm up
+      final Graphics g = image.getGraphics();
+      renderer.drawGraph(graph, g, image.getWidth(), image.getHeight());
+      g.dispose();
+    }
+
+    final long gc = gcCount();
+    final long bytes = allocatedBytes();
+    final long start = System.nanoTime();
+    for (int i = 0; i < renders; i++) {
+      final Graphics g = image.getGraphics();
+      renderer.drawGraph(graph, g, image.getWidth(), image.getHeight());
+      g.dispose();
+    }
+    final long time = System.nanoTime() - start;
+    final long allocated = allocatedBytes() - bytes;
+
+    System.out.println("points: " + size + " renders: " + renders);
+    System.out.println("ms/render: " + (time / 1000000.0 / renders));
+    if (bytes >= 0) {
+      System.out.println("bytes allocated/render: " + (allocated / renders));
+    }
+    System.out.println("gc collections: " + (gcCount() - gc));
+  }
+
+}
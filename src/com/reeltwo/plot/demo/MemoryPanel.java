@@ -11,13 +11,15 @@ import java.text.NumberFormat;
 import javax.swing.JPanel;
 import javax.swing.JSplitPane;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.DataSource2D;
 import com.reeltwo.plot.Edge;
-import com.reeltwo.plot.FillablePlot2D.FillStyle;
 import com.reeltwo.plot.Graph2D;
-import com.reeltwo.plot.Point2D;
 import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.StreamingData2D;
 import com.reeltwo.plot.ui.PlotPanel;
 
 /**
@@ -116,91 +118,71 @@ public class MemoryPanel extends JPanel {
   }
 
 
-  private int mSampleIndex = 0;
-  private int mSampleIndex2 = -mNumberOfSamples + 1;
-  private final float[] mTotals = new float[mNumberOfSamples];
-  private final float[] mUsed = new float[mNumberOfSamples];
-
-
   private void monitor() {
     final Thread t = new Thread() {
       @Override
       public void run() {
         final float max = mMonitor.getMaxMemory() / 1024.0f;
 
-        final Point2D[] totalPoints = new Point2D[mNumberOfSamples + 2];
-        final Point2D[] usedPoints = new Point2D[mNumberOfSamples + 2];
-        totalPoints[0] = new Point2D(0, 0);
-        usedPoints[0] = new Point2D(0, 0);
-        for (int i = 0; i < mNumberOfSamples; i++) {
-          totalPoints[i + 1] = new Point2D(i, 0);
-          usedPoints[i + 1] = new Point2D(i, 0);
-        }
-        totalPoints[mNumberOfSamples + 1] = new Point2D(mNumberOfSamples - 1, 0);
-        usedPoints[mNumberOfSamples + 1] = new Point2D(mNumberOfSamples - 1, 0);
+        final StreamingData2D totals = new StreamingData2D(mNumberOfSamples);
+        final StreamingData2D used = new StreamingData2D(mNumberOfSamples);
+        final float[] maxXs = new float[2];
+        final ColumnData2D maxData = new ColumnData2D(maxXs, new float[] {max, max});
 
-        final Point2D[] maxPoints = new Point2D[] {
-            new Point2D(0, max),
-            new Point2D(100, max)
-        };
         final PointPlot2D mplot = new PointPlot2D();
         mplot.setLines(true);
         mplot.setPoints(false);
         mplot.setColor(2);
 
         final PointPlot2D tplot = new PointPlot2D();
-        tplot.setFill(FillStyle.COLOR);
+        tplot.setLines(true);
+        tplot.setPoints(false);
+        tplot.setData(totals);
 
         final PointPlot2D uplot = new PointPlot2D();
-        uplot.setFill(FillStyle.COLOR);
-
+        uplot.setLines(true);
+        uplot.setPoints(false);
+        uplot.setData(used);
+
+        // the plots keep the graph ranges up to date as samples are added
+        final Graph2D graph = new Graph2D();
+        graph.addPlot(tplot);
+        graph.addPlot(uplot);
+        graph.addPlot(mplot);
+        graph.setGrid(true);
+        graph.setLo(Axis.Y, Edge.MAIN, 0.0f);
+
+        long count = 0;
         while (mKeepRunning) {
-          final Graph2D graph = new Graph2D();
-          graph.addPlot(tplot);
-          graph.addPlot(uplot);
-
-          graph.setGrid(true);
-
           final float total = mMonitor.getTotalMemory() / 1024.0f;
-          final float used = mMonitor.getUsedMemory() / 1024.0f;
-
-          mMaxMemText.setText("Max: " + mMemFormat.format(max));
-          mTotalMemText.setText("Total: " + mMemFormat.format(total));
-          mUsedMemText.setText("Used: " + mMemFormat.format(used));
-
-          mTotals[mSampleIndex] = total;
-          mUsed[mSampleIndex] = used;
-
-          int index;
-          for (int i = 1; i <= mNumberOfSamples; i++) {
-            index = Math.abs((mSampleIndex + i) % mNumberOfSamples);
-            totalPoints[i].setY(mTotals[index]);
-            totalPoints[i].setX(mSampleIndex2 + i);
-            usedPoints[i].setY(mUsed[index]);
-            usedPoints[i].setX(mSampleIndex2 + i);
-          }
-          totalPoints[0].setX(mSampleIndex2 + 1);
-          usedPoints[0].setX(mSampleIndex2 + 1);
-          totalPoints[mNumberOfSamples + 1].setX(mSampleIndex2 + mNumberOfSamples);
-          usedPoints[mNumberOfSamples + 1].setX(mSampleIndex2 + mNumberOfSamples);
-
-          tplot.setData(totalPoints);
-          uplot.setData(usedPoints);
-
-          final float ymax = graph.getHi(Axis.Y, Edge.MAIN);
-          if (max <= ymax) {
-            maxPoints[0].setX(mSampleIndex2 < -1 ? 0 : mSampleIndex2 + 1);
-            maxPoints[1].setX(mSampleIndex2 + mNumberOfSamples);
-            mplot.setData(maxPoints);
-            graph.addPlot(mplot);
-          }
-
-          graph.setRange(Axis.X, mSampleIndex2 < -1 ? 0 : mSampleIndex2 + 1, mSampleIndex2 + mNumberOfSamples);
-
-          mGraph.setGraph(graph);
+          final float usedMem = mMonitor.getUsedMemory() / 1024.0f;
+          final long sample = count++;
+
+          SwingUtilities.invokeLater(new Runnable() {
+              @Override
+              public void run() {
+                mMaxMemText.setText("Max: " + mMemFormat.format(max));
+                mTotalMemText.setText("Total: " + mMemFormat.format(total));
+                mUsedMemText.setText("Used: " + mMemFormat.format(usedMem));
+
+                totals.append(sample, total);
+                used.append(sample, usedMem);
+
+                final float lo = Math.max(0, sample - mNumberOfSamples + 1);
+                final float hi = lo + mNumberOfSamples - 1;
+                // only show the maximum when it is within the range of the samples
+                mplot.setData((DataSource2D) null);
+                if (max <= graph.getHi(Axis.Y, Edge.MAIN)) {
+                  maxXs[0] = lo;
+                  maxXs[1] = hi;
+                  maxData.invalidateBounds();
+                  mplot.setData(maxData);
+                }
+                graph.setRange(Axis.X, lo, hi);
+                mGraph.setGraph(graph);
+              }
+            });
 
-          mSampleIndex = (mSampleIndex + 1) % mNumberOfSamples;
-          mSampleIndex2++;
           try {
             sleep(mSamplePeriod);
           } catch (final InterruptedException ie) {
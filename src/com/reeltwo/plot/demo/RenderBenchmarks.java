@@ -0,0 +1,523 @@
+package com.reeltwo.plot.demo;
+
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.reeltwo.plot.ArrowPlot2D;
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.BWPlot2D;
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Note2D;
+import com.reeltwo.plot.NotePlot2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.ScatterPlot2D;
+import com.reeltwo.plot.TextPlot2D;
+import com.reeltwo.plot.renderer.AbstractRenderer;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+import com.reeltwo.plot.renderer.RenderStatistics;
+import com.reeltwo.plot.renderer.TextRenderer;
+import com.reeltwo.plot.ui.ImageWriter;
+
+/**
+ * Benchmarks the parts of the render pipeline at several data sizes:
+ * drawing each type of plot with the graphics and text renderers,
+ * setting plot data, finding graph ranges, mapping co-ordinates and
+ * writing images.  Each benchmark is warmed up and then timed over
+ * several iterations, and the time, heap allocation and garbage
+ * collections per operation are reported as tab separated columns,
+ * followed by a comment line breaking the time spent by the renderers
+ * into phases and plot types.
+ * Data is generated from fixed seeds, so results from different
+ * builds can be compared line by line.  Run with:<p>
+ *
+ * java -Djava.awt.headless=true com.reeltwo.plot.demo.RenderBenchmarks [pattern] [sizes] [ms per iteration]<p>
+ *
+ * where <code>pattern</code> is a regular expression matching the
+ * names of the benchmarks to run and <code>sizes</code> is a comma
+ * separated list of numbers of points.  The <code>benchmark</code>
+ * target of the build file runs every benchmark and saves the results
+ * under the current revision.
+ *
+ * @author Richard Littin
+ */
+public final class RenderBenchmarks {
+
+  // Prevent instantiation.
+  private RenderBenchmarks() { }
+
+  private static final int WIDTH = 800;
+  private static final int HEIGHT = 600;
+  private static final int WARMUP_ITERATIONS = 2;
+  private static final int ITERATIONS = 5;
+  private static final Font FONT = new Font("SansSerif", Font.PLAIN, 12);
+  /** totals over the measured iterations of the current benchmark */
+  private static final RenderStatistics STATISTICS = new RenderStatistics();
+
+  /** Discards all bytes written to it. */
+  private static final OutputStream NULL_STREAM = new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+      @Override
+      public void write(byte[] b, int off, int len) {
+      }
+    };
+
+  /** Keeps results so the work producing them cannot be optimized away. */
+  private static int sSink = 0;
+
+  /** An operation timed on data of a given size. */
+  private abstract static class Benchmark {
+    private final String mName;
+    private final int mMaxSize;
+
+    Benchmark(String name, int maxSize) {
+      mName = name;
+      mMaxSize = maxSize;
+    }
+
+    /** Prepares to run the operation on data of the given size. */
+    abstract void setUp(int size);
+
+    /** Runs the operation once. */
+    abstract void run() throws IOException;
+  }
+
+  /** Draws a graph holding one plot. */
+  private abstract static class GraphBenchmark extends Benchmark {
+    private final BufferedImage mImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    private final GraphicsRenderer mRenderer = listened(new GraphicsRenderer());
+    Graph2D mGraph = null;
+
+    GraphBenchmark(String name, int maxSize) {
+      super(name, maxSize);
+    }
+
+    /** Returns the plot to draw. */
+    abstract Plot2D plot(int size);
+
+    @Override
+    void setUp(int size) {
+      mGraph = new Graph2D();
+      mGraph.addPlot(plot(size));
+    }
+
+    @Override
+    void run() throws IOException {
+      final Graphics g = mImage.getGraphics();
+      g.setFont(FONT);
+      mRenderer.drawGraph(mGraph, g, WIDTH, HEIGHT);
+      g.dispose();
+    }
+  }
+
+  // a random walk sorted by x with the columns every plot type needs
+  private static ColumnData2D walk(int size) {
+    final Random random = new Random(42);
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    final float[] x2s = new float[size];
+    final float[] y2s = new float[size];
+    final float[] diameters = new float[size];
+    final float[] counts = new float[size];
+    float y = 0.0f;
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      y += (float) random.nextGaussian();
+      ys[i] = y;
+      x2s[i] = i + 0.5f + random.nextFloat();
+      y2s[i] = y + 1.0f + random.nextFloat();
+      diameters[i] = 2.0f + random.nextInt(8);
+      counts[i] = 1 + random.nextInt(10);
+    }
+    final ColumnData2D data = new ColumnData2D(xs, ys);
+    data.setColumn(Column.X2, x2s);
+    data.setColumn(Column.Y2, y2s);
+    data.setColumn(Column.DIAMETER, diameters);
+    data.setColumn(Column.COUNT, counts);
+    return data;
+  }
+
+  // box and whisker data: y and y2 are the whisker ends, with the quartiles evenly between
+  private static ColumnData2D whiskers(int size) {
+    final ColumnData2D data = walk(size);
+    final float[] ys = data.getColumn(Column.Y);
+    final float[] y2s = data.getColumn(Column.Y2);
+    final Column[] quartiles = {Column.LOWER_QUARTILE, Column.MEDIAN, Column.UPPER_QUARTILE};
+    for (int q = 0; q < quartiles.length; q++) {
+      final float[] values = new float[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = ys[i] + (y2s[i] - ys[i]) * (q + 1) / 4;
+      }
+      data.setColumn(quartiles[q], values);
+    }
+    return data;
+  }
+
+  private static PointPlot2D linePlot(int size) {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(walk(size));
+    return plot;
+  }
+
+  // drawing each type of plot with the graphics renderer
+  private static void addPlotBenchmarks(List<Benchmark> benchmarks) {
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.points", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final PointPlot2D plot = new PointPlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.lines", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          return linePlot(size);
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.decimatedLines", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final PointPlot2D plot = linePlot(size);
+          plot.setDecimate(true);
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.curve", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final CurvePlot2D plot = new CurvePlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.scatter", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final ScatterPlot2D plot = new ScatterPlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.boxes", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final BoxPlot2D plot = new BoxPlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.circles", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final CirclePlot2D plot = new CirclePlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.arrows", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final ArrowPlot2D plot = new ArrowPlot2D();
+          plot.setData(walk(size));
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.boxAndWhisker", Integer.MAX_VALUE) {
+        @Override
+        Plot2D plot(int size) {
+          final BWPlot2D plot = new BWPlot2D();
+          plot.setData(whiskers(size));
+          return plot;
+        }
+      });
+    // text and notes are held as objects, so are limited to sizes that fit in memory
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.text", 100000) {
+        @Override
+        Plot2D plot(int size) {
+          final ColumnData2D data = walk(size);
+          final String[] text = new String[size];
+          for (int i = 0; i < size; i++) {
+            text[i] = "t" + (i % 100);
+          }
+          data.setObjects(text);
+          final TextPlot2D plot = new TextPlot2D();
+          plot.setData(data);
+          return plot;
+        }
+      });
+    benchmarks.add(new GraphBenchmark("GraphicsRenderer.notes", 100000) {
+        @Override
+        Plot2D plot(int size) {
+          final ColumnData2D data = walk(size);
+          final Note2D[] notes = new Note2D[size];
+          for (int i = 0; i < size; i++) {
+            final float x = data.get(Column.X, i);
+            final float y = data.get(Column.Y, i);
+            notes[i] = new Note2D("n" + (i % 100), x, y, data.get(Column.X2, i), data.get(Column.Y2, i), x, y - 1);
+          }
+          final NotePlot2D plot = new NotePlot2D();
+          plot.setData(notes);
+          return plot;
+        }
+      });
+  }
+
+  // the other stages of the pipeline
+  private static void addPipelineBenchmarks(List<Benchmark> benchmarks) {
+    benchmarks.add(new Benchmark("TextRenderer.lines", Integer.MAX_VALUE) {
+        private final TextRenderer mRenderer = listened(new TextRenderer());
+        private Graph2D mGraph = null;
+
+        @Override
+        void setUp(int size) {
+          mGraph = new Graph2D();
+          mGraph.addPlot(linePlot(size));
+        }
+
+        @Override
+        void run() {
+          sSink += mRenderer.drawGraph(mGraph, 80, 24, false).length();
+        }
+      });
+    benchmarks.add(new Benchmark("TextRenderer.braille", Integer.MAX_VALUE) {
+        private final TextRenderer mRenderer = listened(new TextRenderer());
+        private Graph2D mGraph = null;
+
+        @Override
+        void setUp(int size) {
+          mRenderer.setResolution(TextRenderer.Resolution.BRAILLE);
+          mGraph = new Graph2D();
+          mGraph.addPlot(linePlot(size));
+        }
+
+        @Override
+        void run() {
+          sSink += mRenderer.drawGraph(mGraph, 80, 24, false).length();
+        }
+      });
+    benchmarks.add(new Benchmark("Plot2D.setData.columns", Integer.MAX_VALUE) {
+        private final PointPlot2D mPlot = new PointPlot2D();
+        private ColumnData2D mData = null;
+
+        @Override
+        void setUp(int size) {
+          mData = walk(size);
+        }
+
+        @Override
+        void run() {
+          // make the bounds be found again
+          mData.invalidateBounds();
+          mPlot.setData(mData);
+        }
+      });
+    benchmarks.add(new Benchmark("Plot2D.setData.datums", Integer.MAX_VALUE) {
+        private final PointPlot2D mPlot = new PointPlot2D();
+        private Point2D[] mData = null;
+
+        @Override
+        void setUp(int size) {
+          final ColumnData2D data = walk(size);
+          mData = new Point2D[size];
+          for (int i = 0; i < size; i++) {
+            mData[i] = new Point2D(data.get(Column.X, i), data.get(Column.Y, i));
+          }
+        }
+
+        @Override
+        void run() {
+          mPlot.setData(mData);
+        }
+      });
+    benchmarks.add(new Benchmark("Graph2D.setRange", Integer.MAX_VALUE) {
+        private Graph2D mGraph = null;
+        private int mRuns = 0;
+
+        @Override
+        void setUp(int size) {
+          // the points are spread over plots, each of which the auto ranged axes look at
+          mGraph = new Graph2D();
+          final int plots = 16;
+          for (int p = 0; p < plots; p++) {
+            mGraph.addPlot(linePlot(Math.max(1, size / plots)));
+          }
+        }
+
+        @Override
+        void run() {
+          mRuns++;
+          mGraph.setRange(Axis.Y, -mRuns, mRuns);
+        }
+      });
+    benchmarks.add(new Benchmark("Mapping.worldToScreen", Integer.MAX_VALUE) {
+        private final Mapping mMapping = new Mapping(-1000.0f, 1000.0f, 0.0f, WIDTH);
+        private float[] mWorld = null;
+        private int[] mScreen = null;
+
+        @Override
+        void setUp(int size) {
+          mWorld = walk(size).getColumn(Column.Y);
+          mScreen = new int[size];
+        }
+
+        @Override
+        void run() {
+          mMapping.worldToScreen(mWorld, 0, mScreen, 0, mWorld.length);
+          sSink += mScreen[mScreen.length - 1];
+        }
+      });
+    benchmarks.add(new GraphBenchmark("ImageWriter.toPNG", Integer.MAX_VALUE) {
+        private final ImageWriter mWriter = new ImageWriter(listened(new GraphicsRenderer()));
+
+        @Override
+        Plot2D plot(int size) {
+          return linePlot(size);
+        }
+
+        @Override
+        void run() throws IOException {
+          mWriter.toPNG(NULL_STREAM, mGraph, WIDTH, HEIGHT, FONT);
+        }
+      });
+    benchmarks.add(new GraphBenchmark("ImageWriter.toSVG", Integer.MAX_VALUE) {
+        private final ImageWriter mWriter = new ImageWriter(listened(new GraphicsRenderer()));
+
+        @Override
+        Plot2D plot(int size) {
+          return linePlot(size);
+        }
+
+        @Override
+        void run() throws IOException {
+          mWriter.toSVG(NULL_STREAM, mGraph, WIDTH, HEIGHT, FONT);
+        }
+      });
+  }
+
+  private static List<Benchmark> benchmarks() {
+    final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+    addPlotBenchmarks(benchmarks);
+    addPipelineBenchmarks(benchmarks);
+    return benchmarks;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(0, gc.getCollectionCount());
+    }
+    return count;
+  }
+
+  private static long allocatedBytes() {
+    final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return -1;
+  }
+
+  // runs the operation until at least millis have passed, returning the number of runs
+  private static int iteration(Benchmark benchmark, long millis) throws IOException {
+    final long end = System.nanoTime() + millis * 1000000L;
+    int ops = 0;
+    do {
+      benchmark.run();
+      ops++;
+    } while (System.nanoTime() < end);
+    return ops;
+  }
+
+  // reports the time a renderer spends in each phase to the shared statistics
+  private static <R extends AbstractRenderer> R listened(R renderer) {
+    renderer.setRenderListener(STATISTICS);
+    return renderer;
+  }
+
+  private static void measure(Benchmark benchmark, int size, long millis) throws IOException {
+    benchmark.setUp(size);
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      iteration(benchmark, millis);
+    }
+    STATISTICS.reset();
+    final double[] msPerOp = new double[ITERATIONS];
+    long ops = 0;
+    final long gc = gcCount();
+    final long bytes = allocatedBytes();
+    for (int i = 0; i < ITERATIONS; i++) {
+      final long start = System.nanoTime();
+      final int n = iteration(benchmark, millis);
+      msPerOp[i] = (System.nanoTime() - start) / 1000000.0 / n;
+      ops += n;
+    }
+    final long allocated = allocatedBytes() - bytes;
+    final long collections = gcCount() - gc;
+
+    double mean = 0;
+    for (final double t : msPerOp) {
+      mean += t / ITERATIONS;
+    }
+    double variance = 0;
+    for (final double t : msPerOp) {
+      variance += (t - mean) * (t - mean) / (ITERATIONS - 1);
+    }
+    System.out.println(String.format(Locale.ROOT, "%s\t%d\t%d\t%.4f\t%.4f\t%d\t%.3f",
+        benchmark.mName, size, ops, mean, Math.sqrt(variance), bytes < 0 ? -1 : allocated / ops, (double) collections / ops));
+    if (!STATISTICS.getPhaseNanos().isEmpty()) {
+      System.out.println("#   " + STATISTICS);
+    }
+  }
+
+  /**
+   * Main loop.
+   *
+   * @param args command line arguments
+   * @exception IOException if writing an image fails
+   */
+  public static void main(String[] args) throws IOException {
+    final Pattern pattern = Pattern.compile(args.length > 0 ? args[0] : ".*");
+    final String[] sizes = (args.length > 1 ? args[1] : "1000,100000,10000000").split(",");
+    final long millis = args.length > 2 ? Long.parseLong(args[2]) : 500;
+
+    System.out.println("# revision: " + System.getProperty("rplot.revision", "unknown"));
+    System.out.println("# java: " + System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+    System.out.println("# iterations: " + WARMUP_ITERATIONS + " warmup, " + ITERATIONS + " measured, " + millis + " ms each");
+    System.out.println("# benchmark\tpoints\tops\tms/op\terror\tbytes/op\tgcs/op");
+    for (final Benchmark benchmark : benchmarks()) {
+      if (pattern.matcher(benchmark.mName).matches()) {
+        for (final String s : sizes) {
+          final int size = Integer.parseInt(s.trim());
+          if (size <= benchmark.mMaxSize) {
+            measure(benchmark, size, millis);
+          }
+        }
+      }
+    }
+    if (sSink == 42) {
+      System.out.println();
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+package com.reeltwo.plot.demo;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+import com.reeltwo.plot.renderer.ScrollBuffer;
+
+/**
+ * Renders a strip chart showing a window of a million points that
+ * scrolls forward one pixel per frame, with and without a scroll
+ * buffer, and reports the time per frame.  Run with:<p>
+ *
+ * java com.reeltwo.plot.demo.StripChartBenchmark [window] [frames]
+ *
+ * @author Richard Littin
+ */
+public final class StripChartBenchmark {
+
+  // Prevent instantiation.
+  private StripChartBenchmark() { }
+
+  private static double run(GraphicsRenderer renderer, Graph2D graph, BufferedImage image, int window, int frames) {
+    Graphics g = image.getGraphics();
+    graph.setRange(Axis.X, 0, window);
+    renderer.drawGraph(graph, image, g, 0, 0, image.getWidth(), image.getHeight());
+    g.dispose();
+    final Mapping x = renderer.getMappings()[0];
+    final float step = window / (x.getScreenMax() - x.getScreenMin());
+
+    final long start = System.nanoTime();
+    for (int i = 1; i <= frames; i++) {
+      g = image.getGraphics();
+      graph.setRange(Axis.X, i * step, i * step + window);
+      renderer.drawGraph(graph, image, g, 0, 0, image.getWidth(), image.getHeight());
+      g.dispose();
+    }
+    return (System.nanoTime() - start) / 1000000.0 / frames;
+  }
+
+  /**
+   * Main loop.
+   *
+   * @param args command line arguments
+   */
+  public static void main(String[] args) {
+    final int window = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+    final int frames = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+    final int size = 2 * window;
+    final Random random = new Random(1);
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    float y = 0.0f;
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      y += random.nextGaussian();
+      ys[i] = y;
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(new ColumnData2D(xs, ys));
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+
+    final BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    run(renderer, graph, image, window, 10); // warm up
+    System.out.println("window: " + window + " frames: " + frames);
+    System.out.println("full ms/frame: " + run(renderer, graph, image, window, frames));
+    renderer.setScrollBuffer(new ScrollBuffer());
+    run(renderer, graph, image, window, 10); // warm up
+    System.out.println("scrolled ms/frame: " + run(renderer, graph, image, window, frames));
+  }
+
+}
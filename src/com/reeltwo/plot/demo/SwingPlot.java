@@ -3,6 +3,8 @@ package com.reeltwo.plot.demo;
 import java.awt.event.ActionEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -16,7 +18,9 @@ import com.reeltwo.plot.Box2D;
 import com.reeltwo.plot.BoxPlot2D;
 import com.reeltwo.plot.Circle2D;
 import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
 import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.DelimitedReader;
 import com.reeltwo.plot.Edge;
 import com.reeltwo.plot.FillablePlot2D.FillStyle;
 import com.reeltwo.plot.Graph2D;
@@ -152,9 +156,13 @@ public class SwingPlot {
     List<String> a = Arrays.asList(args);
     if (a.contains("help")) {
       System.out.println("Give argument 'textures' to demo textures.\n"
+        + "Give a .csv or .tsv file name to plot the first two fields of its lines after a header line.\n"
         + "Give argument 'console' to output to console rather than GUI.");
     } else {
-      if (a.contains("textures")) {
+      final String file = fileArgument(a);
+      if (file != null) {
+        graph = genFile(new File(file));
+      } else if (a.contains("textures")) {
         graph = genTextureTest();
       } else {
         graph = genTest();
@@ -170,6 +178,40 @@ public class SwingPlot {
   }
 
 
+  private static String fileArgument(List<String> args) {
+    for (final String arg : args) {
+      if (arg.endsWith(".csv") || arg.endsWith(".tsv")) {
+        return arg;
+      }
+    }
+    return null;
+  }
+
+
+  /**
+   * Plots the first two fields of the lines of a delimited text file
+   * as x and y co-ordinates.  The first line is taken to be a header.
+   *
+   * @param file a CSV file, or a TSV file if its name ends in ".tsv"
+   * @return a graph of the points in the file
+   * @exception IOException if the file cannot be read
+   */
+  public static Graph2D genFile(File file) throws IOException {
+    final DelimitedReader reader = new DelimitedReader(file.getName().endsWith(".tsv") ? '\t' : ',');
+    reader.setColumn(0, Column.X);
+    reader.setColumn(1, Column.Y);
+    reader.setSkipLines(1);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setTitle(file.getName());
+    plot.setData(reader.read(file));
+    final Graph2D graph = new Graph2D();
+    graph.setTitle(file.getName());
+    graph.setGrid(true);
+    graph.addPlot(plot);
+    return graph;
+  }
+
+
   /**
    * Renders a 'test' plot showing what lines styles are available.
    *
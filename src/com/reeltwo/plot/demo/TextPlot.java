@@ -1,5 +1,7 @@
 package com.reeltwo.plot.demo;
 
+import java.util.Locale;
+
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.renderer.TextRenderer;
 
@@ -16,11 +18,15 @@ public final class TextPlot {
   /**
    * Main loop.
    *
-   * @param args command line arguments
+   * @param args command line arguments, optionally the resolution to draw data at
    */
   public static void main(String[] args) {
     final Graph2D graph = SwingPlot.genTest();
-    final String str = new TextRenderer().drawGraph(graph, 90, 40, true);
+    final TextRenderer renderer = new TextRenderer();
+    if (args.length > 0) {
+      renderer.setResolution(TextRenderer.Resolution.valueOf(args[0].toUpperCase(Locale.ROOT)));
+    }
+    final String str = renderer.drawGraph(graph, 90, 40, true);
     System.out.println(str);
   }
 
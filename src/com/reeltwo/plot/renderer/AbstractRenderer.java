@@ -1,21 +1,19 @@
 package com.reeltwo.plot.renderer;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Random;
 
-import com.reeltwo.plot.Arrow2D;
 import com.reeltwo.plot.ArrowPlot2D;
 import com.reeltwo.plot.ArrowPlot2D.ArrowDirection;
 import com.reeltwo.plot.ArrowPlot2D.ArrowHead;
 import com.reeltwo.plot.Axis;
 import com.reeltwo.plot.BWPlot2D;
 import com.reeltwo.plot.BWPlot2D.BoxWhiskerStyle;
-import com.reeltwo.plot.BWPoint2D;
-import com.reeltwo.plot.Box2D;
 import com.reeltwo.plot.BoxPlot2D;
-import com.reeltwo.plot.Circle2D;
 import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
 import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.DataSource2D;
 import com.reeltwo.plot.Datum2D;
 import com.reeltwo.plot.DefaultFormatter;
 import com.reeltwo.plot.Edge;
@@ -30,9 +28,10 @@ import com.reeltwo.plot.Plot2D;
 import com.reeltwo.plot.Point2D;
 import com.reeltwo.plot.PointPlot2D;
 import com.reeltwo.plot.ScatterPlot2D;
-import com.reeltwo.plot.ScatterPoint2D;
 import com.reeltwo.plot.TextPlot2D;
-import com.reeltwo.plot.TextPoint2D;
+import com.reeltwo.plot.sampling.Downsampler;
+import com.reeltwo.plot.sampling.MinMaxPyramid;
+import com.reeltwo.plot.sampling.SampledData2D;
 
 
 /**
@@ -43,11 +42,40 @@ import com.reeltwo.plot.TextPoint2D;
 public abstract class AbstractRenderer {
   protected static final int FOREGROUND_COLOR_INDEX = -1;
   protected static final int BACKGROUND_COLOR_INDEX = -2;
+  /** number of data points mapped to the screen at a time */
+  protected static final int CHUNK_SIZE = 256;
 
   private int mColorIndex = 0;
   private int mPointIndex = 0;
   private int mLineWidth = 1;
   private Mapping[] mMappings = null;
+  /** vertex buffer reused while drawing each plot */
+  private final Poly mPoly = new Poly();
+  /** pixels marked by the plot being drawn, reused while drawing each plot */
+  private final PixelMask mMask = new PixelMask();
+  /** world co-ordinates read from plot data before mapping */
+  private final float[] mWorldChunk = new float[CHUNK_SIZE];
+  /** screen co-ordinates of a chunk of each column, created as needed */
+  private final int[][] mScreenChunks = new int[Column.values().length][];
+  /** screen area being drawn, data outside it need not be drawn */
+  private float mCullXLo = Float.NEGATIVE_INFINITY;
+  private float mCullXHi = Float.POSITIVE_INFINITY;
+  private float mCullYLo = Float.NEGATIVE_INFINITY;
+  private float mCullYHi = Float.POSITIVE_INFINITY;
+  /** screen x range whose points are counted, so tiles side by side count each point once */
+  private float mCountXLo = Float.NEGATIVE_INFINITY;
+  private float mCountXHi = Float.POSITIVE_INFINITY;
+  /** set to stop drawing data, may be set from any thread */
+  private volatile boolean mCancelled = false;
+  /** draw every this many points of point and curve plots */
+  private int mStride = 1;
+  /** told how long drawing takes, may be null */
+  private RenderListener mListener = null;
+  // work done drawing the current plot, for the listener
+  private long mPointsMapped = 0;
+  private long mPointsCulled = 0;
+  private long mPointsDecimated = 0;
+  private long mPrimitives = 0;
 
   /** A small class to hold information about tick spacing. */
   protected static class TicInfo {
@@ -68,6 +96,107 @@ public abstract class AbstractRenderer {
     }
   }
 
+  /**
+   * Sets whether drawing is cancelled.  A cancelled renderer stops
+   * drawing data before the next plot, leaving the graph partly drawn.
+   * May be called from any thread, so that a graph being drawn on
+   * another thread can be abandoned.
+   *
+   * @param flag whether drawing is cancelled
+   */
+  public void setCancelled(boolean flag) {
+    mCancelled = flag;
+  }
+
+  /**
+   * Returns whether drawing is cancelled.
+   *
+   * @return whether drawing is cancelled
+   */
+  public boolean isCancelled() {
+    return mCancelled;
+  }
+
+  /**
+   * Sets how many points of point and curve plots are drawn, for a
+   * quick coarse drawing of large graphs that is refined by drawing
+   * again.  With a stride of <code>n</code> only every
+   * <code>n</code>th visible point, and the last visible point, is
+   * drawn.  Plots of separate marks such as boxes, circles, arrows and
+   * text are always drawn in full.  Default is 1, drawing every point.
+   *
+   * @param stride number of points per point drawn
+   * @exception IllegalArgumentException if <code>stride</code> is
+   * less than 1
+   */
+  public void setStride(int stride) {
+    if (stride < 1) {
+      throw new IllegalArgumentException("stride must be >= 1: " + stride);
+    }
+    mStride = stride;
+  }
+
+  /**
+   * Returns how many points of point and curve plots are drawn.
+   *
+   * @return number of points per point drawn
+   */
+  public int getStride() {
+    return mStride;
+  }
+
+  /**
+   * Sets a listener to be told how long each part of drawing a graph
+   * takes.  Default is no listener.
+   *
+   * @param listener a listener, or null for none
+   */
+  public void setRenderListener(RenderListener listener) {
+    mListener = listener;
+  }
+
+  /**
+   * Returns the listener told how long each part of drawing a graph
+   * takes.
+   *
+   * @return a listener, may be null
+   */
+  public RenderListener getRenderListener() {
+    return mListener;
+  }
+
+  /**
+   * Returns the time a phase of drawing starts, for
+   * <code>phaseDone</code>.
+   *
+   * @return a time in nanoseconds, or 0 if there is no listener
+   */
+  protected long phaseStart() {
+    return mListener == null ? 0 : System.nanoTime();
+  }
+
+  /**
+   * Tells the listener, if any, that a phase of drawing is done.
+   *
+   * @param phase the phase
+   * @param start time the phase started, from <code>phaseStart</code>
+   */
+  protected void phaseDone(RenderPhase phase, long start) {
+    final RenderListener listener = mListener;
+    if (listener != null) {
+      listener.phaseDone(phase, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records primitives drawn on the canvas, for the listener.
+   *
+   * @param count number of primitives
+   */
+  protected void countPrimitives(int count) {
+    mPrimitives += count;
+  }
+
   /**
    * Returns an array of screen to world mappings, one for each of the
    * 4 axes.  Mappings can be null if there is no mapping for an
@@ -182,6 +311,147 @@ public abstract class AbstractRenderer {
   protected abstract void fillPolygon(Object canvas, int[] xs, int[] ys);
   protected abstract void drawPolyline(Object canvas, int[] xs, int[] ys);
 
+  /**
+   * Returns the empty vertex buffer owned by this renderer.  The
+   * buffer is shared by all the drawing methods, so is only valid
+   * until the next call.
+   *
+   * @return an empty polygon
+   */
+  protected Poly getPolyBuffer() {
+    mPoly.reset();
+    return mPoly;
+  }
+
+  /**
+   * Returns whether drawing a mark again where it has already been
+   * drawn in the current color leaves the canvas unchanged, so repeated
+   * marks of a plot may be skipped.  This is not so where marks are
+   * blended with what is beneath them, such as when antialiased or
+   * translucent.
+   *
+   * @param canvas drawing canvas
+   * @return true if repeated marks are invisible
+   */
+  protected boolean isRepeatInvisible(Object canvas) {
+    return true;
+  }
+
+  /**
+   * Returns the cleared pixel mask owned by this renderer covering the
+   * plot area and <code>margin</code> around it, or null if repeated
+   * marks cannot be skipped or <code>marks</code> is too few for
+   * clearing the mask to be worthwhile.  Like the vertex buffer, the
+   * mask is only valid until the next call.
+   *
+   * @param canvas drawing canvas
+   * @param convertX x axis mapping
+   * @param convertY y axis mapping
+   * @param margin screen units beyond the plot area to cover
+   * @param marks number of marks to be drawn
+   * @return a cleared mask, or null
+   */
+  protected PixelMask getPixelMask(Object canvas, Mapping convertX, Mapping convertY, float margin, long marks) {
+    final float[] xs = visibleScreen(convertX, margin);
+    final float[] ys = visibleScreen(convertY, margin);
+    // only the part being drawn, such as a tile
+    xs[0] = Math.max(xs[0], mCullXLo - margin);
+    xs[1] = Math.min(xs[1], mCullXHi + margin);
+    ys[0] = Math.max(ys[0], mCullYLo - margin);
+    ys[1] = Math.min(ys[1], mCullYHi + margin);
+    if (xs[0] > xs[1] || ys[0] > ys[1]) {
+      return null;
+    }
+    final int x = (int) Math.floor(xs[0]);
+    final int y = (int) Math.floor(ys[0]);
+    final long width = (long) Math.ceil(xs[1]) - x + 1;
+    final long height = (long) Math.ceil(ys[1]) - y + 1;
+    // clearing costs a word per 64 pixels, so is only worth it where repeats are likely
+    if (width * height > PixelMask.MAX_PIXELS || width * height / 256 > marks || !isRepeatInvisible(canvas)) {
+      return null;
+    }
+    mMask.reset(x, y, (int) width, (int) height);
+    return mMask;
+  }
+
+  /**
+   * Maps <code>length</code> values of a column of data starting at
+   * row <code>start</code> to integer screen co-ordinates in
+   * <code>dest</code>.
+   *
+   * @param points plot data
+   * @param column column to map
+   * @param start first row to map
+   * @param length number of rows to map
+   * @param convert mapping for the axis of the column
+   * @param dest array to put screen co-ordinates in
+   */
+  protected void toScreen(DataSource2D points, Column column, int start, int length, Mapping convert, int[] dest) {
+    final boolean counted = column == Column.X;
+    if (counted && !isCountLimited()) {
+      mPointsMapped += length;
+    }
+    for (int done = 0; done < length; done += CHUNK_SIZE) {
+      final int n = Math.min(CHUNK_SIZE, length - done);
+      points.get(column, start + done, mWorldChunk, 0, n);
+      convert.worldToScreen(mWorldChunk, 0, dest, done, n);
+      if (counted && isCountLimited()) {
+        for (int i = done; i < done + n; i++) {
+          if (dest[i] >= mCountXLo && dest[i] < mCountXHi) {
+            mPointsMapped++;
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Maps at most <code>CHUNK_SIZE</code> values of a column of data
+   * starting at row <code>start</code> to integer screen
+   * co-ordinates.  The returned array is owned by this renderer and
+   * is reused the next time the same column is mapped.
+   *
+   * @param points plot data
+   * @param column column to map
+   * @param start first row to map
+   * @param length number of rows to map
+   * @param convert mapping for the axis of the column
+   * @return screen co-ordinates of the rows
+   */
+  protected int[] toScreen(DataSource2D points, Column column, int start, int length, Mapping convert) {
+    int[] chunk = mScreenChunks[column.ordinal()];
+    if (chunk == null) {
+      chunk = new int[CHUNK_SIZE];
+      mScreenChunks[column.ordinal()] = chunk;
+    }
+    toScreen(points, column, start, length, convert, chunk);
+    return chunk;
+  }
+
+
+  // versions of the above that use only the first n points, by default copying the arrays
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    if (n == xs.length) {
+      drawPolygon(canvas, xs, ys);
+    } else {
+      drawPolygon(canvas, Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+  }
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    if (n == xs.length) {
+      fillPolygon(canvas, xs, ys);
+    } else {
+      fillPolygon(canvas, Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+  }
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    if (n == xs.length) {
+      drawPolyline(canvas, xs, ys);
+    } else {
+      drawPolyline(canvas, Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+  }
+
   // methods to help when drawing curves
   private Point2D tangent(int x1, int y1, int x2, int y2) {
     final float m = distance(x1, y1, x2, y2);
@@ -253,7 +523,7 @@ public abstract class AbstractRenderer {
     assert ys != null;
     assert xs.length == ys.length;
 
-    final Poly polygon = new Poly();
+    final Poly polygon = getPolyBuffer();
 
     if (type == CurvePlot2D.BSPLINE) {
       final int m = 50;
@@ -357,9 +627,9 @@ public abstract class AbstractRenderer {
       }
     }
     if (filled) {
-      fillPolygon(canvas, polygon.getXs(), polygon.getYs());
+      fillPolygon(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
     } else {
-      drawPolyline(canvas, polygon.getXs(), polygon.getYs());
+      drawPolyline(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
     }
   }
 
@@ -451,15 +721,22 @@ public abstract class AbstractRenderer {
   }
 
   protected TicInfo[] createTicInfos(Object canvas, Graph2D graph) {
+    final long start = phaseStart();
     final TicInfo[] ticInfos = new TicInfo[4]; // x1, y1, x2, y2
     ticInfos[0] = calcXTicInfo(canvas, graph, Edge.MAIN);
     ticInfos[1] = calcYTicInfo(canvas, graph, Edge.MAIN);
     ticInfos[2] = calcXTicInfo(canvas, graph, Edge.ALTERNATE);
     ticInfos[3] = calcYTicInfo(canvas, graph, Edge.ALTERNATE);
+    phaseDone(RenderPhase.TICS, start);
     return ticInfos;
   }
 
-  protected void drawData(Object canvas, Plot2D[] plots, Mapping[] mapping) {
+  /**
+   * Gives each plot without a color the next unused color index.
+   *
+   * @param plots plots to color
+   */
+  protected void assignColors(Plot2D[] plots) {
     int colorIndex = 0;
 
     for (int j = 0; j < plots.length; j++) {
@@ -474,44 +751,75 @@ public abstract class AbstractRenderer {
         }
       }
     }
+  }
 
-    for (int j = 0; j < plots.length; j++) {
-      final Plot2D plot = plots[j];
-      final Mapping convertX = mapping[2 * (plot.uses(Axis.X, Edge.MAIN) ? 0 : 1)];
-      final Mapping convertY = mapping[2 * (plot.uses(Axis.Y, Edge.MAIN) ? 0 : 1) + 1];
+  protected void drawData(Object canvas, Plot2D[] plots, Mapping[] mapping) {
+    assignColors(plots);
 
-      int lineWidth = plot.getLineWidth();
-      if (lineWidth < 1) {
-        lineWidth = 1;
-      }
-      setLineWidth(canvas, lineWidth);
+    for (int j = 0; j < plots.length && !isCancelled(); j++) {
+      drawPlot(canvas, plots[j], j, mapping);
+    }
+    setLineWidth(canvas, 1);
+  }
 
-      if (plot instanceof GraphLine) {
-        drawGraphLine(canvas, (GraphLine) plot, convertX, convertY);
-      } else {
-        setPointIndex(j);
-        if (plot instanceof PointPlot2D) {
-          drawPointPlot(canvas, (PointPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof ArrowPlot2D) {
-          drawArrowPlot(canvas, (ArrowPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof BWPlot2D) {
-          drawBWPlot(canvas, (BWPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof CurvePlot2D) {
-          drawCurvePlot(canvas, (CurvePlot2D) plot, convertX, convertY);
-        } else if (plot instanceof TextPlot2D) {
-          drawTextPlot(canvas, (TextPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof ScatterPlot2D) {
-          drawScatterPlot(canvas, (ScatterPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof BoxPlot2D) {
-          drawBoxPlot(canvas, (BoxPlot2D) plot, convertX, convertY);
-        } else if (plot instanceof CirclePlot2D) {
-          drawCirclePlot(canvas, (CirclePlot2D) plot, convertX, convertY);
-        } else if (plot instanceof NotePlot2D) {
-          drawNotePlot(canvas, (NotePlot2D) plot, convertX, convertY);
-        }
+  /**
+   * Draws the data of one plot in a graph.  Colors should already
+   * have been assigned to the plots of the graph.
+   *
+   * @param canvas where to draw
+   * @param plot the plot to draw
+   * @param index position of the plot in the graph, which picks its point style
+   * @param mapping axis mappings of the graph
+   */
+  protected void drawPlot(Object canvas, Plot2D plot, int index, Mapping[] mapping) {
+    final long start = phaseStart();
+    mPointsMapped = 0;
+    mPointsCulled = 0;
+    mPointsDecimated = 0;
+    mPrimitives = 0;
+    drawPlotData(canvas, plot, index, mapping);
+    mPoly.trim();
+    final RenderListener listener = mListener;
+    if (listener != null) {
+      listener.plotDrawn(plot, System.nanoTime() - start, mPointsMapped, mPointsCulled, mPointsDecimated, mPrimitives);
+    }
+  }
+
+  // draws a plot with the drawing method for its type
+  private void drawPlotData(Object canvas, Plot2D plot, int index, Mapping[] mapping) {
+    final Mapping convertX = mapping[2 * (plot.uses(Axis.X, Edge.MAIN) ? 0 : 1)];
+    final Mapping convertY = mapping[2 * (plot.uses(Axis.Y, Edge.MAIN) ? 0 : 1) + 1];
+
+    int lineWidth = plot.getLineWidth();
+    if (lineWidth < 1) {
+      lineWidth = 1;
+    }
+    setLineWidth(canvas, lineWidth);
+
+    if (plot instanceof GraphLine) {
+      drawGraphLine(canvas, (GraphLine) plot, convertX, convertY);
+    } else {
+      setPointIndex(index);
+      if (plot instanceof PointPlot2D) {
+        drawPointPlot(canvas, (PointPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof ArrowPlot2D) {
+        drawArrowPlot(canvas, (ArrowPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof BWPlot2D) {
+        drawBWPlot(canvas, (BWPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof CurvePlot2D) {
+        drawCurvePlot(canvas, (CurvePlot2D) plot, convertX, convertY);
+      } else if (plot instanceof TextPlot2D) {
+        drawTextPlot(canvas, (TextPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof ScatterPlot2D) {
+        drawScatterPlot(canvas, (ScatterPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof BoxPlot2D) {
+        drawBoxPlot(canvas, (BoxPlot2D) plot, convertX, convertY);
+      } else if (plot instanceof CirclePlot2D) {
+        drawCirclePlot(canvas, (CirclePlot2D) plot, convertX, convertY);
+      } else if (plot instanceof NotePlot2D) {
+        drawNotePlot(canvas, (NotePlot2D) plot, convertX, convertY);
       }
     }
-    setLineWidth(canvas, 1);
   }
 
   protected void drawGraphLine(Object canvas, GraphLine line, Mapping convertX, Mapping convertY) {
@@ -525,36 +833,331 @@ public abstract class AbstractRenderer {
     }
   }
 
+  /** screen units that marks drawn at a point may extend beyond it */
+  private static final int MARK_MARGIN = 4;
+
+  // a view of every stride'th row of a data source between first and end, and the last row
+  private static final class RangeSource implements DataSource2D {
+    private final DataSource2D mSource;
+    private final int mFirst;
+    private final int mStride;
+    private final int mSize;
+    private final int mLast;
+
+    RangeSource(DataSource2D source, int first, int end, int stride) {
+      mSource = source;
+      mFirst = first;
+      mStride = stride;
+      final int size = end - first;
+      mSize = size <= 1 ? size : (size - 2) / stride + 2;
+      mLast = end - 1;
+    }
+
+    private int row(int index) {
+      return index == mSize - 1 ? mLast : mFirst + index * mStride;
+    }
+
+    @Override
+    public int size() {
+      return mSize;
+    }
+
+    @Override
+    public boolean hasColumn(Column column) {
+      return mSource.hasColumn(column);
+    }
+
+    @Override
+    public float get(Column column, int index) {
+      return mSource.get(column, row(index));
+    }
+
+    @Override
+    public void get(Column column, int index, float[] dest, int offset, int length) {
+      if (mStride == 1) {
+        mSource.get(column, mFirst + index, dest, offset, length);
+      } else {
+        for (int i = 0; i < length; i++) {
+          dest[offset + i] = mSource.get(column, row(index + i));
+        }
+      }
+    }
+
+    @Override
+    public Object getObject(int index) {
+      return mSource.getObject(row(index));
+    }
+
+    @Override
+    public float getLo(Axis axis) {
+      return mSource.getLo(axis);
+    }
+
+    @Override
+    public float getHi(Axis axis) {
+      return mSource.getHi(axis);
+    }
+  }
+
+  // the range of screen co-ordinates within margin of the plot area
+  private static float[] visibleScreen(Mapping convert, float margin) {
+    return new float[] {Math.min(convert.getScreenMin(), convert.getScreenMax()) - margin,
+                        Math.max(convert.getScreenMin(), convert.getScreenMax()) + margin};
+  }
+
+  private static boolean inside(float v, float[] range) {
+    return v >= range[0] && v <= range[1];
+  }
+
+  // returns whether the range lo to hi overlaps the visible range
+  private static boolean overlaps(float lo, float hi, float[] range) {
+    return Math.max(lo, hi) >= range[0] && Math.min(lo, hi) <= range[1];
+  }
+
+  // index of the first point with x >= value in sorted data
+  static int lowerBound(DataSource2D points, float value) {
+    int lo = 0;
+    int hi = points.size();
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (points.get(Column.X, mid) < value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // index of the first point with x > value in sorted data
+  static int upperBound(DataSource2D points, float value) {
+    int lo = 0;
+    int hi = points.size();
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (points.get(Column.X, mid) <= value) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * Limits the data drawn to points near the screen x range from
+   * <code>lo</code> to <code>hi</code>, such as when only a strip of
+   * the plot area is being drawn.  Points outside the range may still
+   * be drawn.
+   *
+   * @param lo lowest screen x co-ordinate drawn
+   * @param hi highest screen x co-ordinate drawn
+   */
+  void setCullX(float lo, float hi) {
+    mCullXLo = lo;
+    mCullXHi = hi;
+  }
+
+  /**
+   * Limits the screen y range drawn, as <code>setCullX</code> does for
+   * x.  Data are not culled by y, but the buffers used for drawing
+   * need only cover the range.
+   *
+   * @param lo lowest screen y co-ordinate drawn
+   * @param hi highest screen y co-ordinate drawn
+   */
+  void setCullY(float lo, float hi) {
+    mCullYLo = lo;
+    mCullYHi = hi;
+  }
+
+  /**
+   * Counts only the points with screen x from <code>lo</code> up to
+   * but not including <code>hi</code> as mapped or decimated, so that
+   * tiles side by side, which also draw points either side of them,
+   * count each point once.
+   *
+   * @param lo lowest screen x co-ordinate counted
+   * @param hi screen x co-ordinate after the highest counted
+   */
+  void setCountX(float lo, float hi) {
+    mCountXLo = lo;
+    mCountXHi = hi;
+  }
+
+  private boolean isCountLimited() {
+    return mCountXLo != Float.NEGATIVE_INFINITY || mCountXHi != Float.POSITIVE_INFINITY;
+  }
+
+  // index of the first row of sorted data from first to end whose screen x is not before bound
+  private static int screenBound(DataSource2D points, int first, int end, Mapping convertX, float bound, boolean increasing) {
+    int lo = first;
+    int hi = end;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (((int) convertX.worldToScreen(points.get(Column.X, mid)) < bound) == increasing) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  // rows of a range of sorted data that are counted, those mapped to the counted screen x range
+  private int countedRows(Plot2D plot, DataSource2D points, int[] range, Mapping convertX) {
+    if (!isCountLimited() || !plot.isSortedX() || range[1] <= range[0]) {
+      return range[1] - range[0];
+    }
+    final boolean increasing = convertX.worldToScreen(points.get(Column.X, range[0])) <= convertX.worldToScreen(points.get(Column.X, range[1] - 1));
+    final int lo = screenBound(points, range[0], range[1], convertX, mCountXLo, increasing);
+    final int hi = screenBound(points, range[0], range[1], convertX, mCountXHi, increasing);
+    return Math.abs(hi - lo);
+  }
+
+  // vertices of a polygon that are counted
+  private int countedVertices(Poly polygon) {
+    if (!isCountLimited()) {
+      return polygon.getSize();
+    }
+    final int[] xs = polygon.getXBuffer();
+    int count = 0;
+    for (int i = 0; i < polygon.getSize(); i++) {
+      if (xs[i] >= mCountXLo && xs[i] < mCountXHi) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the range of indexes of the data points in a plot that
+   * may be visible.  If the plot data is sorted by x this is found by
+   * binary search and includes <code>neighbours</code> points either
+   * side of the visible points, otherwise all points are included.
+   * Points are counted as culled if they are outside the plot area,
+   * rather than just outside the part of it being drawn.
+   *
+   * @param plot the plot
+   * @param points the plot data
+   * @param convertX x axis mapping
+   * @param margin screen units beyond the plot area to include
+   * @param neighbours number of extra points to include either side
+   * @return the first index and one past the last index
+   */
+  protected int[] visibleRange(Plot2D plot, DataSource2D points, Mapping convertX, float margin, int neighbours) {
+    final int size = points.size();
+    if (!plot.isSortedX()) {
+      return new int[] {0, size};
+    }
+    final float sxlo = Math.min(convertX.getScreenMin(), convertX.getScreenMax());
+    final float sxhi = Math.max(convertX.getScreenMin(), convertX.getScreenMax());
+    final int[] range = searchRange(points, convertX, Math.max(sxlo, mCullXLo) - margin, Math.min(sxhi, mCullXHi) + margin, neighbours);
+    if (mCullXLo <= sxlo && mCullXHi >= sxhi) {
+      mPointsCulled += size - (range[1] - range[0]);
+    } else {
+      final int[] area = searchRange(points, convertX, sxlo - margin, sxhi + margin, neighbours);
+      mPointsCulled += size - (area[1] - area[0]);
+    }
+    return range;
+  }
+
+  // the range of indexes of sorted data within a screen x range, with neighbours either side
+  private static int[] searchRange(DataSource2D points, Mapping convertX, float sxlo, float sxhi, int neighbours) {
+    final float w1 = convertX.screenToWorld(sxlo);
+    final float w2 = convertX.screenToWorld(sxhi);
+    final int first = Math.max(0, lowerBound(points, Math.min(w1, w2)) - neighbours);
+    final int end = Math.max(first, Math.min(points.size(), upperBound(points, Math.max(w1, w2)) + neighbours));
+    return new int[] {first, end};
+  }
+
+  private static DataSource2D range(DataSource2D points, int[] range) {
+    return range(points, range, 1);
+  }
+
+  private static DataSource2D range(DataSource2D points, int[] range, int stride) {
+    if (range[0] == 0 && range[1] == points.size() && (stride == 1 || range[1] <= 2)) {
+      return points;
+    }
+    return new RangeSource(points, range[0], range[1], stride);
+  }
+
+  /**
+   * Returns a view of the data points in a plot given by
+   * <code>visibleRange</code>.
+   *
+   * @param plot the plot
+   * @param points the plot data
+   * @param convertX x axis mapping
+   * @param margin screen units beyond the plot area to include
+   * @param neighbours number of extra points to include either side
+   * @return the possibly visible points
+   */
+  protected DataSource2D visiblePoints(Plot2D plot, DataSource2D points, Mapping convertX, float margin, int neighbours) {
+    return range(points, visibleRange(plot, points, convertX, margin, neighbours));
+  }
+
+  private static DataSource2D downsample(DataSource2D data, Downsampler downsampler, int points) {
+    if (data == null || downsampler == null) {
+      return data;
+    }
+    return downsampler.downsample(data, points);
+  }
+
   protected void drawPointPlot(Object canvas, PointPlot2D lplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = lplot.getData();
-    if (points != null && points.length != 0) {
+    final DataSource2D data = lplot.getDataSource();
+    if (data != null && data.size() != 0) {
       final boolean doDots = lplot.isDots();
       final boolean doPoints = lplot.isPoints();
       final boolean doLines = lplot.isLines();
       final FillStyle doFill = lplot.getFill();
       final boolean doBorder = lplot.isBorder();
 
+      // filled polygons need every point, lines need one point either side of the plot area
+      final boolean cull = doFill == FillStyle.NONE;
+      final float margin = MARK_MARGIN + getLineWidth();
+      final int[] range = cull ? visibleRange(lplot, data, convertX, margin, 1) : new int[] {0, data.size()};
+      final boolean decimate = lplot.isDecimate() && doLines && !doPoints && !doDots && doFill == FillStyle.NONE;
+      final DataSource2D points;
+      if (decimate && mStride == 1 && lplot.getDownsampler() == null && lplot.isSortedX()) {
+        points = columnExtremes(lplot.getPyramid(), range[0], range[1], convertX);
+      } else {
+        points = downsample(range(data, range, mStride), lplot.getDownsampler(), lplot.getDownsamplePoints());
+      }
+      final float[] xVisible = cull && !doLines ? visibleScreen(convertX, margin) : null;
+      final float[] yVisible = cull && !doLines ? visibleScreen(convertY, margin) : null;
+
       if (doFill == FillStyle.PATTERN) {
         setPattern(canvas, lplot.getColor());
       } else {
         setColor(canvas, lplot.getColor());
       }
 
-      final Poly polygon = new Poly();
-      for (int i = 0; i < points.length; i++) {
-        final Point2D point = (Point2D) points[i];
-        final int sptX = (int) convertX.worldToScreen(point.getX());
-        final int sptY = (int) convertY.worldToScreen(point.getY());
-        polygon.addPoint(sptX, sptY);
+      final Poly polygon = getPolyBuffer();
+      if (decimate && points.size() != 0 && decimate(points, convertX, convertY, polygon)) {
+        mPointsDecimated += countedRows(lplot, data, range, convertX) - countedVertices(polygon);
+      } else {
+        polygon.reset();
+        for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+          final int length = Math.min(CHUNK_SIZE, points.size() - start);
+          final int[] sxs = toScreen(points, Column.X, start, length, convertX);
+          final int[] sys = toScreen(points, Column.Y, start, length, convertY);
+          for (int j = 0; j < length; j++) {
+            if (xVisible == null || (inside(sxs[j], xVisible) && inside(sys[j], yVisible))) {
+              polygon.addPoint(sxs[j], sys[j]);
+            }
+          }
+        }
       }
-      int[] xs = polygon.getXs();
-      int[] ys = polygon.getYs();
+      final int[] xs = polygon.getXBuffer();
+      final int[] ys = polygon.getYBuffer();
+      final int n = polygon.getSize();
       if (doFill != FillStyle.NONE) {
 
-        fillPolygon(canvas, xs, ys);
+        fillPolygon(canvas, xs, ys, n);
         if (doBorder) {
           setColor(canvas, FOREGROUND_COLOR_INDEX);
-          drawPolygon(canvas, xs, ys);
+          drawPolygon(canvas, xs, ys, n);
           if (doFill == FillStyle.PATTERN) {
             setPattern(canvas, lplot.getColor());
           } else {
@@ -563,22 +1166,166 @@ public abstract class AbstractRenderer {
         }
       } else {
         if (doLines) {
-          drawPolyline(canvas, xs, ys);
+          drawPolyline(canvas, xs, ys, n);
+        }
+        if (doPoints || doDots) {
+          // every mark is the same, so only the first at each pixel need be drawn
+          final PixelMask mask = getPixelMask(canvas, convertX, convertY, margin, n);
+          for (int i = 0; i < n; i++) {
+            if (mask != null && !mask.mark(xs[i], ys[i])) {
+              continue;
+            }
+            if (doPoints) {
+              drawPoint(canvas, xs[i], ys[i]);
+            }
+            if (doDots) {
+              drawLine(canvas, xs[i], ys[i], xs[i], ys[i]);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Selects the points from <code>first</code> to <code>end</code> of
+   * sorted data that <code>decimate</code> needs.  Each run of points
+   * covered by a bucket of the pyramid that lies within one screen
+   * pixel column is replaced by the first, minimum, maximum and last
+   * points of the bucket, taking the largest such buckets.  Decimating
+   * the result gives the same polyline as decimating every point, but
+   * the time taken depends on the plot width rather than the number of
+   * points.
+   *
+   * @param pyramid pyramid of the data
+   * @param first index of the first point
+   * @param end one past the index of the last point
+   * @param convertX x axis mapping
+   * @return the selected points
+   */
+  protected DataSource2D columnExtremes(MinMaxPyramid pyramid, int first, int end, Mapping convertX) {
+    final DataSource2D data = pyramid.getSource();
+    int[] indexes = new int[Math.min(end - first, CHUNK_SIZE)];
+    int count = 0;
+    int i = first;
+    while (i < end) {
+      if (count + 4 > indexes.length) {
+        indexes = Arrays.copyOf(indexes, Math.max(4, 2 * indexes.length));
+      }
+      int level = pyramid.getLevel(i, end);
+      if (level >= MinMaxPyramid.MIN_LEVEL) {
+        // with sorted x the whole bucket is in one column if its ends are
+        final int column = (int) convertX.worldToScreen(data.get(Column.X, i));
+        while (level >= MinMaxPyramid.MIN_LEVEL && (int) convertX.worldToScreen(data.get(Column.X, i + (1 << level) - 1)) != column) {
+          level--;
+        }
+      }
+      if (level < MinMaxPyramid.MIN_LEVEL) {
+        indexes[count++] = i++;
+      } else {
+        final int last = i + (1 << level) - 1;
+        final int min = pyramid.getMinIndex(level, i);
+        final int max = pyramid.getMaxIndex(level, i);
+        indexes[count++] = i;
+        if (Math.min(min, max) > i) {
+          indexes[count++] = Math.min(min, max);
         }
-        for (int i = 0; i < xs.length; i++) {
-          if (doPoints) {
-            drawPoint(canvas, xs[i], ys[i]);
+        if (Math.max(min, max) > indexes[count - 1]) {
+          indexes[count++] = Math.max(min, max);
+        }
+        if (last > indexes[count - 1]) {
+          indexes[count++] = last;
+        }
+        i = last + 1;
+      }
+    }
+    return new SampledData2D(data, Arrays.copyOf(indexes, count));
+  }
+
+  /**
+   * Maps the points in <code>points</code> to the screen keeping only
+   * the first, last, minimum and maximum y for each screen pixel
+   * column.  The polyline through the result draws the same pixels as
+   * the polyline through all the points, but has at most four points
+   * per pixel column.  The points must be sorted by x, either
+   * increasing or decreasing.
+   *
+   * @param points data to map
+   * @param convertX x axis mapping
+   * @param convertY y axis mapping
+   * @param polygon empty polygon to add the decimated polyline to
+   * @return false if the points are not sorted by x
+   */
+  protected boolean decimate(DataSource2D points, Mapping convertX, Mapping convertY, Poly polygon) {
+    final int size = points.size();
+    int direction = 0;
+    int columnX = (int) convertX.worldToScreen(points.get(Column.X, 0));
+    final int firstY = (int) convertY.worldToScreen(points.get(Column.Y, 0));
+    int minY = firstY;
+    int maxY = firstY;
+    int lastY = firstY;
+    int minIndex = 0;
+    int maxIndex = 0;
+    polygon.addPoint(columnX, firstY);
+    for (int start = 1; start < size; start += CHUNK_SIZE) {
+      final int length = Math.min(CHUNK_SIZE, size - start);
+      final int[] sxs = toScreen(points, Column.X, start, length, convertX);
+      final int[] sys = toScreen(points, Column.Y, start, length, convertY);
+      for (int j = 0; j < length; j++) {
+        final int i = start + j;
+        final int sptX = sxs[j];
+        final int sptY = sys[j];
+        if (sptX == columnX) {
+          if (sptY < minY) {
+            minY = sptY;
+            minIndex = i;
+          } else if (sptY > maxY) {
+            maxY = sptY;
+            maxIndex = i;
+          }
+          lastY = sptY;
+        } else {
+          final int step = sptX > columnX ? 1 : -1;
+          if (direction == 0) {
+            direction = step;
+          } else if (direction != step) {
+            return false;
           }
-          if (doDots) {
-            drawLine(canvas, xs[i], ys[i], xs[i], ys[i]);
+          // emit extremes in the order they were visited, then the exit point
+          if (minIndex < maxIndex) {
+            polygon.addPoint(columnX, minY);
+            polygon.addPoint(columnX, maxY);
+          } else {
+            polygon.addPoint(columnX, maxY);
+            polygon.addPoint(columnX, minY);
           }
+          polygon.addPoint(columnX, lastY);
+          columnX = sptX;
+          minY = maxY = lastY = sptY;
+          minIndex = maxIndex = i;
+          polygon.addPoint(sptX, sptY);
         }
       }
     }
+    if (minIndex < maxIndex) {
+      polygon.addPoint(columnX, minY);
+      polygon.addPoint(columnX, maxY);
+    } else {
+      polygon.addPoint(columnX, maxY);
+      polygon.addPoint(columnX, minY);
+    }
+    polygon.addPoint(columnX, lastY);
+    return true;
   }
 
   protected Poly arrowHead(int x1, int y1, int x2, int y2, float w, float h, ArrowHead type) {
     final Poly poly = new Poly();
+    arrowHead(poly, x1, y1, x2, y2, w, h, type);
+    return poly;
+  }
+
+  protected void arrowHead(Poly poly, int x1, int y1, int x2, int y2, float w, float h, ArrowHead type) {
+    poly.reset();
 
     if (x1 == x2 && y1 == y2) { // just do a diamond
       final int t = (int) ((w + h) / 4.0f);
@@ -610,12 +1357,11 @@ public abstract class AbstractRenderer {
       poly.addPoint((int) (-w2 * normX1 + xh), (int) (-w2 * normY1 + yh));
       poly.addPoint(x2, y2);
     }
-    return poly;
   }
 
   protected void drawArrowPlot(Object canvas, ArrowPlot2D aplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = aplot.getData();
-    if (points != null && points.length != 0) {
+    final DataSource2D points = aplot.getDataSource();
+    if (points != null && points.size() != 0) {
       final ArrowHead head = aplot.getHeadType();
       final ArrowDirection direction = aplot.getDirection();
       final float width = aplot.getHeadWidth();
@@ -623,69 +1369,103 @@ public abstract class AbstractRenderer {
 
       setColor(canvas, aplot.getColor());
 
-      for (int i = 0; i < points.length; i++) {
-        final Arrow2D arrow = (Arrow2D) points[i];
-        final int sptX1 = (int) convertX.worldToScreen(arrow.getX1());
-        final int sptY1 = (int) convertY.worldToScreen(arrow.getY1());
-        final int sptX2 = (int) convertX.worldToScreen(arrow.getX2());
-        final int sptY2 = (int) convertY.worldToScreen(arrow.getY2());
+      final float margin = Math.max(width, height) + getLineWidth();
+      final float[] xVisible = visibleScreen(convertX, margin);
+      final float[] yVisible = visibleScreen(convertY, margin);
+      final Poly polygon = getPolyBuffer();
+      for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+        final int length = Math.min(CHUNK_SIZE, points.size() - start);
+        final int[] sx1s = toScreen(points, Column.X, start, length, convertX);
+        final int[] sy1s = toScreen(points, Column.Y, start, length, convertY);
+        final int[] sx2s = toScreen(points, Column.X2, start, length, convertX);
+        final int[] sy2s = toScreen(points, Column.Y2, start, length, convertY);
+        for (int j = 0; j < length; j++) {
+          final int sptX1 = sx1s[j];
+          final int sptY1 = sy1s[j];
+          final int sptX2 = sx2s[j];
+          final int sptY2 = sy2s[j];
+          if (!overlaps(sptX1, sptX2, xVisible) || !overlaps(sptY1, sptY2, yVisible)) {
+            continue;
+          }
 
-        drawLine(canvas, sptX1, sptY1, sptX2, sptY2);
+          drawLine(canvas, sptX1, sptY1, sptX2, sptY2);
 
-        if (direction == ArrowDirection.FORWARD || direction == ArrowDirection.BOTH) {
-          final Poly polygon = arrowHead(sptX1, sptY1, sptX2, sptY2, width, height, head);
-          final int[] xs = polygon.getXs();
-          final int[] ys = polygon.getYs();
-          fillPolygon(canvas, xs, ys);
-          drawPolygon(canvas, xs, ys);
-        }
-        if (direction == ArrowDirection.REVERSE || direction == ArrowDirection.BOTH) {
-          final Poly polygon = arrowHead(sptX2, sptY2, sptX1, sptY1, width, height, head);
-          final int[] xs = polygon.getXs();
-          final int[] ys = polygon.getYs();
-          fillPolygon(canvas, xs, ys);
-          drawPolygon(canvas, xs, ys);
+          if (direction == ArrowDirection.FORWARD || direction == ArrowDirection.BOTH) {
+            arrowHead(polygon, sptX1, sptY1, sptX2, sptY2, width, height, head);
+            fillPolygon(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
+            drawPolygon(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
+          }
+          if (direction == ArrowDirection.REVERSE || direction == ArrowDirection.BOTH) {
+            arrowHead(polygon, sptX2, sptY2, sptX1, sptY1, width, height, head);
+            fillPolygon(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
+            drawPolygon(canvas, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
+          }
         }
       }
     }
   }
 
   protected void drawBWPlot(Object canvas, BWPlot2D bwplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = bwplot.getData();
-    if (points != null && points.length != 0) {
+    final DataSource2D points = bwplot.getDataSource();
+    if (points != null && points.size() != 0) {
       setColor(canvas, bwplot.getColor());
+      final float margin = bwplot.getWidth() / 2 + getLineWidth();
+      final int[] range = visibleRange(bwplot, points, convertX, margin, 0);
+      final float[] xVisible = bwplot.isSortedX() ? null : visibleScreen(convertX, margin);
       if (bwplot.getStyle() == BoxWhiskerStyle.STANDARD) {
         final int width = bwplot.getWidth();
-        for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          int sptY1 = (int) convertY.worldToScreen(point.getY(0));
-          int sptY2 = (int) convertY.worldToScreen(point.getY(1));
-          drawLine(canvas, sptX, sptY1, sptX, sptY2);
+        for (int start = range[0]; start < range[1]; start += CHUNK_SIZE) {
+          final int length = Math.min(CHUNK_SIZE, range[1] - start);
+          final int[] xs = toScreen(points, Column.X, start, length, convertX);
+          final int[] ys = toScreen(points, Column.Y, start, length, convertY);
+          final int[] lqs = toScreen(points, Column.LOWER_QUARTILE, start, length, convertY);
+          final int[] uqs = toScreen(points, Column.UPPER_QUARTILE, start, length, convertY);
+          final int[] y2s = toScreen(points, Column.Y2, start, length, convertY);
+          final int[] meds = toScreen(points, Column.MEDIAN, start, length, convertY);
+          for (int j = 0; j < length; j++) {
+            final int sptX = xs[j];
+            if (xVisible != null && !inside(sptX, xVisible)) {
+              continue;
+            }
+            int sptY1 = ys[j];
+            int sptY2 = lqs[j];
+            drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(3));
-          drawRectangle(canvas, sptX - width / 2, sptY1, width, sptY2 - sptY1);
+            sptY1 = uqs[j];
+            drawRectangle(canvas, sptX - width / 2, sptY1, width, sptY2 - sptY1);
 
-          sptY2 = (int) convertY.worldToScreen(point.getY(4));
-          drawLine(canvas, sptX, sptY1, sptX, sptY2);
+            sptY2 = y2s[j];
+            drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(2));
-          drawLine(canvas, sptX - width / 2, sptY1, sptX + width / 2, sptY1);
+            sptY1 = meds[j];
+            drawLine(canvas, sptX - width / 2, sptY1, sptX + width / 2, sptY1);
+          }
         }
       } else if (bwplot.getStyle() == BoxWhiskerStyle.MINIMAL) {
-        for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          int sptY1 = (int) convertY.worldToScreen(point.getY(0));
-          int sptY2 = (int) convertY.worldToScreen(point.getY(1));
-          drawLine(canvas, sptX, sptY1, sptX, sptY2);
+        for (int start = range[0]; start < range[1]; start += CHUNK_SIZE) {
+          final int length = Math.min(CHUNK_SIZE, range[1] - start);
+          final int[] xs = toScreen(points, Column.X, start, length, convertX);
+          final int[] ys = toScreen(points, Column.Y, start, length, convertY);
+          final int[] lqs = toScreen(points, Column.LOWER_QUARTILE, start, length, convertY);
+          final int[] uqs = toScreen(points, Column.UPPER_QUARTILE, start, length, convertY);
+          final int[] y2s = toScreen(points, Column.Y2, start, length, convertY);
+          final int[] meds = toScreen(points, Column.MEDIAN, start, length, convertY);
+          for (int j = 0; j < length; j++) {
+            final int sptX = xs[j];
+            if (xVisible != null && !inside(sptX, xVisible)) {
+              continue;
+            }
+            int sptY1 = ys[j];
+            int sptY2 = lqs[j];
+            drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(3));
-          sptY2 = (int) convertY.worldToScreen(point.getY(4));
-          drawLine(canvas, sptX, sptY1, sptX, sptY2);
+            sptY1 = uqs[j];
+            sptY2 = y2s[j];
+            drawLine(canvas, sptX, sptY1, sptX, sptY2);
 
-          sptY1 = (int) convertY.worldToScreen(point.getY(2));
-          drawPoint(canvas, sptX, sptY1);
+            sptY1 = meds[j];
+            drawPoint(canvas, sptX, sptY1);
+          }
         }
         // } else if (bwplot.getType() == BWPlot2D.JOINED) {
         // can't be handled in general???
@@ -694,7 +1474,7 @@ public abstract class AbstractRenderer {
   }
 
   protected void drawTextPlot(Object canvas, TextPlot2D tplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = tplot.getData();
+    final DataSource2D points = tplot.getDataSource();
     final int tHeight = getTextHeight(canvas, "A");
 
     int halign = 0;
@@ -720,48 +1500,63 @@ public abstract class AbstractRenderer {
     final int color = tplot.isUseFGColor() ? FOREGROUND_COLOR_INDEX : tplot.getColor();
     setColor(canvas, color);
 
-    if (points != null && points.length != 0) {
-      for (int i = 0; i < points.length; i++) {
-        final TextPoint2D point = (TextPoint2D) points[i];
-        final String text = point.getText();
-        final int sptX = (int) convertX.worldToScreen(point.getX());
-        final int sptY = (int) convertY.worldToScreen(point.getY());
-        final int sw = getTextWidth(canvas, text);
-
-        if (tplot.isInvert()) {
-          setColor(canvas, color);
-          fillRectangle(canvas, (int) (sptX - halign * sw / 2.0f), sptY + valign - tHeight + descent, sw, tHeight);
-          setColor(canvas, BACKGROUND_COLOR_INDEX);
-        }
-        if (tplot.isVertical()) {
-          drawString(canvas, sptX - tHeight / 2, sptY - halign * sw, text, true);
-        } else {
-          drawString(canvas, (int) (sptX - halign * sw / 2.0f), sptY + valign, text);
+    if (points != null && points.size() != 0) {
+      for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+        final int length = Math.min(CHUNK_SIZE, points.size() - start);
+        final int[] xs = toScreen(points, Column.X, start, length, convertX);
+        final int[] ys = toScreen(points, Column.Y, start, length, convertY);
+        for (int j = 0; j < length; j++) {
+          final Object o = points.getObject(start + j);
+          final String text = o == null ? "" : o.toString();
+          final int sptX = xs[j];
+          final int sptY = ys[j];
+          final int sw = getTextWidth(canvas, text);
+
+          if (tplot.isInvert()) {
+            setColor(canvas, color);
+            fillRectangle(canvas, (int) (sptX - halign * sw / 2.0f), sptY + valign - tHeight + descent, sw, tHeight);
+            setColor(canvas, BACKGROUND_COLOR_INDEX);
+          }
+          if (tplot.isVertical()) {
+            drawString(canvas, sptX - tHeight / 2, sptY - halign * sw, text, true);
+          } else {
+            drawString(canvas, (int) (sptX - halign * sw / 2.0f), sptY + valign, text);
+          }
         }
       }
     }
   }
 
   protected void drawScatterPlot(Object canvas, ScatterPlot2D splot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = splot.getData();
-    if (points != null && points.length != 0) {
+    final DataSource2D points = splot.getDataSource();
+    if (points != null && points.size() != 0) {
       setColor(canvas, splot.getColor());
       final float scatterFactor = Math.abs(splot.getScatterFactor()) + 1;
-      final Random random = new Random();
-      for (int i = 0; i < points.length; i++) {
-        final ScatterPoint2D point = (ScatterPoint2D) points[i];
-
-        final float sptX = convertX.worldToScreen(point.getX());
-        final float sptY = convertY.worldToScreen(point.getY());
-
-        if (point.getNumberOfPoints() > 0) {
-          final float sf = (float) (scatterFactor * Math.log(point.getNumberOfPoints()));
-          for (int p = 0; p < point.getNumberOfPoints(); p++) {
+      long marks = 0;
+      for (int i = 0; i < points.size(); i++) {
+        marks += Math.max(0, (int) points.get(Column.COUNT, i));
+      }
+      final PixelMask mask = getPixelMask(canvas, convertX, convertY, 1, marks);
+      // seeded so the same points are drawn each time the plot is rendered
+      final Random random = new Random(getPointIndex());
+      for (int i = 0; i < points.size(); i++) {
+        final int numPoints = (int) points.get(Column.COUNT, i);
+
+        final float sptX = convertX.worldToScreen(points.get(Column.X, i));
+        final float sptY = convertY.worldToScreen(points.get(Column.Y, i));
+
+        if (numPoints > 0) {
+          final float sf = (float) (scatterFactor * Math.log(numPoints));
+          for (int p = 0; p < numPoints; p++) {
             final double radius = random.nextGaussian() * sf;
             final double angle = random.nextFloat() * (2 * Math.PI);
             final float xx = (float) (radius * Math.sin(angle));
             final float yy = (float) (radius * Math.cos(angle));
-            drawRectangle(canvas, (int) (sptX + xx), (int) (sptY + yy), 1, 1);
+            final int x = (int) (sptX + xx);
+            final int y = (int) (sptY + yy);
+            if (mask == null || mask.mark(x, y)) {
+              drawRectangle(canvas, x, y, 1, 1);
+            }
           }
         }
       }
@@ -769,9 +1564,9 @@ public abstract class AbstractRenderer {
   }
 
   protected void drawBoxPlot(Object canvas, BoxPlot2D bplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = bplot.getData();
+    final DataSource2D points = bplot.getDataSource();
 
-    if (points != null && points.length != 0) {
+    if (points != null && points.size() != 0) {
       final FillStyle doFill = bplot.getFill();
       final boolean doBorder = bplot.isBorder();
       if (doFill == FillStyle.PATTERN) {
@@ -779,36 +1574,46 @@ public abstract class AbstractRenderer {
       } else {
         setColor(canvas, bplot.getColor());
       }
-      for (int i = 0; i < points.length; i++) {
-        final Box2D box = (Box2D) points[i];
-
-        final int x = (int) convertX.worldToScreen(box.getLeft());
-        final int y = (int) convertY.worldToScreen(box.getTop());
-        final int width = (int) convertX.worldToScreen(box.getRight()) - x;
-        final int height = (int) convertY.worldToScreen(box.getBottom()) - y;
-
-        if (doFill != FillStyle.NONE) {
-          fillRectangle(canvas, x, y, width, height);
-          if (doBorder) {
-            setColor(canvas, FOREGROUND_COLOR_INDEX);
-            drawRectangle(canvas, x, y, width, height);
-            if (doFill == FillStyle.PATTERN) {
-              setPattern(canvas, bplot.getColor());
-            } else {
-              setColor(canvas, bplot.getColor());
+      final float[] xVisible = visibleScreen(convertX, getLineWidth());
+      final float[] yVisible = visibleScreen(convertY, getLineWidth());
+      for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+        final int length = Math.min(CHUNK_SIZE, points.size() - start);
+        final int[] x1s = toScreen(points, Column.X, start, length, convertX);
+        final int[] y1s = toScreen(points, Column.Y, start, length, convertY);
+        final int[] x2s = toScreen(points, Column.X2, start, length, convertX);
+        final int[] y2s = toScreen(points, Column.Y2, start, length, convertY);
+        for (int j = 0; j < length; j++) {
+          if (!overlaps(x1s[j], x2s[j], xVisible) || !overlaps(y1s[j], y2s[j], yVisible)) {
+            continue;
+          }
+          final int x = x1s[j];
+          final int y = y2s[j];
+          final int width = x2s[j] - x;
+          final int height = y1s[j] - y;
+
+          if (doFill != FillStyle.NONE) {
+            fillRectangle(canvas, x, y, width, height);
+            if (doBorder) {
+              setColor(canvas, FOREGROUND_COLOR_INDEX);
+              drawRectangle(canvas, x, y, width, height);
+              if (doFill == FillStyle.PATTERN) {
+                setPattern(canvas, bplot.getColor());
+              } else {
+                setColor(canvas, bplot.getColor());
+              }
             }
+          } else {
+            drawRectangle(canvas, x, y, width, height);
           }
-        } else {
-          drawRectangle(canvas, x, y, width, height);
         }
       }
     }
   }
 
   protected void drawCirclePlot(Object canvas, CirclePlot2D cplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = cplot.getData();
+    final DataSource2D points = cplot.getDataSource();
 
-    if (points != null && points.length != 0) {
+    if (points != null && points.size() != 0) {
       final FillStyle doFill = cplot.getFill();
       final boolean doBorder = cplot.isBorder();
 
@@ -818,53 +1623,70 @@ public abstract class AbstractRenderer {
         setColor(canvas, cplot.getColor());
       }
 
-      for (int i = 0; i < points.length; i++) {
-        final Circle2D circle = (Circle2D) points[i];
-        final float diameter = circle.getDiameter();
-
-        final int x = (int) convertX.worldToScreen(circle.getX());
-        final int y = (int) convertY.worldToScreen(circle.getY());
-
-        final int idiameter = (int) diameter + 1;
+      final float sxlo = Math.min(convertX.getScreenMin(), convertX.getScreenMax());
+      final float sxhi = Math.max(convertX.getScreenMin(), convertX.getScreenMax());
+      final float sylo = Math.min(convertY.getScreenMin(), convertY.getScreenMax());
+      final float syhi = Math.max(convertY.getScreenMin(), convertY.getScreenMax());
+      for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+        final int length = Math.min(CHUNK_SIZE, points.size() - start);
+        final int[] xs = toScreen(points, Column.X, start, length, convertX);
+        final int[] ys = toScreen(points, Column.Y, start, length, convertY);
+        for (int j = 0; j < length; j++) {
+          final float diameter = points.get(Column.DIAMETER, start + j);
+
+          final int x = xs[j];
+          final int y = ys[j];
+
+          final int idiameter = (int) diameter + 1;
+          // diameters are in screen units so check against the plot area after mapping
+          final int reach = idiameter + getLineWidth();
+          if (x + reach < sxlo || x - reach > sxhi || y + reach < sylo || y - reach > syhi) {
+            continue;
+          }
 
-        if (doFill != FillStyle.NONE) {
-          fillCircle(canvas, x, y, idiameter);
-          if (doBorder) {
-            setColor(canvas, FOREGROUND_COLOR_INDEX);
-            drawCircle(canvas, x, y, idiameter);
-            if (doFill == FillStyle.PATTERN) {
-              setPattern(canvas, cplot.getColor());
-            } else {
-              setColor(canvas, cplot.getColor());
+          if (doFill != FillStyle.NONE) {
+            fillCircle(canvas, x, y, idiameter);
+            if (doBorder) {
+              setColor(canvas, FOREGROUND_COLOR_INDEX);
+              drawCircle(canvas, x, y, idiameter);
+              if (doFill == FillStyle.PATTERN) {
+                setPattern(canvas, cplot.getColor());
+              } else {
+                setColor(canvas, cplot.getColor());
+              }
             }
+          } else {
+            drawCircle(canvas, x, y, idiameter);
           }
-        } else {
-          drawCircle(canvas, x, y, idiameter);
         }
       }
     }
   }
 
   protected void drawCurvePlot(Object canvas, CurvePlot2D cplot, Mapping convertX, Mapping convertY) {
-    final Point2D[] points = (Point2D[]) cplot.getData();
+    final DataSource2D data = cplot.getDataSource();
 
-    if (points != null && points.length != 0) {
+    if (data != null && data.size() != 0) {
       final int type = cplot.getType();
       final FillStyle doFill = cplot.getFill();
       final boolean doBorder = cplot.isBorder();
 
+      // piece i of a b-spline or cubic bezier curve depends on points i - 1 to i + 2,
+      // so may be visible when its nearest point is three points outside the view
+      final int[] range = doFill == FillStyle.NONE && type != CurvePlot2D.BEZIER
+        ? visibleRange(cplot, data, convertX, getLineWidth(), 3) : new int[] {0, data.size()};
+      final DataSource2D points = downsample(range(data, range, mStride), cplot.getDownsampler(), cplot.getDownsamplePoints());
+
       if (doFill == FillStyle.PATTERN) {
         setPattern(canvas, cplot.getColor());
       } else {
         setColor(canvas, cplot.getColor());
       }
 
-      final int[] xs = new int[points.length];
-      final int[] ys = new int[points.length];
-      for (int i = 0; i < points.length; i++) {
-        xs[i] = (int) convertX.worldToScreen(points[i].getX());
-        ys[i] = (int) convertY.worldToScreen(points[i].getY());
-      }
+      final int[] xs = new int[points.size()];
+      final int[] ys = new int[points.size()];
+      toScreen(points, Column.X, 0, xs.length, convertX, xs);
+      toScreen(points, Column.Y, 0, ys.length, convertY, ys);
 
       if (doFill != FillStyle.NONE) {
         fillCurve(canvas, xs, ys, type);
@@ -919,35 +1741,102 @@ public abstract class AbstractRenderer {
     }
   }
 
-  // our own special polygon class
+  // our own special polygon class, a growable buffer of vertices that can be reused
   protected static class Poly {
-    final ArrayList<Point2D> mPoints = new ArrayList<Point2D>();
-    int mLastX = 0;
-    int mLastY = 0;
+    /** most vertices kept room for between uses, so a huge line does not hold its memory */
+    static final int MAX_RETAINED = 1 << 16;
+
+    private int[] mXs = new int[16];
+    private int[] mYs = new int[16];
+    private int mSize = 0;
+
+    public void reset() {
+      mSize = 0;
+    }
+
+    // empties the buffer, releasing the arrays if they have grown past MAX_RETAINED
+    public void trim() {
+      mSize = 0;
+      if (mXs.length > MAX_RETAINED) {
+        mXs = new int[16];
+        mYs = new int[16];
+      }
+    }
 
     public void addPoint(int x, int y) {
-      if (mPoints.size() > 0 && mLastX == x && mLastY == y) { // Don't add redundant points.
+      if (mSize > 0 && mXs[mSize - 1] == x && mYs[mSize - 1] == y) { // Don't add redundant points.
         return;
       }
-      mPoints.add(new Point2D(x, y));
-      mLastX = x;
-      mLastY = y;
+      if (mSize == mXs.length) {
+        mXs = Arrays.copyOf(mXs, 2 * mSize);
+        mYs = Arrays.copyOf(mYs, 2 * mSize);
+      }
+      mXs[mSize] = x;
+      mYs[mSize] = y;
+      mSize++;
+    }
+
+    public int getSize() {
+      return mSize;
+    }
+
+    // the backing arrays, only the first getSize() values are used
+    public int[] getXBuffer() {
+      return mXs;
+    }
+
+    public int[] getYBuffer() {
+      return mYs;
     }
 
     public int[] getXs() {
-      final int[] xs = new int[mPoints.size()];
-      for (int i = 0; i < mPoints.size(); i++) {
-        xs[i] = (int) mPoints.get(i).getX();
-      }
-      return xs;
+      return Arrays.copyOf(mXs, mSize);
     }
 
     public int[] getYs() {
-      final int[] ys = new int[mPoints.size()];
-      for (int i = 0; i < mPoints.size(); i++) {
-        ys[i] = (int) mPoints.get(i).getY();
+      return Arrays.copyOf(mYs, mSize);
+    }
+  }
+
+  // a reusable bitmap of the screen pixels in a rectangle already drawn on
+  protected static class PixelMask {
+    /** largest number of pixels covered, so the bitmap stays under 4 MB */
+    static final long MAX_PIXELS = 1L << 25;
+
+    private long[] mBits = new long[0];
+    private int mX = 0;
+    private int mY = 0;
+    private int mWidth = 0;
+    private int mHeight = 0;
+
+    public void reset(int x, int y, int width, int height) {
+      final int words = (int) (((long) width * height + 63) >>> 6);
+      if (words > mBits.length) {
+        mBits = new long[words];
+      } else {
+        Arrays.fill(mBits, 0, words, 0L);
+      }
+      mX = x;
+      mY = y;
+      mWidth = width;
+      mHeight = height;
+    }
+
+    // marks a pixel, returning false if it was already marked; pixels outside the rectangle are never marked
+    public boolean mark(int x, int y) {
+      final int dx = x - mX;
+      final int dy = y - mY;
+      if (dx < 0 || dy < 0 || dx >= mWidth || dy >= mHeight) {
+        return true;
+      }
+      final int bit = dy * mWidth + dx;
+      final long mask = 1L << bit;
+      final long word = mBits[bit >>> 6];
+      if ((word & mask) != 0) {
+        return false;
       }
-      return ys;
+      mBits[bit >>> 6] = word | mask;
+      return true;
     }
   }
 }
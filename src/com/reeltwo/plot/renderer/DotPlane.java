@@ -0,0 +1,87 @@
+package com.reeltwo.plot.renderer;
+
+/**
+ * The dots of a text canvas drawn at a resolution finer than a
+ * character, held as a bit per dot.  Each cell of the canvas covers
+ * a block of dots, shown as a half block or Braille pattern character
+ * when any of them are set.
+ *
+ * @author Richard Littin
+ */
+final class DotPlane {
+
+  // Braille pattern bits of the dots of a cell, in rows of two
+  private static final int[] BRAILLE_BITS = {0x01, 0x08, 0x02, 0x10, 0x04, 0x20, 0x40, 0x80};
+  private static final char BRAILLE_BLANK = '\u2800';
+  // no dots, upper dot, lower dot, both dots
+  private static final char[] HALF_BLOCKS = {' ', '\u2580', '\u2584', '\u2588'};
+
+  private final int mDotsX, mDotsY; // dots across and down each cell
+  private final int mDotsWidth; // dots across the plane
+  private final long[] mDots; // a bit per dot set
+
+  /**
+   * Creates a plane with no dots set.
+   *
+   * @param width cells across
+   * @param height cells down
+   * @param resolution dots in each cell, either half blocks or Braille
+   */
+  DotPlane(int width, int height, TextRenderer.Resolution resolution) {
+    mDotsX = resolution.getDotsX();
+    mDotsY = resolution.getDotsY();
+    mDotsWidth = width * mDotsX;
+    mDots = new long[(int) (((long) mDotsWidth * height * mDotsY + 63) >>> 6)];
+  }
+
+  int getDotsX() {
+    return mDotsX;
+  }
+
+  int getDotsY() {
+    return mDotsY;
+  }
+
+  // sets a dot, which must be on the plane
+  void set(int x, int y) {
+    final int bit = y * mDotsWidth + x;
+    mDots[bit >>> 6] |= 1L << bit;
+  }
+
+  // clears the dots of a cell
+  void clear(int x, int y) {
+    for (int dy = 0; dy < mDotsY; dy++) {
+      for (int dx = 0; dx < mDotsX; dx++) {
+        final int bit = (y * mDotsY + dy) * mDotsWidth + x * mDotsX + dx;
+        mDots[bit >>> 6] &= ~(1L << bit);
+      }
+    }
+  }
+
+  // the character showing the dots set in a cell, or 0 if there are none
+  char getChar(int x, int y) {
+    int dots = 0;
+    for (int dy = 0; dy < mDotsY; dy++) {
+      final int row = (y * mDotsY + dy) * mDotsWidth + x * mDotsX;
+      for (int dx = 0; dx < mDotsX; dx++) {
+        final int bit = row + dx;
+        if ((mDots[bit >>> 6] & (1L << bit)) != 0) {
+          dots |= 1 << (dy * mDotsX + dx);
+        }
+      }
+    }
+    if (dots == 0) {
+      return 0;
+    }
+    if (mDotsX == 1) {
+      return HALF_BLOCKS[dots];
+    }
+    int pattern = 0;
+    for (int i = 0; i < BRAILLE_BITS.length; i++) {
+      if ((dots & (1 << i)) != 0) {
+        pattern |= BRAILLE_BITS[i];
+      }
+    }
+    return (char) (BRAILLE_BLANK + pattern);
+  }
+}
@@ -1,5 +1,6 @@
 package com.reeltwo.plot.renderer;
 
+import java.awt.AlphaComposite;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.FontMetrics;
@@ -8,19 +9,23 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Paint;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.reeltwo.plot.ArrowPlot2D;
 import com.reeltwo.plot.Axis;
 import com.reeltwo.plot.BWPlot2D;
 import com.reeltwo.plot.BWPlot2D.BoxWhiskerStyle;
-import com.reeltwo.plot.BWPoint2D;
 import com.reeltwo.plot.BoxPlot2D;
 import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
 import com.reeltwo.plot.CurvePlot2D;
-import com.reeltwo.plot.Datum2D;
+import com.reeltwo.plot.DataSource2D;
 import com.reeltwo.plot.Edge;
 import com.reeltwo.plot.FillablePlot2D;
 import com.reeltwo.plot.FillablePlot2D.FillStyle;
@@ -55,6 +60,39 @@ public class GraphicsRenderer extends AbstractRenderer {
   private Color mForegroundColor = Color.BLACK;
   private Color mGridColor = Color.LIGHT_GRAY;
 
+  /** pool to render data tiles in, null to render on the calling thread */
+  private ForkJoinPool mTilePool = null;
+  private int mTileSize = 0;
+  /** layer caching drawn data between graphs, null to draw data directly */
+  private ScrollBuffer mScrollBuffer = null;
+  /** layers caching each part of a drawn graph, null to draw graphs directly */
+  private LayerCache mLayerCache = null;
+  /** incremented whenever a setting affecting what is drawn changes */
+  private long mSettingsVersion = 0;
+
+  /**
+   * Where the parts of a graph go on the screen, as worked out when
+   * drawing the graph chrome.
+   */
+  static final class Layout {
+    final Mapping[] mMapping;
+    /** area data is drawn in */
+    final Rectangle mArea;
+    /** bounds the key is placed relative to */
+    final int mKeyXLo;
+    final int mKeyYLo;
+    final int mKeyXHi;
+    final int mKeyYHi;
+    Layout(Mapping[] mapping, Rectangle area, int keyXLo, int keyYLo, int keyXHi, int keyYHi) {
+      mMapping = mapping;
+      mArea = area;
+      mKeyXLo = keyXLo;
+      mKeyYLo = keyYLo;
+      mKeyXHi = keyXHi;
+      mKeyYHi = keyYHi;
+    }
+  }
+
   private static class Screen {
     final int mXLo;
     final int mXHi;
@@ -109,6 +147,34 @@ public class GraphicsRenderer extends AbstractRenderer {
     setPatterns(patterns);
   }
 
+  /**
+   * Creates a new <code>GraphicsRenderer</code> with the same settings
+   * as <code>other</code>, including any tiling, scroll buffer and
+   * layer cache.  Used to draw on another thread while
+   * <code>other</code> may still be changed.
+   *
+   * @param other renderer to copy settings from
+   */
+  public GraphicsRenderer(GraphicsRenderer other) {
+    mGraphTopColor = other.mGraphTopColor;
+    mGraphBottomColor = other.mGraphBottomColor;
+    mGraphShadowWidth = other.mGraphShadowWidth;
+    mTextAntialiasing = other.mTextAntialiasing;
+    mAllAntialiasing = other.mAllAntialiasing;
+    mColors = other.mColors;
+    mPatterns = other.mPatterns;
+    mBackgroundColor = other.mBackgroundColor;
+    mForegroundColor = other.mForegroundColor;
+    mGridColor = other.mGridColor;
+    mTilePool = other.mTilePool;
+    mTileSize = other.mTileSize;
+    mScrollBuffer = other.mScrollBuffer;
+    mLayerCache = other.mLayerCache;
+    mSettingsVersion = other.mSettingsVersion;
+    setStride(other.getStride());
+    setRenderListener(other.getRenderListener());
+  }
+
   /**
    * Sets the <code>colors</code> to use.
    *
@@ -127,6 +193,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       mPatterns = colors;
     }
     mColors = colors;
+    mSettingsVersion++;
   }
 
   /**
@@ -145,6 +212,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       }
       mPatterns = patterns;
     }
+    mSettingsVersion++;
   }
 
   /**
@@ -219,6 +287,7 @@ public class GraphicsRenderer extends AbstractRenderer {
 
   @Override
   protected void drawString(Object canvas, int x, int y, String text, boolean isVertical) {
+    countPrimitives(1);
     if (isVertical) {
       drawVerticalString((Graphics) canvas, x, y, text);
     } else {
@@ -226,8 +295,22 @@ public class GraphicsRenderer extends AbstractRenderer {
     }
   }
 
+  /** Repeated marks are invisible when drawn opaque and aliased over what is beneath. */
+  @Override
+  protected boolean isRepeatInvisible(Object canvas) {
+    if (!(canvas instanceof Graphics2D)) {
+      return ((Graphics) canvas).getColor().getAlpha() == 255;
+    }
+    final Graphics2D g = (Graphics2D) canvas;
+    final Paint paint = g.getPaint();
+    return paint instanceof Color && ((Color) paint).getAlpha() == 255
+      && g.getComposite() == AlphaComposite.SrcOver
+      && g.getRenderingHint(RenderingHints.KEY_ANTIALIASING) != RenderingHints.VALUE_ANTIALIAS_ON;
+  }
+
   @Override
   protected void drawPoint(Object canvas, int x, int y) {
+    countPrimitives(1);
     final Graphics g = (Graphics) canvas;
     switch (getPointIndex() % 6) {
     case 0:
@@ -265,54 +348,68 @@ public class GraphicsRenderer extends AbstractRenderer {
 
   @Override
   protected void drawLine(Object canvas, int x1, int y1, int x2, int y2) {
+    countPrimitives(1);
     ((Graphics) canvas).drawLine(x1, y1, x2, y2);
   }
 
   @Override
   protected void drawRectangle(Object canvas, int x, int y, int w, int h) {
+    countPrimitives(1);
     ((Graphics) canvas).drawRect(x, y, w, h);
   }
 
   @Override
   protected void fillRectangle(Object canvas, int x, int y, int w, int h) {
+    countPrimitives(1);
     ((Graphics) canvas).fillRect(x, y, w, h);
   }
 
   @Override
   protected void drawCircle(Object canvas, int x, int y, int diameter) {
+    countPrimitives(1);
     ((Graphics) canvas).drawOval((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter, diameter);
   }
 
   @Override
   protected void fillCircle(Object canvas, int x, int y, int diameter) {
+    countPrimitives(1);
     ((Graphics) canvas).fillOval((int) (x - diameter / 2.0f), (int) (y - diameter / 2.0f), diameter, diameter);
   }
 
-  private Polygon createPolygon(int[] xs, int[] ys) {
-    assert xs != null;
-    assert ys != null;
-    assert xs.length == ys.length;
-    final Polygon polygon = new Polygon();
-    for (int i = 0; i < xs.length; i++) {
-      polygon.addPoint(xs[i], ys[i]);
-    }
-    return polygon;
-  }
-
   @Override
   protected void drawPolygon(Object canvas, int[] xs, int[] ys) {
-    ((Graphics) canvas).drawPolygon(createPolygon(xs, ys));
+    drawPolygon(canvas, xs, ys, xs.length);
   }
 
   @Override
   protected void fillPolygon(Object canvas, int[] xs, int[] ys) {
-    ((Graphics) canvas).fillPolygon(createPolygon(xs, ys));
+    fillPolygon(canvas, xs, ys, xs.length);
   }
 
   @Override
   protected void drawPolyline(Object canvas, int[] xs, int[] ys) {
-    assert xs.length == ys.length;
-    ((Graphics) canvas).drawPolyline(xs, ys, xs.length);
+    drawPolyline(canvas, xs, ys, xs.length);
+  }
+
+  @Override
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    assert xs.length >= n && ys.length >= n;
+    countPrimitives(1);
+    ((Graphics) canvas).drawPolygon(xs, ys, n);
+  }
+
+  @Override
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    assert xs.length >= n && ys.length >= n;
+    countPrimitives(1);
+    ((Graphics) canvas).fillPolygon(xs, ys, n);
+  }
+
+  @Override
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    assert xs.length >= n && ys.length >= n;
+    countPrimitives(1);
+    ((Graphics) canvas).drawPolyline(xs, ys, n);
   }
 
   // render specific
@@ -323,6 +420,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setTextAntialiasing(boolean flag) {
     mTextAntialiasing = flag;
+    mSettingsVersion++;
   }
 
   /**
@@ -332,6 +430,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setAntialiasing(boolean flag) {
     mAllAntialiasing = flag;
+    mSettingsVersion++;
   }
 
   /**
@@ -345,6 +444,7 @@ public class GraphicsRenderer extends AbstractRenderer {
   public void setGraphBGColor(Color topColor, Color bottomColor) {
     mGraphTopColor = topColor;
     mGraphBottomColor = bottomColor;
+    mSettingsVersion++;
   }
 
   /**
@@ -354,6 +454,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setBackground(Color color) {
     mBackgroundColor = color;
+    mSettingsVersion++;
   }
 
   /**
@@ -364,6 +465,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setForeground(Color color) {
     mForegroundColor = color;
+    mSettingsVersion++;
   }
 
   /**
@@ -373,6 +475,7 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setGridColor(Color color) {
     mGridColor = color;
+    mSettingsVersion++;
   }
 
   /**
@@ -382,6 +485,84 @@ public class GraphicsRenderer extends AbstractRenderer {
    */
   public void setGraphShadowWidth(int width) {
     mGraphShadowWidth = width;
+    mSettingsVersion++;
+  }
+
+  /**
+   * Sets a pool used to draw the data of a graph in parallel when
+   * drawing into a <code>BufferedImage</code>.  The data area is split
+   * into tiles <code>tileSize</code> pixels wide and the height of the
+   * area, each drawn with its own clip.  Data sorted by x are culled
+   * to each tile, so a tile only maps the points near it.  Axes, tics
+   * and key are still drawn once on the calling thread.  The image
+   * produced is the same as when drawing on a single thread.  Default
+   * is not to use tiles.
+   *
+   * @param pool a fork join pool, or null to draw on the calling thread
+   * @param tileSize width of tiles in pixels
+   * @exception IllegalArgumentException if <code>tileSize</code> is
+   * not positive
+   */
+  public void setTiling(ForkJoinPool pool, int tileSize) {
+    if (pool != null && tileSize <= 0) {
+      throw new IllegalArgumentException("tile size must be > 0: " + tileSize);
+    }
+    mTilePool = pool;
+    mTileSize = tileSize;
+  }
+
+  /**
+   * Sets a buffer the data of a graph is drawn through, so that a
+   * graph whose x range has scrolled forward since it was last drawn
+   * only has the newly exposed data drawn.  Tiling is not used while
+   * a scroll buffer is set.  Default is no scroll buffer.
+   *
+   * @param buffer a scroll buffer, or null to draw data directly
+   */
+  public void setScrollBuffer(ScrollBuffer buffer) {
+    mScrollBuffer = buffer;
+  }
+
+  /**
+   * Returns the scroll buffer data is drawn through.
+   *
+   * @return a scroll buffer, or null
+   */
+  public ScrollBuffer getScrollBuffer() {
+    return mScrollBuffer;
+  }
+
+  /**
+   * Sets a cache the parts of a graph are drawn through.  The graph
+   * chrome (area, title, labels, tics, grid and border), the data of
+   * each plot and the key are each drawn into their own layer, and a
+   * layer is only drawn again when something it depends on has
+   * changed.  When a cache is set neither the scroll buffer nor tiling
+   * is used.  Default is no cache.
+   *
+   * @param cache a layer cache, or null to draw graphs directly
+   */
+  public void setLayerCache(LayerCache cache) {
+    mLayerCache = cache;
+  }
+
+  /**
+   * Returns the cache the parts of a graph are drawn through.
+   *
+   * @return a layer cache, or null
+   */
+  public LayerCache getLayerCache() {
+    return mLayerCache;
+  }
+
+  /**
+   * Returns a number that changes whenever a setting of this renderer
+   * that affects what is drawn changes.
+   *
+   * @return settings version
+   */
+  long getSettingsVersion() {
+    return mSettingsVersion;
   }
 
   private static int getKeyLineWidth(Graphics g) {
@@ -418,128 +599,302 @@ public class GraphicsRenderer extends AbstractRenderer {
    * @param screenHeight height of drawing region
    */
   public void drawGraph(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
+    drawGraph(graph, null, g, offsetX, offsetY, screenWidth, screenHeight);
+  }
+
+  /**
+   * Actually draws the graph on the given Graphics, which draws into
+   * <code>image</code>.  Knowing the image allows the data to be drawn
+   * in parallel tiles if a tiling pool has been set.  Offsets and
+   * screen dimensions are used to provide limits on the area to draw
+   * in.
+   *
+   * @param graph the Graph2D to draw
+   * @param image the image <code>g</code> draws into, may be null
+   * @param g a Graphics to draw on
+   * @param offsetX the horizontal offset
+   * @param offsetY the vertical offset
+   * @param screenWidth width of drawing region
+   * @param screenHeight height of drawing region
+   */
+  public void drawGraph(Graph2D graph, BufferedImage image, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
     Mapping[] mapping = null;
     setMappings(null);
     if (graph != null) {
       setupAntialiasing(g);
-      int sxlo = offsetX;
-      int sxhi = offsetX + screenWidth - 1;
-      int sylo = offsetY + screenHeight - 1;
-      int syhi = offsetY;
-      setClip(g, offsetX, offsetY, screenWidth, screenHeight);
-      setColor(g, FOREGROUND_COLOR_INDEX);
-      final String title = graph.getTitle();
-      final int tHeight = getTextHeight(g, "A");
-      if (title.length() > 0) {
-        syhi += tHeight;
+      if (mLayerCache != null) {
+        mapping = mLayerCache.draw(this, graph, (Graphics2D) g, offsetX, offsetY, screenWidth, screenHeight);
+      } else {
+        final Layout layout = drawChrome(graph, g, offsetX, offsetY, screenWidth, screenHeight);
+        mapping = layout.mMapping;
+        // set clip so nothing appears outside border
+        final Rectangle area = layout.mArea;
+        setClip(g, area.x, area.y, area.width, area.height);
+        if (mScrollBuffer != null) {
+          mScrollBuffer.draw(this, (Graphics2D) g, graph.getPlots(), mapping, area);
+        } else if (image != null && mTilePool != null) {
+          drawDataTiled(image, (Graphics2D) g, graph.getPlots(), mapping);
+        } else {
+          drawData(g, graph.getPlots(), mapping);
+        }
+        drawKey(graph, g, offsetX, offsetY, screenWidth, screenHeight, layout);
       }
+    }
+    setMappings(mapping);
+  }
 
-      TicInfo y2TicInfo = null;
-      TicInfo xTicInfo = null;
-      if (graph.isBorder()) {
-        int keyWidth = 0;
-        if (graph.isShowKey()) {
-          if (graph.getKeyVerticalPosition() == KeyPosition.BELOW) {
-            final int keyHeight = calculateKeyHeight(g, graph, screenWidth);
-            sylo -= keyHeight + 2;
-          } else if (graph.getKeyHorizontalPosition() == KeyPosition.OUTSIDE) {
-            keyWidth = calculateKeyWidth(g, graph);
-            sxhi -= keyWidth + 2;
-          }
-        }
-        if (graph.uses(Axis.X, Edge.MAIN) && graph.getLabel(Axis.X, Edge.MAIN).length() > 0) {
-          sylo -= tHeight + 2;
-          // draw x label later when border width is known
-        }
-        if (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0) {
-          g.drawString(graph.getLabel(Axis.Y, Edge.MAIN), sxlo, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
-        }
-        if (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.getLabel(Axis.Y, Edge.ALTERNATE).length() > 0) {
-          final String yLabel = graph.getLabel(Axis.Y, Edge.ALTERNATE);
-          g.drawString(yLabel, sxhi - getTextWidth(g, yLabel), offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
-        }
-        if ((graph.uses(Axis.X, Edge.ALTERNATE) && graph.getLabel(Axis.X, Edge.ALTERNATE).length() > 0)
-            || (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0)
-            || (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.getLabel(Axis.Y, Edge.ALTERNATE).length() > 0)) {
-          syhi += tHeight;
-        }
-        // extra height for digits on axes
-        if ((graph.uses(Axis.Y, Edge.MAIN) && graph.isShowTics(Axis.Y, Edge.MAIN))
-            || (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.isShowTics(Axis.Y, Edge.ALTERNATE))) {
-          syhi += tHeight / 2;
+  /**
+   * Draws everything about a graph other than its data and key: the
+   * graph area, title, axis labels, tics, grid and border.
+   *
+   * @param graph the graph to draw
+   * @param g a Graphics to draw on
+   * @param offsetX the horizontal offset
+   * @param offsetY the vertical offset
+   * @param screenWidth width of drawing region
+   * @param screenHeight height of drawing region
+   * @return where the data and key of the graph go
+   */
+  Layout drawChrome(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
+    final long start = phaseStart();
+    final Mapping[] mapping;
+    int sxlo = offsetX;
+    int sxhi = offsetX + screenWidth - 1;
+    int sylo = offsetY + screenHeight - 1;
+    int syhi = offsetY;
+    setClip(g, offsetX, offsetY, screenWidth, screenHeight);
+    setColor(g, FOREGROUND_COLOR_INDEX);
+    final String title = graph.getTitle();
+    final int tHeight = getTextHeight(g, "A");
+    if (title.length() > 0) {
+      syhi += tHeight;
+    }
+
+    TicInfo y2TicInfo = null;
+    TicInfo xTicInfo = null;
+    if (graph.isBorder()) {
+      int keyWidth = 0;
+      if (graph.isShowKey()) {
+        if (graph.getKeyVerticalPosition() == KeyPosition.BELOW) {
+          final int keyHeight = calculateKeyHeight(g, graph, screenWidth);
+          sylo -= keyHeight + 2;
+        } else if (graph.getKeyHorizontalPosition() == KeyPosition.OUTSIDE) {
+          keyWidth = calculateKeyWidth(g, graph);
+          sxhi -= keyWidth + 2;
         }
-        final TicInfo[] ticInfos = createTicInfos(g, graph);
-        final TicInfo yTicInfo = ticInfos[1];
-        if (yTicInfo != null) {
-          sxlo += yTicInfo.mMaxWidth + 2;
+      }
+      if (graph.uses(Axis.X, Edge.MAIN) && graph.getLabel(Axis.X, Edge.MAIN).length() > 0) {
+        sylo -= tHeight + 2;
+        // draw x label later when border width is known
+      }
+      if (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0) {
+        g.drawString(graph.getLabel(Axis.Y, Edge.MAIN), sxlo, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
+      }
+      if (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.getLabel(Axis.Y, Edge.ALTERNATE).length() > 0) {
+        final String yLabel = graph.getLabel(Axis.Y, Edge.ALTERNATE);
+        g.drawString(yLabel, sxhi - getTextWidth(g, yLabel), offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
+      }
+      if ((graph.uses(Axis.X, Edge.ALTERNATE) && graph.getLabel(Axis.X, Edge.ALTERNATE).length() > 0)
+          || (graph.uses(Axis.Y, Edge.MAIN) && graph.getLabel(Axis.Y, Edge.MAIN).length() > 0)
+          || (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.getLabel(Axis.Y, Edge.ALTERNATE).length() > 0)) {
+        syhi += tHeight;
+      }
+      // extra height for digits on axes
+      if ((graph.uses(Axis.Y, Edge.MAIN) && graph.isShowTics(Axis.Y, Edge.MAIN))
+          || (graph.uses(Axis.Y, Edge.ALTERNATE) && graph.isShowTics(Axis.Y, Edge.ALTERNATE))) {
+        syhi += tHeight / 2;
+      }
+      final TicInfo[] ticInfos = createTicInfos(g, graph);
+      final TicInfo yTicInfo = ticInfos[1];
+      if (yTicInfo != null) {
+        sxlo += yTicInfo.mMaxWidth + 2;
+      }
+      y2TicInfo = ticInfos[3];
+      if (y2TicInfo != null) {
+        sxhi -= y2TicInfo.mMaxWidth + 2;
+      }
+      xTicInfo = ticInfos[0];
+      if (xTicInfo != null) {
+        sylo -= xTicInfo.mMaxHeight;
+        if (!(graph.uses(Axis.Y, Edge.MAIN) && graph.isShowTics(Axis.Y, Edge.MAIN))) {
+          sxlo += xTicInfo.mMaxWidth / 2 + 2;
         }
-        y2TicInfo = ticInfos[3];
-        if (y2TicInfo != null) {
-          sxhi -= y2TicInfo.mMaxWidth + 2;
+        if (!(graph.uses(Axis.Y, Edge.ALTERNATE) && graph.isShowTics(Axis.Y, Edge.ALTERNATE)) && keyWidth == 0) {
+          sxhi -= xTicInfo.mMaxWidth / 2 + 2;
         }
-        xTicInfo = ticInfos[0];
-        if (xTicInfo != null) {
-          sylo -= xTicInfo.mMaxHeight;
-          if (!(graph.uses(Axis.Y, Edge.MAIN) && graph.isShowTics(Axis.Y, Edge.MAIN))) {
-            sxlo += xTicInfo.mMaxWidth / 2 + 2;
-          }
-          if (!(graph.uses(Axis.Y, Edge.ALTERNATE) && graph.isShowTics(Axis.Y, Edge.ALTERNATE)) && keyWidth == 0) {
-            sxhi -= xTicInfo.mMaxWidth / 2 + 2;
-          }
+      }
+      final TicInfo x2TicInfo = ticInfos[2];
+      if (x2TicInfo != null) {
+        syhi += x2TicInfo.mMaxHeight;
+        if (!graph.isShowTics(Axis.Y, Edge.MAIN) && !(graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN))) {
+          sxlo += x2TicInfo.mMaxWidth / 2 + 2;
         }
-        final TicInfo x2TicInfo = ticInfos[2];
-        if (x2TicInfo != null) {
-          syhi += x2TicInfo.mMaxHeight;
-          if (!graph.isShowTics(Axis.Y, Edge.MAIN) && !(graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN))) {
-            sxlo += x2TicInfo.mMaxWidth / 2 + 2;
-          }
-          if (!graph.isShowTics(Axis.Y, Edge.ALTERNATE) && !(graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN))) {
-            sxhi -= x2TicInfo.mMaxWidth / 2 + 2;
-          }
+        if (!graph.isShowTics(Axis.Y, Edge.ALTERNATE) && !(graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN))) {
+          sxhi -= x2TicInfo.mMaxWidth / 2 + 2;
         }
+      }
 
-        final Screen s = new Screen(sxlo, sylo, sxhi, syhi);
+      final Screen s = new Screen(sxlo, sylo, sxhi, syhi);
 
-        mapping = createMappings(graph, sxlo, sylo, sxhi, syhi);
-        drawGraphArea(g, sxlo, sylo, sxhi, syhi);
-        drawYTics(graph, g, Edge.MAIN, yTicInfo, mapping[1], s);
-        drawYTics(graph, g, Edge.ALTERNATE, y2TicInfo, mapping[3], s);
-        drawXTics(graph, g, Edge.MAIN, xTicInfo, mapping[0], s);
-        drawXTics(graph, g, Edge.ALTERNATE, x2TicInfo, mapping[2], s);
-        setColor(g, FOREGROUND_COLOR_INDEX);
-        String xLabel;
-        if (graph.uses(Axis.X, Edge.MAIN) && (xLabel = graph.getLabel(Axis.X, Edge.MAIN)).length() > 0) {
-          final int extra = tHeight + ((graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN)) ? xTicInfo.mMaxHeight : 0);
-          g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, sylo + extra);
-        }
-        if (graph.uses(Axis.X, Edge.ALTERNATE) && (xLabel = graph.getLabel(Axis.X, Edge.ALTERNATE)).length() > 0) {
-          g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
-        }
-        // draw border
-        setColor(g, FOREGROUND_COLOR_INDEX);
-        g.drawRect(sxlo, syhi, sxhi - sxlo, sylo - syhi);
-      } else {
-        drawGraphArea(g, sxlo, sylo, sxhi, syhi);
-        mapping = createMappings(graph, sxlo, sylo, sxhi, syhi);
+      mapping = createMappings(graph, sxlo, sylo, sxhi, syhi);
+      drawGraphArea(g, sxlo, sylo, sxhi, syhi);
+      drawYTics(graph, g, Edge.MAIN, yTicInfo, mapping[1], s);
+      drawYTics(graph, g, Edge.ALTERNATE, y2TicInfo, mapping[3], s);
+      drawXTics(graph, g, Edge.MAIN, xTicInfo, mapping[0], s);
+      drawXTics(graph, g, Edge.ALTERNATE, x2TicInfo, mapping[2], s);
+      setColor(g, FOREGROUND_COLOR_INDEX);
+      String xLabel;
+      if (graph.uses(Axis.X, Edge.MAIN) && (xLabel = graph.getLabel(Axis.X, Edge.MAIN)).length() > 0) {
+        final int extra = tHeight + ((graph.uses(Axis.X, Edge.MAIN) && graph.isShowTics(Axis.X, Edge.MAIN)) ? xTicInfo.mMaxHeight : 0);
+        g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, sylo + extra);
+      }
+      if (graph.uses(Axis.X, Edge.ALTERNATE) && (xLabel = graph.getLabel(Axis.X, Edge.ALTERNATE)).length() > 0) {
+        g.drawString(xLabel, (sxhi + sxlo) / 2 - getTextWidth(g, xLabel) / 2, offsetY + tHeight * (1 + (title.length() > 0 ? 1 : 0)));
       }
+      // draw border
       setColor(g, FOREGROUND_COLOR_INDEX);
-      // draw title
-      if (title.length() > 0) {
-        g.drawString(title, (sxhi + sxlo) / 2 - g.getFontMetrics().stringWidth(title) / 2, offsetY + tHeight);
+      g.drawRect(sxlo, syhi, sxhi - sxlo, sylo - syhi);
+    } else {
+      drawGraphArea(g, sxlo, sylo, sxhi, syhi);
+      mapping = createMappings(graph, sxlo, sylo, sxhi, syhi);
+    }
+    setColor(g, FOREGROUND_COLOR_INDEX);
+    // draw title
+    if (title.length() > 0) {
+      g.drawString(title, (sxhi + sxlo) / 2 - g.getFontMetrics().stringWidth(title) / 2, offsetY + tHeight);
+    }
+    final Rectangle area = new Rectangle(sxlo, syhi, sxhi - sxlo + 1, sylo - syhi + 1);
+    if (graph.getKeyVerticalPosition() == KeyPosition.BELOW) {
+      if (xTicInfo != null) { sylo += xTicInfo.mMaxHeight; }
+      if (graph.uses(Axis.X, Edge.MAIN) && graph.getLabel(Axis.X, Edge.MAIN).length() > 0) { sylo += tHeight; }
+    } else if (graph.getKeyHorizontalPosition() == KeyPosition.OUTSIDE) {
+      if (y2TicInfo != null) { sxhi += y2TicInfo.mMaxWidth + 2; }
+    }
+    phaseDone(RenderPhase.LAYOUT, start);
+    return new Layout(mapping, area, sxlo, sylo, sxhi, syhi);
+  }
+
+  private static class TileTask extends RecursiveAction {
+    private final GraphicsRenderer mRenderer;
+    private final BufferedImage mImage;
+    private final Graphics2D mGraphics;
+    private final Rectangle mTile;
+    /** whether the tile is at the left or right of the area, so counts the points beyond it */
+    private final boolean mFirst;
+    private final boolean mLast;
+    private final Plot2D[] mPlots;
+    private final Mapping[] mMapping;
+    private final TileCounts mCounts;
+
+    TileTask(GraphicsRenderer renderer, BufferedImage image, Graphics2D g, Rectangle tile, boolean first, boolean last, Plot2D[] plots, Mapping[] mapping, TileCounts counts) {
+      mRenderer = renderer;
+      mImage = image;
+      mGraphics = g;
+      mTile = tile;
+      mFirst = first;
+      mLast = last;
+      mPlots = plots;
+      mMapping = mapping;
+      mCounts = counts;
+    }
+
+    @Override
+    protected void compute() {
+      if (mRenderer.isCancelled()) {
+        return;
       }
-      // set clip so nothing appears outside border
-      setClip(g, sxlo, syhi, sxhi - sxlo + 1, sylo - syhi + 1);
-      drawData(g, graph.getPlots(), mapping);
-      if (graph.getKeyVerticalPosition() == KeyPosition.BELOW) {
-        if (xTicInfo != null) { sylo += xTicInfo.mMaxHeight; }
-        if (graph.uses(Axis.X, Edge.MAIN) && graph.getLabel(Axis.X, Edge.MAIN).length() > 0) { sylo += tHeight; }
-      } else if (graph.getKeyHorizontalPosition() == KeyPosition.OUTSIDE) {
-        if (y2TicInfo != null) { sxhi += y2TicInfo.mMaxWidth + 2; }
+      final Graphics2D tg = mImage.createGraphics();
+      try {
+        // tile clip is in image space, the graph clip in user space
+        tg.setClip(mTile);
+        tg.setTransform(mGraphics.getTransform());
+        final Rectangle bounds = tg.getClipBounds();
+        tg.clip(mGraphics.getClip());
+        final Rectangle clip = tg.getClipBounds();
+        if (clip == null || clip.isEmpty()) {
+          return;
+        }
+        tg.setFont(mGraphics.getFont());
+        tg.setRenderingHints(mGraphics.getRenderingHints());
+        final GraphicsRenderer renderer = new GraphicsRenderer(mRenderer);
+        // only the data near the tile are drawn, with buffers the size of the tile
+        renderer.setCullX(clip.x, clip.x + clip.width - 1);
+        renderer.setCullY(clip.y, clip.y + clip.height - 1);
+        renderer.setCountX(mFirst ? Float.NEGATIVE_INFINITY : bounds.x, mLast ? Float.POSITIVE_INFINITY : bounds.x + bounds.width);
+        renderer.setRenderListener(mCounts);
+        renderer.drawData(tg, mPlots, mMapping);
+      } finally {
+        tg.dispose();
       }
+    }
+  }
 
-      drawKey(graph, g, offsetX, offsetY, screenWidth, screenHeight, sxlo, sylo, sxhi, syhi);
+  // adds up the work done drawing each plot in every tile, each tile counting the points in it
+  private static final class TileCounts implements RenderListener {
+    private final Plot2D[] mPlots;
+    /** time, points mapped, culled and decimated, and primitives of each plot */
+    private final long[][] mCounts;
+    private final boolean[] mDrawn;
+
+    TileCounts(Plot2D[] plots) {
+      mPlots = plots;
+      mCounts = new long[plots.length][5];
+      mDrawn = new boolean[plots.length];
+    }
+
+    @Override
+    public void phaseDone(RenderPhase phase, long nanos) {
+    }
+
+    @Override
+    public synchronized void plotDrawn(Plot2D plot, long nanos, long mapped, long culled, long decimated, long primitives) {
+      for (int i = 0; i < mPlots.length; i++) {
+        if (mPlots[i] == plot) {
+          final long[] counts = mCounts[i];
+          counts[0] += nanos;
+          counts[1] += mapped;
+          // points are culled against the whole plot area, so every tile culls the same
+          counts[2] = culled;
+          counts[3] += decimated;
+          counts[4] += primitives;
+          mDrawn[i] = true;
+          break;
+        }
+      }
+    }
+
+    // tells the listener about each plot drawn in any tile, once
+    synchronized void report(RenderListener listener) {
+      for (int i = 0; i < mPlots.length; i++) {
+        if (mDrawn[i]) {
+          final long[] counts = mCounts[i];
+          listener.plotDrawn(mPlots[i], counts[0], counts[1], counts[2], counts[3], counts[4]);
+        }
+      }
+    }
+  }
+
+  private void drawDataTiled(BufferedImage image, Graphics2D g, Plot2D[] plots, Mapping[] mapping) {
+    // colors are assigned up front so tiles only read the plots
+    assignColors(plots);
+    final RenderListener listener = getRenderListener();
+    final TileCounts counts = listener == null ? null : new TileCounts(plots);
+    final Rectangle area = g.getTransform().createTransformedShape(g.getClip()).getBounds().intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+    final ArrayList<TileTask> tasks = new ArrayList<TileTask>();
+    // data are culled by x, so tiles split the area across and not down
+    for (int x = area.x; x < area.x + area.width; x += mTileSize) {
+      final Rectangle tile = new Rectangle(x, area.y, mTileSize, area.height).intersection(area);
+      tasks.add(new TileTask(this, image, g, tile, x == area.x, x + mTileSize >= area.x + area.width, plots, mapping, counts));
+    }
+    mTilePool.invoke(new RecursiveAction() {
+        @Override
+        protected void compute() {
+          invokeAll(tasks);
+        }
+      });
+    if (counts != null) {
+      counts.report(listener);
     }
-    setMappings(mapping);
   }
 
   private void setupAntialiasing(Graphics g) {
@@ -571,7 +926,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.getDataCount() != 0) {
         final int sw = getTextWidth(canvas, dtitle) + keyLineWidth + 10;
         if (sw > keyWidth) {
           keyWidth = sw;
@@ -592,7 +947,7 @@ public class GraphicsRenderer extends AbstractRenderer {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.getDataCount() != 0) {
         keyHeight++;
       }
     }
@@ -861,15 +1216,27 @@ public class GraphicsRenderer extends AbstractRenderer {
     return keyY;
   }
 
-  private void drawKey(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight, int sxlo, int sylo, int sxhi, int syhi) {
+  /**
+   * Draws the key of a graph.
+   *
+   * @param graph the graph to draw
+   * @param g a Graphics to draw on
+   * @param offsetX the horizontal offset
+   * @param offsetY the vertical offset
+   * @param screenWidth width of drawing region
+   * @param screenHeight height of drawing region
+   * @param layout where the key goes, from <code>drawChrome</code>
+   */
+  void drawKey(Graph2D graph, Graphics g, int offsetX, int offsetY, int screenWidth, int screenHeight, Layout layout) {
+    final long start = phaseStart();
     if (graph.isBorder() && graph.isShowKey()) {
       setClip(g, offsetX, offsetY, screenWidth, screenHeight);
       final String keyTitle = graph.getKeyTitle();
       final int tHeight = getTextHeight(g, "A");
       final int keyWidth = calculateKeyWidth(g, graph);
-      final int keyX = calcKeyX(graph, sxlo, sxhi, keyWidth);
+      final int keyX = calcKeyX(graph, layout.mKeyXLo, layout.mKeyXHi, keyWidth);
       final int keyHeight = calculateKeyHeight(g, graph, screenWidth);
-      final int keyY = calcKeyY(graph, sylo, syhi, keyHeight);
+      final int keyY = calcKeyY(graph, layout.mKeyYLo, layout.mKeyYHi, keyHeight);
       if (keyTitle != null && keyTitle.length() != 0) {
         setColor(g, FOREGROUND_COLOR_INDEX);
         final int yy = keyY + tHeight;
@@ -889,7 +1256,7 @@ public class GraphicsRenderer extends AbstractRenderer {
           while (j < plots.length && dtitle == null) {
             plot = plots[j++];
             dtitle = plot.getTitle();
-            if (dtitle == null || dtitle.length() == 0 || plot.getData() == null || plot.getData().length == 0) {
+            if (dtitle == null || dtitle.length() == 0 || plot.getDataCount() == 0) {
               dtitle = null;
             }
           }
@@ -1007,65 +1374,48 @@ public class GraphicsRenderer extends AbstractRenderer {
         }
       }
     }
+    phaseDone(RenderPhase.KEY, start);
   }
 
   // specific plots...
 
   @Override
   protected void drawBWPlot(Object canvas, BWPlot2D bwplot, Mapping convertX, Mapping convertY) {
-    final Datum2D[] points = bwplot.getData();
-    if (points != null && points.length != 0) {
+    final DataSource2D points = bwplot.getDataSource();
+    if (points != null && points.size() != 0) {
       if (bwplot.getStyle() == BoxWhiskerStyle.JOINED) {
+        final DataSource2D visible = visiblePoints(bwplot, points, convertX, getLineWidth(), 1);
+        if (visible.size() == 0) {
+          return;
+        }
         final Graphics g = (Graphics) canvas;
         final Color old = g.getColor();
         g.setColor(new Color((old.getRed() + 255) / 2, (old.getGreen() + 255) / 2, (old.getBlue() + 255) / 2, 127));
-        Polygon polygon = new Polygon();
-        for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          final int sptY = (int) convertY.worldToScreen(point.getY(0));
-          polygon.addPoint(sptX, sptY);
-        }
-        for (int i = points.length - 1; i >= 0; i--) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          final int sptY = (int) convertY.worldToScreen(point.getY(4));
-          polygon.addPoint(sptX, sptY);
-        }
-        g.fillPolygon(polygon);
+        final Poly polygon = getPolyBuffer();
+        addBand(polygon, visible, Column.Y, Column.Y2, convertX, convertY);
+        fillPolygon(g, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
 
         g.setColor(new Color(old.getRed(), old.getGreen(), old.getBlue(), 96));
-        polygon = new Polygon();
-        for (int i = 0; i < points.length; i++) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          final int sptY = (int) convertY.worldToScreen(point.getY(1));
-          polygon.addPoint(sptX, sptY);
-        }
-        for (int i = points.length - 1; i >= 0; i--) {
-          final BWPoint2D point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          final int sptY = (int) convertY.worldToScreen(point.getY(3));
-          polygon.addPoint(sptX, sptY);
-        }
-        g.fillPolygon(polygon);
+        polygon.reset();
+        addBand(polygon, visible, Column.LOWER_QUARTILE, Column.UPPER_QUARTILE, convertX, convertY);
+        fillPolygon(g, polygon.getXBuffer(), polygon.getYBuffer(), polygon.getSize());
 
         g.setColor(old);
 
-        BWPoint2D point = (BWPoint2D) points[0];
-        int lastX = (int) convertX.worldToScreen(point.getX());
-        int lastY = (int) convertY.worldToScreen(point.getY(2));
-
-        drawRectangle(canvas, lastX, lastY, 0, 0);
-
-        for (int i = 1; i < points.length; i++) {
-          point = (BWPoint2D) points[i];
-          final int sptX = (int) convertX.worldToScreen(point.getX());
-          final int sptY = (int) convertY.worldToScreen(point.getY(2));
-          drawLine(canvas, lastX, lastY, sptX, sptY);
-          lastX = sptX;
-          lastY = sptY;
-          drawRectangle(canvas, sptX, sptY, 0, 0);
+        int lastX = 0;
+        int lastY = 0;
+        for (int start = 0; start < visible.size(); start += CHUNK_SIZE) {
+          final int length = Math.min(CHUNK_SIZE, visible.size() - start);
+          final int[] xs = toScreen(visible, Column.X, start, length, convertX);
+          final int[] ys = toScreen(visible, Column.MEDIAN, start, length, convertY);
+          for (int j = 0; j < length; j++) {
+            if (start + j > 0) {
+              drawLine(canvas, lastX, lastY, xs[j], ys[j]);
+            }
+            lastX = xs[j];
+            lastY = ys[j];
+            drawRectangle(canvas, lastX, lastY, 0, 0);
+          }
         }
       } else {
         super.drawBWPlot(canvas, bwplot, convertX, convertY);
@@ -1073,6 +1423,26 @@ public class GraphicsRenderer extends AbstractRenderer {
     }
   }
 
+  // adds the points of lower in order then the points of upper in reverse order
+  private void addBand(Poly polygon, DataSource2D points, Column lower, Column upper, Mapping convertX, Mapping convertY) {
+    for (int start = 0; start < points.size(); start += CHUNK_SIZE) {
+      final int length = Math.min(CHUNK_SIZE, points.size() - start);
+      final int[] xs = toScreen(points, Column.X, start, length, convertX);
+      final int[] ys = toScreen(points, lower, start, length, convertY);
+      for (int j = 0; j < length; j++) {
+        polygon.addPoint(xs[j], ys[j]);
+      }
+    }
+    for (int end = points.size(); end > 0; end -= CHUNK_SIZE) {
+      final int start = Math.max(0, end - CHUNK_SIZE);
+      final int[] xs = toScreen(points, Column.X, start, end - start, convertX);
+      final int[] ys = toScreen(points, upper, start, end - start, convertY);
+      for (int j = end - start - 1; j >= 0; j--) {
+        polygon.addPoint(xs[j], ys[j]);
+      }
+    }
+  }
+
   private static void drawVerticalString(Graphics g, int x, int y, String text) {
     final Color transparent = new Color(255, 255, 255, 0);
     final FontMetrics fontMetrics = g.getFontMetrics();
@@ -0,0 +1,396 @@
+package com.reeltwo.plot.renderer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Finds which datum of a drawn graph is at a screen position, such as
+ * the mouse position for a tool tip.  The extent of each datum on the
+ * screen is found from the columns of its plot data: a box or arrow
+ * covers the rectangle between its x and y values, a circle covers its
+ * diameter around its centre and a point covers just its position.
+ * The extents are put in a grid of screen cells, so finding the datum
+ * at a position only looks at the data in one cell rather than every
+ * datum in the graph.<p>
+ *
+ * The grid is built the first time a position is looked up, and built
+ * again when the graph, its plots or the axis mappings have changed.
+ * Changes to the contents of data arrays are not seen; call
+ * <code>invalidate()</code> after making them.<p>
+ *
+ * Only data near the plot area are indexed, taking about 28 bytes
+ * each.  Where a plot is sorted by x and its data cover just their x
+ * value across the screen, as for points and lines, the data in view
+ * are found by binary search, so building takes time in proportion to
+ * the data in view.  Otherwise every datum of the plot is looked at
+ * to find whether it is in view.  As appending to a
+ * <code>StreamingData2D</code> changes its plot, the next look up
+ * after an append builds the grid again, which for sorted streams
+ * costs only the points in view however many the stream holds.
+ *
+ * @author Richard Littin
+ */
+public class HitIndex {
+
+  /**
+   * A datum found at a screen position.
+   */
+  public static final class Hit {
+    private final Plot2D mPlot;
+    private final int mIndex;
+
+    Hit(Plot2D plot, int index) {
+      mPlot = plot;
+      mIndex = index;
+    }
+
+    /**
+     * Returns the plot the datum is in.
+     *
+     * @return a plot
+     */
+    public Plot2D getPlot() {
+      return mPlot;
+    }
+
+    /**
+     * Returns the row of the datum in the data source of its plot.
+     *
+     * @return a row index
+     */
+    public int getIndex() {
+      return mIndex;
+    }
+
+    /**
+     * Returns the object associated with the datum, such as the text of
+     * a note or text point.
+     *
+     * @return an object, may be null
+     */
+    public Object getObject() {
+      return mPlot.getDataSource().getObject(mIndex);
+    }
+  }
+
+  /** width and height of a grid cell in screen units */
+  private static final int CELL_SIZE = 16;
+  /** data covering more cells than this are kept outside the grid and always looked at */
+  private static final int MAX_CELLS = 64;
+  /** items the arrays always have room for, so they are not given back for small graphs */
+  private static final int MIN_CAPACITY = 1024;
+  private static final int[] NO_ITEMS = new int[0];
+
+  private int mTolerance = 3;
+
+  /** state of the graph and mappings the grid was built for */
+  private List<Object> mState = null;
+  private Plot2D[] mPlots = null;
+  // the extent of each datum in screen co-ordinates, and where it came from
+  private int mItems = 0;
+  private int[] mPlotIndexes = NO_ITEMS;
+  private int[] mRows = NO_ITEMS;
+  private float[] mLefts = new float[0];
+  private float[] mTops = new float[0];
+  private float[] mRights = new float[0];
+  private float[] mBottoms = new float[0];
+  /** radius of each datum drawn as a circle or point, negative for rectangles */
+  private float[] mRadii = new float[0];
+  // the grid: the items in cell c are mCellItems[mCellStarts[c]] up to mCellItems[mCellStarts[c + 1]]
+  private float mGridX = 0;
+  private float mGridY = 0;
+  private int mColumns = 0;
+  private int mCellRows = 0;
+  private int[] mCellStarts = NO_ITEMS;
+  private int[] mCellItems = NO_ITEMS;
+  private int[] mLarge = NO_ITEMS;
+
+  /**
+   * Sets how many screen units from its extent a datum can be and
+   * still be found.  Default is 3.
+   *
+   * @param pixels distance in screen units
+   * @exception IllegalArgumentException if <code>pixels</code> is
+   * negative
+   */
+  public void setTolerance(int pixels) {
+    if (pixels < 0) {
+      throw new IllegalArgumentException("tolerance must be >= 0: " + pixels);
+    }
+    mTolerance = pixels;
+    invalidate();
+  }
+
+  /**
+   * Returns how many screen units from its extent a datum can be and
+   * still be found.
+   *
+   * @return distance in screen units
+   */
+  public int getTolerance() {
+    return mTolerance;
+  }
+
+  /**
+   * Discards the grid so it is built again next time.
+   */
+  public void invalidate() {
+    mState = null;
+  }
+
+  // the number of data in the grid
+  int size() {
+    return mItems;
+  }
+
+  private static void addMapping(List<Object> state, Mapping mapping) {
+    state.add(mapping.getWorldMin());
+    state.add(mapping.getWorldMax());
+    state.add(mapping.getScreenMin());
+    state.add(mapping.getScreenMax());
+    state.add(mapping.isLog());
+  }
+
+  // everything about a graph and its mappings that moves data on the screen
+  private static List<Object> state(Graph2D graph, Mapping[] mapping) {
+    final List<Object> state = new ArrayList<Object>();
+    state.add(graph);
+    state.add(graph.getVersion());
+    for (final Plot2D plot : graph.getPlots()) {
+      state.add(plot);
+      state.add(plot.getVersion());
+    }
+    for (final Mapping m : mapping) {
+      addMapping(state, m);
+    }
+    return state;
+  }
+
+  /**
+   * Returns the datum of a graph at a screen position.  If more than
+   * one datum is at the position, the one with the smallest extent is
+   * found, so a point is found before a box it is drawn over, then the
+   * one closest to the position, then the one drawn last.
+   *
+   * @param graph the graph
+   * @param mapping the axis mappings the graph was drawn with
+   * @param x screen x co-ordinate
+   * @param y screen y co-ordinate
+   * @return the datum found, or null if there is none
+   */
+  public Hit find(Graph2D graph, Mapping[] mapping, int x, int y) {
+    if (graph == null || mapping == null) {
+      return null;
+    }
+    final List<Object> state = state(graph, mapping);
+    if (!state.equals(mState)) {
+      build(graph, mapping);
+      mState = state;
+    }
+    int best = -1;
+    float bestDistance = Float.POSITIVE_INFINITY;
+    float bestArea = Float.POSITIVE_INFINITY;
+    final int column = (int) Math.floor((x - mGridX) / CELL_SIZE);
+    final int row = (int) Math.floor((y - mGridY) / CELL_SIZE);
+    final int cell = column >= 0 && column < mColumns && row >= 0 && row < mCellRows ? row * mColumns + column : -1;
+    final int cellItems = cell < 0 ? 0 : mCellStarts[cell + 1] - mCellStarts[cell];
+    for (int j = 0; j < cellItems + mLarge.length; j++) {
+      final int item = j < cellItems ? mCellItems[mCellStarts[cell] + j] : mLarge[j - cellItems];
+      final float distance = distance(item, x, y);
+      if (distance <= mTolerance) {
+        final float area = (mRights[item] - mLefts[item]) * (mBottoms[item] - mTops[item]);
+        if (area < bestArea
+            || (area == bestArea && (distance < bestDistance || (distance == bestDistance && item > best)))) {
+          best = item;
+          bestDistance = distance;
+          bestArea = area;
+        }
+      }
+    }
+    return best < 0 ? null : new Hit(mPlots[mPlotIndexes[best]], mRows[best]);
+  }
+
+  // distance from a screen position to the extent of an item, zero if inside
+  private float distance(int item, float x, float y) {
+    final float radius = mRadii[item];
+    if (radius >= 0) {
+      final float cx = (mLefts[item] + mRights[item]) / 2;
+      final float cy = (mTops[item] + mBottoms[item]) / 2;
+      return Math.max(0, (float) Math.hypot(x - cx, y - cy) - radius);
+    }
+    final float dx = Math.max(0, Math.max(mLefts[item] - x, x - mRights[item]));
+    final float dy = Math.max(0, Math.max(mTops[item] - y, y - mBottoms[item]));
+    return (float) Math.hypot(dx, dy);
+  }
+
+  private void ensureCapacity(int items) {
+    if (items > mRows.length) {
+      final int capacity = Math.max(items, 2 * mRows.length);
+      mPlotIndexes = Arrays.copyOf(mPlotIndexes, capacity);
+      mRows = Arrays.copyOf(mRows, capacity);
+      mLefts = Arrays.copyOf(mLefts, capacity);
+      mTops = Arrays.copyOf(mTops, capacity);
+      mRights = Arrays.copyOf(mRights, capacity);
+      mBottoms = Arrays.copyOf(mBottoms, capacity);
+      mRadii = Arrays.copyOf(mRadii, capacity);
+    }
+  }
+
+  // rows of a plot that may be near the grid, found by binary search when the extent across is just the sorted x value
+  private int[] rows(Plot2D plot, DataSource2D data, Mapping convertX, boolean justX) {
+    if (justX && plot.isSortedX()) {
+      final float margin = mTolerance + 1;
+      final float w1 = convertX.screenToWorld(mGridX - margin);
+      final float w2 = convertX.screenToWorld(mGridX + mColumns * CELL_SIZE + margin);
+      if (!Float.isNaN(w1) && !Float.isNaN(w2)) {
+        return new int[] {AbstractRenderer.lowerBound(data, Math.min(w1, w2)), AbstractRenderer.upperBound(data, Math.max(w1, w2))};
+      }
+    }
+    return new int[] {0, data.size()};
+  }
+
+  // finds the screen extent of each datum in the graph near the plot area and puts them in the grid
+  private void build(Graph2D graph, Mapping[] mapping) {
+    setGrid(mapping[0], mapping[1]);
+    mPlots = graph.getPlots();
+    if (mRows.length > 4 * Math.max(mItems, MIN_CAPACITY)) {
+      // give back the room taken by a view of many more data
+      mRows = NO_ITEMS;
+      mPlotIndexes = NO_ITEMS;
+      mLefts = new float[0];
+      mTops = new float[0];
+      mRights = new float[0];
+      mBottoms = new float[0];
+      mRadii = new float[0];
+    }
+    mItems = 0;
+    for (int p = 0; p < mPlots.length; p++) {
+      final Plot2D plot = mPlots[p];
+      final DataSource2D data = plot.getDataSource();
+      if (data == null) {
+        continue;
+      }
+      final Mapping convertX = mapping[plot.uses(Axis.X, Edge.MAIN) ? 0 : 2];
+      final Mapping convertY = mapping[plot.uses(Axis.Y, Edge.MAIN) ? 1 : 3];
+      final List<Column> xs = new ArrayList<Column>();
+      final List<Column> ys = new ArrayList<Column>();
+      for (final Column c : Column.values()) {
+        if (c.getAxis() != null && data.hasColumn(c)) {
+          (c.getAxis() == Axis.X ? xs : ys).add(c);
+        }
+      }
+      final boolean circle = data.hasColumn(Column.DIAMETER);
+      final boolean point = xs.size() == 1 && ys.size() == 1;
+      final int[] rows = rows(plot, data, convertX, !circle && xs.size() == 1 && xs.get(0) == Column.X);
+      for (int i = rows[0]; i < rows[1]; i++) {
+        float left = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY;
+        float top = Float.POSITIVE_INFINITY;
+        float bottom = Float.NEGATIVE_INFINITY;
+        for (final Column c : xs) {
+          final float sx = convertX.worldToScreen(data.get(c, i));
+          left = Math.min(left, sx);
+          right = Math.max(right, sx);
+        }
+        for (final Column c : ys) {
+          final float sy = convertY.worldToScreen(data.get(c, i));
+          top = Math.min(top, sy);
+          bottom = Math.max(bottom, sy);
+        }
+        // off scale on a log axis
+        if (Float.isNaN(left) || Float.isNaN(top) || Float.isInfinite(right - left) || Float.isInfinite(bottom - top)) {
+          continue;
+        }
+        final float radius = circle ? data.get(Column.DIAMETER, i) / 2 : point ? 0 : -1;
+        ensureCapacity(mItems + 1);
+        mPlotIndexes[mItems] = p;
+        mRows[mItems] = i;
+        mLefts[mItems] = left - Math.max(0, radius);
+        mRights[mItems] = right + Math.max(0, radius);
+        mTops[mItems] = top - Math.max(0, radius);
+        mBottoms[mItems] = bottom + Math.max(0, radius);
+        mRadii[mItems] = radius;
+        // data off the screen cannot be found, so are not kept
+        if (cells(mItems) > 0) {
+          mItems++;
+        }
+      }
+    }
+    buildGrid();
+  }
+
+  private int cellX(float x) {
+    return Math.max(0, Math.min(mColumns - 1, (int) Math.floor((x - mGridX) / CELL_SIZE)));
+  }
+
+  private int cellY(float y) {
+    return Math.max(0, Math.min(mCellRows - 1, (int) Math.floor((y - mGridY) / CELL_SIZE)));
+  }
+
+  // returns the number of grid cells an item grown by the tolerance overlaps
+  private int cells(int item) {
+    final float gridRight = mGridX + mColumns * CELL_SIZE;
+    final float gridBottom = mGridY + mCellRows * CELL_SIZE;
+    if (mLefts[item] - mTolerance >= gridRight || mRights[item] + mTolerance < mGridX
+        || mTops[item] - mTolerance >= gridBottom || mBottoms[item] + mTolerance < mGridY) {
+      return 0;
+    }
+    return (cellX(mRights[item] + mTolerance) - cellX(mLefts[item] - mTolerance) + 1)
+      * (cellY(mBottoms[item] + mTolerance) - cellY(mTops[item] - mTolerance) + 1);
+  }
+
+  // sets the grid to cover the screen area of the main axes
+  private void setGrid(Mapping convertX, Mapping convertY) {
+    mGridX = (float) Math.floor(Math.min(convertX.getScreenMin(), convertX.getScreenMax()));
+    mGridY = (float) Math.floor(Math.min(convertY.getScreenMin(), convertY.getScreenMax()));
+    mColumns = (int) Math.abs(convertX.getScreenMax() - convertX.getScreenMin()) / CELL_SIZE + 1;
+    mCellRows = (int) Math.abs(convertY.getScreenMax() - convertY.getScreenMin()) / CELL_SIZE + 1;
+  }
+
+  // puts the items in the cells of the grid
+  private void buildGrid() {
+    final int cells = mColumns * mCellRows;
+    mCellStarts = new int[cells + 1];
+    int large = 0;
+    // count the items in each cell, then place them
+    for (int item = 0; item < mItems; item++) {
+      final int itemCells = cells(item);
+      if (itemCells > MAX_CELLS) {
+        large++;
+      } else if (itemCells > 0) {
+        for (int cy = cellY(mTops[item] - mTolerance); cy <= cellY(mBottoms[item] + mTolerance); cy++) {
+          for (int cx = cellX(mLefts[item] - mTolerance); cx <= cellX(mRights[item] + mTolerance); cx++) {
+            mCellStarts[cy * mColumns + cx + 1]++;
+          }
+        }
+      }
+    }
+    for (int c = 0; c < cells; c++) {
+      mCellStarts[c + 1] += mCellStarts[c];
+    }
+    mCellItems = new int[mCellStarts[cells]];
+    mLarge = new int[large];
+    final int[] fill = Arrays.copyOf(mCellStarts, cells);
+    large = 0;
+    for (int item = 0; item < mItems; item++) {
+      final int itemCells = cells(item);
+      if (itemCells > MAX_CELLS) {
+        mLarge[large++] = item;
+      } else if (itemCells > 0) {
+        for (int cy = cellY(mTops[item] - mTolerance); cy <= cellY(mBottoms[item] + mTolerance); cy++) {
+          for (int cx = cellX(mLefts[item] - mTolerance); cx <= cellX(mRights[item] + mTolerance); cx++) {
+            mCellItems[fill[cy * mColumns + cx]++] = item;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,215 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Caches the parts of a drawn graph in separate layers, so drawing a
+ * graph again only draws the parts that have changed.  The chrome of
+ * the graph (area, title, labels, tics, grid and border), the data of
+ * each plot and the key each have their own layer.  Changes are found
+ * by comparing the versions of the graph, its plots and the renderer
+ * settings with those the layers were drawn from:<p>
+ *
+ * <ul>
+ * <li>repainting an unchanged graph, such as to show a tooltip, draws
+ * no layers.</li>
+ * <li>changing a plot without changing the axis ranges draws that
+ * plot's layer and the key.</li>
+ * <li>changing the graph, its axis ranges or the size drawn at draws
+ * every layer.</li>
+ * </ul>
+ *
+ * Changes to the contents of arrays given to a plot or renderer are
+ * not seen; call <code>invalidate()</code> after making them.  Each
+ * layer holds an image the size of the part it covers, so a cache
+ * uses much more memory than drawing a graph directly.
+ *
+ * @author Richard Littin
+ */
+public class LayerCache {
+
+  // a cached image and the state it was drawn from
+  private static final class Layer {
+    private BufferedImage mImage = null;
+    private List<Object> mState = null;
+
+    // returns whether the layer needs drawing for state, making it ready to draw if so
+    boolean prepare(List<Object> state, int width, int height) {
+      if (mImage != null && state.equals(mState)) {
+        return false;
+      }
+      if (mImage == null || mImage.getWidth() != width || mImage.getHeight() != height) {
+        mImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+      } else {
+        final Graphics2D g = mImage.createGraphics();
+        g.setComposite(AlphaComposite.Clear);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+      }
+      mState = state;
+      return true;
+    }
+  }
+
+  private final Layer mChrome = new Layer();
+  private final Layer mKey = new Layer();
+  private final List<Layer> mPlots = new ArrayList<Layer>();
+  /** layout found when the chrome layer was drawn */
+  private GraphicsRenderer.Layout mLayout = null;
+  /** number of layers drawn last time, for tests */
+  private int mLayersDrawn = 0;
+
+  /**
+   * Discards all the layers so they are drawn next time.
+   */
+  public void invalidate() {
+    mChrome.mImage = null;
+    mKey.mImage = null;
+    mPlots.clear();
+    mLayout = null;
+  }
+
+  /**
+   * Returns the number of layers drawn last time the graph was drawn.
+   *
+   * @return layers drawn
+   */
+  int getLayersDrawn() {
+    return mLayersDrawn;
+  }
+
+  private static void addMapping(List<Object> state, Mapping mapping) {
+    state.add(mapping.getWorldMin());
+    state.add(mapping.getWorldMax());
+    state.add(mapping.getScreenMin());
+    state.add(mapping.getScreenMax());
+    state.add(mapping.isLog());
+  }
+
+  // state every layer depends on
+  private static List<Object> baseState(GraphicsRenderer renderer, Graph2D graph, Graphics2D g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
+    final List<Object> state = new ArrayList<Object>();
+    state.add(renderer.getSettingsVersion());
+    state.add(g.getFont());
+    state.add(g.getRenderingHints());
+    state.add(graph);
+    state.add(graph.getVersion());
+    state.add(new Rectangle(offsetX, offsetY, screenWidth, screenHeight));
+    return state;
+  }
+
+  private static Graphics2D createGraphics(BufferedImage image, Graphics2D g, int x, int y) {
+    final Graphics2D lg = image.createGraphics();
+    lg.setRenderingHints(g.getRenderingHints());
+    lg.setFont(g.getFont());
+    lg.setStroke(g.getStroke());
+    lg.translate(-x, -y);
+    return lg;
+  }
+
+  /**
+   * Draws a graph, drawing again only the layers that have changed
+   * since it was last drawn.
+   *
+   * @param renderer renderer to draw changed layers with
+   * @param graph the graph to draw
+   * @param g graphics to draw the layers onto
+   * @param offsetX the horizontal offset
+   * @param offsetY the vertical offset
+   * @param screenWidth width of drawing region
+   * @param screenHeight height of drawing region
+   * @return the axis mappings of the graph
+   */
+  Mapping[] draw(GraphicsRenderer renderer, Graph2D graph, Graphics2D g, int offsetX, int offsetY, int screenWidth, int screenHeight) {
+    mLayersDrawn = 0;
+    if (screenWidth <= 0 || screenHeight <= 0) {
+      return renderer.drawChrome(graph, g, offsetX, offsetY, screenWidth, screenHeight).mMapping;
+    }
+    final Plot2D[] plots = graph.getPlots();
+    renderer.assignColors(plots);
+
+    // the chrome depends on which axes the plots use, and the key size on their titles
+    final List<Object> chromeState = baseState(renderer, graph, g, offsetX, offsetY, screenWidth, screenHeight);
+    for (final Plot2D plot : plots) {
+      chromeState.add(plot);
+      chromeState.add(plot.getTitle());
+      chromeState.add(plot.getDataCount() == 0);
+      chromeState.add(plot.uses(Axis.X, Edge.MAIN));
+      chromeState.add(plot.uses(Axis.Y, Edge.MAIN));
+    }
+    if (mChrome.prepare(chromeState, screenWidth, screenHeight)) {
+      final Graphics2D lg = createGraphics(mChrome.mImage, g, offsetX, offsetY);
+      try {
+        mLayout = renderer.drawChrome(graph, lg, offsetX, offsetY, screenWidth, screenHeight);
+      } finally {
+        lg.dispose();
+      }
+      mLayersDrawn++;
+    }
+    g.drawImage(mChrome.mImage, offsetX, offsetY, null);
+
+    final Mapping[] mapping = mLayout.mMapping;
+    final Rectangle area = mLayout.mArea;
+    while (mPlots.size() > plots.length) {
+      mPlots.remove(mPlots.size() - 1);
+    }
+    while (mPlots.size() < plots.length) {
+      mPlots.add(new Layer());
+    }
+    if (area.width > 0 && area.height > 0) {
+      for (int j = 0; j < plots.length && !renderer.isCancelled(); j++) {
+        final Plot2D plot = plots[j];
+        final List<Object> state = new ArrayList<Object>();
+        state.add(renderer.getSettingsVersion());
+        state.add(g.getFont());
+        state.add(g.getRenderingHints());
+        state.add(plot);
+        state.add(plot.getVersion());
+        state.add(renderer.getStride());
+        state.add(area);
+        addMapping(state, mapping[plot.uses(Axis.X, Edge.MAIN) ? 0 : 2]);
+        addMapping(state, mapping[plot.uses(Axis.Y, Edge.MAIN) ? 1 : 3]);
+        final Layer layer = mPlots.get(j);
+        if (layer.prepare(state, area.width, area.height)) {
+          final Graphics2D lg = createGraphics(layer.mImage, g, area.x, area.y);
+          try {
+            lg.setClip(area);
+            renderer.drawPlot(lg, plot, j, mapping);
+          } finally {
+            lg.dispose();
+          }
+          mLayersDrawn++;
+        }
+        g.drawImage(layer.mImage, area.x, area.y, null);
+      }
+    }
+
+    if (graph.isBorder() && graph.isShowKey()) {
+      final List<Object> keyState = new ArrayList<Object>(chromeState);
+      for (final Plot2D plot : plots) {
+        keyState.add(plot.getVersion());
+      }
+      if (mKey.prepare(keyState, screenWidth, screenHeight)) {
+        final Graphics2D lg = createGraphics(mKey.mImage, g, offsetX, offsetY);
+        try {
+          renderer.drawKey(graph, lg, offsetX, offsetY, screenWidth, screenHeight, mLayout);
+        } finally {
+          lg.dispose();
+        }
+        mLayersDrawn++;
+      }
+      g.drawImage(mKey.mImage, offsetX, offsetY, null);
+    }
+    return mapping;
+  }
+}
@@ -10,10 +10,14 @@ import com.reeltwo.plot.PlotUtils;
  */
 
 public class Mapping {
+  private static final double INV_L10 = 1.0 / PlotUtils.L10;
+
   // world and screen minimum and maximums
   private final float mWmin, mWmax, mSmin, mSmax;
   // whether to take logs on world values
   private boolean mLog = false;
+  // screen units per world unit
+  private final float mScale;
 
 
   /**
@@ -57,10 +61,16 @@ public class Mapping {
       throw new IllegalArgumentException("Screen minimum and maximum are same: " + screenMin);
     }
     mLog = log;
-    mWmin = mLog ? (float) PlotUtils.log10(worldMin) : worldMin;
-    mWmax = mLog ? (float) PlotUtils.log10(worldMax) : worldMax;
+    mWmin = mLog ? log10(worldMin) : worldMin;
+    mWmax = mLog ? log10(worldMax) : worldMax;
     mSmin = screenMin;
     mSmax = screenMax;
+    mScale = (mSmax - mSmin) / (mWmax - mWmin);
+  }
+
+  // log base 10 as a multiply rather than a divide
+  private static float log10(float p) {
+    return (float) (Math.log(p) * INV_L10);
   }
 
 
@@ -84,6 +94,16 @@ public class Mapping {
   }
 
 
+  /**
+   * Returns whether world values are transformed by {@code log}<sub>10</sub>.
+   *
+   * @return whether the mapping is logarithmic
+   */
+  public boolean isLog() {
+    return mLog;
+  }
+
+
   /**
    * Returns the screen's minimum value.
    *
@@ -112,8 +132,63 @@ public class Mapping {
    * @return corresponding screen co-ordinate
    */
   public float worldToScreen(float p) {
-    final float p2 = mLog ? (float) PlotUtils.log10(p) : p;
-    return mSmin + (p2 - mWmin) * (mSmax - mSmin) / (mWmax - mWmin);
+    final float p2 = mLog ? log10(p) : p;
+    return mSmin + (p2 - mWmin) * mScale;
+  }
+
+
+  /**
+   * Transforms <code>length</code> world co-ordinates from
+   * <code>src</code> to screen co-ordinates in <code>dest</code>.
+   * Each result is the same as from <code>worldToScreen(float)</code>.
+   *
+   * @param src world co-ordinates
+   * @param srcOffset index in <code>src</code> of first co-ordinate
+   * @param dest array to put screen co-ordinates in
+   * @param destOffset index in <code>dest</code> of first result
+   * @param length number of co-ordinates to transform
+   */
+  public void worldToScreen(float[] src, int srcOffset, float[] dest, int destOffset, int length) {
+    final float smin = mSmin;
+    final float wmin = mWmin;
+    final float scale = mScale;
+    if (mLog) {
+      for (int i = 0; i < length; i++) {
+        dest[destOffset + i] = smin + (log10(src[srcOffset + i]) - wmin) * scale;
+      }
+    } else {
+      for (int i = 0; i < length; i++) {
+        dest[destOffset + i] = smin + (src[srcOffset + i] - wmin) * scale;
+      }
+    }
+  }
+
+
+  /**
+   * Transforms <code>length</code> world co-ordinates from
+   * <code>src</code> to integer screen co-ordinates in
+   * <code>dest</code>.  Each result is the same as casting the result
+   * of <code>worldToScreen(float)</code> to an <code>int</code>.
+   *
+   * @param src world co-ordinates
+   * @param srcOffset index in <code>src</code> of first co-ordinate
+   * @param dest array to put screen co-ordinates in
+   * @param destOffset index in <code>dest</code> of first result
+   * @param length number of co-ordinates to transform
+   */
+  public void worldToScreen(float[] src, int srcOffset, int[] dest, int destOffset, int length) {
+    final float smin = mSmin;
+    final float wmin = mWmin;
+    final float scale = mScale;
+    if (mLog) {
+      for (int i = 0; i < length; i++) {
+        dest[destOffset + i] = (int) (smin + (log10(src[srcOffset + i]) - wmin) * scale);
+      }
+    } else {
+      for (int i = 0; i < length; i++) {
+        dest[destOffset + i] = (int) (smin + (src[srcOffset + i] - wmin) * scale);
+      }
+    }
   }
 
 
@@ -0,0 +1,42 @@
+package com.reeltwo.plot.renderer;
+
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Implement this interface to be told how long each part of drawing a
+ * graph takes, such as to find where the time of a slow graph goes.
+ * A listener set on a renderer is also used by copies of the renderer
+ * drawing on other threads, so may be called from several threads at
+ * once.
+ *
+ * @author Richard Littin
+ */
+public interface RenderListener {
+
+  /**
+   * Called when a phase of drawing a graph is done.
+   *
+   * @param phase the phase
+   * @param nanos time taken in nanoseconds
+   */
+  void phaseDone(RenderPhase phase, long nanos);
+
+  /**
+   * Called when the data of a plot has been drawn.  Points mapped are
+   * the rows of data mapped to the screen, points culled are rows
+   * skipped for being outside the visible range, and points decimated
+   * are rows merged into fewer points of a decimated line.  Primitives
+   * are the lines, shapes and strings drawn on the canvas.  A plot
+   * drawn in parallel tiles is reported once, with the times and
+   * primitives of all its tiles added together, and its points counted
+   * as when drawn on a single thread, each by the tile it falls in.
+   *
+   * @param plot the plot drawn
+   * @param nanos time taken in nanoseconds
+   * @param mapped number of points mapped
+   * @param culled number of points culled
+   * @param decimated number of points decimated
+   * @param primitives number of primitives drawn
+   */
+  void plotDrawn(Plot2D plot, long nanos, long mapped, long culled, long decimated, long primitives);
+}
@@ -0,0 +1,19 @@
+package com.reeltwo.plot.renderer;
+
+/**
+ * Phases of drawing a graph that are timed for a
+ * <code>RenderListener</code>.  The data of each plot is reported
+ * separately, with counts of the work done.
+ *
+ * @author Richard Littin
+ */
+public enum RenderPhase {
+  /** working out where everything goes and drawing the title, labels, tics, grid and border */
+  LAYOUT,
+  /** choosing tic spacing and measuring tic labels, part of <code>LAYOUT</code> */
+  TICS,
+  /** drawing the key */
+  KEY,
+  /** encoding a drawn image to a file format */
+  ENCODE
+}
@@ -0,0 +1,124 @@
+package com.reeltwo.plot.renderer;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Render listener that keeps running totals of the time spent in each
+ * phase of drawing and on the data of each type of plot, along with
+ * the number of points and primitives drawn.  It may be shared by
+ * several renderers drawing on different threads.  The totals can be
+ * read through JMX by registering an instance with the platform MBean
+ * server, for example:
+ *
+ * <pre>
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(statistics,
+ *     new ObjectName("com.reeltwo.plot:type=RenderStatistics"));
+ * </pre>
+ *
+ * @author Richard Littin
+ */
+public class RenderStatistics implements RenderListener, RenderStatisticsMXBean {
+
+  private final Map<String, Long> mPhaseNanos = new TreeMap<String, Long>();
+  private final Map<String, Long> mPlotNanos = new TreeMap<String, Long>();
+  private long mPlotsDrawn = 0;
+  private long mPointsMapped = 0;
+  private long mPointsCulled = 0;
+  private long mPointsDecimated = 0;
+  private long mPrimitives = 0;
+
+  private static void add(Map<String, Long> totals, String key, long nanos) {
+    final Long total = totals.get(key);
+    totals.put(key, total == null ? nanos : total + nanos);
+  }
+
+  @Override
+  public synchronized void phaseDone(RenderPhase phase, long nanos) {
+    add(mPhaseNanos, phase.name(), nanos);
+  }
+
+  @Override
+  public synchronized void plotDrawn(Plot2D plot, long nanos, long mapped, long culled, long decimated, long primitives) {
+    add(mPlotNanos, plot.getClass().getSimpleName(), nanos);
+    mPlotsDrawn++;
+    mPointsMapped += mapped;
+    mPointsCulled += culled;
+    mPointsDecimated += decimated;
+    mPrimitives += primitives;
+  }
+
+  @Override
+  public synchronized long getPlotsDrawn() {
+    return mPlotsDrawn;
+  }
+
+  @Override
+  public synchronized long getPointsMapped() {
+    return mPointsMapped;
+  }
+
+  @Override
+  public synchronized long getPointsCulled() {
+    return mPointsCulled;
+  }
+
+  @Override
+  public synchronized long getPointsDecimated() {
+    return mPointsDecimated;
+  }
+
+  @Override
+  public synchronized long getPrimitives() {
+    return mPrimitives;
+  }
+
+  @Override
+  public synchronized Map<String, Long> getPhaseNanos() {
+    return new TreeMap<String, Long>(mPhaseNanos);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getPlotNanos() {
+    return new TreeMap<String, Long>(mPlotNanos);
+  }
+
+  @Override
+  public synchronized void reset() {
+    mPhaseNanos.clear();
+    mPlotNanos.clear();
+    mPlotsDrawn = 0;
+    mPointsMapped = 0;
+    mPointsCulled = 0;
+    mPointsDecimated = 0;
+    mPrimitives = 0;
+  }
+
+  /**
+   * Returns the totals on one line, with times in milliseconds.
+   *
+   * @return a summary of the totals
+   */
+  @Override
+  public synchronized String toString() {
+    final StringBuilder sb = new StringBuilder();
+    for (final Map.Entry<String, Long> e : mPhaseNanos.entrySet()) {
+      sb.append(e.getKey()).append('=').append(millis(e.getValue())).append("ms ");
+    }
+    for (final Map.Entry<String, Long> e : mPlotNanos.entrySet()) {
+      sb.append(e.getKey()).append('=').append(millis(e.getValue())).append("ms ");
+    }
+    sb.append("plots=").append(mPlotsDrawn);
+    sb.append(" mapped=").append(mPointsMapped);
+    sb.append(" culled=").append(mPointsCulled);
+    sb.append(" decimated=").append(mPointsDecimated);
+    sb.append(" primitives=").append(mPrimitives);
+    return sb.toString();
+  }
+
+  private static String millis(long nanos) {
+    return String.format("%.3f", nanos / 1e6);
+  }
+}
@@ -0,0 +1,67 @@
+package com.reeltwo.plot.renderer;
+
+import java.util.Map;
+
+/**
+ * Management interface of <code>RenderStatistics</code>, so the
+ * totals can be read with JMX tools such as JConsole.
+ *
+ * @author Richard Littin
+ */
+public interface RenderStatisticsMXBean {
+
+  /**
+   * Returns the number of plots drawn.
+   *
+   * @return number of plots
+   */
+  long getPlotsDrawn();
+
+  /**
+   * Returns the total number of points mapped to the screen.
+   *
+   * @return number of points
+   */
+  long getPointsMapped();
+
+  /**
+   * Returns the total number of points culled for being outside the
+   * visible range.
+   *
+   * @return number of points
+   */
+  long getPointsCulled();
+
+  /**
+   * Returns the total number of points merged away by decimation.
+   *
+   * @return number of points
+   */
+  long getPointsDecimated();
+
+  /**
+   * Returns the total number of primitives drawn.
+   *
+   * @return number of primitives
+   */
+  long getPrimitives();
+
+  /**
+   * Returns the total time in each phase of drawing, keyed by the name
+   * of the phase.
+   *
+   * @return nanoseconds by phase
+   */
+  Map<String, Long> getPhaseNanos();
+
+  /**
+   * Returns the total time drawing the data of plots, keyed by the
+   * simple class name of the plot.
+   *
+   * @return nanoseconds by plot type
+   */
+  Map<String, Long> getPlotNanos();
+
+  /** Sets all the totals back to zero. */
+  void reset();
+}
@@ -0,0 +1,168 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Plot2D;
+
+/**
+ * Caches the drawn data of a graph whose x range scrolls forward over
+ * time, such as a strip chart of live data.  The data is drawn into a
+ * separate layer from the axes, tics and key.  When the graph is
+ * drawn again with its x range moved forward by a whole number of
+ * pixels and everything else about the axes unchanged, the layer is
+ * shifted left and only the newly exposed strip on the right is
+ * drawn.  Otherwise the whole layer is drawn again.<p>
+ *
+ * The data may only change by adding points to the right of the
+ * previous x range, or removing points that have scrolled out of
+ * view.  A line joining an old point more than <code>OVERLAP</code>
+ * pixels from the right edge to a new point may be partly missing
+ * until the layer is next drawn in full.  Call
+ * <code>invalidate()</code> after any other change.
+ *
+ * @author Richard Littin
+ */
+public class ScrollBuffer {
+
+  /** pixels to the left of the exposed strip that are drawn again to join new lines to old */
+  public static final int OVERLAP = 32;
+  /** largest fraction of a pixel a scroll may differ from a whole number of pixels */
+  private static final float MAX_ERROR = 0.01f;
+
+  private BufferedImage mImage = null;
+  private Rectangle mArea = null;
+  private Mapping[] mMapping = null;
+  /** stride the layer was drawn with */
+  private int mStride = 1;
+  /** width of the strip drawn last time, for tests */
+  private int mLastDrawn = 0;
+
+  /**
+   * Discards the cached data so it is drawn in full next time.
+   */
+  public void invalidate() {
+    mImage = null;
+    mMapping = null;
+  }
+
+  /**
+   * Returns the width in pixels of the part of the layer drawn last
+   * time.
+   *
+   * @return width drawn
+   */
+  int getLastDrawn() {
+    return mLastDrawn;
+  }
+
+  private static boolean sameScreen(Mapping a, Mapping b) {
+    return a.getScreenMin() == b.getScreenMin() && a.getScreenMax() == b.getScreenMax() && a.isLog() == b.isLog();
+  }
+
+  private static boolean same(Mapping a, Mapping b) {
+    return sameScreen(a, b) && a.getWorldMin() == b.getWorldMin() && a.getWorldMax() == b.getWorldMax();
+  }
+
+  // returns whole pixels the x mapping has scrolled right by, or -1 if it has not
+  private static int scroll(Mapping old, Mapping now) {
+    if (!sameScreen(old, now) || now.isLog()) {
+      return -1;
+    }
+    // both edges of the old range must have moved by the same whole number of pixels
+    final float shift = now.worldToScreen(old.getWorldMin()) - old.getScreenMin();
+    final float shiftHi = now.worldToScreen(old.getWorldMax()) - old.getScreenMax();
+    final int pixels = -Math.round(shift);
+    if (pixels < 0 || Math.abs(shift + pixels) > MAX_ERROR || Math.abs(shiftHi + pixels) > MAX_ERROR) {
+      return -1;
+    }
+    return pixels;
+  }
+
+  // returns the pixels the data has scrolled by since last drawn, or -1 if it cannot be reused
+  private int scroll(Plot2D[] plots, Mapping[] mapping, Rectangle area, int stride) {
+    if (mImage == null || !area.equals(mArea) || mMapping.length != mapping.length || stride != mStride) {
+      return -1;
+    }
+    boolean alternateX = false;
+    for (final Plot2D plot : plots) {
+      alternateX |= plot.uses(Axis.X, Edge.ALTERNATE);
+    }
+    for (int i = 1; i < mapping.length; i += 2) {
+      if (!same(mMapping[i], mapping[i])) {
+        return -1;
+      }
+    }
+    final int pixels = scroll(mMapping[0], mapping[0]);
+    if (alternateX && scroll(mMapping[2], mapping[2]) != pixels) {
+      return -1;
+    }
+    return pixels;
+  }
+
+  /**
+   * Draws the data of a graph, reusing the data drawn last time where
+   * possible.
+   *
+   * @param renderer renderer to draw new data with
+   * @param g graphics to draw the data layer onto
+   * @param plots plots in the graph
+   * @param mapping axis mappings of the graph
+   * @param area the plot area in the co-ordinates of <code>g</code>
+   */
+  void draw(GraphicsRenderer renderer, Graphics2D g, Plot2D[] plots, Mapping[] mapping, Rectangle area) {
+    if (area.width <= 0 || area.height <= 0) {
+      return;
+    }
+    final int pixels = scroll(plots, mapping, area, renderer.getStride());
+    // a scroll of zero pixels could still have new data anywhere
+    final int drawFrom;
+    if (pixels > 0 && pixels + OVERLAP < area.width) {
+      shift(pixels);
+      drawFrom = area.width - pixels - OVERLAP;
+    } else {
+      if (mImage == null || mImage.getWidth() != area.width || mImage.getHeight() != area.height) {
+        mImage = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+      }
+      drawFrom = 0;
+    }
+    mArea = new Rectangle(area);
+    mMapping = mapping.clone();
+    mStride = renderer.getStride();
+    mLastDrawn = area.width - drawFrom;
+
+    final Graphics2D lg = mImage.createGraphics();
+    try {
+      lg.setComposite(AlphaComposite.Clear);
+      lg.fillRect(drawFrom, 0, mLastDrawn, area.height);
+      lg.setComposite(AlphaComposite.SrcOver);
+      lg.setRenderingHints(g.getRenderingHints());
+      lg.setFont(g.getFont());
+      lg.translate(-area.x, -area.y);
+      lg.setClip(area.x + drawFrom, area.y, mLastDrawn, area.height);
+      renderer.setCullX(area.x + drawFrom, area.x + area.width - 1);
+      renderer.drawData(lg, plots, mapping);
+      if (renderer.isCancelled()) {
+        invalidate();
+      }
+    } finally {
+      renderer.setCullX(Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY);
+      lg.dispose();
+    }
+    g.drawImage(mImage, area.x, area.y, null);
+  }
+
+  // moves the layer left by pixels
+  private void shift(int pixels) {
+    final int width = mImage.getWidth();
+    final int[] data = ((DataBufferInt) mImage.getRaster().getDataBuffer()).getData();
+    for (int y = 0; y < mImage.getHeight(); y++) {
+      System.arraycopy(data, y * width + pixels, data, y * width, width - pixels);
+    }
+  }
+}
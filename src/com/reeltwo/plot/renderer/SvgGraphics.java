@@ -0,0 +1,789 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.AlphaComposite;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.TexturePaint;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Area;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.PathIterator;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.AttributedCharacterIterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Graphics that writes everything drawn straight to a stream as SVG
+ * elements, so drawing a graph with millions of points needs no more
+ * memory than drawing a few.  Consecutive lines and shapes drawn in
+ * the same opaque style are merged into the data of one
+ * <code>path</code> element.  Text is written as text, in the font
+ * family of the current font.  Writing errors are kept until
+ * <code>finish</code>, which ends the document.
+ *
+ * @author Richard Littin
+ */
+final class SvgGraphics extends Graphics2D {
+
+  /** characters of path data merged into one element before it is written */
+  static final int MAX_PATH = 1 << 16;
+
+  private final SvgSink mSink;
+  private Color mColor = Color.BLACK;
+  private Paint mPaint = Color.BLACK;
+  private Color mBackground = Color.WHITE;
+  private Stroke mStroke = new BasicStroke();
+  private Font mFont = new Font(Font.SANS_SERIF, Font.PLAIN, 12);
+  private AffineTransform mTransform = new AffineTransform();
+  /** clip in device space, or null for none */
+  private Shape mClip = null;
+  private Composite mComposite = AlphaComposite.SrcOver;
+  private final RenderingHints mHints = new RenderingHints(null);
+
+  /**
+   * Starts a document of <code>width</code> by <code>height</code>
+   * pixels written to <code>out</code>.
+   *
+   * @param out where the document is written
+   * @param width width of the document
+   * @param height height of the document
+   */
+  SvgGraphics(Writer out, int width, int height) {
+    mSink = new SvgSink(out);
+    mSink.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\""
+                + " xml:space=\"preserve\" width=\"" + width + "\" height=\"" + height
+                + "\" viewBox=\"0 0 " + width + " " + height + "\">\n");
+  }
+
+  private SvgGraphics(SvgGraphics other) {
+    mSink = other.mSink;
+    mColor = other.mColor;
+    mPaint = other.mPaint;
+    mBackground = other.mBackground;
+    mStroke = other.mStroke;
+    mFont = other.mFont;
+    mTransform = new AffineTransform(other.mTransform);
+    mClip = other.mClip;
+    mComposite = other.mComposite;
+    mHints.putAll(other.mHints);
+  }
+
+  /**
+   * Ends the document and flushes the stream.
+   *
+   * @exception IOException if writing any part of the document failed
+   */
+  void finish() throws IOException {
+    mSink.finish();
+  }
+
+  private void appendTransform(StringBuilder sb) {
+    if (!mTransform.isIdentity()) {
+      sb.append(" transform=\"matrix(");
+      SvgSink.append(sb, mTransform.getScaleX());
+      sb.append(' ');
+      SvgSink.append(sb, mTransform.getShearY());
+      sb.append(' ');
+      SvgSink.append(sb, mTransform.getShearX());
+      sb.append(' ');
+      SvgSink.append(sb, mTransform.getScaleY());
+      sb.append(' ');
+      SvgSink.append(sb, mTransform.getTranslateX());
+      sb.append(' ');
+      SvgSink.append(sb, mTransform.getTranslateY());
+      sb.append(")\"");
+    }
+  }
+
+  // opens a group clipped to the current clip if it differs from that of the open group
+  private void startElement() {
+    final SvgSink sink = mSink;
+    if (sink.mGroupClip == mClip || (sink.mGroupClip != null && sink.mGroupClip.equals(mClip))) {
+      return;
+    }
+    sink.flushPath();
+    if (sink.mGroupClip != null) {
+      sink.write("</g>\n");
+      sink.mGroupClip = null;
+    }
+    if (mClip != null) {
+      final String id = "c" + ++sink.mIds;
+      final StringBuilder sb = new StringBuilder();
+      sb.append("<clipPath id=\"").append(id).append("\"><path d=\"");
+      SvgSink.appendPath(sb, mClip, null);
+      sb.append("\"/></clipPath>\n<g clip-path=\"url(#").append(id).append(")\">\n");
+      sink.write(sb);
+      sink.mGroupClip = mClip;
+    }
+  }
+
+  // the attributes for filling or stroking with the current state
+  private String style(boolean fill) {
+    final StringBuilder sb = new StringBuilder();
+    if (fill) {
+      if (mPaint instanceof TexturePaint) {
+        sb.append(" fill=\"url(#").append(pattern((TexturePaint) mPaint)).append(")\"");
+      } else {
+        SvgSink.appendColor(sb, "fill", paintColor());
+      }
+    } else {
+      sb.append(" fill=\"none\"");
+      SvgSink.appendColor(sb, "stroke", paintColor());
+      if (mStroke instanceof BasicStroke) {
+        final BasicStroke stroke = (BasicStroke) mStroke;
+        if (stroke.getLineWidth() != 1.0f) {
+          sb.append(" stroke-width=\"");
+          SvgSink.append(sb, stroke.getLineWidth());
+          sb.append('"');
+        }
+        if (stroke.getEndCap() == BasicStroke.CAP_ROUND) {
+          sb.append(" stroke-linecap=\"round\"");
+        } else if (stroke.getEndCap() == BasicStroke.CAP_SQUARE) {
+          sb.append(" stroke-linecap=\"square\"");
+        }
+        if (stroke.getLineJoin() == BasicStroke.JOIN_ROUND) {
+          sb.append(" stroke-linejoin=\"round\"");
+        } else if (stroke.getLineJoin() == BasicStroke.JOIN_BEVEL) {
+          sb.append(" stroke-linejoin=\"bevel\"");
+        }
+        final float[] dash = stroke.getDashArray();
+        if (dash != null) {
+          sb.append(" stroke-dasharray=\"");
+          for (int i = 0; i < dash.length; i++) {
+            if (i > 0) {
+              sb.append(' ');
+            }
+            SvgSink.append(sb, dash[i]);
+          }
+          sb.append('"');
+        }
+      }
+    }
+    appendTransform(sb);
+    return sb.toString();
+  }
+
+  private Color paintColor() {
+    return mPaint instanceof Color ? (Color) mPaint : mColor;
+  }
+
+  // writes a pattern for a texture the first time it is used
+  private String pattern(TexturePaint paint) {
+    String id = mSink.mPatterns.get(paint);
+    if (id == null) {
+      id = "p" + ++mSink.mIds;
+      mSink.mPatterns.put(paint, id);
+      mSink.flushPath();
+      final Rectangle anchor = paint.getAnchorRect().getBounds();
+      final StringBuilder sb = new StringBuilder();
+      sb.append("<pattern id=\"").append(id).append("\" patternUnits=\"userSpaceOnUse\" x=\"").append(anchor.x)
+        .append("\" y=\"").append(anchor.y).append("\" width=\"").append(anchor.width).append("\" height=\"").append(anchor.height).append("\">");
+      mSink.write(sb);
+      writeImage(paint.getImage(), 0, 0, anchor.width, anchor.height);
+      mSink.write("</pattern>\n");
+    }
+    return id;
+  }
+
+  // adds a shape to the path being merged, or writes it as its own element
+  private void shape(CharSequence data, boolean fill, boolean merge) {
+    startElement();
+    final SvgSink sink = mSink;
+    final String style = style(fill);
+    final boolean opaque = !(mPaint instanceof Color) || ((Color) mPaint).getAlpha() == 255;
+    if (!merge || !opaque || !style.equals(sink.mPathStyle) || sink.mPath.length() + data.length() > MAX_PATH) {
+      sink.flushPath();
+    }
+    sink.mPath.append(data);
+    sink.mPathStyle = style;
+    if (!merge || !opaque) {
+      sink.flushPath();
+    }
+  }
+
+  private static boolean nonZero(Shape s) {
+    return s.getPathIterator(null).getWindingRule() == PathIterator.WIND_NON_ZERO;
+  }
+
+  @Override
+  public void draw(Shape s) {
+    final StringBuilder sb = new StringBuilder();
+    SvgSink.appendPath(sb, s, null);
+    shape(sb, false, true);
+  }
+
+  @Override
+  public void fill(Shape s) {
+    final StringBuilder sb = new StringBuilder();
+    SvgSink.appendPath(sb, s, null);
+    // overlapping subpaths fill differently under the even odd rule
+    shape(sb, true, nonZero(s));
+  }
+
+  @Override
+  public void drawLine(int x1, int y1, int x2, int y2) {
+    final StringBuilder sb = new StringBuilder(24);
+    sb.append('M').append(x1).append(' ').append(y1);
+    if (x1 == x2 && y1 == y2) {
+      // a single pixel, which a zero length stroke does not draw
+      sb.append("h1");
+    } else {
+      sb.append('L').append(x2).append(' ').append(y2);
+    }
+    shape(sb, false, true);
+  }
+
+  private static StringBuilder polyline(int[] xs, int[] ys, int n, boolean close) {
+    final StringBuilder sb = new StringBuilder(12 * n + 2);
+    for (int i = 0; i < n; i++) {
+      sb.append(i == 0 ? 'M' : i == 1 ? 'L' : ' ').append(xs[i]).append(' ').append(ys[i]);
+    }
+    if (close && n > 0) {
+      sb.append('Z');
+    }
+    return sb;
+  }
+
+  @Override
+  public void drawPolyline(int[] xs, int[] ys, int n) {
+    if (n > 1) {
+      // long lines are written in pieces, so no more than a piece is held
+      final int piece = MAX_PATH / 12;
+      for (int start = 0; start < n - 1; start += piece) {
+        final int length = Math.min(piece + 1, n - start);
+        final StringBuilder sb = new StringBuilder(12 * length);
+        for (int i = 0; i < length; i++) {
+          sb.append(i == 0 ? 'M' : i == 1 ? 'L' : ' ').append(xs[start + i]).append(' ').append(ys[start + i]);
+        }
+        shape(sb, false, true);
+      }
+    }
+  }
+
+  @Override
+  public void drawPolygon(int[] xs, int[] ys, int n) {
+    shape(polyline(xs, ys, n, true), false, true);
+  }
+
+  @Override
+  public void fillPolygon(int[] xs, int[] ys, int n) {
+    shape(polyline(xs, ys, n, true), true, false);
+  }
+
+  private static StringBuilder rect(int x, int y, int w, int h) {
+    return new StringBuilder(32).append('M').append(x).append(' ').append(y).append('h').append(w)
+      .append('v').append(h).append('h').append(-w).append('Z');
+  }
+
+  @Override
+  public void drawRect(int x, int y, int w, int h) {
+    if (w >= 0 && h >= 0) {
+      shape(rect(x, y, w, h), false, true);
+    }
+  }
+
+  @Override
+  public void fillRect(int x, int y, int w, int h) {
+    if (w > 0 && h > 0) {
+      shape(rect(x, y, w, h), true, true);
+    }
+  }
+
+  @Override
+  public void clearRect(int x, int y, int w, int h) {
+    final Paint paint = mPaint;
+    mPaint = mBackground;
+    fillRect(x, y, w, h);
+    mPaint = paint;
+  }
+
+  @Override
+  public void drawRoundRect(int x, int y, int w, int h, int arcWidth, int arcHeight) {
+    draw(new RoundRectangle2D.Float(x, y, w, h, arcWidth, arcHeight));
+  }
+
+  @Override
+  public void fillRoundRect(int x, int y, int w, int h, int arcWidth, int arcHeight) {
+    fill(new RoundRectangle2D.Float(x, y, w, h, arcWidth, arcHeight));
+  }
+
+  @Override
+  public void drawOval(int x, int y, int w, int h) {
+    draw(new Ellipse2D.Float(x, y, w, h));
+  }
+
+  @Override
+  public void fillOval(int x, int y, int w, int h) {
+    fill(new Ellipse2D.Float(x, y, w, h));
+  }
+
+  @Override
+  public void drawArc(int x, int y, int w, int h, int startAngle, int arcAngle) {
+    draw(new Arc2D.Float(x, y, w, h, startAngle, arcAngle, Arc2D.OPEN));
+  }
+
+  @Override
+  public void fillArc(int x, int y, int w, int h, int startAngle, int arcAngle) {
+    fill(new Arc2D.Float(x, y, w, h, startAngle, arcAngle, Arc2D.PIE));
+  }
+
+  // text
+  @Override
+  public void drawString(String str, float x, float y) {
+    startElement();
+    mSink.flushPath();
+    final StringBuilder sb = new StringBuilder(str.length() + 100);
+    sb.append("<text x=\"");
+    SvgSink.append(sb, x);
+    sb.append("\" y=\"");
+    SvgSink.append(sb, y);
+    sb.append("\" font-family=\"");
+    SvgSink.escape(sb, SvgSink.family(mFont));
+    sb.append("\" font-size=\"");
+    SvgSink.append(sb, mFont.getSize2D());
+    sb.append('"');
+    if (mFont.isBold()) {
+      sb.append(" font-weight=\"bold\"");
+    }
+    if (mFont.isItalic()) {
+      sb.append(" font-style=\"italic\"");
+    }
+    SvgSink.appendColor(sb, "fill", paintColor());
+    appendTransform(sb);
+    sb.append('>');
+    SvgSink.escape(sb, str);
+    sb.append("</text>\n");
+    mSink.write(sb);
+  }
+
+  @Override
+  public void drawString(String str, int x, int y) {
+    drawString(str, (float) x, (float) y);
+  }
+
+  @Override
+  public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+    drawString(iterator, (float) x, (float) y);
+  }
+
+  @Override
+  public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+    final StringBuilder sb = new StringBuilder();
+    for (char c = iterator.first(); c != AttributedCharacterIterator.DONE; c = iterator.next()) {
+      sb.append(c);
+    }
+    drawString(sb.toString(), x, y);
+  }
+
+  @Override
+  public void drawGlyphVector(GlyphVector g, float x, float y) {
+    fill(g.getOutline(x, y));
+  }
+
+  // writes an image element, with the image encoded as PNG in the element
+  private void writeImage(Image image, double x, double y, double w, double h) {
+    final RenderedImage rendered;
+    if (image instanceof RenderedImage) {
+      rendered = (RenderedImage) image;
+    } else {
+      final int iw = image.getWidth(null);
+      final int ih = image.getHeight(null);
+      if (iw <= 0 || ih <= 0) {
+        return;
+      }
+      final BufferedImage copy = new BufferedImage(iw, ih, BufferedImage.TYPE_INT_ARGB);
+      final Graphics g = copy.getGraphics();
+      g.drawImage(image, 0, 0, null);
+      g.dispose();
+      rendered = copy;
+    }
+    final ByteArrayOutputStream png = new ByteArrayOutputStream();
+    try {
+      ImageIO.write(rendered, "png", png);
+    } catch (final IOException e) {
+      mSink.mError = e;
+      return;
+    }
+    final byte[] bytes = png.toByteArray();
+    final StringBuilder sb = new StringBuilder(bytes.length * 4 / 3 + 100);
+    sb.append("<image x=\"");
+    SvgSink.append(sb, x);
+    sb.append("\" y=\"");
+    SvgSink.append(sb, y);
+    sb.append("\" width=\"");
+    SvgSink.append(sb, w);
+    sb.append("\" height=\"");
+    SvgSink.append(sb, h);
+    sb.append('"');
+    appendTransform(sb);
+    sb.append(" xlink:href=\"data:image/png;base64,");
+    SvgSink.appendBase64(sb, bytes);
+    sb.append("\"/>\n");
+    mSink.write(sb);
+  }
+
+  // images
+  private boolean image(Image img, int x, int y, int w, int h, Color bgcolor) {
+    if (img == null) {
+      return true;
+    }
+    final int width = w < 0 ? img.getWidth(null) : w;
+    final int height = h < 0 ? img.getHeight(null) : h;
+    if (bgcolor != null) {
+      final Paint paint = mPaint;
+      mPaint = bgcolor;
+      fillRect(x, y, width, height);
+      mPaint = paint;
+    }
+    startElement();
+    mSink.flushPath();
+    writeImage(img, x, y, width, height);
+    return true;
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+    return image(img, x, y, -1, -1, null);
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+    return image(img, x, y, width, height, null);
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+    return image(img, x, y, -1, -1, bgcolor);
+  }
+
+  @Override
+  public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor, ImageObserver observer) {
+    return image(img, x, y, width, height, bgcolor);
+  }
+
+  @Override
+  public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, ImageObserver observer) {
+    return drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null, observer);
+  }
+
+  @Override
+  public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1, int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+    final int sw = Math.abs(sx2 - sx1);
+    final int sh = Math.abs(sy2 - sy1);
+    if (img == null || sw == 0 || sh == 0) {
+      return true;
+    }
+    final BufferedImage part = new BufferedImage(sw, sh, BufferedImage.TYPE_INT_ARGB);
+    final Graphics g = part.getGraphics();
+    g.drawImage(img, 0, 0, sw, sh, sx1, sy1, sx2, sy2, null);
+    g.dispose();
+    return image(part, Math.min(dx1, dx2), Math.min(dy1, dy2), Math.abs(dx2 - dx1), Math.abs(dy2 - dy1), bgcolor);
+  }
+
+  @Override
+  public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+    final AffineTransform old = mTransform;
+    mTransform = new AffineTransform(old);
+    mTransform.concatenate(xform);
+    image(img, 0, 0, -1, -1, null);
+    mTransform = old;
+    return true;
+  }
+
+  @Override
+  public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+    image(op == null ? img : op.filter(img, null), x, y, -1, -1, null);
+  }
+
+  @Override
+  public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+    if (img instanceof Image) {
+      drawImage((Image) img, xform, null);
+    } else {
+      final AffineTransform old = mTransform;
+      mTransform = new AffineTransform(old);
+      mTransform.concatenate(xform);
+      startElement();
+      mSink.flushPath();
+      final BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+      copy.createGraphics().drawRenderedImage(img, new AffineTransform());
+      writeImage(copy, 0, 0, img.getWidth(), img.getHeight());
+      mTransform = old;
+    }
+  }
+
+  @Override
+  public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+    drawRenderedImage(img.createDefaultRendering(), xform);
+  }
+
+  @Override
+  public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+    throw new UnsupportedOperationException("cannot copy areas of a stream");
+  }
+
+  // state
+  @Override
+  public Graphics create() {
+    return new SvgGraphics(this);
+  }
+
+  @Override
+  public void dispose() {
+  }
+
+  @Override
+  public Color getColor() {
+    return mColor;
+  }
+
+  @Override
+  public void setColor(Color c) {
+    if (c != null) {
+      mColor = c;
+      mPaint = c;
+    }
+  }
+
+  @Override
+  public Paint getPaint() {
+    return mPaint;
+  }
+
+  @Override
+  public void setPaint(Paint paint) {
+    if (paint instanceof Color) {
+      setColor((Color) paint);
+    } else if (paint != null) {
+      mPaint = paint;
+    }
+  }
+
+  @Override
+  public void setPaintMode() {
+  }
+
+  @Override
+  public void setXORMode(Color c1) {
+  }
+
+  @Override
+  public Color getBackground() {
+    return mBackground;
+  }
+
+  @Override
+  public void setBackground(Color color) {
+    mBackground = color;
+  }
+
+  @Override
+  public Stroke getStroke() {
+    return mStroke;
+  }
+
+  @Override
+  public void setStroke(Stroke s) {
+    mStroke = s;
+  }
+
+  @Override
+  public Composite getComposite() {
+    return mComposite;
+  }
+
+  @Override
+  public void setComposite(Composite comp) {
+    mComposite = comp;
+  }
+
+  @Override
+  public Font getFont() {
+    return mFont;
+  }
+
+  @Override
+  public void setFont(Font font) {
+    if (font != null) {
+      mFont = font;
+    }
+  }
+
+  @Override
+  public FontMetrics getFontMetrics(Font f) {
+    return mSink.mMetrics.getFontMetrics(f);
+  }
+
+  @Override
+  public FontRenderContext getFontRenderContext() {
+    return mSink.mMetrics.getFontRenderContext();
+  }
+
+  @Override
+  public GraphicsConfiguration getDeviceConfiguration() {
+    return mSink.mMetrics.getDeviceConfiguration();
+  }
+
+  @Override
+  public void setRenderingHint(RenderingHints.Key hintKey, Object hintValue) {
+    mHints.put(hintKey, hintValue);
+  }
+
+  @Override
+  public Object getRenderingHint(RenderingHints.Key hintKey) {
+    return mHints.get(hintKey);
+  }
+
+  @Override
+  public void setRenderingHints(Map<?, ?> hints) {
+    mHints.clear();
+    mHints.putAll(hints);
+  }
+
+  @Override
+  public void addRenderingHints(Map<?, ?> hints) {
+    mHints.putAll(hints);
+  }
+
+  @Override
+  public RenderingHints getRenderingHints() {
+    return (RenderingHints) mHints.clone();
+  }
+
+  // transforms
+  @Override
+  public void translate(int x, int y) {
+    mTransform.translate(x, y);
+  }
+
+  @Override
+  public void translate(double tx, double ty) {
+    mTransform.translate(tx, ty);
+  }
+
+  @Override
+  public void rotate(double theta) {
+    mTransform.rotate(theta);
+  }
+
+  @Override
+  public void rotate(double theta, double x, double y) {
+    mTransform.rotate(theta, x, y);
+  }
+
+  @Override
+  public void scale(double sx, double sy) {
+    mTransform.scale(sx, sy);
+  }
+
+  @Override
+  public void shear(double shx, double shy) {
+    mTransform.shear(shx, shy);
+  }
+
+  @Override
+  public void transform(AffineTransform tx) {
+    mTransform.concatenate(tx);
+  }
+
+  @Override
+  public void setTransform(AffineTransform tx) {
+    mTransform = new AffineTransform(tx);
+  }
+
+  @Override
+  public AffineTransform getTransform() {
+    return new AffineTransform(mTransform);
+  }
+
+  // clipping, kept in device space
+  @Override
+  public Shape getClip() {
+    if (mClip == null) {
+      return null;
+    }
+    try {
+      return mTransform.createInverse().createTransformedShape(mClip);
+    } catch (final NoninvertibleTransformException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public Rectangle getClipBounds() {
+    final Shape clip = getClip();
+    return clip == null ? null : clip.getBounds();
+  }
+
+  @Override
+  public void setClip(Shape clip) {
+    if (clip == null) {
+      mClip = null;
+    } else if (mTransform.getType() == AffineTransform.TYPE_IDENTITY && clip instanceof Rectangle) {
+      mClip = new Rectangle((Rectangle) clip);
+    } else if ((mTransform.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0 && clip instanceof Rectangle) {
+      final Rectangle r = new Rectangle((Rectangle) clip);
+      r.translate((int) mTransform.getTranslateX(), (int) mTransform.getTranslateY());
+      mClip = r;
+    } else {
+      mClip = mTransform.createTransformedShape(clip);
+    }
+  }
+
+  @Override
+  public void setClip(int x, int y, int width, int height) {
+    setClip(new Rectangle(x, y, width, height));
+  }
+
+  @Override
+  public void clipRect(int x, int y, int width, int height) {
+    clip(new Rectangle(x, y, width, height));
+  }
+
+  @Override
+  public void clip(Shape s) {
+    final Shape current = getClip();
+    if (current == null) {
+      setClip(s);
+    } else if (current instanceof Rectangle && s instanceof Rectangle) {
+      setClip(((Rectangle) current).intersection((Rectangle) s));
+    } else {
+      final Area area = new Area(current);
+      area.intersect(new Area(s));
+      setClip(area);
+    }
+  }
+
+  @Override
+  public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+    final Shape shape = mTransform.createTransformedShape(onStroke ? mStroke.createStrokedShape(s) : s);
+    return shape.intersects(rect);
+  }
+}
@@ -0,0 +1,103 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+import com.reeltwo.plot.Graph2D;
+
+/**
+ * Renders graphs as SVG documents written straight to a stream as the
+ * graph is drawn.  Nothing drawn is kept once written, so memory use
+ * does not grow with the number of points, and runs of lines and
+ * point marks drawn in the same color are merged into the data of a
+ * single path.  The layout and look are those of the
+ * <code>GraphicsRenderer</code> the renderer is created from.
+ *
+ * @author Richard Littin
+ */
+public class SvgRenderer extends GraphicsRenderer {
+
+  /** blank space around the graph, matching the images written by <code>ImageWriter</code> */
+  public static final int INSET = 5;
+
+  /**
+   * Creates a renderer with the default settings.
+   */
+  public SvgRenderer() {
+    super();
+  }
+
+  /**
+   * Creates a renderer with the same settings as <code>other</code>.
+   * Tiling, scroll buffers and layer caches draw through images, so
+   * are not used.
+   *
+   * @param other renderer to copy settings from
+   */
+  public SvgRenderer(GraphicsRenderer other) {
+    super(other);
+    setTiling(null, 0);
+    setScrollBuffer(null);
+    setLayerCache(null);
+  }
+
+  /**
+   * Writes an SVG document of <code>width</code> by
+   * <code>height</code> pixels holding <code>graph</code>.  The
+   * document has a white background and the graph is drawn
+   * <code>INSET</code> pixels inside its edges.  The stream is
+   * flushed but not closed.
+   *
+   * @param graph graph to draw
+   * @param os stream to write to
+   * @param width width of the document
+   * @param height height of the document
+   * @param font font to use in graph, or null for a 10 point sans serif font
+   * @return an array of world to screen mappings
+   * @exception IOException if writing fails
+   * @exception IllegalArgumentException if <code>width</code> or
+   * <code>height</code> is not greater than 0
+   */
+  public Mapping[] drawGraph(Graph2D graph, OutputStream os, int width, int height, Font font) throws IOException {
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0");
+    }
+    final SvgGraphics g = new SvgGraphics(new BufferedWriter(new OutputStreamWriter(os, "UTF-8")), width, height);
+    g.setFont(font != null ? font : new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, width, height);
+    drawGraph(graph, g, INSET, INSET, width - 2 * INSET, height - 2 * INSET);
+    g.finish();
+    return getMappings();
+  }
+
+  /** Draws vertical text as text rotated to read upwards, rather than as an image. */
+  @Override
+  protected void drawString(Object canvas, int x, int y, String text, boolean isVertical) {
+    if (isVertical) {
+      countPrimitives(1);
+      final Graphics2D g = (Graphics2D) canvas;
+      final FontMetrics fm = g.getFontMetrics();
+      final AffineTransform transform = g.getTransform();
+      g.translate(x + fm.getAscent(), y + fm.stringWidth(text));
+      g.rotate(-Math.PI / 2);
+      g.drawString(text, 0, 0);
+      g.setTransform(transform);
+    } else {
+      super.drawString(canvas, x, y, text, false);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.TexturePaint;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Output of an SVG document, shared by an <code>SvgGraphics</code>
+ * and the graphics created from it.  Holds the path being merged and
+ * the group open for the current clip, and keeps the first writing
+ * error so drawing calls need not declare it.
+ *
+ * @author Richard Littin
+ */
+final class SvgSink {
+
+  private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private final Writer mOut;
+  IOException mError = null;
+  /** for measuring text */
+  final Graphics2D mMetrics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).createGraphics();
+  int mIds = 0;
+  /** ids of the patterns written for texture paints */
+  final Map<TexturePaint, String> mPatterns = new HashMap<TexturePaint, String>();
+  /** clip of the open group, or null if there is no open group */
+  Shape mGroupClip = null;
+  /** data of the path being merged, and its attributes */
+  final StringBuilder mPath = new StringBuilder();
+  String mPathStyle = null;
+
+  SvgSink(Writer out) {
+    mOut = out;
+  }
+
+  void write(CharSequence s) {
+    if (mError == null) {
+      try {
+        mOut.append(s);
+      } catch (final IOException e) {
+        mError = e;
+      }
+    }
+  }
+
+  void flushPath() {
+    if (mPathStyle != null) {
+      final StringBuilder sb = new StringBuilder(mPath.length() + mPathStyle.length() + 20);
+      sb.append("<path d=\"").append(mPath).append('"').append(mPathStyle).append("/>\n");
+      write(sb);
+      mPath.setLength(0);
+      mPathStyle = null;
+    }
+  }
+
+  /**
+   * Writes any merged path, closes the open group and ends the
+   * document.
+   *
+   * @exception IOException if writing any part of the document failed
+   */
+  void finish() throws IOException {
+    flushPath();
+    if (mGroupClip != null) {
+      write("</g>\n");
+      mGroupClip = null;
+    }
+    write("</svg>\n");
+    if (mError == null) {
+      try {
+        mOut.flush();
+      } catch (final IOException e) {
+        mError = e;
+      }
+    }
+    if (mError != null) {
+      throw mError;
+    }
+  }
+
+  // number formatting
+  static void append(StringBuilder sb, double v) {
+    final long rounded = Math.round(v);
+    if (Math.abs(v - rounded) < 0.005) {
+      sb.append(rounded);
+    } else {
+      String s = String.format(Locale.ROOT, "%.2f", v);
+      while (s.endsWith("0")) {
+        s = s.substring(0, s.length() - 1);
+      }
+      sb.append(s);
+    }
+  }
+
+  static void appendColor(StringBuilder sb, String name, Color color) {
+    sb.append(' ').append(name).append("=\"#");
+    final String hex = Integer.toHexString(color.getRGB() & 0xffffff);
+    for (int i = hex.length(); i < 6; i++) {
+      sb.append('0');
+    }
+    sb.append(hex).append('"');
+    if (color.getAlpha() != 255) {
+      sb.append(' ').append(name).append("-opacity=\"");
+      append(sb, color.getAlpha() / 255.0);
+      sb.append('"');
+    }
+  }
+
+  static void escape(StringBuilder sb, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      switch (c) {
+      case '<': sb.append("&lt;"); break;
+      case '>': sb.append("&gt;"); break;
+      case '&': sb.append("&amp;"); break;
+      case '"': sb.append("&quot;"); break;
+      default:
+        if (c >= ' ' || c == '\t') {
+          sb.append(c);
+        }
+      }
+    }
+  }
+
+  // appends the path data of a shape, transformed if at is not null
+  static void appendPath(StringBuilder sb, Shape s, AffineTransform at) {
+    final double[] c = new double[6];
+    for (final PathIterator it = s.getPathIterator(at); !it.isDone(); it.next()) {
+      final int type = it.currentSegment(c);
+      final int n;
+      switch (type) {
+      case PathIterator.SEG_MOVETO: sb.append('M'); n = 1; break;
+      case PathIterator.SEG_LINETO: sb.append('L'); n = 1; break;
+      case PathIterator.SEG_QUADTO: sb.append('Q'); n = 2; break;
+      case PathIterator.SEG_CUBICTO: sb.append('C'); n = 3; break;
+      default: sb.append('Z'); n = 0;
+      }
+      for (int i = 0; i < 2 * n; i++) {
+        if (i > 0) {
+          sb.append(' ');
+        }
+        append(sb, c[i]);
+      }
+    }
+  }
+
+  // the generic family of the standard logical fonts
+  static String family(Font font) {
+    final String family = font.getFamily();
+    if (Font.SANS_SERIF.equals(family) || Font.DIALOG.equals(family) || Font.DIALOG_INPUT.equals(family)) {
+      return "sans-serif";
+    } else if (Font.SERIF.equals(family)) {
+      return "serif";
+    } else if (Font.MONOSPACED.equals(family)) {
+      return "monospace";
+    }
+    return family;
+  }
+
+  static void appendBase64(StringBuilder sb, byte[] bytes) {
+    for (int i = 0; i < bytes.length; i += 3) {
+      final int b = (bytes[i] & 0xff) << 16 | (i + 1 < bytes.length ? (bytes[i + 1] & 0xff) << 8 : 0) | (i + 2 < bytes.length ? bytes[i + 2] & 0xff : 0);
+      sb.append(BASE64[b >> 18]).append(BASE64[(b >> 12) & 63]);
+      sb.append(i + 1 < bytes.length ? BASE64[(b >> 6) & 63] : '=').append(i + 2 < bytes.length ? BASE64[b & 63] : '=');
+    }
+  }
+}
@@ -0,0 +1,323 @@
+package com.reeltwo.plot.renderer;
+
+import java.io.IOException;
+
+/**
+ * A grid of colored characters that a <code>TextRenderer</code> draws
+ * on, written out as lines of text or as the ANSI escape sequences
+ * updating a terminal.  Plot data drawn at a finer resolution goes to
+ * a plane of dots, shown in the cells without text.
+ *
+ * @author Richard Littin
+ */
+final class TextCanvas {
+
+  private static final char SPACE = ' ';
+  private static final char CR = '\n';
+
+  // ANSI escape sequence color codes
+  static final String[] COLORS =
+      new String[]{"",
+    "31", "32", "34", "33", "35", "36",
+    "1;31", "1;32", "1;34", "1;33", "1;35", "1;36",
+    "41", "42", "44", "43", "45", "46",
+    "1;41", "1;42", "1;44", "1;43", "1;45", "1;46"};
+
+  /** unchanged cells written over rather than moving the cursor past, about the length of a cursor move */
+  private static final int CURSOR_GAP = 8;
+
+  private final int mWidth, mHeight;
+  private int mClipLeft, mClipRight, mClipTop, mClipBottom;
+  private final char[] mCanvas; // grid of characters
+  private final byte[] mColors; // grid of colors
+  private byte mColor; // current color to use
+  private final DotPlane mDots; // dots drawn, null if cells have one dot
+  private boolean mInDots = false; // whether drawing positions are dots rather than cells
+
+
+  TextCanvas(int width, int height, TextRenderer.Resolution resolution) {
+    mWidth = width;
+    mHeight = height;
+    setClipRectangle(0, 0, width, height);
+    mDots = resolution == TextRenderer.Resolution.CHARACTER ? null : new DotPlane(width, height, resolution);
+
+    mCanvas = new char[mHeight * (mWidth + 1)];
+    mColors = new byte[mHeight * (mWidth + 1)];
+    int i = 0;
+    for (int y = 0; y < mHeight; y++) {
+      for (int x = 0; x < mWidth; x++) {
+        mColors[i] = 0;
+        mCanvas[i++] = SPACE;
+      }
+      mCanvas[i++] = CR;
+    }
+  }
+
+  int getWidth() {
+    return mWidth;
+  }
+
+  int getHeight() {
+    return mHeight;
+  }
+
+  void setColorDefault() {
+    mColor = 0;
+  }
+
+
+  void setColor(int color) {
+    mColor = (byte) color;
+  }
+
+  void setClipRectangle(int left, int top, int right, int bottom) {
+    mClipLeft = Math.max(left, 0);
+    mClipRight = Math.min(right, mWidth);
+    mClipTop = Math.max(top, 0);
+    mClipBottom = Math.min(bottom, mHeight);
+  }
+
+  // drawing positions are dots while plot data is drawn at a finer resolution
+  void setDrawingDots(boolean inDots) {
+    mInDots = inDots && mDots != null;
+  }
+
+  int scaleX() {
+    return mInDots ? mDots.getDotsX() : 1;
+  }
+
+  int scaleY() {
+    return mInDots ? mDots.getDotsY() : 1;
+  }
+
+  // the quotient rounded down rather than toward zero, so positions left of or above the canvas stay off it
+  static int floorDiv(int x, int y) {
+    final int q = x / y;
+    return (x % y != 0 && (x < 0) != (y < 0)) ? q - 1 : q;
+  }
+
+  // the clip rectangle in drawing positions
+  int getClipLeft() {
+    return mClipLeft * scaleX();
+  }
+
+  int getClipRight() {
+    return mClipRight * scaleX();
+  }
+
+  int getClipTop() {
+    return mClipTop * scaleY();
+  }
+
+  int getClipBottom() {
+    return mClipBottom * scaleY();
+  }
+
+  void putChar(int x, int y, char c) {
+    if (mInDots) {
+      putDot(x, y);
+    } else if (x >= mClipLeft && x < mClipRight && y >= mClipTop && y < mClipBottom) {
+      // in bounds
+      mCanvas[y * (mWidth + 1) + x] = c;
+      mColors[y * (mWidth + 1) + x] = mColor;
+      if (mDots != null) {
+        // text replaces any dots drawn in the cell
+        mDots.clear(x, y);
+      }
+    }
+  }
+
+  private void putDot(int x, int y) {
+    final int cx = floorDiv(x, mDots.getDotsX());
+    final int cy = floorDiv(y, mDots.getDotsY());
+    if (cx >= mClipLeft && cx < mClipRight && cy >= mClipTop && cy < mClipBottom) {
+      mDots.set(x, y);
+      mColors[cy * (mWidth + 1) + cx] = mColor;
+    }
+  }
+
+  // text is drawn a character per cell from the cell containing the position
+  void putString(int x, int y, String text) {
+    final boolean inDots = mInDots;
+    final int cx = floorDiv(x, scaleX());
+    final int cy = floorDiv(y, scaleY());
+    mInDots = false;
+    for (int k = 0; k < text.length(); k++) {
+      putChar(cx + k, cy, text.charAt(k));
+    }
+    mInDots = inDots;
+  }
+
+  // the characters of the canvas with the dots drawn
+  private char[] getChars() {
+    if (mDots == null) {
+      return mCanvas;
+    }
+    final char[] chars = mCanvas.clone();
+    for (int y = 0; y < mHeight; y++) {
+      for (int x = 0; x < mWidth; x++) {
+        final char c = mDots.getChar(x, y);
+        if (c != 0) {
+          chars[y * (mWidth + 1) + x] = c;
+        }
+      }
+    }
+    return chars;
+  }
+
+
+  void putChar(int startX, int startY, int endX, int endY, char c) {
+    int sx;
+    int ex;
+    int sy;
+    int ey;
+
+    if (Math.abs(endX - startX) >= Math.abs(endY - startY)) {
+      if (startX <= endX) {
+        sx = startX;
+        sy = startY;
+        ex = endX;
+        ey = endY;
+      } else {
+        ex = startX;
+        ey = startY;
+        sx = endX;
+        sy = endY;
+      }
+    } else {
+      if (startY <= endY) {
+        sx = startX;
+        sy = startY;
+        ex = endX;
+        ey = endY;
+      } else {
+        ex = startX;
+        ey = startY;
+        sx = endX;
+        sy = endY;
+      }
+    }
+
+    if (ex - sx >= ey - sy) {
+      final int range = ex - sx;
+      if (range == 0) {
+        putChar(sx, sy, c);
+      } else {
+        for (int i = 0; i <= range; i++) {
+          putChar(sx + i, sy + (ey - sy) * i / range, c);
+        }
+      }
+    } else {
+      final int range = ey - sy;
+      if (range == 0) {
+        putChar(sx, sy, c);
+      } else {
+        for (int i = 0; i <= range; i++) {
+          putChar(sx + (ex - sx) * i / range, sy + i, c);
+        }
+      }
+    }
+  }
+
+
+  @Override
+  public String toString() {
+    return toString(false);
+  }
+
+
+  String toString(boolean inColor) {
+    if (inColor || !System.getProperty("line.separator").equals("" + CR)) {
+      final StringBuilder s = new StringBuilder(mCanvas.length);
+      try {
+        write(s, inColor);
+      } catch (final IOException e) {
+        throw new IllegalStateException(e); // not thrown by a string builder
+      }
+      return s.toString();
+    }
+    return new String(getChars());
+  }
+
+  // changes the color of the text that follows, returning the new color
+  private static int changeColor(Appendable out, int from, int to) throws IOException {
+    if (to != from) {
+      if (to == 0 || COLORS[to % COLORS.length].length() == 0) {
+        out.append("\033[0m");
+      } else {
+        out.append("\033[0;").append(COLORS[to % COLORS.length]).append('m');
+      }
+    }
+    return to;
+  }
+
+  // writes the canvas a line at a time, changing color only where the color changes
+  void write(Appendable out, boolean inColor) throws IOException {
+    final char[] chars = getChars();
+    final String cr = System.getProperty("line.separator");
+    int color = 0;
+    for (int y = 0; y < mHeight; y++) {
+      final int row = y * (mWidth + 1);
+      for (int x = 0; x < mWidth; x++) {
+        if (inColor) {
+          color = changeColor(out, color, mColors[row + x]);
+        }
+        out.append(chars[row + x]);
+      }
+      color = changeColor(out, color, 0);
+      out.append(cr);
+    }
+  }
+
+  // writes the cells differing from those on a screen as runs of text after cursor moves, and updates the screen
+  void write(Appendable out, boolean inColor, TextRenderer.Screen screen) throws IOException {
+    final char[] chars = getChars();
+    final boolean whole = screen.mChars == null || screen.mWidth != mWidth || screen.mHeight != mHeight || screen.mInColor != inColor;
+    final char[] lastChars = screen.mChars;
+    final byte[] lastColors = screen.mColors;
+    if (whole) {
+      out.append("\033[0m\033[2J");
+    }
+    int color = 0;
+    boolean written = false;
+    for (int y = 0; y < mHeight; y++) {
+      final int row = y * (mWidth + 1);
+      int x = 0;
+      while (x < mWidth) {
+        if (!whole && !changed(chars, lastChars, lastColors, inColor, row + x)) {
+          x++;
+          continue;
+        }
+        int last = x;
+        for (int i = x + 1; i < mWidth && i - last <= CURSOR_GAP; i++) {
+          if (whole || changed(chars, lastChars, lastColors, inColor, row + i)) {
+            last = i;
+          }
+        }
+        out.append("\033[").append(String.valueOf(y + 1)).append(';').append(String.valueOf(x + 1)).append('H');
+        for (int i = x; i <= last; i++) {
+          if (inColor) {
+            color = changeColor(out, color, mColors[row + i]);
+          }
+          out.append(chars[row + i]);
+        }
+        written = true;
+        x = last + 1;
+      }
+    }
+    changeColor(out, color, 0);
+    if (written) {
+      out.append("\033[").append(String.valueOf(mHeight + 1)).append(";1H");
+    }
+    // the canvas is not drawn on again
+    screen.mChars = chars;
+    screen.mColors = mColors;
+    screen.mWidth = mWidth;
+    screen.mHeight = mHeight;
+    screen.mInColor = inColor;
+  }
+
+  private boolean changed(char[] chars, char[] lastChars, byte[] lastColors, boolean inColor, int i) {
+    return chars[i] != lastChars[i] || (inColor && mColors[i] != lastColors[i]);
+  }
+}
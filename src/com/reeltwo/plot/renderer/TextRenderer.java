@@ -1,5 +1,8 @@
 package com.reeltwo.plot.renderer;
 
+import java.io.IOException;
+import java.util.Arrays;
+
 import com.reeltwo.plot.Axis;
 import com.reeltwo.plot.Box2D;
 import com.reeltwo.plot.DefaultFormatter;
@@ -14,27 +17,106 @@ import com.reeltwo.plot.Plot2D;
  * @author Richard Littin
  */
 public class TextRenderer extends AbstractRenderer {
-  private static final char SPACE = ' ';
-  private static final char CR = '\n';
+  /**
+   * How finely plot data is drawn.  Text is always drawn a character
+   * per cell, but in the finer resolutions each cell of the plot area
+   * holds several dots, drawn as a Unicode character showing which are
+   * set, which needs a terminal and font with those characters.
+   */
+  public enum Resolution {
+    /** One dot per cell, drawn with the point character of the plot. */
+    CHARACTER(1, 1),
+    /** Two dots per cell, one above the other, drawn with half block characters. */
+    HALF_BLOCK(1, 2),
+    /** Eight dots per cell, two across by four down, drawn with Braille patterns. */
+    BRAILLE(2, 4);
+
+    private final int mDotsX;
+    private final int mDotsY;
+
+    private Resolution(int dotsX, int dotsY) {
+      mDotsX = dotsX;
+      mDotsY = dotsY;
+    }
+
+    /**
+     * Returns the number of dots across a cell.
+     *
+     * @return dots across
+     */
+    public int getDotsX() {
+      return mDotsX;
+    }
+
+    /**
+     * Returns the number of dots down a cell.
+     *
+     * @return dots down
+     */
+    public int getDotsY() {
+      return mDotsY;
+    }
+  }
 
   private static final char[] LINE_CHARS = new char[] {'*', '#', '$', '%', '@', '&', '=', 'o'};
-  // ANSI escape sequence color codes
-  private static final String[] COLORS =
-      new String[]{"",
-    "31", "32", "34", "33", "35", "36",
-    "1;31", "1;32", "1;34", "1;33", "1;35", "1;36",
-    "41", "42", "44", "43", "45", "46",
-    "1;41", "1;42", "1;44", "1;43", "1;45", "1;46"};
 
+  /**
+   * The frame last written to a terminal by <code>drawGraph</code>, so
+   * that the next frame need only write the cells that have changed.
+   * Use one screen per terminal, drawing to it from one thread at a
+   * time.
+   */
+  public static final class Screen {
+    // cells and colors last written, kept by TextCanvas
+    char[] mChars = null;
+    byte[] mColors = null;
+    int mWidth = 0;
+    int mHeight = 0;
+    boolean mInColor = false;
+
+    /**
+     * Forgets the frame last written, so the next frame clears the
+     * terminal and is written whole, such as after something else has
+     * written to the terminal.
+     */
+    public void reset() {
+      mChars = null;
+      mColors = null;
+    }
+  }
+
+  private Resolution mResolution = Resolution.CHARACTER;
+
+  /**
+   * Sets how finely plot data is drawn.  The default is one character
+   * per data point.
+   *
+   * @param resolution a resolution
+   */
+  public void setResolution(Resolution resolution) {
+    if (resolution == null) {
+      throw new NullPointerException("null resolution given.");
+    }
+    mResolution = resolution;
+  }
+
+  /**
+   * Returns how finely plot data is drawn.
+   *
+   * @return a resolution
+   */
+  public Resolution getResolution() {
+    return mResolution;
+  }
 
   @Override
   protected int getTextWidth(Object canvas, String text) {
-    return text.length();
+    return text.length() * ((TextCanvas) canvas).scaleX();
   }
 
   @Override
   protected int getTextHeight(Object canvas, String text) {
-    return 1;
+    return ((TextCanvas) canvas).scaleY();
   }
 
   @Override
@@ -45,26 +127,26 @@ public class TextRenderer extends AbstractRenderer {
   @Override
   protected void setColor(Object canvas, int colorIndex) {
     switch (colorIndex) {
-    case BACKGROUND_COLOR_INDEX: ((Canvas) canvas).setColor(0);
+    case BACKGROUND_COLOR_INDEX: ((TextCanvas) canvas).setColor(0);
     break;
-    case FOREGROUND_COLOR_INDEX: ((Canvas) canvas).setColorDefault();
+    case FOREGROUND_COLOR_INDEX: ((TextCanvas) canvas).setColorDefault();
     break;
     default:
-      ((Canvas) canvas).setColor(colorIndex % COLORS.length);
+      ((TextCanvas) canvas).setColor(colorIndex % TextCanvas.COLORS.length);
     }
 
   }
 
   @Override
   protected void setClip(Object canvas, int x, int y, int w, int h) {
-    ((Canvas) canvas).setClipRectangle(x, y, w, h);
+    final TextCanvas c = (TextCanvas) canvas;
+    c.setClipRectangle(TextCanvas.floorDiv(x, c.scaleX()), TextCanvas.floorDiv(y, c.scaleY()), -TextCanvas.floorDiv(-w, c.scaleX()), -TextCanvas.floorDiv(-h, c.scaleY()));
   }
 
   @Override
   protected void drawString(Object canvas, int x, int y, String text, boolean isVertical) {
-    for (int k = 0; k < text.length(); k++) {
-      ((Canvas) canvas).putChar(x + k, y, text.charAt(k));
-    }
+    countPrimitives(1);
+    ((TextCanvas) canvas).putString(x, y, text);
   }
 
   private char getLineChar() {
@@ -73,12 +155,14 @@ public class TextRenderer extends AbstractRenderer {
 
   @Override
   protected void drawPoint(Object canvas, int x, int y) {
-    ((Canvas) canvas).putChar(x, y, getLineChar());
+    countPrimitives(1);
+    ((TextCanvas) canvas).putChar(x, y, getLineChar());
   }
 
   @Override
   protected void drawLine(Object canvas, int x1, int y1, int x2, int y2) {
-    ((Canvas) canvas).putChar(x1, y1, x2, y2, getLineChar());
+    countPrimitives(1);
+    ((TextCanvas) canvas).putChar(x1, y1, x2, y2, getLineChar());
   }
 
   @Override
@@ -137,21 +221,94 @@ public class TextRenderer extends AbstractRenderer {
 
   @Override
   protected void drawPolygon(Object canvas, int[] xs, int[] ys) {
-    if (xs.length != 0) {
-      for (int i = 1; i < xs.length; i++) {
+    drawPolygon(canvas, xs, ys, xs.length);
+  }
+
+  @Override
+  protected void drawPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    if (n != 0) {
+      for (int i = 1; i < n; i++) {
         drawLine(canvas, xs[i - 1], ys[i - 1], xs[i], ys[i]);
       }
-      drawLine(canvas, xs[xs.length - 1], ys[ys.length - 1], xs[0], ys[0]);
+      drawLine(canvas, xs[n - 1], ys[n - 1], xs[0], ys[0]);
     }
   }
 
   @Override
   protected void fillPolygon(Object canvas, int[] xs, int[] ys) {
-    // todo
-    for (int y = 0; y < ((Canvas) canvas).getHeight(); y++) {
-      for (int x = 0; x < ((Canvas) canvas).getWidth(); x++) {
-        if (inside(xs, ys, x, y)) {
-          drawPoint(canvas, x, y);
+    fillPolygon(canvas, xs, ys, xs.length);
+  }
+
+  /**
+   * Fills the cells inside a polygon by the even-odd rule, a row at a
+   * time.  A cell is inside when the number of edges crossing its row
+   * to the right of it is odd, an edge covering the rows from its lower
+   * end up to but not including its upper end.  Only the rows and
+   * columns within both the polygon and the clip rectangle are visited.
+   */
+  @Override
+  protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+    if (xs == null || n <= 2) {
+      return;
+    }
+    final TextCanvas c = (TextCanvas) canvas;
+    // edge table of the edges that are not horizontal, from their lower end, ordered by lower end
+    final int[] x0s = new int[n];
+    final int[] y0s = new int[n];
+    final int[] x1s = new int[n];
+    final int[] y1s = new int[n];
+    final long[] order = new long[n];
+    int edges = 0;
+    int lo = Integer.MAX_VALUE;
+    int hi = Integer.MIN_VALUE;
+    for (int i = 0, j = n - 1; i < n; j = i++) {
+      if (ys[i] != ys[j]) {
+        final int a = ys[i] < ys[j] ? i : j;
+        final int b = a == i ? j : i;
+        x0s[edges] = xs[a];
+        y0s[edges] = ys[a];
+        x1s[edges] = xs[b];
+        y1s[edges] = ys[b];
+        order[edges] = ((long) ys[a] << 32) | edges;
+        lo = Math.min(lo, ys[a]);
+        hi = Math.max(hi, ys[b]);
+        edges++;
+      }
+    }
+    Arrays.sort(order, 0, edges);
+    final int[] active = new int[edges];
+    final int[] crossings = new int[edges];
+    int actives = 0;
+    int next = 0;
+    final int bottom = Math.min(hi, c.getClipBottom());
+    for (int y = Math.max(lo, c.getClipTop()); y < bottom; y++) {
+      int k = 0;
+      for (int i = 0; i < actives; i++) {
+        if (y1s[active[i]] > y) {
+          active[k++] = active[i];
+        }
+      }
+      actives = k;
+      for (; next < edges && (int) (order[next] >> 32) <= y; next++) {
+        final int e = (int) order[next];
+        if (y1s[e] > y) {
+          active[actives++] = e;
+        }
+      }
+      // a cell is left of an edge if its column is before the first column at or right of the crossing
+      for (int i = 0; i < actives; i++) {
+        final int e = active[i];
+        final float offset = (float) (y - y0s[e]) / (y1s[e] - y0s[e]) * (x1s[e] - x0s[e]);
+        crossings[i] = x0s[e] + (int) Math.ceil(offset);
+      }
+      Arrays.sort(crossings, 0, actives);
+      for (int i = -1; i < actives - 1; i++) {
+        if (((actives - i - 1) & 1) != 0) {
+          final int start = Math.max(i < 0 ? c.getClipLeft() : crossings[i], c.getClipLeft());
+          final int end = Math.min(crossings[i + 1], c.getClipRight());
+          if (start < end) {
+            drawLine(canvas, start, y, end - 1, y);
+          }
         }
       }
     }
@@ -160,11 +317,16 @@ public class TextRenderer extends AbstractRenderer {
   @Override
   protected void drawPolyline(Object canvas, int[] xs, int[] ys) {
     assert xs.length == ys.length;
-    if (xs.length != 0) {
+    drawPolyline(canvas, xs, ys, xs.length);
+  }
+
+  @Override
+  protected void drawPolyline(Object canvas, int[] xs, int[] ys, int n) {
+    if (n != 0) {
       int lastX = xs[0];
       int lastY = ys[0];
       drawLine(canvas, lastX, lastY, lastX, lastY);
-      for (int i = 1; i < xs.length; i++) {
+      for (int i = 1; i < n; i++) {
         final int sptX = xs[i];
         final int sptY = ys[i];
         if (sptX != lastX || sptY != lastY) {
@@ -180,7 +342,8 @@ public class TextRenderer extends AbstractRenderer {
    * Renders the given graph to a string that mimics a screen of
    * <code>screenWidth</code> characters by <code>screenHeight</code>
    * characters.  <code>inColor</code> produces ansi color codes if
-   * set.
+   * set.  Plot data is drawn at the resolution set, and the axis
+   * mappings used for it are in dots.
    *
    * @param graph a <code>Graph2D</code>
    * @param screenWidth screen width
@@ -192,15 +355,87 @@ public class TextRenderer extends AbstractRenderer {
     if (graph == null) {
       return null;
     }
-    final Canvas canvas = new Canvas(screenWidth, screenHeight);
+    return draw(graph, screenWidth, screenHeight).toString(inColor);
+  }
+
+  /**
+   * Writes the given graph as <code>drawGraph</code> returns it, without
+   * building the whole string first.
+   *
+   * @param graph a <code>Graph2D</code>
+   * @param screenWidth screen width
+   * @param screenHeight screen height
+   * @param inColor render in color
+   * @param out where to write the graph
+   * @exception IOException if writing fails
+   */
+  public void drawGraph(Graph2D graph, int screenWidth, int screenHeight, boolean inColor, Appendable out) throws IOException {
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    draw(graph, screenWidth, screenHeight).write(out, inColor);
+  }
+
+  /**
+   * Writes the given graph to a terminal as ANSI escape sequences,
+   * writing only the cells that differ from the frame last written to
+   * <code>screen</code>, which suits charts redrawn many times a
+   * second.  The frame is drawn from the top left corner of the
+   * terminal and the cursor is left below it.  The first frame, and
+   * the first after the size or use of color changes, clears the
+   * terminal and is written whole.  Nothing is written if nothing has
+   * changed.
+   *
+   * @param graph a <code>Graph2D</code>
+   * @param screenWidth screen width
+   * @param screenHeight screen height
+   * @param inColor render in color
+   * @param screen the frame last written, updated to this frame
+   * @param out where to write escape sequences and text
+   * @exception IOException if writing fails
+   */
+  public void drawGraph(Graph2D graph, int screenWidth, int screenHeight, boolean inColor, Screen screen, Appendable out) throws IOException {
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (screen == null) {
+      throw new NullPointerException("null screen given.");
+    }
+    draw(graph, screenWidth, screenHeight).write(out, inColor, screen);
+  }
+
+  private TextCanvas draw(Graph2D graph, int screenWidth, int screenHeight) {
+    final TextCanvas canvas = new TextCanvas(screenWidth, screenHeight, mResolution);
+    long start = phaseStart();
     final Mapping[] mapping = drawPeriphery(graph, canvas);
-    drawData(canvas, graph.getPlots(), mapping);
+    phaseDone(RenderPhase.LAYOUT, start);
+    if (mResolution == Resolution.CHARACTER) {
+      drawData(canvas, graph.getPlots(), mapping);
+    } else {
+      final Mapping[] dots = new Mapping[mapping.length];
+      for (int i = 0; i < mapping.length; i++) {
+        dots[i] = toDots(mapping[i], (i & 1) == 0 ? mResolution.getDotsX() : mResolution.getDotsY());
+      }
+      canvas.setDrawingDots(true);
+      drawData(canvas, graph.getPlots(), dots);
+      canvas.setDrawingDots(false);
+    }
+    start = phaseStart();
     drawKey(graph, canvas);
-    return canvas.toString(inColor);
+    phaseDone(RenderPhase.KEY, start);
+    return canvas;
   }
 
+  // maps to the dots of the cells a mapping maps to
+  private static Mapping toDots(Mapping mapping, int dots) {
+    final float min = mapping.getScreenMin();
+    final float max = mapping.getScreenMax();
+    final int under = min <= max ? 0 : dots - 1;
+    final int over = min <= max ? dots - 1 : 0;
+    return new Mapping(mapping.getWorldMin(), mapping.getWorldMax(), min * dots + under, max * dots + over, mapping.isLog());
+  }
 
-  private Mapping[] drawPeriphery(Graph2D graph, Canvas canvas) {
+  private Mapping[] drawPeriphery(Graph2D graph, TextCanvas canvas) {
     final Mapping[] mapping = new Mapping[4];
     int sxlo = 0;
     int sxhi = canvas.getWidth() - 1;
@@ -299,7 +534,7 @@ public class TextRenderer extends AbstractRenderer {
       final Plot2D plot = plots[j];
       final String dtitle = plot.getTitle();
       if (dtitle != null && dtitle.length() != 0
-          && plot.getData() != null && plot.getData().length != 0) {
+          && plot.getDataCount() != 0) {
         final int sw = getTextWidth(canvas, dtitle) + 4; // + point and spaces and comma
         keyWidth += sw;
       }
@@ -315,7 +550,7 @@ public class TextRenderer extends AbstractRenderer {
     return graph.isShowKey() ? getTextHeight(canvas, "A") : 0;
   }
 
-  private void drawKey(Graph2D graph, Canvas canvas) {
+  private void drawKey(Graph2D graph, TextCanvas canvas) {
     if (graph.isShowKey()) {
       canvas.setColorDefault();
       canvas.setClipRectangle(0, 0, canvas.getWidth(), canvas.getHeight());
@@ -354,7 +589,7 @@ public class TextRenderer extends AbstractRenderer {
   }
 
 
-  private void drawBorder(Canvas canvas, int sxlo, int sylo, int sxhi, int syhi) {
+  private void drawBorder(TextCanvas canvas, int sxlo, int sylo, int sxhi, int syhi) {
     for (int i = sxlo + 1; i < sxhi; i++) {
       canvas.putChar(i, sylo, '-');
       canvas.putChar(i, syhi, '-');
@@ -366,7 +601,7 @@ public class TextRenderer extends AbstractRenderer {
   }
 
 
-  private void drawYTics(Graph2D graph, Canvas canvas, Edge whichTic, TicInfo ticInfo, Mapping mapping, Box2D s) {
+  private void drawYTics(Graph2D graph, TextCanvas canvas, Edge whichTic, TicInfo ticInfo, Mapping mapping, Box2D s) {
     final int sxlo = (int) s.getXLo();
     final int sxhi = (int) s.getXHi();
     final int sylo = (int) s.getYLo();
@@ -401,7 +636,7 @@ public class TextRenderer extends AbstractRenderer {
   }
 
 
-  private void drawXTics(Graph2D graph, Canvas canvas, Edge whichTic, Mapping mapping, float xlo, float xhi, Box2D s) {
+  private void drawXTics(Graph2D graph, TextCanvas canvas, Edge whichTic, Mapping mapping, float xlo, float xhi, Box2D s) {
     final int sxlo = (int) s.getXLo();
     final int sxhi = (int) s.getXHi();
     final int sylo = (int) s.getYLo();
@@ -469,7 +704,7 @@ public class TextRenderer extends AbstractRenderer {
   }
 
 
-  private void drawLabels(Graph2D graph, Canvas canvas, int sylo, int sxhi, int syhi) {
+  private void drawLabels(Graph2D graph, TextCanvas canvas, int sylo, int sxhi, int syhi) {
     String ylabel = graph.getLabel(Axis.Y, Edge.MAIN);
     if (graph.uses(Axis.Y, Edge.MAIN) && ylabel.length() > 0) {
       for (int i = 0; i < ylabel.length(); i++) {
@@ -499,235 +734,4 @@ public class TextRenderer extends AbstractRenderer {
         canvas.putChar(xstart + i, syhi - 2, xlabel.charAt(i));
       }
     }
-  }
-
-
-  private static boolean inside(int[] xs, int[] ys, int x, int y) {
-    if (xs == null || xs.length <= 2) {
-      return false;
-    }
-    int hits = 0;
-
-    int lastx = xs[xs.length - 1];
-    int lasty = ys[ys.length - 1];
-    int curx;
-    int cury;
-
-    // Walk the edges of the polygon
-    for (int i = 0; i < xs.length; lastx = curx, lasty = cury, i++) {
-      curx = xs[i];
-      cury = ys[i];
-
-      if (cury == lasty) {
-        continue;
-      }
-
-      int leftx;
-      if (curx < lastx) {
-        if (x >= lastx) {
-          continue;
-        }
-        leftx = curx;
-      } else {
-        if (x >= curx) {
-          continue;
-        }
-        leftx = lastx;
-      }
-
-      float test1;
-      float test2;
-      if (cury < lasty) {
-        if (y < cury || y >= lasty) {
-          continue;
-        }
-        if (x < leftx) {
-          hits++;
-          continue;
-        }
-        test1 = x - curx;
-        test2 = y - cury;
-      } else {
-        if (y < lasty || y >= cury) {
-          continue;
-        }
-        if (x < leftx) {
-          hits++;
-          continue;
-        }
-        test1 = x - lastx;
-        test2 = y - lasty;
-      }
-      if (test1 < (test2 / (lasty - cury) * (lastx - curx))) {
-        hits++;
-      }
-    }
-    return (hits & 1) != 0;
-  }
-
-
-  private static class Canvas {
-    private final int mWidth, mHeight;
-    private int mClipLeft, mClipRight, mClipTop, mClipBottom;
-    private final char[] mCanvas; // grid of characters
-    private final byte[] mColors; // grid of colors
-    private byte mColor; // current color to use
-
-
-    Canvas(int width, int height) {
-      mWidth = width;
-      mHeight = height;
-      setClipRectangle(0, 0, width, height);
-
-      mCanvas = new char[mHeight * (mWidth + 1)];
-      mColors = new byte[mHeight * (mWidth + 1)];
-      int i = 0;
-      for (int y = 0; y < mHeight; y++) {
-        for (int x = 0; x < mWidth; x++) {
-          mColors[i] = 0;
-          mCanvas[i++] = SPACE;
-        }
-        mCanvas[i++] = CR;
-      }
-    }
-
-    private int getWidth() {
-      return mWidth;
-    }
-
-    private int getHeight() {
-      return mHeight;
-    }
-
-    private void setColorDefault() {
-      mColor = 0;
-    }
-
-
-    private void setColor(int color) {
-      mColor = (byte) color;
-    }
-
-    private void setClipRectangle(int left, int top, int right, int bottom) {
-      mClipLeft = Math.max(left, 0);
-      mClipRight = Math.min(right, mWidth);
-      mClipTop = Math.max(top, 0);
-      mClipBottom = Math.min(bottom, mHeight);
-    }
-
-
-    private void putChar(int x, int y, char c) {
-      if (x >= mClipLeft && x < mClipRight && y >= mClipTop && y < mClipBottom) {
-        // in bounds
-        mCanvas[y * (mWidth + 1) + x] = c;
-        mColors[y * (mWidth + 1) + x] = mColor;
-      }
-    }
-    //private void putChar(Point2D pt,char c) {
-    //putChar((int)pt.getX(),(int)pt.getY(),c);
-    //}
-    //private void putChar(Point2D ptStart, Point2D ptEnd, char c) {
-    //putChar((int) ptStart.getX(), (int) ptStart.getY(), (int) ptEnd.getX(), (int) ptEnd.getY(), c);
-    //}
-
-
-    private void putChar(int startX, int startY, int endX, int endY, char c) {
-      int sx;
-      int ex;
-      int sy;
-      int ey;
-
-      if (Math.abs(endX - startX) >= Math.abs(endY - startY)) {
-        if (startX <= endX) {
-          sx = startX;
-          sy = startY;
-          ex = endX;
-          ey = endY;
-        } else {
-          ex = startX;
-          ey = startY;
-          sx = endX;
-          sy = endY;
-        }
-      } else {
-        if (startY <= endY) {
-          sx = startX;
-          sy = startY;
-          ex = endX;
-          ey = endY;
-        } else {
-          ex = startX;
-          ey = startY;
-          sx = endX;
-          sy = endY;
-        }
-      }
-
-      if (ex - sx >= ey - sy) {
-        final int range = ex - sx;
-        if (range == 0) {
-          putChar(sx, sy, c);
-        } else {
-          for (int i = 0; i <= range; i++) {
-            putChar(sx + i, sy + (ey - sy) * i / range, c);
-          }
-        }
-      } else {
-        final int range = ey - sy;
-        if (range == 0) {
-          putChar(sx, sy, c);
-        } else {
-          for (int i = 0; i <= range; i++) {
-            putChar(sx + (ex - sx) * i / range, sy + i, c);
-          }
-        }
-      }
-      //putChar(sx,sy,'s');
-      //putChar(ex,ey,'e');
-    }
-
-
-    //private char getChar(int x, int y) {
-    //if (x >= 0 && x <= mWidth && y >= 0 && y <= mHeight) {
-    //return mCanvas[y * (mWidth + 1) + x];
-    //}
-    //return '\0';
-    //}
-    //private char getChar(Point2D pt) {
-    //return getChar((int)pt.getX(),(int)pt.getY());
-    //}
-    @Override
-    public String toString() {
-      return toString(false);
-    }
-
-
-    public String toString(boolean inColor) {
-      final String cr = System.getProperty("line.separator");
-      if (inColor || !cr.equals("" + CR)) {
-        final StringBuffer s = new StringBuffer();
-        //String lineChars = new String(LINE_CHARS);
-
-        for (int i = 0; i < mCanvas.length; i++) {
-          //int index = lineChars.indexOf(mCanvas[i]);
-          final int color = mColors[i];
-          if (inColor && color > 0) {
-            s.append("\033[")
-            .append(COLORS[color % COLORS.length])
-            .append("m")
-            .append(mCanvas[i])
-            .append("\033[0m");
-          } else {
-            if (mCanvas[i] == CR) {
-              s.append(cr);
-            } else {
-              s.append(mCanvas[i]);
-            }
-          }
-        }
-        return s.toString();
-      }
-      return new String(mCanvas);
-    }
-  }
-}
+  }}
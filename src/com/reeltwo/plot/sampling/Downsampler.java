@@ -0,0 +1,27 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.DataSource2D;
+
+/**
+ * Reduces plot data to a smaller number of points that keep the
+ * visual shape of the data.  Downsamplers choose a subset of the
+ * original points, so every column of the data is available in the
+ * result.
+ *
+ * @author Richard Littin
+ */
+public interface Downsampler {
+
+  /**
+   * Returns a view of at most <code>points</code> of the data points
+   * in <code>data</code>.  If the data already has no more than
+   * <code>points</code> points it is returned unchanged.
+   *
+   * @param data data to reduce, expected to be sorted by x
+   * @param points maximum number of points to keep
+   * @return the reduced data
+   * @exception IllegalArgumentException if <code>points</code> is too
+   * small for this downsampler
+   */
+  DataSource2D downsample(DataSource2D data, int points);
+}
@@ -0,0 +1,73 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampler.  The first and last
+ * points are always kept.  The remaining points are split into equal
+ * sized buckets and from each bucket the point forming the largest
+ * triangle with the previously kept point and the average of the next
+ * bucket is kept.  This preserves the visual shape of a line well.
+ *
+ * @author Richard Littin
+ */
+public class LttbDownsampler implements Downsampler {
+
+  /**
+   * {@inheritDoc}
+   *
+   * @exception IllegalArgumentException if <code>points</code> is
+   * less than 3
+   */
+  @Override
+  public DataSource2D downsample(DataSource2D data, int points) {
+    if (points < 3) {
+      throw new IllegalArgumentException("Need at least 3 points: " + points);
+    }
+    final int size = data.size();
+    if (size <= points) {
+      return data;
+    }
+    final int[] indexes = new int[points];
+    final double bucketSize = (double) (size - 2) / (points - 2);
+    int a = 0;
+    for (int b = 0; b < points - 2; b++) {
+      // average of the next bucket, or the last point for the final bucket
+      final int nextStart = (int) ((b + 1) * bucketSize) + 1;
+      final int nextEnd = Math.min((int) ((b + 2) * bucketSize) + 1, size);
+      double avgX = 0;
+      double avgY = 0;
+      if (nextStart < nextEnd) {
+        for (int i = nextStart; i < nextEnd; i++) {
+          avgX += data.get(Column.X, i);
+          avgY += data.get(Column.Y, i);
+        }
+        avgX /= nextEnd - nextStart;
+        avgY /= nextEnd - nextStart;
+      } else {
+        avgX = data.get(Column.X, size - 1);
+        avgY = data.get(Column.Y, size - 1);
+      }
+
+      final int start = (int) (b * bucketSize) + 1;
+      final int end = nextStart;
+      final double ax = data.get(Column.X, a);
+      final double ay = data.get(Column.Y, a);
+      double maxArea = -1;
+      int next = start;
+      for (int i = start; i < end; i++) {
+        final double area = Math.abs((ax - avgX) * (data.get(Column.Y, i) - ay) - (ax - data.get(Column.X, i)) * (avgY - ay));
+        if (area > maxArea) {
+          maxArea = area;
+          next = i;
+        }
+      }
+      indexes[b + 1] = next;
+      a = next;
+    }
+    indexes[0] = 0;
+    indexes[points - 1] = size - 1;
+    return new SampledData2D(data, indexes);
+  }
+}
@@ -0,0 +1,76 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+
+/**
+ * Downsampler that keeps the first and last points, splits the
+ * remaining points into equal sized buckets and keeps the points with
+ * the minimum and maximum y in each bucket, in their original order.
+ * When an odd number of points is asked for the last bucket keeps
+ * only its extreme farthest from the last point.  Unlike
+ * <code>LttbDownsampler</code> this never loses a peak or trough, at
+ * the cost of a less even spread of points.
+ *
+ * @author Richard Littin
+ */
+public class MinMaxDownsampler implements Downsampler {
+
+  /**
+   * {@inheritDoc}
+   *
+   * @exception IllegalArgumentException if <code>points</code> is
+   * less than 2
+   */
+  @Override
+  public DataSource2D downsample(DataSource2D data, int points) {
+    if (points < 2) {
+      throw new IllegalArgumentException("Need at least 2 points: " + points);
+    }
+    final int size = data.size();
+    if (size <= points) {
+      return data;
+    }
+    // the budget left after the first and last points, two points per bucket
+    final int budget = points - 2;
+    final int buckets = (budget + 1) / 2;
+    final int interior = size - 2;
+    final float lastY = data.get(Column.Y, size - 1);
+    final int[] indexes = new int[points];
+    int count = 0;
+    indexes[count++] = 0;
+    for (int b = 0; b < buckets; b++) {
+      final int start = 1 + (int) ((long) b * interior / buckets);
+      final int end = 1 + (int) ((long) (b + 1) * interior / buckets);
+      int minIndex = start;
+      int maxIndex = start;
+      float minY = data.get(Column.Y, start);
+      float maxY = minY;
+      for (int i = start + 1; i < end; i++) {
+        final float y = data.get(Column.Y, i);
+        if (y < minY) {
+          minY = y;
+          minIndex = i;
+        } else if (y > maxY) {
+          maxY = y;
+          maxIndex = i;
+        }
+      }
+      if (minIndex == maxIndex) {
+        indexes[count++] = minIndex;
+      } else if (2 * b + 1 == budget) {
+        indexes[count++] = lastY - minY > maxY - lastY ? minIndex : maxIndex;
+      } else {
+        indexes[count++] = Math.min(minIndex, maxIndex);
+        indexes[count++] = Math.max(minIndex, maxIndex);
+      }
+    }
+    indexes[count++] = size - 1;
+    if (count < indexes.length) {
+      final int[] trimmed = new int[count];
+      System.arraycopy(indexes, 0, trimmed, 0, count);
+      return new SampledData2D(data, trimmed);
+    }
+    return new SampledData2D(data, indexes);
+  }
+}
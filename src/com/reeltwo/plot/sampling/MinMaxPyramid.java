@@ -0,0 +1,195 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+import com.reeltwo.plot.StreamingData2D;
+
+/**
+ * Level of detail pyramid over the y values of a data source.  The
+ * points are split into buckets of <code>2^level</code> consecutive
+ * points at each level from <code>MIN_LEVEL</code> upwards, and the
+ * index of the point with the minimum and maximum y is kept for each
+ * bucket.  A renderer can then replace a run of points that all fall
+ * in one screen pixel column by the first, minimum, maximum and last
+ * points of the largest buckets covering the run, without looking at
+ * the points in between.<p>
+ *
+ * The pyramid is built in time linear in the number of points and
+ * uses about two bytes per point.  Points appended to a
+ * <code>StreamingData2D</code> source are added by
+ * <code>update()</code> in time linear in the number of new points;
+ * buckets holding evicted points are no longer used.  Any other
+ * source must not change after the pyramid is built.
+ *
+ * @author Richard Littin
+ */
+public class MinMaxPyramid {
+
+  /** level of the smallest buckets, which hold 16 points */
+  public static final int MIN_LEVEL = 4;
+  private static final int MIN_BUCKET = 1 << MIN_LEVEL;
+  /** points read from the source at a time, a multiple of the smallest bucket */
+  private static final int CHUNK_SIZE = 4096;
+
+  private final DataSource2D mSource;
+  /** buckets at each level from <code>MIN_LEVEL</code> up, each a ring indexed by bucket number */
+  private final int[][] mMinOffsets;
+  private final int[][] mMaxOffsets;
+  private final float[][] mMinYs;
+  private final float[][] mMaxYs;
+  /** sequence number of the point at index 0 when last updated */
+  private long mBase = 0;
+  /** sequence number of the first point not yet in a bucket, a multiple of <code>MIN_BUCKET</code> */
+  private long mNext = 0;
+  private final float[] mChunk = new float[CHUNK_SIZE];
+
+  /**
+   * Builds a pyramid over the points in <code>source</code>.
+   *
+   * @param source data to build the pyramid over
+   * @exception NullPointerException if <code>source</code> is null
+   */
+  public MinMaxPyramid(DataSource2D source) {
+    if (source == null) {
+      throw new NullPointerException("null source");
+    }
+    mSource = source;
+    final int capacity = source instanceof StreamingData2D ? ((StreamingData2D) source).getCapacity() : source.size();
+    final int levels = Math.max(0, 32 - Integer.numberOfLeadingZeros(capacity) - MIN_LEVEL);
+    mMinOffsets = new int[levels][];
+    mMaxOffsets = new int[levels][];
+    mMinYs = new float[levels][];
+    mMaxYs = new float[levels][];
+    for (int l = 0; l < levels; l++) {
+      // one spare slot so a bucket is kept until its sibling completes
+      final int slots = (capacity >> (MIN_LEVEL + l)) + 1;
+      mMinOffsets[l] = new int[slots];
+      mMaxOffsets[l] = new int[slots];
+      mMinYs[l] = new float[slots];
+      mMaxYs[l] = new float[slots];
+    }
+    update();
+  }
+
+  /**
+   * Returns the data the pyramid is built over.
+   *
+   * @return data source
+   */
+  public DataSource2D getSource() {
+    return mSource;
+  }
+
+  /**
+   * Returns the highest level with buckets.
+   *
+   * @return a level, less than <code>MIN_LEVEL</code> if there are
+   * no buckets
+   */
+  public int getMaxLevel() {
+    return MIN_LEVEL + mMinOffsets.length - 1;
+  }
+
+  // sequence number of the point after the last point in the source
+  private long appended() {
+    return mSource instanceof StreamingData2D ? ((StreamingData2D) mSource).getAppended() : mSource.size();
+  }
+
+  /**
+   * Adds to the pyramid any points appended to the source since it was
+   * built or last updated.  Must be called before the pyramid is used
+   * after points are appended.
+   */
+  public void update() {
+    if (mMinOffsets.length == 0) {
+      return;
+    }
+    final long appended = appended();
+    final int size = mSource.size();
+    mBase = appended - size;
+    if (mNext < mBase) {
+      // points were evicted before they were seen, skip the buckets holding them
+      mNext = (mBase + MIN_BUCKET - 1) & -MIN_BUCKET;
+    }
+    while (mNext + MIN_BUCKET <= appended) {
+      final int length = (int) Math.min(CHUNK_SIZE, (appended - mNext) & -MIN_BUCKET);
+      mSource.get(Column.Y, (int) (mNext - mBase), mChunk, 0, length);
+      for (int start = 0; start < length; start += MIN_BUCKET) {
+        int minOffset = 0;
+        int maxOffset = 0;
+        for (int j = 1; j < MIN_BUCKET; j++) {
+          final float y = mChunk[start + j];
+          if (y < mChunk[start + minOffset]) {
+            minOffset = j;
+          } else if (y > mChunk[start + maxOffset]) {
+            maxOffset = j;
+          }
+        }
+        add(0, (mNext + start) >> MIN_LEVEL, minOffset, mChunk[start + minOffset], maxOffset, mChunk[start + maxOffset]);
+      }
+      mNext += length;
+    }
+  }
+
+  // records a completed bucket, completing its parent if it is the second child
+  private void add(int l, long bucket, int minOffset, float minY, int maxOffset, float maxY) {
+    final int slot = (int) (bucket % mMinOffsets[l].length);
+    mMinOffsets[l][slot] = minOffset;
+    mMaxOffsets[l][slot] = maxOffset;
+    mMinYs[l][slot] = minY;
+    mMaxYs[l][slot] = maxY;
+    if ((bucket & 1) == 1 && l + 1 < mMinOffsets.length) {
+      final int first = (int) ((bucket - 1) % mMinOffsets[l].length);
+      final int half = 1 << (MIN_LEVEL + l);
+      // ties go to the earlier point, as within a bucket
+      final boolean firstMin = mMinYs[l][first] <= minY;
+      final boolean firstMax = mMaxYs[l][first] >= maxY;
+      add(l + 1, bucket >> 1,
+          firstMin ? mMinOffsets[l][first] : half + minOffset, firstMin ? mMinYs[l][first] : minY,
+          firstMax ? mMaxOffsets[l][first] : half + maxOffset, firstMax ? mMaxYs[l][first] : maxY);
+    }
+  }
+
+  /**
+   * Returns the highest level of a bucket starting at the point at
+   * <code>index</code> and ending before <code>end</code>.
+   *
+   * @param index index of the first point in the bucket
+   * @param end one past the index of the last point the bucket may hold
+   * @return a level of at least <code>MIN_LEVEL</code>, or -1 if no
+   * bucket starts at <code>index</code>
+   */
+  public int getLevel(int index, int end) {
+    final long sequence = mBase + index;
+    int level = Math.min(getMaxLevel(), sequence == 0 ? Integer.MAX_VALUE : Long.numberOfTrailingZeros(sequence));
+    final long limit = Math.min(mBase + end, mNext);
+    while (level >= MIN_LEVEL && sequence + (1L << level) > limit) {
+      level--;
+    }
+    return level >= MIN_LEVEL ? level : -1;
+  }
+
+  /**
+   * Returns the index of the point with the minimum y in a bucket.
+   *
+   * @param level level of the bucket
+   * @param index index of the first point in the bucket
+   * @return index of a point in the bucket
+   */
+  public int getMinIndex(int level, int index) {
+    final int[] offsets = mMinOffsets[level - MIN_LEVEL];
+    return index + offsets[(int) (((mBase + index) >> level) % offsets.length)];
+  }
+
+  /**
+   * Returns the index of the point with the maximum y in a bucket.
+   *
+   * @param level level of the bucket
+   * @param index index of the first point in the bucket
+   * @return index of a point in the bucket
+   */
+  public int getMaxIndex(int level, int index) {
+    final int[] offsets = mMaxOffsets[level - MIN_LEVEL];
+    return index + offsets[(int) (((mBase + index) >> level) % offsets.length)];
+  }
+}
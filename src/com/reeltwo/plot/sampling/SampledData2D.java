@@ -0,0 +1,109 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+
+/**
+ * A view of selected data points of another data source.  Values are
+ * read through from the underlying source, so no columns are copied.
+ *
+ * @author Richard Littin
+ */
+public class SampledData2D implements DataSource2D {
+
+  private final DataSource2D mSource;
+  private final int[] mIndexes;
+  private final float mXLo, mXHi;
+  private final float mYLo, mYHi;
+
+  /**
+   * Creates a view of the points in <code>source</code> at the given
+   * indexes.
+   *
+   * @param source underlying data
+   * @param indexes row indexes into <code>source</code> of the points to view
+   */
+  public SampledData2D(DataSource2D source, int[] indexes) {
+    mSource = source;
+    mIndexes = indexes;
+    float xLo = Float.POSITIVE_INFINITY;
+    float xHi = Float.NEGATIVE_INFINITY;
+    float yLo = Float.POSITIVE_INFINITY;
+    float yHi = Float.NEGATIVE_INFINITY;
+    for (Column column : Column.values()) {
+      if (column.getAxis() != null && source.hasColumn(column)) {
+        final boolean isX = column.getAxis() == Axis.X;
+        for (int i = 0; i < indexes.length; i++) {
+          final float v = source.get(column, indexes[i]);
+          if (isX) {
+            xLo = Math.min(xLo, v);
+            xHi = Math.max(xHi, v);
+          } else {
+            yLo = Math.min(yLo, v);
+            yHi = Math.max(yHi, v);
+          }
+        }
+      }
+    }
+    mXLo = xLo > xHi ? 0.0f : xLo;
+    mXHi = xLo > xHi ? 0.0f : xHi;
+    mYLo = yLo > yHi ? 0.0f : yLo;
+    mYHi = yLo > yHi ? 0.0f : yHi;
+  }
+
+  /**
+   * Returns the row index in the underlying source of the point at
+   * <code>index</code>.
+   *
+   * @param index row index in this view
+   * @return row index in the underlying source
+   */
+  public int getSourceIndex(int index) {
+    return mIndexes[index];
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public int size() {
+    return mIndexes.length;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public boolean hasColumn(Column column) {
+    return mSource.hasColumn(column);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float get(Column column, int index) {
+    return mSource.get(column, mIndexes[index]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public void get(Column column, int index, float[] dest, int offset, int length) {
+    for (int i = 0; i < length; i++) {
+      dest[offset + i] = mSource.get(column, mIndexes[index + i]);
+    }
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public Object getObject(int index) {
+    return mSource.getObject(mIndexes[index]);
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getLo(Axis axis) {
+    return axis == Axis.X ? mXLo : mYLo;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public float getHi(Axis axis) {
+    return axis == Axis.X ? mXHi : mYHi;
+  }
+}
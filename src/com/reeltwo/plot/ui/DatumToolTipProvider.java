@@ -0,0 +1,85 @@
+package com.reeltwo.plot.ui;
+
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.DataSource2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.renderer.HitIndex;
+import com.reeltwo.plot.renderer.Mapping;
+
+/**
+ * Tool tip provider that describes the datum under the mouse in the
+ * graph of a <code>PlotPanel</code>.  The datum is found with a
+ * <code>HitIndex</code>, so tool tips stay quick for graphs with many
+ * points.  The tool tip is the object associated with the datum, such
+ * as the text of a note or text point, or otherwise the title of its
+ * plot and its co-ordinates.  Override <code>getToolTipText(Hit)</code>
+ * to describe data differently.
+ *
+ * @author Richard Littin
+ */
+public class DatumToolTipProvider implements ToolTipProvider {
+
+  private final PlotPanel mPanel;
+  private final HitIndex mIndex = new HitIndex();
+
+  /**
+   * Creates a provider for the graph shown in <code>panel</code>.
+   *
+   * @param panel a plot panel
+   * @exception NullPointerException if <code>panel</code> is null
+   */
+  public DatumToolTipProvider(PlotPanel panel) {
+    if (panel == null) {
+      throw new NullPointerException("null panel given.");
+    }
+    mPanel = panel;
+  }
+
+  /**
+   * Returns the index used to find the datum under the mouse.
+   *
+   * @return a hit index
+   */
+  public HitIndex getHitIndex() {
+    return mIndex;
+  }
+
+  /** {@inheritDoc} */
+  @Override
+  public String getToolTipText(int x, int y) {
+    final HitIndex.Hit hit = mIndex.find(mPanel.getGraph(), mPanel.getMapping(), x, y);
+    return hit == null ? null : getToolTipText(hit);
+  }
+
+  /**
+   * Returns the tool tip text for a datum.
+   *
+   * @param hit the datum under the mouse
+   * @return tool tip text
+   */
+  protected String getToolTipText(HitIndex.Hit hit) {
+    final Object object = hit.getObject();
+    if (object != null) {
+      return object.toString();
+    }
+    final Plot2D plot = hit.getPlot();
+    final DataSource2D data = plot.getDataSource();
+    final StringBuilder sb = new StringBuilder();
+    if (plot.getTitle() != null && plot.getTitle().length() != 0) {
+      sb.append(plot.getTitle()).append(' ');
+    }
+    sb.append('(').append(data.get(Column.X, hit.getIndex())).append(',').append(data.get(Column.Y, hit.getIndex())).append(')');
+    return sb.toString();
+  }
+
+  /**
+   * Does nothing, as the mappings of every axis are read from the
+   * panel when needed.
+   *
+   * @param xmap map for the x co-ordinate.
+   * @param ymap map for the y co-ordinate.
+   */
+  @Override
+  public void setMaps(Mapping xmap, Mapping ymap) {
+  }
+}
@@ -14,20 +14,22 @@ import javax.imageio.ImageIO;
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.renderer.GraphicsRenderer;
 import com.reeltwo.plot.renderer.Mapping;
-
-import de.erichseifert.vectorgraphics2d.Document;
-import de.erichseifert.vectorgraphics2d.VectorGraphics2D;
-import de.erichseifert.vectorgraphics2d.svg.SVGProcessor;
-import de.erichseifert.vectorgraphics2d.util.PageSize;
+import com.reeltwo.plot.renderer.RenderListener;
+import com.reeltwo.plot.renderer.RenderPhase;
+import com.reeltwo.plot.renderer.SvgRenderer;
 
 /**
  * Routines to write Graph2D's to graphics files of various formats.
+ * The time taken to encode a drawn PNG image is reported to the
+ * <code>RenderListener</code> of the renderer, if any.
  *
  * @author Richard Littin
  */
 public class ImageWriter {
   /** the thing that does the graph rendering */
   private final GraphicsRenderer mGraphicsRenderer;
+  /** encodes PNG images, or null to use ImageIO */
+  private PngEncoder mPngEncoder = new PngEncoder();
 
   /** PNG image type. */
   public static final int PNG_IMAGE = 0;
@@ -44,6 +46,27 @@ public class ImageWriter {
   }
 
 
+  /**
+   * Sets the encoder used to write PNG images, such as one with a
+   * higher compression level or encoding on several threads.  Default
+   * is a <code>PngEncoder</code> with its default settings.
+   *
+   * @param encoder an encoder, or null to write PNG images with
+   * <code>ImageIO</code>
+   */
+  public void setPngEncoder(PngEncoder encoder) {
+    mPngEncoder = encoder;
+  }
+
+  /**
+   * Returns the encoder used to write PNG images.
+   *
+   * @return an encoder, may be null
+   */
+  public PngEncoder getPngEncoder() {
+    return mPngEncoder;
+  }
+
   /**
    * Writes the given graph out to a formatted file of the specified
    * <tt>type</tt> . The width and height parameters determine the
@@ -161,9 +184,15 @@ public class ImageWriter {
     g.setColor(Color.WHITE);
     g.fillRect(0, 0, width, height);
 
-    mGraphicsRenderer.drawGraph(graph, g, 5, 5, width - 10, height - 10);
+    mGraphicsRenderer.drawGraph(graph, bi, g, 5, 5, width - 10, height - 10);
     final Mapping[] mapping = mGraphicsRenderer.getMappings();
-    ImageIO.write(bi, "png", os);
+    final long start = System.nanoTime();
+    if (mPngEncoder != null) {
+      mPngEncoder.encode(bi, os);
+    } else {
+      ImageIO.write(bi, "png", os);
+    }
+    encoded(start);
 
     return mapping;
   }
@@ -219,21 +248,16 @@ public class ImageWriter {
       throw new IllegalArgumentException("dimensions must be greater than 0");
     }
 
-    final VectorGraphics2D g = new VectorGraphics2D();
-    if (font != null) {
-      g.setFont(font);
-    } else {
-      g.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 10));
+    // elements are written as they are drawn, so there is no separate encoding
+    return new SvgRenderer(mGraphicsRenderer).drawGraph(graph, os, width, height, font);
+  }
+
+  // tells the renderer's listener, if any, how long encoding took
+  private void encoded(long start) {
+    final RenderListener listener = mGraphicsRenderer.getRenderListener();
+    if (listener != null) {
+      listener.phaseDone(RenderPhase.ENCODE, System.nanoTime() - start);
     }
-    g.setColor(Color.WHITE);
-    g.fillRect(0, 0, width, height);
-    int inset = 5;
-    mGraphicsRenderer.drawGraph(graph, g, inset, inset, width - 2 * inset, height - 2 * inset);
-    final Mapping[] mapping = mGraphicsRenderer.getMappings();
-    final SVGProcessor proc = new SVGProcessor();
-    final Document document = proc.getDocument(g.getCommands(), new PageSize(width, height));
-    document.writeTo(os);
-    return mapping;
   }
 
 }
@@ -320,6 +320,8 @@ public class InnerZoomPlot extends PlotPanel {
         g.setColor(Color.BLACK);
         g.drawRect(pnpX, pnpY, mPNPWidth, mPNPHeight);
         final Graphics g2 = g.create(pnpX, pnpY, mPNPWidth, mPNPHeight);
+        // the overview is drawn on every repaint, so only draw a sample of large graphs
+        mGraphicsRenderer.setStride(isProgressiveRendering() ? RenderWorker.coarseStride(mWholeGraph) : 1);
         mGraphicsRenderer.drawGraph(mWholeGraph, g2, mPNPWidth, mPNPHeight);
       }
     }
@@ -16,7 +16,9 @@ import javax.swing.border.EmptyBorder;
 
 import com.reeltwo.plot.Graph2D;
 import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.LayerCache;
 import com.reeltwo.plot.renderer.Mapping;
+import com.reeltwo.plot.renderer.ScrollBuffer;
 
 /**
  * Plots a graph in a Swing JPanel described by the data in a Plot data
@@ -35,6 +37,12 @@ public class PlotPanel extends JPanel {
 
   private boolean mBufferGraphs = false;
   private BufferedImage mBI = null;
+  /** whether the buffered image needs drawing again */
+  private boolean mRedraw = true;
+  /** draws graphs in the background, null to draw on the event thread */
+  private RenderWorker mWorker = null;
+  /** whether background drawing shows a sample of the points first */
+  private boolean mProgressive = false;
 
   private ToolTipProvider mToolTipProvider = null;
 
@@ -95,7 +103,8 @@ public class PlotPanel extends JPanel {
 
   /**
    * Sets the ToolTipProvider to allow position dependent tool tip
-   * text.
+   * text.  A <code>DatumToolTipProvider</code> describes the datum
+   * under the mouse.
    *
    * @param provider a <code>ToolTipProvider</code>
    */
@@ -178,6 +187,7 @@ public class PlotPanel extends JPanel {
    */
   public void setColors(Color[] colors) {
     mGraphicsRenderer.setColors(colors);
+    mRedraw = true;
   }
 
   /**
@@ -196,6 +206,7 @@ public class PlotPanel extends JPanel {
    */
   public void setPatterns(Paint[] patterns) {
     mGraphicsRenderer.setPatterns(patterns);
+    mRedraw = true;
   }
 
   /**
@@ -218,6 +229,7 @@ public class PlotPanel extends JPanel {
    */
   public void setGraphBGColor(Color topColor, Color bottomColor) {
     mGraphicsRenderer.setGraphBGColor(topColor, bottomColor);
+    mRedraw = true;
   }
 
   /**
@@ -227,6 +239,7 @@ public class PlotPanel extends JPanel {
    */
   public void setGraphShadowWidth(int width) {
     mGraphicsRenderer.setGraphShadowWidth(width);
+    mRedraw = true;
   }
 
   /**
@@ -235,7 +248,7 @@ public class PlotPanel extends JPanel {
    * @param graph the graph to render
    */
   public void setGraph(Graph2D graph) {
-    mBI = null;
+    mRedraw = true;
     mGraph = graph;
     updateUI();
   }
@@ -268,6 +281,7 @@ public class PlotPanel extends JPanel {
    */
   public void setAntialiasing(boolean flag) {
     mGraphicsRenderer.setAntialiasing(flag);
+    mRedraw = true;
   }
 
   /**
@@ -277,6 +291,7 @@ public class PlotPanel extends JPanel {
    */
   public void setTextAntialiasing(boolean flag) {
     mGraphicsRenderer.setTextAntialiasing(flag);
+    mRedraw = true;
   }
 
   /**
@@ -290,6 +305,109 @@ public class PlotPanel extends JPanel {
     mBufferGraphs = flag;
   }
 
+  /**
+   * Sets whether the graph is a strip chart whose x range scrolls
+   * forward as data is appended.  When set the drawn data is kept in
+   * a separate layer from the axes, and when the x range has moved
+   * forward by a whole number of pixels only the newly exposed data
+   * is drawn.  The axes, tics and key are drawn each time.  Only
+   * suitable for data that is appended beyond the current x range.
+   *
+   * @param flag whether to scroll drawn data
+   * @see ScrollBuffer
+   */
+  public void setScrolling(boolean flag) {
+    mGraphicsRenderer.setScrollBuffer(flag ? new ScrollBuffer() : null);
+    mRedraw = true;
+  }
+
+  /**
+   * Returns whether drawn data is scrolled.
+   *
+   * @return whether to scroll drawn data
+   */
+  public boolean isScrolling() {
+    return mGraphicsRenderer.getScrollBuffer() != null;
+  }
+
+  /**
+   * Sets whether to cache the chrome, the data of each plot and the
+   * key of the graph in separate layers.  When set, repainting the
+   * graph only draws again the parts that have changed since it was
+   * last drawn, at the tradeoff of extra memory use.  Takes precedence
+   * over scrolling.
+   *
+   * @param flag whether to cache graph layers
+   * @see LayerCache
+   */
+  public void setCacheLayers(boolean flag) {
+    mGraphicsRenderer.setLayerCache(flag ? new LayerCache() : null);
+    mRedraw = true;
+  }
+
+  /**
+   * Returns whether graph layers are cached.
+   *
+   * @return whether to cache graph layers
+   */
+  public boolean isCacheLayers() {
+    return mGraphicsRenderer.getLayerCache() != null;
+  }
+
+  /**
+   * Sets whether to draw graphs on a background thread.  When set,
+   * painting the panel shows the most recently drawn graph, scaled if
+   * the panel has changed size, and asks for the graph to be drawn
+   * again if it has changed.  A newer drawing cancels an older one
+   * still in progress.  Graphs should then only be changed on the
+   * Swing event thread.
+   *
+   * @param flag whether to draw in the background
+   */
+  public void setAsyncRendering(boolean flag) {
+    if (flag && mWorker == null) {
+      mWorker = new RenderWorker(this);
+    } else if (!flag && mWorker != null) {
+      mWorker.shutdown();
+      mWorker = null;
+    }
+    mRedraw = true;
+    repaint();
+  }
+
+  /**
+   * Returns whether graphs are drawn on a background thread.
+   *
+   * @return whether to draw in the background
+   */
+  public boolean isAsyncRendering() {
+    return mWorker != null;
+  }
+
+  /**
+   * Sets whether to draw large graphs progressively when drawing on a
+   * background thread.  When set, a sample of at most about 100,000
+   * points is drawn and shown first, then the graph is drawn again
+   * with more points until every point is drawn.  This gives quick
+   * feedback after a change such as a zoom whatever the size of the
+   * data.  Has no effect unless drawing asynchronously.
+   *
+   * @param flag whether to draw progressively
+   * @see #setAsyncRendering(boolean)
+   */
+  public void setProgressiveRendering(boolean flag) {
+    mProgressive = flag;
+  }
+
+  /**
+   * Returns whether large graphs are drawn progressively.
+   *
+   * @return whether to draw progressively
+   */
+  public boolean isProgressiveRendering() {
+    return mProgressive;
+  }
+
   /**
    * Overrides {@code JPanel.paintComponent} and actually renders the graph in
    * the given Graphics object.
@@ -306,16 +424,37 @@ public class PlotPanel extends JPanel {
     final int screenWidth = d.width - i.left - i.right;
     final int screenHeight = d.height - i.top - i.bottom;
 
-    if (mBufferGraphs) {
+    if (mWorker != null) {
+      if (d.width > 0 && d.height > 0) {
+        mWorker.request(mGraphicsRenderer, mGraph, getBackground(), g.getFont(), d, (Insets) i.clone(), mProgressive, mRedraw);
+        mRedraw = false;
+      }
+      final BufferedImage frame = mWorker.getFrame();
+      if (frame == null) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, d.width, d.height);
+      } else if (frame.getWidth() == d.width && frame.getHeight() == d.height) {
+        g.drawImage(frame, 0, 0, null);
+        mMapping = mWorker.getMapping();
+      } else {
+        // preview until the graph is drawn at the new size
+        g.drawImage(frame, 0, 0, d.width, d.height, null);
+      }
+    } else if (mBufferGraphs) {
       BufferedImage bi = mBI;
       if (bi == null || bi.getWidth() != d.width || bi.getHeight() != d.height) {
         bi = new BufferedImage(d.width, d.height, BufferedImage.TYPE_INT_RGB);
         mBI = bi;
+        mRedraw = true;
+      }
+      if (mRedraw) {
+        mRedraw = false;
         final Graphics g2 = bi.createGraphics();
         g2.setColor(getBackground());
         g2.fillRect(0, 0, d.width, d.height);
         g2.setFont(g.getFont());
-        mGraphicsRenderer.drawGraph(mGraph, g2, i.left, i.top, screenWidth, screenHeight);
+        mGraphicsRenderer.drawGraph(mGraph, bi, g2, i.left, i.top, screenWidth, screenHeight);
+        g2.dispose();
         mMapping = mGraphicsRenderer.getMappings();
       }
       g.drawImage(bi, 0, 0, null);
@@ -0,0 +1,563 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes images in the PNG format, faster and smaller than the
+ * general purpose encoder for the flat colored images of graphs.  An
+ * image with 256 colors or fewer is written with a palette, packing
+ * several pixels to a byte when there are 16 colors or fewer.  Other
+ * images are written as 8 bit RGB, or RGBA if the image has alpha.
+ * The filter applied to each row before compression and the
+ * compression level may be chosen.  Given a fork join pool, rows are
+ * filtered and compressed in chunks on the pool, with each chunk
+ * primed with the data before it so the file stays nearly as small
+ * as compressing on one thread.
+ *
+ * @author Richard Littin
+ */
+public class PngEncoder {
+
+  /** Filters applied to the bytes of each row before compression. */
+  public enum Filter {
+    /** bytes are unchanged */
+    NONE,
+    /** difference from the byte of the pixel to the left */
+    SUB,
+    /** difference from the byte of the pixel above */
+    UP,
+    /** difference from the average of the pixels to the left and above */
+    AVERAGE,
+    /** difference from the Paeth predictor of the pixels to the left, above and above left */
+    PAETH,
+    /**
+     * the filter giving the smallest sum of differences for each row
+     * of a true color image, and no filter for a palette image
+     */
+    ADAPTIVE
+  }
+
+  /** uncompressed bytes compressed by one task on the pool */
+  static final int CHUNK_SIZE = 1 << 17;
+  /** bytes of earlier data a chunk is primed with, the deflate window size */
+  private static final int WINDOW = 1 << 15;
+  private static final int MAX_PALETTE = 256;
+  /** the lowest level that compresses antialiased graphs as well as ImageIO */
+  private static final int DEFAULT_LEVEL = 4;
+  private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+  private static final int COLOR_RGB = 2;
+  private static final int COLOR_PALETTE = 3;
+  private static final int COLOR_RGBA = 6;
+
+  private int mLevel = DEFAULT_LEVEL;
+  private Filter mFilter = Filter.NONE;
+  private boolean mPalette = true;
+  private ForkJoinPool mPool = null;
+
+  /**
+   * Sets the compression level, from 0 for none to 9 for the
+   * smallest files.  Default is 4, which for graphs is several times
+   * faster than level 9 for files about a quarter larger.
+   *
+   * @param level compression level
+   * @exception IllegalArgumentException if <code>level</code> is not
+   * from 0 to 9
+   */
+  public void setCompressionLevel(int level) {
+    if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("compression level must be from 0 to 9: " + level);
+    }
+    mLevel = level;
+  }
+
+  /**
+   * Returns the compression level.
+   *
+   * @return compression level
+   */
+  public int getCompressionLevel() {
+    return mLevel;
+  }
+
+  /**
+   * Sets the filter applied to each row.  Default is
+   * <code>NONE</code>, which is the fastest and compresses the large
+   * areas of flat color in graphs best.  <code>ADAPTIVE</code> may
+   * compress images with smooth gradients better.
+   *
+   * @param filter a filter
+   * @exception NullPointerException if <code>filter</code> is null
+   */
+  public void setFilter(Filter filter) {
+    if (filter == null) {
+      throw new NullPointerException("null filter given.");
+    }
+    mFilter = filter;
+  }
+
+  /**
+   * Returns the filter applied to each row.
+   *
+   * @return a filter
+   */
+  public Filter getFilter() {
+    return mFilter;
+  }
+
+  /**
+   * Sets whether images with 256 colors or fewer are written with a
+   * palette.  Default is true.
+   *
+   * @param flag true to write a palette when possible
+   */
+  public void setPalette(boolean flag) {
+    mPalette = flag;
+  }
+
+  /**
+   * Returns whether images with 256 colors or fewer are written with a
+   * palette.
+   *
+   * @return true if a palette is written when possible
+   */
+  public boolean isPalette() {
+    return mPalette;
+  }
+
+  /**
+   * Sets a pool to filter and compress images on.  Default is to
+   * encode on the calling thread.
+   *
+   * @param pool a fork join pool, or null to encode on the calling thread
+   */
+  public void setPool(ForkJoinPool pool) {
+    mPool = pool;
+  }
+
+  /**
+   * Returns the pool images are encoded on.
+   *
+   * @return a fork join pool, may be null
+   */
+  public ForkJoinPool getPool() {
+    return mPool;
+  }
+
+  /**
+   * Writes <code>image</code> to <code>os</code> in the PNG format.
+   *
+   * @param image image to write
+   * @param os stream to write to
+   * @exception IOException if writing fails
+   */
+  public void encode(BufferedImage image, OutputStream os) throws IOException {
+    if (image == null) {
+      throw new NullPointerException("null image given.");
+    }
+    if (os == null) {
+      throw new NullPointerException("null output stream given.");
+    }
+    final Scan scan = new Scan(image, mPalette);
+    final Filter filter = mFilter == Filter.ADAPTIVE && scan.mPaletteColors != null ? Filter.NONE : mFilter;
+    final byte[] data = new byte[scan.mHeight * (scan.mRowBytes + 1)];
+    final int bands = mPool == null ? 1 : Math.max(1, data.length / CHUNK_SIZE);
+    final int chunks = mPool == null ? 1 : (data.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    final List<RecursiveAction> filterTasks = new ArrayList<RecursiveAction>();
+    for (int b = 0; b < bands; b++) {
+      final int lo = (int) ((long) scan.mHeight * b / bands);
+      final int hi = (int) ((long) scan.mHeight * (b + 1) / bands);
+      filterTasks.add(new RecursiveAction() {
+          @Override
+          protected void compute() {
+            filterRows(scan, filter, lo, hi, data);
+          }
+        });
+    }
+    final DeflateTask[] deflateTasks = new DeflateTask[chunks];
+    for (int c = 0; c < chunks; c++) {
+      final int start = (int) ((long) data.length * c / chunks);
+      final int end = (int) ((long) data.length * (c + 1) / chunks);
+      deflateTasks[c] = new DeflateTask(data, start, end, end == data.length, mLevel);
+    }
+    // the zlib header, noting the compression level
+    deflateTasks[0].mOut.write(0x78);
+    deflateTasks[0].mOut.write(mLevel <= 1 ? 0x01 : mLevel <= 5 ? 0x5e : mLevel == 6 ? 0x9c : 0xda);
+    run(filterTasks);
+    final List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+    for (final DeflateTask task : deflateTasks) {
+      tasks.add(task);
+    }
+    run(tasks);
+
+    long adler = 1;
+    for (final DeflateTask task : deflateTasks) {
+      adler = combineAdler32(adler, task.mAdler, task.mEnd - task.mStart);
+    }
+    writeInt(deflateTasks[chunks - 1].mOut, (int) adler);
+
+    os.write(SIGNATURE);
+    final ByteArrayOutputStream header = new ByteArrayOutputStream();
+    writeInt(header, scan.mWidth);
+    writeInt(header, scan.mHeight);
+    header.write(scan.mDepth);
+    header.write(scan.mPaletteColors != null ? COLOR_PALETTE : scan.mAlpha ? COLOR_RGBA : COLOR_RGB);
+    header.write(0); // deflate compression
+    header.write(0); // adaptive filtering
+    header.write(0); // no interlace
+    writeChunk(os, "IHDR", header);
+    if (scan.mPaletteColors != null) {
+      final ByteArrayOutputStream palette = new ByteArrayOutputStream();
+      final ByteArrayOutputStream transparency = new ByteArrayOutputStream();
+      boolean translucent = false;
+      for (final int color : scan.mPaletteColors) {
+        palette.write(color >> 16);
+        palette.write(color >> 8);
+        palette.write(color);
+        transparency.write(color >>> 24);
+        translucent |= scan.mAlpha && (color >>> 24) != 0xff;
+      }
+      writeChunk(os, "PLTE", palette);
+      if (translucent) {
+        writeChunk(os, "tRNS", transparency);
+      }
+    }
+    // the zlib stream is split over one image data chunk per task
+    for (final DeflateTask task : deflateTasks) {
+      writeChunk(os, "IDAT", task.mOut);
+    }
+    writeChunk(os, "IEND", new ByteArrayOutputStream());
+  }
+
+  // runs the tasks on the pool, or in order on this thread
+  private void run(final List<RecursiveAction> tasks) {
+    if (mPool == null || tasks.size() == 1) {
+      for (final RecursiveAction task : tasks) {
+        task.invoke();
+      }
+    } else {
+      mPool.invoke(new RecursiveAction() {
+          @Override
+          protected void compute() {
+            invokeAll(tasks);
+          }
+        });
+    }
+  }
+
+  /** The pixels of an image and how they are laid out in rows of bytes. */
+  private static final class Scan {
+    final int mWidth;
+    final int mHeight;
+    final int[] mPixels;
+    final int mOffset;
+    final int mStride;
+    final boolean mAlpha;
+    /** colors in palette order, or null if written as true color */
+    final int[] mPaletteColors;
+    /** open addressing table from color to palette index */
+    final int[] mKeys;
+    final byte[] mIndexes;
+    final boolean[] mUsed;
+    final int mDepth;
+    final int mRowBytes;
+    /** bytes per complete pixel, for filtering */
+    final int mPixelBytes;
+
+    Scan(BufferedImage image, boolean palette) {
+      mWidth = image.getWidth();
+      mHeight = image.getHeight();
+      mAlpha = image.getColorModel().hasAlpha();
+      final int type = image.getType();
+      if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+          && image.getRaster().getDataBuffer() instanceof DataBufferInt
+          && image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+          && image.getRaster().getParent() == null) {
+        // read the pixels in place rather than converting a copy
+        mPixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        mOffset = image.getRaster().getDataBuffer().getOffset();
+        mStride = ((SinglePixelPackedSampleModel) image.getRaster().getSampleModel()).getScanlineStride();
+      } else {
+        mPixels = image.getRGB(0, 0, mWidth, mHeight, null, 0, mWidth);
+        mOffset = 0;
+        mStride = mWidth;
+      }
+      mKeys = new int[2 * MAX_PALETTE];
+      mIndexes = new byte[2 * MAX_PALETTE];
+      mUsed = new boolean[2 * MAX_PALETTE];
+      mPaletteColors = palette ? buildPalette() : null;
+      if (mPaletteColors != null) {
+        final int n = mPaletteColors.length;
+        mDepth = n <= 2 ? 1 : n <= 4 ? 2 : n <= 16 ? 4 : 8;
+        mRowBytes = (mWidth * mDepth + 7) / 8;
+        mPixelBytes = 1;
+      } else {
+        mDepth = 8;
+        mPixelBytes = mAlpha ? 4 : 3;
+        mRowBytes = mWidth * mPixelBytes;
+      }
+    }
+
+    int color(int index) {
+      return mAlpha ? mPixels[index] : mPixels[index] | 0xff000000;
+    }
+
+    private int slot(int color) {
+      int slot = (color * 0x9e3779b9) >>> 23;
+      while (mUsed[slot] && mKeys[slot] != color) {
+        slot = (slot + 1) & (mKeys.length - 1);
+      }
+      return slot;
+    }
+
+    // the distinct colors of the image, or null if there are too many
+    private int[] buildPalette() {
+      final int[] colors = new int[MAX_PALETTE];
+      int n = 0;
+      int last = 0;
+      boolean first = true;
+      for (int y = 0; y < mHeight; y++) {
+        final int row = mOffset + y * mStride;
+        for (int x = 0; x < mWidth; x++) {
+          final int color = color(row + x);
+          if (first || color != last) {
+            first = false;
+            last = color;
+            final int slot = slot(color);
+            if (!mUsed[slot]) {
+              if (n == MAX_PALETTE) {
+                return null;
+              }
+              mUsed[slot] = true;
+              mKeys[slot] = color;
+              mIndexes[slot] = (byte) n;
+              colors[n++] = color;
+            }
+          }
+        }
+      }
+      final int[] palette = new int[n];
+      System.arraycopy(colors, 0, palette, 0, n);
+      return palette;
+    }
+
+    // the unfiltered bytes of row y
+    void row(int y, byte[] dest) {
+      final int row = mOffset + y * mStride;
+      if (mPaletteColors != null) {
+        final int perByte = 8 / mDepth;
+        int last = 0;
+        int index = 0;
+        boolean first = true;
+        for (int x = 0, b = 0; x < mWidth; x += perByte, b++) {
+          int packed = 0;
+          for (int k = 0; k < perByte; k++) {
+            int value = 0;
+            if (x + k < mWidth) {
+              final int color = color(row + x + k);
+              if (first || color != last) {
+                first = false;
+                last = color;
+                index = mIndexes[slot(color)] & 0xff;
+              }
+              value = index;
+            }
+            packed = (packed << mDepth) | value;
+          }
+          dest[b] = (byte) packed;
+        }
+      } else {
+        for (int x = 0, b = 0; x < mWidth; x++) {
+          final int color = mPixels[row + x];
+          dest[b++] = (byte) (color >> 16);
+          dest[b++] = (byte) (color >> 8);
+          dest[b++] = (byte) color;
+          if (mAlpha) {
+            dest[b++] = (byte) (color >>> 24);
+          }
+        }
+      }
+    }
+  }
+
+  // filters rows lo to hi into data, each row preceded by its filter type
+  private static void filterRows(Scan scan, Filter filter, int lo, int hi, byte[] data) {
+    final int n = scan.mRowBytes;
+    byte[] prev = new byte[n];
+    byte[] cur = new byte[n];
+    if (lo > 0) {
+      scan.row(lo - 1, prev);
+    }
+    final byte[][] candidates = filter == Filter.ADAPTIVE ? new byte[Filter.ADAPTIVE.ordinal()][n] : null;
+    for (int y = lo; y < hi; y++) {
+      scan.row(y, cur);
+      final int pos = y * (n + 1);
+      if (candidates == null) {
+        data[pos] = (byte) filter.ordinal();
+        filter(filter, cur, prev, scan.mPixelBytes, data, pos + 1);
+      } else {
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int f = 0; f < candidates.length; f++) {
+          filter(Filter.values()[f], cur, prev, scan.mPixelBytes, candidates[f], 0);
+          long sum = 0;
+          for (final byte b : candidates[f]) {
+            sum += Math.abs(b);
+          }
+          if (sum < bestSum) {
+            best = f;
+            bestSum = sum;
+          }
+        }
+        data[pos] = (byte) best;
+        System.arraycopy(candidates[best], 0, data, pos + 1, n);
+      }
+      final byte[] t = prev;
+      prev = cur;
+      cur = t;
+    }
+  }
+
+  private static void filter(Filter filter, byte[] cur, byte[] prev, int bpp, byte[] dest, int pos) {
+    final int n = cur.length;
+    switch (filter) {
+    case NONE:
+      System.arraycopy(cur, 0, dest, pos, n);
+      break;
+    case SUB:
+      for (int i = 0; i < n; i++) {
+        dest[pos + i] = (byte) (cur[i] - (i >= bpp ? cur[i - bpp] : 0));
+      }
+      break;
+    case UP:
+      for (int i = 0; i < n; i++) {
+        dest[pos + i] = (byte) (cur[i] - prev[i]);
+      }
+      break;
+    case AVERAGE:
+      for (int i = 0; i < n; i++) {
+        final int left = i >= bpp ? cur[i - bpp] & 0xff : 0;
+        dest[pos + i] = (byte) (cur[i] - ((left + (prev[i] & 0xff)) >> 1));
+      }
+      break;
+    case PAETH:
+      for (int i = 0; i < n; i++) {
+        final int a = i >= bpp ? cur[i - bpp] & 0xff : 0;
+        final int b = prev[i] & 0xff;
+        final int c = i >= bpp ? prev[i - bpp] & 0xff : 0;
+        final int pa = Math.abs(b - c);
+        final int pb = Math.abs(a - c);
+        final int pc = Math.abs(a + b - 2 * c);
+        final int predictor = pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
+        dest[pos + i] = (byte) (cur[i] - predictor);
+      }
+      break;
+    default:
+      throw new RuntimeException("Programmer error");
+    }
+  }
+
+  /** Compresses a chunk of the filtered data as part of one deflate stream. */
+  private static final class DeflateTask extends RecursiveAction {
+    private final byte[] mData;
+    final int mStart;
+    final int mEnd;
+    private final boolean mLast;
+    private final int mLevel;
+    final ByteArrayOutputStream mOut = new ByteArrayOutputStream();
+    long mAdler = 1;
+
+    DeflateTask(byte[] data, int start, int end, boolean last, int level) {
+      mData = data;
+      mStart = start;
+      mEnd = end;
+      mLast = last;
+      mLevel = level;
+    }
+
+    @Override
+    protected void compute() {
+      final Adler32 adler = new Adler32();
+      adler.update(mData, mStart, mEnd - mStart);
+      mAdler = adler.getValue();
+      final Deflater deflater = new Deflater(mLevel, true);
+      try {
+        if (mStart > 0) {
+          final int primed = Math.min(WINDOW, mStart);
+          deflater.setDictionary(mData, mStart - primed, primed);
+        }
+        deflater.setInput(mData, mStart, mEnd - mStart);
+        final byte[] buffer = new byte[WINDOW];
+        if (mLast) {
+          deflater.finish();
+          while (!deflater.finished()) {
+            mOut.write(buffer, 0, deflater.deflate(buffer));
+          }
+        } else {
+          // end on a byte boundary without ending the stream, so the next chunk follows on
+          int n;
+          do {
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            mOut.write(buffer, 0, n);
+          } while (n == buffer.length);
+        }
+      } finally {
+        deflater.end();
+      }
+    }
+  }
+
+  // the Adler-32 checksum of two blocks of data from the checksums of each
+  static long combineAdler32(long adler1, long adler2, long length2) {
+    final long base = 65521;
+    final long rem = length2 % base;
+    long sum1 = adler1 & 0xffff;
+    long sum2 = (rem * sum1) % base;
+    sum1 += (adler2 & 0xffff) + base - 1;
+    sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff) + base - rem;
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum1 >= base) {
+      sum1 -= base;
+    }
+    if (sum2 >= base << 1) {
+      sum2 -= base << 1;
+    }
+    if (sum2 >= base) {
+      sum2 -= base;
+    }
+    return sum1 | (sum2 << 16);
+  }
+
+  private static void writeInt(OutputStream os, int value) throws IOException {
+    os.write(value >>> 24);
+    os.write(value >>> 16);
+    os.write(value >>> 8);
+    os.write(value);
+  }
+
+  private static void writeChunk(OutputStream os, String type, ByteArrayOutputStream data) throws IOException {
+    final byte[] bytes = data.toByteArray();
+    final byte[] name = type.getBytes("US-ASCII");
+    final CRC32 crc = new CRC32();
+    crc.update(name);
+    crc.update(bytes);
+    writeInt(os, bytes.length);
+    os.write(name);
+    os.write(bytes);
+    writeInt(os, (int) crc.getValue());
+  }
+}
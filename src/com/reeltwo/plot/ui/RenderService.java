@@ -0,0 +1,273 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Font;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+
+/**
+ * Renders graphs to encoded images on a pool of threads, such as for
+ * a server producing many charts at once.  A renderer keeps state
+ * while it draws, so each job is drawn by its own copy of a template
+ * renderer; settings made on the template after the service is
+ * created apply to jobs submitted afterwards.  The template is copied
+ * by <code>submit</code>, so must not be changed while another thread
+ * is submitting a job.  At most a fixed number
+ * of jobs may be waiting or running at once, and <code>submit</code>
+ * blocks until a job completes when there are that many, so a
+ * producer cannot get ahead of the renderers.  A graph must not be
+ * changed until its job is complete.<p>
+ *
+ * The jobs may be run by any executor, for example one running each
+ * task on its own virtual thread where the platform has them.
+ *
+ * @author Richard Littin
+ */
+public class RenderService {
+
+  /** Image formats a graph may be encoded in. */
+  public enum Format {
+    /** Portable Network Graphics */
+    PNG,
+    /** Scalable Vector Graphics */
+    SVG
+  }
+
+  /** An encoded image with the mappings used to draw it. */
+  public static final class Rendered {
+    private final byte[] mBytes;
+    private final Mapping[] mMapping;
+
+    Rendered(byte[] bytes, Mapping[] mapping) {
+      mBytes = bytes;
+      mMapping = mapping;
+    }
+
+    /**
+     * Returns the encoded image.
+     *
+     * @return image bytes
+     */
+    public byte[] getBytes() {
+      return mBytes;
+    }
+
+    /**
+     * Returns the world to screen mappings for each axis pair.
+     *
+     * @return an array of mappings
+     */
+    public Mapping[] getMapping() {
+      return mMapping;
+    }
+  }
+
+  private final GraphicsRenderer mTemplate;
+  private final ExecutorService mExecutor;
+  private final Semaphore mPending;
+  private final int mMaxPending;
+
+  /**
+   * Creates a service drawing jobs on <code>threads</code> daemon
+   * threads, with at most <code>maxPending</code> jobs waiting or
+   * running.
+   *
+   * @param template renderer whose settings are used for every job
+   * @param threads number of threads
+   * @param maxPending most jobs waiting or running at once
+   * @exception IllegalArgumentException if <code>threads</code> or
+   * <code>maxPending</code> is less than 1
+   */
+  public RenderService(GraphicsRenderer template, int threads, int maxPending) {
+    this(template, createPool(threads), maxPending);
+  }
+
+  /**
+   * Creates a service running jobs with <code>executor</code>, with at
+   * most <code>maxPending</code> jobs waiting or running.  The
+   * executor is shut down by <code>shutdown</code>.
+   *
+   * @param template renderer whose settings are used for every job
+   * @param executor runs the jobs
+   * @param maxPending most jobs waiting or running at once
+   * @exception NullPointerException if <code>template</code> or
+   * <code>executor</code> is null
+   * @exception IllegalArgumentException if <code>maxPending</code> is
+   * less than 1
+   */
+  public RenderService(GraphicsRenderer template, ExecutorService executor, int maxPending) {
+    if (template == null) {
+      throw new NullPointerException("null template given.");
+    }
+    if (executor == null) {
+      throw new NullPointerException("null executor given.");
+    }
+    if (maxPending < 1) {
+      throw new IllegalArgumentException("pending jobs must be at least 1: " + maxPending);
+    }
+    mTemplate = template;
+    mExecutor = executor;
+    mMaxPending = maxPending;
+    mPending = new Semaphore(maxPending);
+  }
+
+  private static ExecutorService createPool(int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("threads must be at least 1: " + threads);
+    }
+    return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+        private int mCount = 0;
+
+        @Override
+        public synchronized Thread newThread(Runnable r) {
+          final Thread thread = new Thread(r, "Graph render service " + ++mCount);
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+  }
+
+  /**
+   * Returns the most jobs that may be waiting or running at once.
+   *
+   * @return number of jobs
+   */
+  public int getMaxPending() {
+    return mMaxPending;
+  }
+
+  /**
+   * Returns the number of jobs waiting or running.
+   *
+   * @return number of jobs
+   */
+  public int getPending() {
+    return mMaxPending - mPending.availablePermits();
+  }
+
+  /**
+   * Submits a graph to be drawn and encoded, waiting until there is
+   * room for the job if the most jobs allowed are pending.
+   *
+   * @param format image format
+   * @param graph graph to draw
+   * @param width width of image
+   * @param height height of image
+   * @param font font to use in graph, may be null
+   * @return the encoded image when drawn
+   * @exception InterruptedException if interrupted while waiting for
+   * room
+   * @exception IllegalArgumentException if <code>width</code> or
+   * <code>height</code> is not positive
+   * @exception RejectedExecutionException if the service has been
+   * shut down
+   */
+  public Future<Rendered> submit(Format format, Graph2D graph, int width, int height, Font font) throws InterruptedException {
+    final Callable<Rendered> job = job(format, graph, width, height, font);
+    mPending.acquire();
+    return execute(job);
+  }
+
+  /**
+   * Submits a graph to be drawn and encoded, waiting at most
+   * <code>timeout</code> for room for the job.
+   *
+   * @param format image format
+   * @param graph graph to draw
+   * @param width width of image
+   * @param height height of image
+   * @param font font to use in graph, may be null
+   * @param timeout longest time to wait
+   * @param unit unit of <code>timeout</code>
+   * @return the encoded image when drawn, or null if there was no
+   * room in time
+   * @exception InterruptedException if interrupted while waiting for
+   * room
+   * @exception IllegalArgumentException if <code>width</code> or
+   * <code>height</code> is not positive
+   * @exception RejectedExecutionException if the service has been
+   * shut down
+   */
+  public Future<Rendered> submit(Format format, Graph2D graph, int width, int height, Font font, long timeout, TimeUnit unit) throws InterruptedException {
+    final Callable<Rendered> job = job(format, graph, width, height, font);
+    return mPending.tryAcquire(timeout, unit) ? execute(job) : null;
+  }
+
+  private Future<Rendered> execute(final Callable<Rendered> job) {
+    try {
+      return mExecutor.submit(new Callable<Rendered>() {
+          @Override
+          public Rendered call() throws Exception {
+            try {
+              return job.call();
+            } finally {
+              mPending.release();
+            }
+          }
+        });
+    } catch (final RejectedExecutionException ree) {
+      mPending.release();
+      throw ree;
+    }
+  }
+
+  private Callable<Rendered> job(final Format format, final Graph2D graph, final int width, final int height, final Font font) {
+    if (format == null) {
+      throw new NullPointerException("null format given.");
+    }
+    if (graph == null) {
+      throw new NullPointerException("null graph given.");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("dimensions must be greater than 0: " + width + "x" + height);
+    }
+    final GraphicsRenderer renderer = new GraphicsRenderer(mTemplate);
+    // interactive caches are tied to one display
+    renderer.setLayerCache(null);
+    renderer.setScrollBuffer(null);
+    return new Callable<Rendered>() {
+        @Override
+        public Rendered call() throws Exception {
+          final ImageWriter writer = new ImageWriter(renderer);
+          final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+          final Mapping[] mapping;
+          if (format == Format.SVG) {
+            mapping = writer.toSVG(bytes, graph, width, height, font);
+          } else {
+            mapping = writer.toPNG(bytes, graph, width, height, font);
+          }
+          return new Rendered(bytes.toByteArray(), mapping);
+        }
+      };
+  }
+
+  /**
+   * Stops accepting jobs.  Jobs already submitted are still drawn.
+   */
+  public void shutdown() {
+    mExecutor.shutdown();
+  }
+
+  /**
+   * Waits for the jobs submitted before <code>shutdown</code> to
+   * complete.
+   *
+   * @param timeout longest time to wait
+   * @param unit unit of <code>timeout</code>
+   * @return true if every job completed
+   * @exception InterruptedException if interrupted while waiting
+   */
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return mExecutor.awaitTermination(timeout, unit);
+  }
+}
@@ -0,0 +1,240 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+
+/**
+ * Draws graphs for a component on a background thread.  Each request
+ * is drawn into an off-screen image by a single worker thread, and
+ * the component is repainted when the image is complete.  A new
+ * request cancels any older request still being drawn, which stops
+ * before its next plot.  A request may be drawn progressively: first
+ * drawing a sample of the points of large plots, then drawing again
+ * with more points until every point is drawn, with each drawing
+ * shown as it completes.  All methods must be called on the Swing
+ * event thread.
+ *
+ * @author Richard Littin
+ */
+final class RenderWorker {
+
+  /** most points drawn in the first drawing of a progressive request */
+  static final int COARSE_POINTS = 100000;
+  /** factor the points drawn grows by in each drawing of a progressive request */
+  private static final int REFINEMENT = 8;
+
+  private final JComponent mComponent;
+  private final ExecutorService mExecutor;
+
+  /** state of the graph when last requested */
+  private List<Object> mRequestState = null;
+  /** renderer drawing the latest request */
+  private GraphicsRenderer mLatest = null;
+  private long mRequests = 0;
+
+  /** most recent completed frame */
+  private BufferedImage mFrame = null;
+  private Mapping[] mMapping = null;
+  private long mFrameRequest = 0;
+  /** a discarded frame the worker may draw into, guarded by this */
+  private BufferedImage mSpare = null;
+
+  /**
+   * Creates a worker that repaints <code>component</code> when a
+   * frame is complete.
+   *
+   * @param component component the frames are for
+   */
+  RenderWorker(JComponent component) {
+    mComponent = component;
+    mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          final Thread thread = new Thread(r, "Graph renderer");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+  }
+
+  /**
+   * Returns the stride that draws at most about
+   * <code>COARSE_POINTS</code> points of a graph.
+   *
+   * @param graph a graph, may be null
+   * @return a stride of at least 1
+   */
+  static int coarseStride(Graph2D graph) {
+    long points = 0;
+    if (graph != null) {
+      for (final Plot2D plot : graph.getPlots()) {
+        points += plot.getDataCount();
+      }
+    }
+    return (int) Math.max(1, (points + COARSE_POINTS - 1) / COARSE_POINTS);
+  }
+
+  // everything about a graph that changes what is drawn
+  private static List<Object> state(Graph2D graph, Color background, Font font, Dimension size, Insets insets) {
+    final List<Object> state = new ArrayList<Object>();
+    state.add(background);
+    state.add(font);
+    state.add(size);
+    state.add(insets);
+    state.add(graph);
+    if (graph != null) {
+      state.add(graph.getVersion());
+      for (final Plot2D plot : graph.getPlots()) {
+        state.add(plot);
+        state.add(plot.getVersion());
+      }
+    }
+    return state;
+  }
+
+  /**
+   * Requests a graph be drawn, unless it has not changed since last
+   * requested.  A frame drawn while the graph is changed on the event
+   * thread may be inconsistent, and is replaced by the frame drawn for
+   * the request made after the change.
+   *
+   * @param settings renderer whose settings to draw with
+   * @param graph the graph to draw, may be null
+   * @param background color to fill the image with
+   * @param font font to draw text in
+   * @param size size of the image to draw
+   * @param insets space to leave around the graph
+   * @param progressive whether to draw a sample of the points first
+   * @param force whether to draw even if the graph has not changed
+   */
+  void request(GraphicsRenderer settings, final Graph2D graph, final Color background, final Font font, final Dimension size, final Insets insets, final boolean progressive, boolean force) {
+    final List<Object> state = state(graph, background, font, size, insets);
+    if (!force && state.equals(mRequestState)) {
+      return;
+    }
+    mRequestState = state;
+    if (mLatest != null) {
+      mLatest.setCancelled(true);
+    }
+    final GraphicsRenderer renderer = new GraphicsRenderer(settings);
+    mLatest = renderer;
+    final long request = ++mRequests;
+    mExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          int stride = progressive ? coarseStride(graph) : 1;
+          while (!renderer.isCancelled()) {
+            renderer.setStride(stride);
+            draw(request, renderer, graph, background, font, size, insets);
+            if (stride == 1) {
+              break;
+            }
+            // a drawing with nearly every point costs nearly as much as the full drawing
+            stride = stride / REFINEMENT < REFINEMENT ? 1 : stride / REFINEMENT;
+          }
+        }
+      });
+  }
+
+  // draws one frame of a request on the worker thread
+  private void draw(final long request, GraphicsRenderer renderer, Graph2D graph, Color background, Font font, Dimension size, Insets insets) {
+    final BufferedImage image = takeSpare(size.width, size.height);
+    final Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(background);
+      g.fillRect(0, 0, size.width, size.height);
+      g.setFont(font);
+      renderer.drawGraph(graph, image, g, insets.left, insets.top, size.width - insets.left - insets.right, size.height - insets.top - insets.bottom);
+    } catch (final RuntimeException e) {
+      // a stale request may see the graph change under it
+      if (!renderer.isCancelled()) {
+        throw e;
+      }
+    } finally {
+      g.dispose();
+    }
+    if (renderer.isCancelled()) {
+      putSpare(image);
+      return;
+    }
+    final Mapping[] mapping = renderer.getMappings();
+    SwingUtilities.invokeLater(new Runnable() {
+        @Override
+        public void run() {
+          show(request, image, mapping);
+        }
+      });
+  }
+
+  private synchronized BufferedImage takeSpare(int width, int height) {
+    final BufferedImage spare = mSpare;
+    mSpare = null;
+    if (spare != null && spare.getWidth() == width && spare.getHeight() == height) {
+      return spare;
+    }
+    return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+  }
+
+  private synchronized void putSpare(BufferedImage image) {
+    mSpare = image;
+  }
+
+  private void show(long request, BufferedImage image, Mapping[] mapping) {
+    if (request < mFrameRequest) {
+      putSpare(image);
+      return;
+    }
+    if (mFrame != null) {
+      putSpare(mFrame);
+    }
+    mFrame = image;
+    mMapping = mapping;
+    mFrameRequest = request;
+    mComponent.repaint();
+  }
+
+  /**
+   * Returns the most recent completed frame.
+   *
+   * @return an image, or null if no frame is complete
+   */
+  BufferedImage getFrame() {
+    return mFrame;
+  }
+
+  /**
+   * Returns the axis mappings of the most recent completed frame.
+   *
+   * @return mappings, or null
+   */
+  Mapping[] getMapping() {
+    return mMapping;
+  }
+
+  /**
+   * Cancels any drawing and stops the worker thread.
+   */
+  void shutdown() {
+    if (mLatest != null) {
+      mLatest.setCancelled(true);
+    }
+    mExecutor.shutdown();
+  }
+}
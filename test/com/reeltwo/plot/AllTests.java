@@ -24,9 +24,12 @@ public class AllTests extends TestSuite {
     suite.addTest(BWPlot2DTest.suite());
     suite.addTest(Circle2DTest.suite());
     suite.addTest(CirclePlot2DTest.suite());
+    suite.addTest(ColumnData2DTest.suite());
     suite.addTest(CurvePlot2DTest.suite());
     suite.addTest(DefaultFormatterTest.suite());
+    suite.addTest(DelimitedReaderTest.suite());
     suite.addTest(Graph2DTest.suite());
+    suite.addTest(MappedData2DTest.suite());
     suite.addTest(PlotUtilsTest.suite());
     suite.addTest(Point2DTest.suite());
     suite.addTest(PointPlot2DTest.suite());
@@ -34,9 +37,12 @@ public class AllTests extends TestSuite {
     suite.addTest(TextPoint2DTest.suite());
     suite.addTest(ScatterPlot2DTest.suite());
     suite.addTest(ScatterPoint2DTest.suite());
+    suite.addTest(StreamingData2DTest.suite());
 
     suite.addTest(com.reeltwo.plot.patterns.AllTests.suite());
     suite.addTest(com.reeltwo.plot.renderer.AllTests.suite());
+    suite.addTest(com.reeltwo.plot.sampling.AllTests.suite());
+    suite.addTest(com.reeltwo.plot.ui.AllTests.suite());
 
     return suite;
   }
@@ -0,0 +1,203 @@
+package com.reeltwo.plot;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the ColumnData2D class and columnar plot data.
+ *
+ * @author Richard Littin
+ */
+public class ColumnData2DTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public ColumnData2DTest(String name) {
+    super(name);
+  }
+
+
+  public void testColumns() {
+    final float[] xs = {1, 2, 3};
+    final float[] ys = {4, -5, 6};
+    final ColumnData2D data = new ColumnData2D(xs, ys);
+    assertEquals(3, data.size());
+    assertTrue(data.hasColumn(Column.X));
+    assertTrue(data.hasColumn(Column.Y));
+    assertFalse(data.hasColumn(Column.X2));
+    assertFalse(data.hasColumn(Column.OBJECT));
+    assertTrue(data.getColumn(Column.X) == xs);
+    assertEquals(2.0f, data.get(Column.X, 1), 0.0f);
+    assertEquals(-5.0f, data.get(Column.Y, 1), 0.0f);
+    assertNull(data.getObject(0));
+
+    final float[] dest = new float[4];
+    data.get(Column.Y, 1, dest, 2, 2);
+    assertEquals(-5.0f, dest[2], 0.0f);
+    assertEquals(6.0f, dest[3], 0.0f);
+
+    try {
+      data.get(Column.X2, 0);
+      fail("got value of missing column.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+
+    data.setObjects(new String[] {"a", "b", "c"});
+    assertTrue(data.hasColumn(Column.OBJECT));
+    assertEquals("c", data.getObject(2));
+    data.setColumn(Column.X, null);
+    assertFalse(data.hasColumn(Column.X));
+  }
+
+  public void testValidation() {
+    try {
+      new ColumnData2D(-1);
+      fail("accepted negative size.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    try {
+      new ColumnData2D(new float[2], new float[3]);
+      fail("accepted columns of differing length.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    final ColumnData2D data = new ColumnData2D(3);
+    try {
+      data.setColumn(Column.X, new float[2]);
+      fail("accepted short column.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    try {
+      data.setColumn(Column.OBJECT, new float[3]);
+      fail("accepted numeric object column.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    try {
+      data.setObjects(new Object[2]);
+      fail("accepted short object column.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testBounds() {
+    final float[] xs = {1, 2, 3};
+    final float[] ys = {4, -5, 6};
+    final ColumnData2D data = new ColumnData2D(xs, ys);
+    assertEquals(1.0f, data.getLo(Axis.X), 0.0f);
+    assertEquals(3.0f, data.getHi(Axis.X), 0.0f);
+    assertEquals(-5.0f, data.getLo(Axis.Y), 0.0f);
+    assertEquals(6.0f, data.getHi(Axis.Y), 0.0f);
+
+    data.setColumn(Column.Y2, new float[] {0, 10, 0});
+    assertEquals(-5.0f, data.getLo(Axis.Y), 0.0f);
+    assertEquals(10.0f, data.getHi(Axis.Y), 0.0f);
+
+    xs[0] = -7;
+    assertEquals(1.0f, data.getLo(Axis.X), 0.0f);
+    data.invalidateBounds();
+    assertEquals(-7.0f, data.getLo(Axis.X), 0.0f);
+
+    // non axis columns do not affect bounds
+    data.setColumn(Column.DIAMETER, new float[] {100, 100, 100});
+    assertEquals(10.0f, data.getHi(Axis.Y), 0.0f);
+
+    final ColumnData2D empty = new ColumnData2D(0);
+    assertEquals(0.0f, empty.getLo(Axis.X), 0.0f);
+    assertEquals(0.0f, empty.getHi(Axis.Y), 0.0f);
+  }
+
+  public void testPlotData() {
+    final PointPlot2D plot = new PointPlot2D();
+    final ColumnData2D data = new ColumnData2D(new float[] {1, 2, 3}, new float[] {4, -5, 6});
+    plot.setData(data);
+    assertTrue(plot.getDataSource() == data);
+    assertEquals(3, plot.getDataCount());
+    assertEquals(1.0f, plot.getLo(Axis.X), 0.0f);
+    assertEquals(3.0f, plot.getHi(Axis.X), 0.0f);
+    assertEquals(-5.0f, plot.getLo(Axis.Y), 0.0f);
+    assertEquals(6.0f, plot.getHi(Axis.Y), 0.0f);
+
+    final Datum2D[] points = plot.getData();
+    assertTrue(points instanceof Point2D[]);
+    assertEquals(3, points.length);
+    assertEquals(-5.0f, ((Point2D) points[1]).getY(), 0.0f);
+
+    data.getColumn(Column.Y)[1] = Float.NaN;
+    data.invalidateBounds();
+    try {
+      plot.setData(data);
+      fail("accepted NaN data.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+
+    plot.setData((DataSource2D) null);
+    assertEquals(0, plot.getDataCount());
+    assertNull(plot.getData());
+  }
+
+  public void testPlotColumns() {
+    final BoxPlot2D plot = new BoxPlot2D();
+    final ColumnData2D data = new ColumnData2D(new float[] {1, 5}, new float[] {2, 6});
+    try {
+      plot.setData(data);
+      fail("accepted data without box columns.");
+    } catch (final UnsupportedOperationException uoe) {
+      ; // should get here
+    }
+    data.setColumn(Column.X2, new float[] {3, 7});
+    data.setColumn(Column.Y2, new float[] {4, 8});
+    plot.setData(data);
+    assertEquals(8.0f, plot.getHi(Axis.Y), 0.0f);
+    final Datum2D[] boxes = plot.getData();
+    assertTrue(boxes instanceof Box2D[]);
+    assertEquals(7.0f, ((Box2D) boxes[1]).getRight(), 0.0f);
+
+    try {
+      new NotePlot2D().setData(data);
+      fail("note plot accepted data source.");
+    } catch (final UnsupportedOperationException uoe) {
+      ; // should get here
+    }
+  }
+
+  public void testDatumSource() {
+    final BWPlot2D plot = new BWPlot2D();
+    final BWPoint2D[] data = {new BWPoint2D(1, 2, 3, 4, 5, 6), new BWPoint2D(2, 0, 1, 2, 3, 9)};
+    plot.setData(data);
+    assertTrue(plot.getData() == data);
+    final DataSource2D source = plot.getDataSource();
+    assertEquals(2, source.size());
+    assertTrue(source.hasColumn(Column.MEDIAN));
+    assertFalse(source.hasColumn(Column.DIAMETER));
+    assertEquals(4.0f, source.get(Column.MEDIAN, 0), 0.0f);
+    assertEquals(9.0f, source.get(Column.Y2, 1), 0.0f);
+    assertEquals(0.0f, source.getLo(Axis.Y), 0.0f);
+    assertEquals(9.0f, source.getHi(Axis.Y), 0.0f);
+
+    final TextPlot2D tplot = new TextPlot2D();
+    tplot.setData(new TextPoint2D[] {new TextPoint2D(1, 2, "hello")});
+    assertEquals("hello", tplot.getDataSource().getObject(0));
+    assertEquals(1, tplot.getDataCount());
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(ColumnData2DTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,190 @@
+package com.reeltwo.plot;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the DelimitedReader class.
+ *
+ * @author Richard Littin
+ */
+public class DelimitedReaderTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public DelimitedReaderTest(String name) {
+    super(name);
+  }
+
+  private static ColumnData2D read(DelimitedReader reader, String text) throws IOException {
+    return reader.read(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  public void testRead() throws IOException {
+    final DelimitedReader reader = new DelimitedReader(',');
+    reader.setColumn(2, Column.X);
+    reader.setColumn(1, Column.Y);
+    reader.setColumn(0, Column.OBJECT);
+    reader.setSkipLines(1);
+    assertEquals(Column.X, reader.getColumn(2));
+    assertNull(reader.getColumn(3));
+
+    final ColumnData2D data = read(reader, "name,y,x,ignored\n"
+      + "a,1.5,-2e3,zz\r\n"
+      + "\n"
+      + " \"b c\" , \"7\" ,.25\n"
+      + "d,-0,12345678901234567890");
+    assertEquals(3, data.size());
+    assertTrue(data.hasColumn(Column.X));
+    assertTrue(data.hasColumn(Column.Y));
+    assertTrue(data.hasColumn(Column.OBJECT));
+    assertFalse(data.hasColumn(Column.X2));
+    assertEquals(-2000.0f, data.get(Column.X, 0), 0.0f);
+    assertEquals(0.25f, data.get(Column.X, 1), 0.0f);
+    assertEquals(1.2345679e19f, data.get(Column.X, 2), 1e12f);
+    assertEquals(1.5f, data.get(Column.Y, 0), 0.0f);
+    assertEquals(7.0f, data.get(Column.Y, 1), 0.0f);
+    assertEquals("a", data.getObject(0));
+    assertEquals("b c", data.getObject(1));
+    assertEquals(-2000.0f, data.getLo(Axis.X), 0.0f);
+
+    // moving a column to another field
+    reader.setColumn(3, Column.X);
+    assertNull(reader.getColumn(2));
+    final DelimitedReader tabs = new DelimitedReader('\t');
+    tabs.setColumn(0, Column.X);
+    tabs.setColumn(1, Column.Y);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(read(tabs, "1\t2\n3\t4\n"));
+    assertEquals(2, plot.getDataCount());
+    assertEquals(4.0f, plot.getHi(Axis.Y), 0.0f);
+  }
+
+  public void testErrors() throws IOException {
+    final DelimitedReader reader = new DelimitedReader(',');
+    reader.setColumn(0, Column.X);
+    reader.setColumn(2, Column.Y);
+    try {
+      read(reader, "1,2,3\n4,5\n");
+      fail("accepted missing field.");
+    } catch (final IOException ioe) {
+      assertEquals("Line 2: found 2 fields, need 3", ioe.getMessage());
+    }
+    try {
+      read(reader, "1,2,3\n\n4,5,6\n7x,8,9\n");
+      fail("accepted invalid number.");
+    } catch (final IOException ioe) {
+      assertEquals("Line 4: invalid number \"7x\" in field 1", ioe.getMessage());
+    }
+    try {
+      read(reader, "1,2,\n");
+      fail("accepted empty number.");
+    } catch (final IOException ioe) {
+      assertTrue(ioe.getMessage().startsWith("Line 1: invalid number"));
+    }
+    try {
+      new DelimitedReader('"');
+      fail("accepted quote delimiter.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    try {
+      reader.setColumn(-1, Column.X);
+      fail("accepted negative field.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testParseFloat() {
+    final String[] texts = {"0", "-0.0", "+3", "1.", ".5", "3.14159265358979", "1e10", "1E-10", "-2.5e+3",
+                            "0.000001234", "123456789012345678901234", "1e-30", "1e38", "1e39", "NaN", "-Infinity",
+                            "0.1", "16777217", "3.4028235e38", "1.4e-45"};
+    for (final String text : texts) {
+      final byte[] b = ("[" + text + "]").getBytes(StandardCharsets.US_ASCII);
+      assertEquals(text, Float.valueOf(Float.parseFloat(text)), Float.valueOf(DelimitedReader.parseFloat(b, 1, b.length - 1)));
+    }
+    final Random random = new Random(42);
+    for (int i = 0; i < 10000; i++) {
+      final String text = Double.toString((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20));
+      final byte[] b = text.getBytes(StandardCharsets.US_ASCII);
+      final float expected = Float.parseFloat(text);
+      assertEquals(text, expected, DelimitedReader.parseFloat(b, 0, b.length), Math.ulp(expected));
+    }
+    for (final String text : new String[] {"", "-", "1e", "1.2.3", "e5", "1,0"}) {
+      final byte[] b = text.getBytes(StandardCharsets.US_ASCII);
+      try {
+        DelimitedReader.parseFloat(b, 0, b.length);
+        fail("parsed \"" + text + "\"");
+      } catch (final NumberFormatException nfe) {
+        ; // should get here
+      }
+    }
+  }
+
+  public void testParts() throws IOException {
+    final StringBuilder sb = new StringBuilder("x,y\n");
+    for (int i = 0; i < 1000; i++) {
+      sb.append(i).append(',').append(i % 17 * 0.5).append(i % 100 == 0 ? "\r\n\n" : "\n");
+    }
+    final File file = File.createTempFile("delimited", ".csv");
+    try {
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+        out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+      } finally {
+        out.close();
+      }
+      final DelimitedReader reader = new DelimitedReader(',');
+      reader.setColumn(0, Column.X);
+      reader.setColumn(1, Column.Y);
+      reader.setSkipLines(1);
+      reader.setThreads(5);
+      reader.setPartSize(100);
+      final ColumnData2D data = reader.read(file);
+      assertEquals(1000, data.size());
+      for (int i = 0; i < 1000; i++) {
+        assertEquals(i, data.get(Column.X, i), 0.0f);
+        assertEquals(i % 17 * 0.5f, data.get(Column.Y, i), 0.0f);
+      }
+
+      // line numbers count the lines of earlier parts
+      sb.append("1,oops\n");
+      out = new FileOutputStream(file);
+      try {
+        out.write(sb.toString().getBytes(StandardCharsets.US_ASCII));
+      } finally {
+        out.close();
+      }
+      try {
+        reader.read(file);
+        fail("accepted invalid number.");
+      } catch (final IOException ioe) {
+        assertEquals("Line 1012: invalid number \"oops\" in field 2", ioe.getMessage());
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(DelimitedReaderTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
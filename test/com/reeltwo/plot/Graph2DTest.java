@@ -182,6 +182,22 @@ public class Graph2DTest extends TestCase {
   }
 
 
+  public void testClone() throws CloneNotSupportedException {
+    final Graph2D graph = new Graph2D();
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new Point2D[]{new Point2D(0, 0), new Point2D(1, 1)});
+    graph.addPlot(plot);
+    final Graph2D copy = (Graph2D) graph.clone();
+    assertEquals(1, copy.getPlots().length);
+    assertEquals(graph.getHi(Axis.Y, Edge.MAIN), copy.getHi(Axis.Y, Edge.MAIN), PRECISION);
+
+    // the original follows changes to its plots, the copy is a snapshot
+    plot.setData(new Point2D[]{new Point2D(0, 0), new Point2D(1, 100)});
+    assertTrue(graph.getHi(Axis.Y, Edge.MAIN) >= 100.0f);
+    assertTrue(copy.getHi(Axis.Y, Edge.MAIN) < 100.0f);
+  }
+
+
   public void testConstants() {
     assertEquals(Edge.MAIN, Graph2D.ONE);
     assertEquals(Edge.ALTERNATE, Graph2D.TWO);
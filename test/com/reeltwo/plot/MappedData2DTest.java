@@ -0,0 +1,173 @@
+package com.reeltwo.plot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the MappedData2D class.
+ *
+ * @author Richard Littin
+ */
+public class MappedData2DTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public MappedData2DTest(String name) {
+    super(name);
+  }
+
+  private File mFile;
+
+  @Override
+  public void setUp() throws IOException {
+    mFile = File.createTempFile("mapped", ".bin");
+  }
+
+  @Override
+  public void tearDown() {
+    mFile.delete();
+  }
+
+  // writes little endian pairs of x and y values
+  private void write(boolean doubles, float[] xs, float[] ys) throws IOException {
+    final ByteBuffer bytes = ByteBuffer.allocate(xs.length * (doubles ? 16 : 8)).order(ByteOrder.LITTLE_ENDIAN);
+    for (int i = 0; i < xs.length; i++) {
+      if (doubles) {
+        bytes.putDouble(xs[i]).putDouble(ys[i]);
+      } else {
+        bytes.putFloat(xs[i]).putFloat(ys[i]);
+      }
+    }
+    final FileOutputStream out = new FileOutputStream(mFile);
+    try {
+      out.write(bytes.array());
+    } finally {
+      out.close();
+    }
+  }
+
+  public void testValues() throws IOException {
+    for (final boolean doubles : new boolean[] {false, true}) {
+      write(doubles, new float[] {1, 2, 3}, new float[] {4, -5, 6.5f});
+      final MappedData2D data = new MappedData2D(mFile, doubles);
+      assertEquals(doubles, data.isDoubles());
+      assertEquals(3, data.size());
+      assertTrue(data.hasColumn(Column.X));
+      assertTrue(data.hasColumn(Column.Y));
+      assertFalse(data.hasColumn(Column.X2));
+      assertFalse(data.hasColumn(Column.OBJECT));
+      assertEquals(2.0f, data.get(Column.X, 1), 0.0f);
+      assertEquals(6.5f, data.get(Column.Y, 2), 0.0f);
+      assertNull(data.getObject(0));
+      final float[] dest = new float[4];
+      data.get(Column.Y, 1, dest, 2, 2);
+      assertEquals(-5.0f, dest[2], 0.0f);
+      assertEquals(6.5f, dest[3], 0.0f);
+
+      assertEquals(1.0f, data.getLo(Axis.X), 0.0f);
+      assertEquals(3.0f, data.getHi(Axis.X), 0.0f);
+      assertEquals(-5.0f, data.getLo(Axis.Y), 0.0f);
+      assertEquals(6.5f, data.getHi(Axis.Y), 0.0f);
+      assertTrue(data.isSortedX());
+
+      try {
+        data.get(Column.X2, 0);
+        fail("got value of missing column.");
+      } catch (final IllegalArgumentException iae) {
+        ; // should get here
+      }
+      try {
+        data.get(Column.X, 3);
+        fail("got value past end.");
+      } catch (final IndexOutOfBoundsException ioobe) {
+        ; // should get here
+      }
+    }
+  }
+
+  public void testChunks() throws IOException {
+    final int n = 37;
+    final float[] xs = new float[n];
+    final float[] ys = new float[n];
+    for (int i = 0; i < n; i++) {
+      xs[i] = i / 2;
+      ys[i] = (i * 7) % 11 - 3;
+    }
+    write(false, xs, ys);
+    // chunks of 4 points
+    MappedData2D data = new MappedData2D(mFile, false, 2);
+    for (int i = 0; i < n; i++) {
+      assertEquals(xs[i], data.get(Column.X, i), 0.0f);
+      assertEquals(ys[i], data.get(Column.Y, i), 0.0f);
+    }
+    final float[] dest = new float[n];
+    data.get(Column.Y, 3, dest, 1, n - 3);
+    for (int i = 3; i < n; i++) {
+      assertEquals(ys[i], dest[i - 2], 0.0f);
+    }
+    assertTrue(data.isSortedX());
+    assertEquals(0.0f, data.getLo(Axis.X), 0.0f);
+    assertEquals(18.0f, data.getHi(Axis.X), 0.0f);
+    assertEquals(-3.0f, data.getLo(Axis.Y), 0.0f);
+    assertEquals(7.0f, data.getHi(Axis.Y), 0.0f);
+
+    // out of order only across the boundary between two chunks
+    xs[8] = xs[7] - 1;
+    for (int i = 9; i < n; i++) {
+      xs[i] = xs[8] + i;
+    }
+    write(false, xs, ys);
+    data = new MappedData2D(mFile, false, 2);
+    assertFalse(data.isSortedX());
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(data);
+    assertFalse(plot.isSortedX());
+    assertEquals(xs[n - 1], plot.getHi(Axis.X), 0.0f);
+  }
+
+  public void testEmptyAndInvalid() throws IOException {
+    final MappedData2D empty = new MappedData2D(mFile, true);
+    assertEquals(0, empty.size());
+    assertTrue(empty.isSortedX());
+    assertEquals(0.0f, empty.getLo(Axis.X), 0.0f);
+    assertEquals(0.0f, empty.getHi(Axis.Y), 0.0f);
+
+    write(false, new float[] {1, 2, 3}, new float[] {4, 5, 6});
+    try {
+      new MappedData2D(mFile, true);
+      fail("accepted partial pair.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+
+    write(false, new float[] {1, Float.NaN}, new float[] {4, 5});
+    final MappedData2D data = new MappedData2D(mFile, false, 0);
+    assertTrue(Float.isNaN(data.getHi(Axis.X)));
+    try {
+      new PointPlot2D().setData(data);
+      fail("accepted NaN data.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(MappedData2DTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,182 @@
+package com.reeltwo.plot;
+
+import java.util.Random;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the StreamingData2D class.
+ *
+ * @author Richard Littin
+ */
+public class StreamingData2DTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public StreamingData2DTest(String name) {
+    super(name);
+  }
+
+
+  private static class CountingListener implements BoundsListener {
+    int mCount = 0;
+
+    @Override
+    public void boundsChanged(DataSource2D source) {
+      mCount++;
+    }
+  }
+
+  public void testAppend() {
+    final StreamingData2D data = new StreamingData2D(3);
+    assertEquals(3, data.getCapacity());
+    assertEquals(0, data.size());
+    assertEquals(0.0f, data.getLo(Axis.Y), 0.0f);
+    assertTrue(data.hasColumn(Column.X));
+    assertTrue(data.hasColumn(Column.Y));
+    assertFalse(data.hasColumn(Column.X2));
+
+    for (int i = 0; i < 5; i++) {
+      data.append(i, 10 * i);
+    }
+    assertEquals(3, data.size());
+    assertEquals(2.0f, data.get(Column.X, 0), 0.0f);
+    assertEquals(40.0f, data.get(Column.Y, 2), 0.0f);
+    assertNull(data.getObject(0));
+    final float[] dest = new float[4];
+    data.get(Column.Y, 0, dest, 1, 3);
+    assertEquals(20.0f, dest[1], 0.0f);
+    assertEquals(30.0f, dest[2], 0.0f);
+    assertEquals(40.0f, dest[3], 0.0f);
+    assertEquals(2.0f, data.getLo(Axis.X), 0.0f);
+    assertEquals(4.0f, data.getHi(Axis.X), 0.0f);
+    assertEquals(20.0f, data.getLo(Axis.Y), 0.0f);
+    assertEquals(40.0f, data.getHi(Axis.Y), 0.0f);
+
+    try {
+      data.get(Column.X, 3);
+      fail();
+    } catch (final IndexOutOfBoundsException e) {
+      ; // expected
+    }
+    try {
+      data.append(Float.NaN, 0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      ; // expected
+    }
+    try {
+      new StreamingData2D(0);
+      fail();
+    } catch (final IllegalArgumentException e) {
+      ; // expected
+    }
+
+    data.clear();
+    assertEquals(0, data.size());
+    assertEquals(0.0f, data.getHi(Axis.X), 0.0f);
+  }
+
+  public void testBounds() {
+    final int capacity = 17;
+    final StreamingData2D data = new StreamingData2D(capacity);
+    final float[] xs = new float[1000];
+    final float[] ys = new float[1000];
+    final Random random = new Random(3);
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = random.nextInt(50);
+      ys[i] = (float) random.nextGaussian();
+      data.append(xs[i], ys[i]);
+      float xLo = Float.MAX_VALUE;
+      float xHi = -Float.MAX_VALUE;
+      float yLo = Float.MAX_VALUE;
+      float yHi = -Float.MAX_VALUE;
+      boolean sorted = true;
+      for (int j = Math.max(0, i - capacity + 1); j <= i; j++) {
+        xLo = Math.min(xLo, xs[j]);
+        xHi = Math.max(xHi, xs[j]);
+        yLo = Math.min(yLo, ys[j]);
+        yHi = Math.max(yHi, ys[j]);
+        sorted &= j == Math.max(0, i - capacity + 1) || xs[j] >= xs[j - 1];
+      }
+      assertEquals(xLo, data.getLo(Axis.X), 0.0f);
+      assertEquals(xHi, data.getHi(Axis.X), 0.0f);
+      assertEquals(yLo, data.getLo(Axis.Y), 0.0f);
+      assertEquals(yHi, data.getHi(Axis.Y), 0.0f);
+      assertEquals(sorted, data.isSortedX());
+    }
+  }
+
+  public void testListener() {
+    final StreamingData2D data = new StreamingData2D(10);
+    final CountingListener listener = new CountingListener();
+    data.addBoundsListener(listener);
+    data.append(0, 5);
+    assertEquals(1, listener.mCount);
+    data.append(0, 3);
+    assertEquals(2, listener.mCount);
+    data.append(0, 4); // within bounds
+    assertEquals(2, listener.mCount);
+    data.removeBoundsListener(listener);
+    data.append(1, 4);
+    assertEquals(2, listener.mCount);
+  }
+
+  public void testGraph() {
+    final StreamingData2D data = new StreamingData2D(5);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(data);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    for (int i = 0; i < 10; i++) {
+      data.append(i, i < 5 ? 100 : 2);
+    }
+    assertEquals(5.0f, plot.getLo(Axis.X), 0.0f);
+    assertEquals(9.0f, plot.getHi(Axis.X), 0.0f);
+    assertEquals(2.0f, plot.getHi(Axis.Y), 0.0f);
+    assertTrue(plot.isSortedX());
+    // the 100s have been evicted so the auto range shrinks
+    assertTrue(graph.getHi(Axis.Y, Edge.MAIN) < 100.0f);
+    assertTrue(graph.getHi(Axis.X, Edge.MAIN) >= 9.0f);
+    data.append(0, 1);
+    assertFalse(plot.isSortedX());
+
+    // replacing the data stops the plot listening to it
+    plot.setData(new ColumnData2D(new float[] {0, 1}, new float[] {0, 1}));
+    data.append(1000, 1000);
+    assertEquals(1.0f, plot.getHi(Axis.X), 0.0f);
+    assertTrue(graph.getHi(Axis.X, Edge.MAIN) < 1000.0f);
+  }
+
+  public void testSwitchToPoints() {
+    final StreamingData2D data = new StreamingData2D(5);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(data);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    data.append(1, 1);
+
+    // replacing a stream with points stops the plot listening to it
+    plot.setData(new Point2D[] {new Point2D(0, 0), new Point2D(2, 2)});
+    data.append(50, 500);
+    assertEquals(2.0f, plot.getHi(Axis.X), 0.0f);
+    assertEquals(2.0f, plot.getHi(Axis.Y), 0.0f);
+    assertTrue(graph.getHi(Axis.Y, Edge.MAIN) < 500.0f);
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(StreamingData2DTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
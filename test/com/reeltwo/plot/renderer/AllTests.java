@@ -16,7 +16,11 @@ public class AllTests extends TestSuite {
   public static Test suite() {
     final TestSuite suite = new TestSuite();
 
+    suite.addTest(GraphicsRendererTest.suite());
+    suite.addTest(HitIndexTest.suite());
     suite.addTest(MappingTest.suite());
+    suite.addTest(SvgRendererTest.suite());
+    suite.addTest(TextRendererTest.suite());
     return suite;
   }
 
@@ -0,0 +1,658 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Box2D;
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.Circle2D;
+import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.CurvePlot2D;
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Plot2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.ScatterPlot2D;
+import com.reeltwo.plot.ScatterPoint2D;
+import com.reeltwo.plot.StreamingData2D;
+import com.reeltwo.plot.ui.ImageWriter;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the GraphicsRenderer class.
+ *
+ * @author Richard Littin
+ */
+public class GraphicsRendererTest extends TestCase {
+
+  private static final int WIDTH = 200;
+  private static final int HEIGHT = 100;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public GraphicsRendererTest(String name) {
+    super(name);
+  }
+
+
+  private static ColumnData2D randomWalk(int size, boolean sorted) {
+    final Random random = new Random(42);
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    float y = 0.0f;
+    for (int i = 0; i < size; i++) {
+      xs[i] = sorted ? i : random.nextFloat() * size;
+      y += random.nextGaussian();
+      ys[i] = y;
+    }
+    return new ColumnData2D(xs, ys);
+  }
+
+  private static Mapping mapX(PointPlot2D plot) {
+    return new Mapping(plot.getLo(Axis.X), plot.getHi(Axis.X), 0, WIDTH - 1);
+  }
+
+  private static Mapping mapY(PointPlot2D plot) {
+    return new Mapping(plot.getLo(Axis.Y), plot.getHi(Axis.Y), HEIGHT - 1, 0);
+  }
+
+  private static BufferedImage draw(PointPlot2D plot) {
+    return draw(plot, mapX(plot));
+  }
+
+  private static BufferedImage draw(PointPlot2D plot, Mapping convertX) {
+    return draw(new GraphicsRenderer(), plot, convertX, mapY(plot));
+  }
+
+  private static BufferedImage draw(GraphicsRenderer renderer, PointPlot2D plot, Mapping convertX, Mapping convertY) {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    renderer.drawPointPlot(g, plot, convertX, convertY);
+    g.dispose();
+    return image;
+  }
+
+  private static void checkSame(BufferedImage expected, BufferedImage actual) {
+    for (int y = 0; y < expected.getHeight(); y++) {
+      for (int x = 0; x < expected.getWidth(); x++) {
+        assertEquals("pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+      }
+    }
+  }
+
+  public void testPoly() {
+    final AbstractRenderer.Poly poly = new AbstractRenderer.Poly();
+    for (int i = 0; i < 100; i++) {
+      poly.addPoint(i, -i);
+      poly.addPoint(i, -i); // redundant points are dropped
+    }
+    assertEquals(100, poly.getSize());
+    assertTrue(poly.getXBuffer().length >= 100);
+    final int[] ys = poly.getYs();
+    assertEquals(100, ys.length);
+    assertEquals(-99, ys[99]);
+    poly.reset();
+    assertEquals(0, poly.getSize());
+    poly.addPoint(99, -99);
+    assertEquals(1, poly.getSize());
+    poly.trim();
+    assertEquals(0, poly.getSize());
+    assertTrue(poly.getXBuffer().length >= 100);
+
+    for (int i = 0; i <= AbstractRenderer.Poly.MAX_RETAINED; i++) {
+      poly.addPoint(i, i);
+    }
+    poly.trim();
+    assertTrue(poly.getXBuffer().length <= AbstractRenderer.Poly.MAX_RETAINED);
+    assertTrue(poly.getYBuffer().length <= AbstractRenderer.Poly.MAX_RETAINED);
+  }
+
+  public void testPolyReleased() {
+    // a zigzag line has a vertex per point, growing the vertex buffer until the plot is drawn
+    final int size = 4 * AbstractRenderer.Poly.MAX_RETAINED;
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = i % 2;
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(new ColumnData2D(xs, ys));
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    final RenderStatistics statistics = new RenderStatistics();
+    renderer.setRenderListener(statistics);
+    drawGraph(renderer, graph);
+    assertEquals(size, statistics.getPointsMapped());
+    assertTrue(renderer.getPolyBuffer().getXBuffer().length <= AbstractRenderer.Poly.MAX_RETAINED);
+  }
+
+  public void testDecimate() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(randomWalk(100000, true));
+    final BufferedImage full = draw(plot);
+    plot.setDecimate(true);
+    checkSame(full, draw(plot));
+
+    final AbstractRenderer.Poly poly = new AbstractRenderer.Poly();
+    assertTrue(new GraphicsRenderer().decimate(plot.getDataSource(), mapX(plot), mapY(plot), poly));
+    assertTrue(poly.getSize() <= 4 * WIDTH);
+  }
+
+  public void testDecimateZoomed() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(randomWalk(100000, true));
+    final float[][] ranges = {{0.0f, 99999.0f}, {1234.5f, 56789.25f}, {40000.3f, 40999.7f}, {77777.0f, 77850.5f}};
+    for (final float[] range : ranges) {
+      final Mapping x = new Mapping(range[0], range[1], 0, WIDTH - 1);
+      plot.setDecimate(false);
+      final BufferedImage full = draw(new GraphicsRenderer(), plot, x, mapY(plot));
+      plot.setDecimate(true);
+      checkSame(full, draw(new GraphicsRenderer(), plot, x, mapY(plot)));
+    }
+
+    // the pyramid of streamed data follows appends
+    final StreamingData2D stream = new StreamingData2D(5000);
+    plot.setData(stream);
+    final Random random = new Random(7);
+    float y = 0.0f;
+    for (int n = 0; n < 3; n++) {
+      for (int i = 0; i < 4321; i++) {
+        y += random.nextGaussian();
+        stream.append(stream.getAppended(), y);
+      }
+      plot.setDecimate(false);
+      final BufferedImage full = draw(plot);
+      plot.setDecimate(true);
+      checkSame(full, draw(plot));
+    }
+  }
+
+  public void testDecimateChanged() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setDecimate(true);
+    final ColumnData2D data = randomWalk(200000, true);
+    plot.setData(data);
+    draw(plot);
+
+    // changed values of the same source set again are drawn
+    final float[] ys = data.getColumn(Column.Y);
+    for (int i = 0; i < ys.length; i++) {
+      ys[i] = (i / 1000) % 2 == 0 ? -ys[i] : 0.0f;
+    }
+    data.invalidateBounds();
+    plot.setData(data);
+    final PointPlot2D fresh = new PointPlot2D();
+    fresh.setPoints(false);
+    fresh.setLines(true);
+    fresh.setDecimate(true);
+    fresh.setData(new ColumnData2D(data.getColumn(Column.X), ys.clone()));
+    checkSame(draw(fresh), draw(plot));
+  }
+
+  public void testDecimateUnsorted() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(randomWalk(1000, false));
+    final BufferedImage full = draw(plot);
+    plot.setDecimate(true);
+    checkSame(full, draw(plot));
+
+    assertFalse(new GraphicsRenderer().decimate(plot.getDataSource(), mapX(plot), mapY(plot), new AbstractRenderer.Poly()));
+  }
+
+
+  public void testCull() {
+    final ColumnData2D data = randomWalk(10000, true);
+    final PointPlot2D culled = new PointPlot2D();
+    culled.setPoints(false);
+    culled.setLines(true);
+    culled.setData(data);
+    assertTrue(culled.isSortedX());
+    // claiming unsorted data makes the renderer draw every point
+    final PointPlot2D full = new PointPlot2D() {
+      @Override
+      public boolean isSortedX() {
+        return false;
+      }
+    };
+    full.setPoints(false);
+    full.setLines(true);
+    full.setData(data);
+    final Mapping zoom = new Mapping(4000.5f, 4100.5f, 0, WIDTH - 1);
+    checkSame(draw(full, zoom), draw(culled, zoom));
+
+    culled.setLines(false);
+    culled.setPoints(true);
+    full.setLines(false);
+    full.setPoints(true);
+    checkSame(draw(full, zoom), draw(culled, zoom));
+    culled.setData(randomWalk(10000, false));
+    assertFalse(culled.isSortedX());
+    full.setData(culled.getDataSource());
+    checkSame(draw(full, zoom), draw(culled, zoom));
+
+    // curve pieces reach beyond their nearest points
+    final ColumnData2D curve = new ColumnData2D(new float[] {0, 50, 98, 99, 200, 201, 250, 260, 270, 300, 400, 500},
+                                                new float[] {0, 90, 10, 80, 20, 70, 30, 60, 40, 50, 5, 95});
+    final CurvePlot2D culledCurve = new CurvePlot2D();
+    culledCurve.setData(curve);
+    final CurvePlot2D fullCurve = new CurvePlot2D() {
+      @Override
+      public boolean isSortedX() {
+        return false;
+      }
+    };
+    fullCurve.setData(curve);
+    final Mapping curveX = new Mapping(100, 280, 0, WIDTH - 1);
+    final Mapping curveY = new Mapping(0, 100, HEIGHT - 1, 0);
+    for (final int type : new int[] {CurvePlot2D.BSPLINE, CurvePlot2D.CUBIC_BEZIER}) {
+      culledCurve.setType(type);
+      fullCurve.setType(type);
+      checkSame(drawCurve(fullCurve, curveX, curveY), drawCurve(culledCurve, curveX, curveY));
+    }
+  }
+
+  private static BufferedImage drawCurve(CurvePlot2D plot, Mapping convertX, Mapping convertY) {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    new GraphicsRenderer().drawCurvePlot(g, plot, convertX, convertY);
+    g.dispose();
+    return image;
+  }
+
+  private static BufferedImage drawScrolled(ScrollBuffer buffer, PointPlot2D plot, float lo) {
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    final Mapping x = new Mapping(lo, lo + WIDTH - 1, 0, WIDTH - 1);
+    final Mapping y = mapY(plot);
+    buffer.draw(new GraphicsRenderer(), g, new Plot2D[] {plot}, new Mapping[] {x, y, x, y}, new Rectangle(0, 0, WIDTH, HEIGHT));
+    g.dispose();
+    return image;
+  }
+
+  public void testScrollBuffer() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setData(randomWalk(1000, true));
+    final ScrollBuffer buffer = new ScrollBuffer();
+    drawScrolled(buffer, plot, 100);
+    assertEquals(WIDTH, buffer.getLastDrawn());
+    final BufferedImage scrolled = drawScrolled(buffer, plot, 107);
+    assertEquals(7 + ScrollBuffer.OVERLAP, buffer.getLastDrawn());
+    checkSame(drawScrolled(new ScrollBuffer(), plot, 107), scrolled);
+
+    // part pixel and backward scrolls draw everything
+    drawScrolled(buffer, plot, 107.5f);
+    assertEquals(WIDTH, buffer.getLastDrawn());
+    drawScrolled(buffer, plot, 90.5f);
+    assertEquals(WIDTH, buffer.getLastDrawn());
+    buffer.invalidate();
+    drawScrolled(buffer, plot, 91.5f);
+    assertEquals(WIDTH, buffer.getLastDrawn());
+  }
+
+  private static Graph2D createGraph() {
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("tiles");
+    final PointPlot2D lines = new PointPlot2D();
+    lines.setLines(true);
+    lines.setData(randomWalk(5000, true));
+    graph.addPlot(lines);
+    final BoxPlot2D boxes = new BoxPlot2D();
+    boxes.setFill(FillStyle.PATTERN);
+    boxes.setBorder(true);
+    boxes.setData(new Box2D[] {new Box2D(100, -20, 900, 10), new Box2D(2000, 0, 2600, 30)});
+    graph.addPlot(boxes);
+    final CirclePlot2D circles = new CirclePlot2D();
+    circles.setFill(FillStyle.COLOR);
+    circles.setData(new Circle2D[] {new Circle2D(1000, 0, 30), new Circle2D(4000, -10, 55)});
+    graph.addPlot(circles);
+    final ScatterPlot2D scatter = new ScatterPlot2D();
+    scatter.setData(new ScatterPoint2D[] {new ScatterPoint2D(3000, 5, 200)});
+    graph.addPlot(scatter);
+    return graph;
+  }
+
+  private static BufferedImage drawGraph(GraphicsRenderer renderer, Graph2D graph) {
+    final BufferedImage image = new BufferedImage(WIDTH * 3, HEIGHT * 3, BufferedImage.TYPE_INT_RGB);
+    final Graphics g = image.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, image.getWidth(), image.getHeight());
+    renderer.drawGraph(graph, image, g, 5, 5, image.getWidth() - 10, image.getHeight() - 10);
+    g.dispose();
+    return image;
+  }
+
+  private static void checkTiled(boolean antialiasing) {
+    final Graph2D graph = createGraph();
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.setAntialiasing(antialiasing);
+    final BufferedImage single = drawGraph(renderer, graph);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    final BufferedImage tiled;
+    try {
+      renderer.setTiling(pool, 37);
+      tiled = drawGraph(renderer, graph);
+    } finally {
+      pool.shutdown();
+    }
+    for (int y = 0; y < single.getHeight(); y++) {
+      for (int x = 0; x < single.getWidth(); x++) {
+        assertEquals("pixel " + x + "," + y, single.getRGB(x, y), tiled.getRGB(x, y));
+      }
+    }
+  }
+
+  public void testTiled() {
+    checkTiled(false);
+    checkTiled(true);
+    final ForkJoinPool pool = new ForkJoinPool(1);
+    try {
+      new GraphicsRenderer().setTiling(pool, 0);
+      fail("accepted empty tiles.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testLayerCache() {
+    final Graph2D graph = createGraph();
+    final Plot2D[] plots = graph.getPlots();
+    for (int i = 0; i < plots.length; i++) {
+      plots[i].setTitle("plot " + i);
+    }
+    final GraphicsRenderer direct = new GraphicsRenderer();
+    final GraphicsRenderer layered = new GraphicsRenderer();
+    final LayerCache cache = new LayerCache();
+    layered.setLayerCache(cache);
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(plots.length + 2, cache.getLayersDrawn());
+
+    // nothing changed
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(0, cache.getLayersDrawn());
+
+    // a change to one plot draws that plot and the key
+    plots[1].setLineWidth(3);
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(2, cache.getLayersDrawn());
+
+    // a change to the graph that leaves the plot area alone keeps the data
+    graph.setTitle("layers");
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(2, cache.getLayersDrawn());
+    graph.setLabel(Axis.X, "x");
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(plots.length + 2, cache.getLayersDrawn());
+    layered.setForeground(Color.BLUE);
+    direct.setForeground(Color.BLUE);
+    checkSame(drawGraph(direct, graph), drawGraph(layered, graph));
+    assertEquals(plots.length + 2, cache.getLayersDrawn());
+  }
+  public void testCancel() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setLines(true);
+    plot.setData(randomWalk(1000, true));
+    final Mapping x = new Mapping(0, 999, 0, WIDTH - 1);
+    final Mapping y = mapY(plot);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    assertFalse(renderer.isCancelled());
+    renderer.setCancelled(true);
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = image.createGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    renderer.drawData(g, new Plot2D[] {plot}, new Mapping[] {x, y, x, y});
+    g.dispose();
+    for (int i = 0; i < HEIGHT; i++) {
+      for (int j = 0; j < WIDTH; j++) {
+        assertEquals(Color.WHITE.getRGB(), image.getRGB(j, i));
+      }
+    }
+    // copies do not share cancellation
+    assertFalse(new GraphicsRenderer(renderer).isCancelled());
+  }
+  public void testStride() {
+    final ColumnData2D data = randomWalk(10, true);
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(data);
+    final int[] rows = {0, 3, 6, 9};
+    final float[] xs = new float[rows.length];
+    final float[] ys = new float[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      xs[i] = data.get(Column.X, rows[i]);
+      ys[i] = data.get(Column.Y, rows[i]);
+    }
+    final PointPlot2D sampled = new PointPlot2D();
+    sampled.setData(new ColumnData2D(xs, ys));
+    final Mapping x = mapX(plot);
+    final Mapping y = mapY(plot);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    assertEquals(1, renderer.getStride());
+    renderer.setStride(3);
+    assertEquals(3, new GraphicsRenderer(renderer).getStride());
+    checkSame(draw(new GraphicsRenderer(), sampled, x, y), draw(renderer, plot, x, y));
+    // the last point is always drawn
+    renderer.setStride(4);
+    sampled.setData(new ColumnData2D(new float[] {xs[0], data.get(Column.X, 4), data.get(Column.X, 8), xs[3]},
+                                     new float[] {ys[0], data.get(Column.Y, 4), data.get(Column.Y, 8), ys[3]}));
+    checkSame(draw(new GraphicsRenderer(), sampled, x, y), draw(renderer, plot, x, y));
+    try {
+      renderer.setStride(0);
+      fail("accepted zero stride.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testRenderListener() throws IOException {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(false);
+    plot.setLines(true);
+    plot.setDecimate(true);
+    plot.setData(randomWalk(100000, true));
+    final RenderStatistics statistics = new RenderStatistics();
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    assertNull(renderer.getRenderListener());
+    renderer.setRenderListener(statistics);
+    assertTrue(new GraphicsRenderer(renderer).getRenderListener() == statistics);
+
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = image.createGraphics();
+    final Mapping x = new Mapping(40000, 40999, 0, WIDTH - 1);
+    final Mapping y = mapY(plot);
+    renderer.drawData(g, new Plot2D[] {plot}, new Mapping[] {x, y, x, y});
+    assertEquals(1, statistics.getPlotsDrawn());
+    assertTrue(statistics.getPlotNanos().containsKey("PointPlot2D"));
+    assertTrue(statistics.getPointsCulled() > 98000);
+    assertTrue(statistics.getPointsCulled() < 99000);
+    assertTrue(statistics.getPointsMapped() > 0);
+    assertTrue(statistics.getPointsMapped() <= 100000 - statistics.getPointsCulled());
+    assertTrue(statistics.getPointsDecimated() > 0);
+    assertTrue(statistics.getPrimitives() > 0);
+    assertTrue(statistics.getPhaseNanos().isEmpty());
+
+    final long culled = statistics.getPointsCulled();
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    renderer.drawGraph(graph, g, WIDTH, HEIGHT);
+    new ImageWriter(renderer).toPNG(new ByteArrayOutputStream(), graph, WIDTH, HEIGHT, null);
+    g.dispose();
+    assertEquals(3, statistics.getPlotsDrawn());
+    // nothing is culled when the whole plot is visible, and most points are decimated
+    assertEquals(culled, statistics.getPointsCulled());
+    assertTrue(statistics.getPointsDecimated() > 150000);
+    for (final RenderPhase phase : RenderPhase.values()) {
+      assertTrue(phase.toString(), statistics.getPhaseNanos().containsKey(phase.name()));
+    }
+    statistics.reset();
+    assertEquals(0, statistics.getPlotsDrawn());
+    assertEquals(0, statistics.getPrimitives());
+    assertTrue(statistics.getPlotNanos().isEmpty());
+
+    // a plot drawn in tiles is reported once, with the work of its tiles
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      renderer.setTiling(pool, 16);
+      new ImageWriter(renderer).toPNG(new ByteArrayOutputStream(), graph, WIDTH, HEIGHT, null);
+    } finally {
+      pool.shutdown();
+    }
+    assertEquals(1, statistics.getPlotsDrawn());
+    assertEquals(0, statistics.getPointsCulled());
+    assertTrue(statistics.getPointsMapped() > 0);
+    assertTrue(statistics.getPointsDecimated() > 75000);
+    assertTrue(statistics.getPrimitives() > 0);
+  }
+
+  // points mapped, culled and decimated drawing a graph
+  private static long[] pointCounts(GraphicsRenderer renderer, Graph2D graph) {
+    final RenderStatistics statistics = new RenderStatistics();
+    renderer.setRenderListener(statistics);
+    drawGraph(renderer, graph);
+    assertEquals(1, statistics.getPlotsDrawn());
+    return new long[] {statistics.getPointsMapped(), statistics.getPointsCulled(), statistics.getPointsDecimated()};
+  }
+
+  public void testTiledCounts() {
+    final PointPlot2D decimated = new PointPlot2D();
+    decimated.setPoints(false);
+    decimated.setLines(true);
+    decimated.setDecimate(true);
+    decimated.setData(randomWalk(100000, true));
+    final PointPlot2D lines = new PointPlot2D();
+    lines.setLines(true);
+    lines.setData(randomWalk(5000, true));
+    final PointPlot2D scattered = new PointPlot2D();
+    scattered.setData(randomWalk(5000, false));
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (final PointPlot2D plot : new PointPlot2D[] {decimated, lines, scattered}) {
+        final Graph2D graph = new Graph2D();
+        graph.addPlot(plot);
+        // part of the data off the plot area
+        graph.setRange(Axis.X, plot.getHi(Axis.X) / 4, plot.getHi(Axis.X) * 3 / 4);
+        final GraphicsRenderer renderer = new GraphicsRenderer();
+        final long[] single = pointCounts(renderer, graph);
+        assertTrue(single[0] > 0);
+        for (final int tileSize : new int[] {16, 37}) {
+          renderer.setTiling(pool, tileSize);
+          final long[] tiled = pointCounts(renderer, graph);
+          for (int i = 0; i < single.length; i++) {
+            assertEquals(plot.getDataCount() + " points, " + tileSize + " pixel tiles, count " + i, single[i], tiled[i]);
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  // draws the plot with all its data, returning the number of primitives drawn
+  private static long primitives(GraphicsRenderer renderer, PointPlot2D plot, Mapping convertX, Mapping convertY, BufferedImage image) {
+    final RenderStatistics statistics = new RenderStatistics();
+    renderer.setRenderListener(statistics);
+    final Graphics g = image.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, WIDTH, HEIGHT);
+    renderer.drawData(g, new Plot2D[] {plot}, new Mapping[] {convertX, convertY, convertX, convertY});
+    g.dispose();
+    return statistics.getPrimitives();
+  }
+
+  public void testRepeatedMarks() {
+    final Random random = new Random(7);
+    final float[] xs = new float[100000];
+    final float[] ys = new float[xs.length];
+    final boolean[] seen = new boolean[40 * 20];
+    final float[] uniqueXs = new float[seen.length];
+    final float[] uniqueYs = new float[seen.length];
+    int unique = 0;
+    int runs = 0;
+    for (int i = 0; i < xs.length; i++) {
+      final int x = random.nextInt(40);
+      final int y = random.nextInt(20);
+      xs[i] = x;
+      ys[i] = y;
+      if (i == 0 || x != xs[i - 1] || y != ys[i - 1]) {
+        runs++;
+      }
+      if (!seen[x * 20 + y]) {
+        seen[x * 20 + y] = true;
+        uniqueXs[unique] = x;
+        uniqueYs[unique++] = y;
+      }
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setPoints(true);
+    plot.setDots(true);
+    plot.setLines(false);
+    plot.setData(new ColumnData2D(xs, ys));
+    final PointPlot2D distinct = new PointPlot2D();
+    distinct.setPoints(true);
+    distinct.setDots(true);
+    distinct.setLines(false);
+    distinct.setData(new ColumnData2D(Arrays.copyOf(uniqueXs, unique), Arrays.copyOf(uniqueYs, unique)));
+    final Mapping x = mapX(plot);
+    final Mapping y = mapY(plot);
+
+    // only the first mark at each pixel is drawn, giving the same image
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    assertEquals(2 * unique, primitives(new GraphicsRenderer(), plot, x, y, image));
+    final BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    assertEquals(2 * unique, primitives(new GraphicsRenderer(), distinct, x, y, expected));
+    checkSame(expected, image);
+
+    // translucent marks build up, so each is drawn, other than immediate repeats
+    final GraphicsRenderer translucent = new GraphicsRenderer();
+    translucent.setColors(new Color[] {new Color(255, 0, 0, 128)});
+    assertEquals(2 * runs, primitives(translucent, plot, x, y, image));
+  }
+
+  public static Test suite() {
+    return new TestSuite(GraphicsRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,172 @@
+package com.reeltwo.plot.renderer;
+
+import java.util.Random;
+
+import com.reeltwo.plot.Box2D;
+import com.reeltwo.plot.BoxPlot2D;
+import com.reeltwo.plot.Circle2D;
+import com.reeltwo.plot.CirclePlot2D;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.Edge;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Note2D;
+import com.reeltwo.plot.NotePlot2D;
+import com.reeltwo.plot.ObjectPoint2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.StreamingData2D;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the HitIndex class.
+ *
+ * @author Richard Littin
+ */
+public class HitIndexTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public HitIndexTest(String name) {
+    super(name);
+  }
+
+
+  // world 0..100 on every axis drawn 200 pixels wide and high, y up
+  private static Mapping[] mapping() {
+    final Mapping x = new Mapping(0, 100, 0, 200);
+    final Mapping y = new Mapping(0, 100, 200, 0);
+    return new Mapping[] {x, y, x, y};
+  }
+
+  public void testExtents() {
+    final Graph2D graph = new Graph2D();
+    final BoxPlot2D boxes = new BoxPlot2D();
+    boxes.setData(new Box2D[] {new Box2D(10, 10, 30, 30), new Box2D(0, 0, 100, 100)});
+    graph.addPlot(boxes);
+    final CirclePlot2D circles = new CirclePlot2D();
+    circles.setData(new Circle2D[] {new Circle2D(80, 80, 20)});
+    graph.addPlot(circles);
+    final NotePlot2D notes = new NotePlot2D();
+    notes.setData(new Note2D[] {new Note2D("note", 50, 50, 60, 60, 55, 40)});
+    graph.addPlot(notes);
+    final PointPlot2D points = new PointPlot2D(Edge.ALTERNATE, Edge.ALTERNATE);
+    points.setData(new ObjectPoint2D[] {new ObjectPoint2D(20, 20, "point")});
+    graph.addPlot(points);
+
+    final HitIndex index = new HitIndex();
+    final Mapping[] mapping = mapping();
+    // the smallest box around the position
+    HitIndex.Hit hit = index.find(graph, mapping, 30, 150);
+    assertTrue(hit.getPlot() == boxes);
+    assertEquals(0, hit.getIndex());
+    assertNull(hit.getObject());
+    assertEquals(1, index.find(graph, mapping, 190, 10).getIndex());
+    // a point drawn over a box
+    assertEquals("point", index.find(graph, mapping, 42, 158).getObject());
+    // within the diameter of a circle, or the tolerance beyond it
+    assertTrue(index.find(graph, mapping, 166, 40).getPlot() == circles);
+    assertTrue(index.find(graph, mapping, 172, 40).getPlot() == circles);
+    assertTrue(index.find(graph, mapping, 180, 40).getPlot() == boxes);
+    assertEquals("note", index.find(graph, mapping, 115, 85).getObject());
+    assertNull(index.find(graph, mapping, 300, 300));
+
+    // the grid follows changes to the mappings and data
+    final Mapping x = new Mapping(0, 50, 0, 200);
+    final Mapping y = new Mapping(0, 50, 200, 0);
+    // data off the screen are not found
+    assertTrue(index.find(graph, new Mapping[] {x, y, x, y}, 230, -30).getPlot() == boxes);
+    assertEquals("point", index.find(graph, new Mapping[] {x, y, x, y}, 80, 120).getObject());
+    boxes.setData(new Box2D[] {new Box2D(0, 0, 100, 100)});
+    assertEquals(0, index.find(graph, mapping, 30, 150).getIndex());
+
+    index.setTolerance(0);
+    assertEquals(0, index.getTolerance());
+    assertTrue(index.find(graph, mapping, 172, 40).getPlot() == boxes);
+    try {
+      index.setTolerance(-1);
+      fail("accepted negative tolerance.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    assertNull(index.find(null, mapping, 0, 0));
+  }
+
+  public void testNearest() {
+    final Random random = new Random(3);
+    final Point2D[] data = new Point2D[2000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = new Point2D(random.nextFloat() * 100, random.nextFloat() * 100);
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(data);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    final Mapping[] mapping = mapping();
+    final HitIndex index = new HitIndex();
+    for (int q = 0; q < 500; q++) {
+      final int x = random.nextInt(200);
+      final int y = random.nextInt(200);
+      int best = -1;
+      double bestDistance = Double.POSITIVE_INFINITY;
+      for (int i = 0; i < data.length; i++) {
+        final double d = Math.hypot(x - mapping[0].worldToScreen(data[i].getX()), y - mapping[1].worldToScreen(data[i].getY()));
+        if (d <= index.getTolerance() && d <= bestDistance) {
+          best = i;
+          bestDistance = d;
+        }
+      }
+      final HitIndex.Hit hit = index.find(graph, mapping, x, y);
+      assertEquals(best, hit == null ? -1 : hit.getIndex());
+    }
+  }
+
+  public void testStreaming() {
+    final int[] reads = new int[1];
+    final StreamingData2D stream = new StreamingData2D(100000) {
+      @Override
+      public float get(Column column, int index) {
+        reads[0]++;
+        return super.get(column, index);
+      }
+    };
+    for (int i = 0; i < 100000; i++) {
+      stream.append(i, i % 100);
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(stream);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    // the last 100 points across 200 pixels
+    final Mapping x = new Mapping(99900, 100000, 0, 200);
+    final Mapping y = new Mapping(0, 100, 200, 0);
+    final Mapping[] mapping = {x, y, x, y};
+    final HitIndex index = new HitIndex();
+    reads[0] = 0;
+    assertEquals(99950, index.find(graph, mapping, 100, 100).getIndex());
+    // only the points in view are read and kept
+    assertTrue(index.size() <= 102);
+    assertTrue(reads[0] < 1000);
+
+    // an append drops the first point, and the grid is built again from the points in view
+    reads[0] = 0;
+    stream.append(100000, 0);
+    assertEquals(99949, index.find(graph, mapping, 100, 100).getIndex());
+    assertTrue(reads[0] < 1000);
+    assertNull(index.find(graph, mapping, 100, 150));
+  }
+
+  public static Test suite() {
+    return new TestSuite(HitIndexTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -48,6 +48,30 @@ public class MappingTest extends TestCase {
     assertEquals(wpt, map.screenToWorld(spt), 0.0001f);
   }
 
+  private static void checkBulk(Mapping map) {
+    final float[] world = new float[100];
+    for (int i = 0; i < world.length; i++) {
+      world[i] = 0.5f + i * 3.7f;
+    }
+    final float[] screen = new float[world.length + 1];
+    final int[] iscreen = new int[world.length + 1];
+    map.worldToScreen(world, 0, screen, 1, world.length);
+    map.worldToScreen(world, 0, iscreen, 1, world.length);
+    for (int i = 0; i < world.length; i++) {
+      assertEquals(map.worldToScreen(world[i]), screen[i + 1], 0.0f);
+      assertEquals((int) map.worldToScreen(world[i]), iscreen[i + 1]);
+    }
+  }
+
+  public void testBulk() {
+    checkBulk(new Mapping(mWl, mWr, 0.0f, 640.0f));
+    checkBulk(new Mapping(400.0f, 1.0f, 479.0f, 0.0f));
+    checkBulk(new Mapping(1.0f, 1000.0f, 0.0f, 640.0f, true));
+    final Mapping log = new Mapping(1.0f, 1000.0f, 0.0f, 300.0f, true);
+    assertEquals(100.0f, log.worldToScreen(10.0f), 0.001f);
+    assertEquals(300.0f, log.worldToScreen(1000.0f), 0.001f);
+  }
+
   public void testContructor() {
     try {
       new Mapping(0, 0, 1, 2);
@@ -0,0 +1,172 @@
+package com.reeltwo.plot.renderer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.TextPlot2D;
+import com.reeltwo.plot.TextPoint2D;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the SvgRenderer class.
+ *
+ * @author Richard Littin
+ */
+public class SvgRendererTest extends TestCase {
+
+  private static final int WIDTH = 400;
+  private static final int HEIGHT = 300;
+  private static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public SvgRendererTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph(int size, boolean lines) {
+    final Random random = new Random(11);
+    final Point2D[] data = new Point2D[size];
+    for (int i = 0; i < size; i++) {
+      data[i] = new Point2D(i, random.nextFloat());
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setLines(lines);
+    plot.setPoints(!lines);
+    plot.setData(data);
+    plot.setTitle("data");
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("a < b & c");
+    graph.addPlot(plot);
+    return graph;
+  }
+
+  private static Document parse(byte[] svg) throws Exception {
+    return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(svg));
+  }
+
+  public void testDocument() throws Exception {
+    final Graph2D graph = graph(100, true);
+    final TextPlot2D text = new TextPlot2D();
+    text.setData(new TextPoint2D[] {new TextPoint2D(50, 0.5f, "upwards")});
+    text.setVertical(true);
+    graph.addPlot(text);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final Mapping[] mapping = new SvgRenderer().drawGraph(graph, bytes, WIDTH, HEIGHT, FONT);
+    final Document document = parse(bytes.toByteArray());
+    final Element svg = document.getDocumentElement();
+    assertEquals("svg", svg.getTagName());
+    assertEquals(String.valueOf(WIDTH), svg.getAttribute("width"));
+    assertEquals(String.valueOf(HEIGHT), svg.getAttribute("height"));
+    boolean title = false;
+    boolean vertical = false;
+    final NodeList texts = document.getElementsByTagName("text");
+    for (int i = 0; i < texts.getLength(); i++) {
+      final Element e = (Element) texts.item(i);
+      title |= "a < b & c".equals(e.getTextContent());
+      vertical |= "upwards".equals(e.getTextContent()) && e.getAttribute("transform").startsWith("matrix(0 -1 1 0 ");
+    }
+    assertTrue(title);
+    assertTrue(vertical);
+    // vertical text is text rather than an image
+    assertEquals(0, document.getElementsByTagName("image").getLength());
+
+    // laid out as when drawn to an image
+    final BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    final Graphics2D g = image.createGraphics();
+    g.setFont(FONT);
+    final GraphicsRenderer renderer = new GraphicsRenderer();
+    renderer.drawGraph(graph, g, SvgRenderer.INSET, SvgRenderer.INSET, WIDTH - 2 * SvgRenderer.INSET, HEIGHT - 2 * SvgRenderer.INSET);
+    g.dispose();
+    for (int i = 0; i < 2; i++) {
+      assertEquals(renderer.getMappings()[i].getScreenMin(), mapping[i].getScreenMin(), 0.0f);
+      assertEquals(renderer.getMappings()[i].getScreenMax(), mapping[i].getScreenMax(), 0.0f);
+    }
+  }
+
+  public void testMerged() throws Exception {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final SvgRenderer renderer = new SvgRenderer();
+    renderer.setColors(new Color[] {Color.RED});
+    renderer.drawGraph(graph(20000, false), bytes, WIDTH, HEIGHT, FONT);
+    final NodeList paths = parse(bytes.toByteArray()).getElementsByTagName("path");
+    int marks = 0;
+    for (int i = 0; i < paths.getLength(); i++) {
+      final Element path = (Element) paths.item(i);
+      assertTrue(path.getAttribute("d").length() <= SvgGraphics.MAX_PATH);
+      if ("#ff0000".equals(path.getAttribute("stroke"))) {
+        marks++;
+      }
+    }
+    // the marks of 20000 points are written in a few paths rather than one each
+    assertTrue(marks > 0);
+    assertTrue(marks < 100);
+
+    bytes.reset();
+    new SvgRenderer().drawGraph(graph(200000, true), bytes, WIDTH, HEIGHT, FONT);
+    final NodeList lines = parse(bytes.toByteArray()).getElementsByTagName("path");
+    for (int i = 0; i < lines.getLength(); i++) {
+      assertTrue(((Element) lines.item(i)).getAttribute("d").length() <= SvgGraphics.MAX_PATH);
+    }
+  }
+
+  public void testWriteError() {
+    final OutputStream broken = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+          throw new IOException("broken");
+        }
+      };
+    try {
+      new SvgRenderer().drawGraph(graph(10, true), broken, WIDTH, HEIGHT, FONT);
+      fail("write error not reported.");
+    } catch (final IOException e) {
+      assertEquals("broken", e.getMessage());
+    }
+  }
+
+  public void testBadDimensions() throws IOException {
+    final int[][] dimensions = {{0, HEIGHT}, {WIDTH, 0}, {-1, HEIGHT}, {WIDTH, -1}};
+    for (final int[] d : dimensions) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try {
+        new SvgRenderer().drawGraph(graph(10, true), bytes, d[0], d[1], FONT);
+        fail("accepted " + d[0] + "x" + d[1] + " document.");
+      } catch (final IllegalArgumentException iae) {
+        assertEquals(0, bytes.size());
+      }
+    }
+  }
+
+  public static Test suite() {
+    return new TestSuite(SvgRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,320 @@
+package com.reeltwo.plot.renderer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.FillablePlot2D.FillStyle;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.PointPlot2D;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the TextRenderer class.
+ *
+ * @author Richard Littin
+ */
+public class TextRendererTest extends TestCase {
+
+  private static final int WIDTH = 80;
+  private static final int HEIGHT = 30;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public TextRendererTest(String name) {
+    super(name);
+  }
+
+
+  /** Fills polygons by testing every cell of the canvas against every edge, as the renderer once did. */
+  private static class CellRenderer extends TextRenderer {
+    @Override
+    protected void fillPolygon(Object canvas, int[] xs, int[] ys, int n) {
+      for (int y = 0; y < HEIGHT; y++) {
+        for (int x = 0; x < WIDTH; x++) {
+          if (inside(xs, ys, n, x, y)) {
+            drawPoint(canvas, x, y);
+          }
+        }
+      }
+    }
+
+    private static boolean inside(int[] xs, int[] ys, int n, int x, int y) {
+      if (xs == null || n <= 2) {
+        return false;
+      }
+      int hits = 0;
+
+      int lastx = xs[n - 1];
+      int lasty = ys[n - 1];
+      int curx;
+      int cury;
+
+      // Walk the edges of the polygon
+      for (int i = 0; i < n; lastx = curx, lasty = cury, i++) {
+        curx = xs[i];
+        cury = ys[i];
+
+        if (cury == lasty) {
+          continue;
+        }
+
+        int leftx;
+        if (curx < lastx) {
+          if (x >= lastx) {
+            continue;
+          }
+          leftx = curx;
+        } else {
+          if (x >= curx) {
+            continue;
+          }
+          leftx = lastx;
+        }
+
+        float test1;
+        float test2;
+        if (cury < lasty) {
+          if (y < cury || y >= lasty) {
+            continue;
+          }
+          if (x < leftx) {
+            hits++;
+            continue;
+          }
+          test1 = x - curx;
+          test2 = y - cury;
+        } else {
+          if (y < lasty || y >= cury) {
+            continue;
+          }
+          if (x < leftx) {
+            hits++;
+            continue;
+          }
+          test1 = x - lastx;
+          test2 = y - lasty;
+        }
+        if (test1 < (test2 / (lasty - cury) * (lastx - curx))) {
+          hits++;
+        }
+      }
+      return (hits & 1) != 0;
+    }
+  }
+
+  private static Graph2D filled(Random random, int size) {
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = random.nextFloat();
+      ys[i] = random.nextFloat();
+    }
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setData(new ColumnData2D(xs, ys));
+    plot.setFill(FillStyle.COLOR);
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    return graph;
+  }
+
+  public void testFillPolygon() {
+    final Random random = new Random(3);
+    for (int i = 0; i < 50; i++) {
+      final Graph2D graph = filled(random, 3 + random.nextInt(20));
+      assertEquals(new CellRenderer().drawGraph(graph, WIDTH, HEIGHT, false), new TextRenderer().drawGraph(graph, WIDTH, HEIGHT, false));
+    }
+    // many self crossing edges
+    final Graph2D graph = filled(random, 10000);
+    assertEquals(new CellRenderer().drawGraph(graph, WIDTH, HEIGHT, true), new TextRenderer().drawGraph(graph, WIDTH, HEIGHT, true));
+  }
+
+  private static Graph2D line(float[] xs, float[] ys) {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setLines(true);
+    plot.setPoints(false);
+    plot.setData(new ColumnData2D(xs, ys));
+    final Graph2D graph = new Graph2D();
+    graph.setTitle("title");
+    graph.addPlot(plot);
+    return graph;
+  }
+
+  // counts the dots set in characters of the given range, or the characters if there is one dot per character
+  private static int dots(String text, char first, char last) {
+    int dots = 0;
+    for (int i = 0; i < text.length(); i++) {
+      final char c = text.charAt(i);
+      if (c >= first && c <= last) {
+        dots += first == '*' ? 1 : Integer.bitCount(first == '\u2800' ? c - first : c == '\u2588' ? 3 : 1);
+      }
+    }
+    return dots;
+  }
+
+  public void testResolution() {
+    final TextRenderer renderer = new TextRenderer();
+    assertEquals(TextRenderer.Resolution.CHARACTER, renderer.getResolution());
+    try {
+      renderer.setResolution(null);
+      fail("null resolution accepted.");
+    } catch (final NullPointerException e) {
+      // expected
+    }
+    final Graph2D across = line(new float[] {0, 1, 2}, new float[] {0, 1, 0});
+    across.setRange(Axis.Y, 0, 2);
+    final String characters = renderer.drawGraph(across, WIDTH, HEIGHT, false);
+    final int columns = dots(characters, '*', '*');
+    assertTrue(columns > WIDTH / 2);
+
+    renderer.setResolution(TextRenderer.Resolution.BRAILLE);
+    final String braille = renderer.drawGraph(across, WIDTH, HEIGHT, false);
+    // the line is drawn with twice as many dots across as characters, and all else is the same
+    assertEquals(2 * columns, dots(braille, '\u2800', '\u28ff'));
+    assertEquals(characters.length(), braille.length());
+    for (int i = 0; i < braille.length(); i++) {
+      if (braille.charAt(i) < '\u2800') {
+        assertEquals(characters.charAt(i) == '*' ? ' ' : characters.charAt(i), braille.charAt(i));
+      }
+    }
+
+    final Graph2D down = line(new float[] {1, 1}, new float[] {0, 1});
+    down.setRange(Axis.X, 0, 2);
+    renderer.setResolution(TextRenderer.Resolution.CHARACTER);
+    final int rows = dots(renderer.drawGraph(down, WIDTH, HEIGHT, false), '*', '*');
+    renderer.setResolution(TextRenderer.Resolution.HALF_BLOCK);
+    assertEquals(2 * rows, dots(renderer.drawGraph(down, WIDTH, HEIGHT, true), '\u2580', '\u2588'));
+  }
+
+  /** The characters and colors a terminal shows after being written to. */
+  private static final class Terminal {
+    private final char[][] mChars = new char[HEIGHT + 1][WIDTH];
+    private final String[][] mColors = new String[HEIGHT + 1][WIDTH];
+    private int mRow = 0;
+    private int mColumn = 0;
+    private String mColor = "0";
+
+    Terminal() {
+      clear();
+    }
+
+    private void clear() {
+      for (int y = 0; y < mChars.length; y++) {
+        Arrays.fill(mChars[y], ' ');
+        Arrays.fill(mColors[y], "0");
+      }
+    }
+
+    void write(CharSequence text) {
+      for (int i = 0; i < text.length(); i++) {
+        final char c = text.charAt(i);
+        if (c == '\033') {
+          assertEquals('[', text.charAt(i + 1));
+          int end = i + 2;
+          while (text.charAt(end) < '@') {
+            end++;
+          }
+          final String parameters = text.subSequence(i + 2, end).toString();
+          switch (text.charAt(end)) {
+          case 'H':
+            mRow = Integer.parseInt(parameters.split(";")[0]) - 1;
+            mColumn = Integer.parseInt(parameters.split(";")[1]) - 1;
+            break;
+          case 'J':
+            clear();
+            break;
+          case 'm':
+            mColor = parameters.startsWith("0;") ? parameters.substring(2) : parameters.length() == 0 ? "0" : parameters;
+            break;
+          default:
+            fail("unexpected escape sequence " + text.charAt(end));
+          }
+          i = end;
+        } else if (c == '\n') {
+          mRow++;
+          mColumn = 0;
+        } else {
+          mChars[mRow][mColumn] = c;
+          mColors[mRow][mColumn++] = mColor;
+        }
+      }
+    }
+
+    void checkSame(Terminal other) {
+      for (int y = 0; y < mChars.length; y++) {
+        assertEquals(new String(other.mChars[y]), new String(mChars[y]));
+        assertEquals(Arrays.asList(other.mColors[y]), Arrays.asList(mColors[y]));
+      }
+    }
+  }
+
+  private static Terminal terminal(CharSequence text) {
+    final Terminal terminal = new Terminal();
+    terminal.write(text);
+    return terminal;
+  }
+
+  public void testScreen() throws IOException {
+    final Random random = new Random(5);
+    final float[] xs = new float[200];
+    final float[] ys = new float[xs.length];
+    for (int i = 0; i < xs.length; i++) {
+      xs[i] = i;
+      ys[i] = random.nextFloat();
+    }
+    final Graph2D graph = line(xs, ys);
+    graph.setRange(Axis.Y, 0, 1);
+    final TextRenderer renderer = new TextRenderer();
+    final TextRenderer.Screen screen = new TextRenderer.Screen();
+    final StringBuilder whole = new StringBuilder();
+    renderer.drawGraph(graph, WIDTH, HEIGHT, true, screen, whole);
+    final Terminal terminal = terminal(whole);
+    terminal.checkSame(terminal(renderer.drawGraph(graph, WIDTH, HEIGHT, true)));
+    final StringBuilder plain = new StringBuilder();
+    renderer.drawGraph(graph, WIDTH, HEIGHT, true, plain);
+    assertEquals(renderer.drawGraph(graph, WIDTH, HEIGHT, true), plain.toString());
+
+    // a frame changing a few points only writes the changed cells
+    for (int i = 0; i < 5; i++) {
+      ys[random.nextInt(ys.length)] = random.nextFloat();
+    }
+    graph.getPlots()[0].setData(new ColumnData2D(xs, ys));
+    final StringBuilder changes = new StringBuilder();
+    renderer.drawGraph(graph, WIDTH, HEIGHT, true, screen, changes);
+    assertTrue(changes.length() > 0);
+    assertTrue(changes.length() * 5 < whole.length());
+    terminal.write(changes);
+    terminal.checkSame(terminal(renderer.drawGraph(graph, WIDTH, HEIGHT, true)));
+
+    // nothing changed, nothing written
+    changes.setLength(0);
+    renderer.drawGraph(graph, WIDTH, HEIGHT, true, screen, changes);
+    assertEquals(0, changes.length());
+
+    // a new size is written whole
+    renderer.drawGraph(graph, WIDTH, HEIGHT - 1, true, screen, changes);
+    assertTrue(changes.toString().startsWith("\033[0m\033[2J"));
+    screen.reset();
+    changes.setLength(0);
+    renderer.drawGraph(graph, WIDTH, HEIGHT - 1, false, screen, changes);
+    assertTrue(changes.toString().startsWith("\033[0m\033[2J"));
+    assertEquals(-1, changes.indexOf("\033[0;"));
+  }
+
+  public static Test suite() {
+    return new TestSuite(TextRendererTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
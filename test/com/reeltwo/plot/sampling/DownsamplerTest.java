@@ -0,0 +1,212 @@
+package com.reeltwo.plot.sampling;
+
+import com.reeltwo.plot.Axis;
+import com.reeltwo.plot.Column;
+import com.reeltwo.plot.ColumnData2D;
+import com.reeltwo.plot.DataSource2D;
+import com.reeltwo.plot.StreamingData2D;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the Downsampler classes.
+ *
+ * @author Richard Littin
+ */
+public class DownsamplerTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public DownsamplerTest(String name) {
+    super(name);
+  }
+
+
+  private static ColumnData2D sine(int size) {
+    final float[] xs = new float[size];
+    final float[] ys = new float[size];
+    for (int i = 0; i < size; i++) {
+      xs[i] = i;
+      ys[i] = (float) Math.sin(i / 100.0);
+    }
+    // a single spike that should survive downsampling
+    ys[size / 3] = 5.0f;
+    return new ColumnData2D(xs, ys);
+  }
+
+  private static void checkOrdered(DataSource2D data) {
+    for (int i = 1; i < data.size(); i++) {
+      assertTrue(data.get(Column.X, i - 1) < data.get(Column.X, i));
+    }
+  }
+
+  public void testLttb() {
+    final ColumnData2D data = sine(10000);
+    final Downsampler sampler = new LttbDownsampler();
+    final DataSource2D reduced = sampler.downsample(data, 100);
+    assertEquals(100, reduced.size());
+    assertEquals(0.0f, reduced.get(Column.X, 0), 0.0f);
+    assertEquals(9999.0f, reduced.get(Column.X, 99), 0.0f);
+    checkOrdered(reduced);
+    assertEquals(5.0f, reduced.getHi(Axis.Y), 0.0f);
+    assertEquals(0.0f, reduced.getLo(Axis.X), 0.0f);
+
+    assertTrue(sampler.downsample(data, 10000) == data);
+    try {
+      sampler.downsample(data, 2);
+      fail("accepted too few points.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testMinMax() {
+    final ColumnData2D data = sine(10001);
+    final Downsampler sampler = new MinMaxDownsampler();
+    final DataSource2D reduced = sampler.downsample(data, 101);
+    assertTrue(reduced.size() <= 101);
+    checkOrdered(reduced);
+    assertEquals(data.getHi(Axis.Y), reduced.getHi(Axis.Y), 0.0f);
+    assertEquals(data.getLo(Axis.Y), reduced.getLo(Axis.Y), 0.0f);
+
+    assertTrue(sampler.downsample(data, 20000) == data);
+    try {
+      sampler.downsample(data, 1);
+      fail("accepted too few points.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testMinMaxEndpoints() {
+    // neither end is a minimum or maximum
+    final ColumnData2D data = sine(10001);
+    final Downsampler sampler = new MinMaxDownsampler();
+    for (int points = 2; points <= 12; points++) {
+      final DataSource2D reduced = sampler.downsample(data, points);
+      assertEquals(points, reduced.size());
+      assertEquals(0.0f, reduced.get(Column.X, 0), 0.0f);
+      assertEquals(10000.0f, reduced.get(Column.X, points - 1), 0.0f);
+      checkOrdered(reduced);
+    }
+    assertEquals(5.0f, sampler.downsample(data, 3).getHi(Axis.Y), 0.0f);
+    // a flat line keeps a point per bucket and the ends
+    final DataSource2D flat = sampler.downsample(new ColumnData2D(new float[] {1, 2, 3, 4, 5, 6, 7}, new float[7]), 6);
+    assertEquals(4, flat.size());
+    assertEquals(1.0f, flat.get(Column.X, 0), 0.0f);
+    assertEquals(7.0f, flat.get(Column.X, 3), 0.0f);
+  }
+
+  public void testSampledData() {
+    final ColumnData2D data = new ColumnData2D(new float[] {1, 2, 3, 4}, new float[] {8, 7, 6, 5});
+    data.setObjects(new String[] {"a", "b", "c", "d"});
+    final SampledData2D sampled = new SampledData2D(data, new int[] {1, 3});
+    assertEquals(2, sampled.size());
+    assertEquals(3, sampled.getSourceIndex(1));
+    assertEquals(4.0f, sampled.get(Column.X, 1), 0.0f);
+    assertEquals("b", sampled.getObject(0));
+    assertTrue(sampled.hasColumn(Column.OBJECT));
+    assertEquals(2.0f, sampled.getLo(Axis.X), 0.0f);
+    assertEquals(7.0f, sampled.getHi(Axis.Y), 0.0f);
+    final float[] dest = new float[2];
+    sampled.get(Column.Y, 0, dest, 0, 2);
+    assertEquals(7.0f, dest[0], 0.0f);
+    assertEquals(5.0f, dest[1], 0.0f);
+  }
+
+  // checks every bucket in the pyramid against the points it covers
+  private static void checkPyramid(MinMaxPyramid pyramid, int buckets) {
+    final DataSource2D data = pyramid.getSource();
+    int found = 0;
+    for (int i = 0; i < data.size(); i++) {
+      final int top = pyramid.getLevel(i, data.size());
+      for (int level = MinMaxPyramid.MIN_LEVEL; level <= top; level++) {
+        final int end = i + (1 << level);
+        assertTrue(end <= data.size());
+        float min = Float.POSITIVE_INFINITY;
+        float max = Float.NEGATIVE_INFINITY;
+        for (int j = i; j < end; j++) {
+          min = Math.min(min, data.get(Column.Y, j));
+          max = Math.max(max, data.get(Column.Y, j));
+        }
+        final int minIndex = pyramid.getMinIndex(level, i);
+        final int maxIndex = pyramid.getMaxIndex(level, i);
+        assertTrue(minIndex >= i && minIndex < end && maxIndex >= i && maxIndex < end);
+        assertEquals(min, data.get(Column.Y, minIndex), 0.0f);
+        assertEquals(max, data.get(Column.Y, maxIndex), 0.0f);
+        found++;
+      }
+    }
+    assertEquals(buckets, found);
+  }
+
+  public void testPyramid() {
+    final ColumnData2D data = sine(1000);
+    final MinMaxPyramid pyramid = new MinMaxPyramid(data);
+    assertTrue(pyramid.getSource() == data);
+    assertEquals(9, pyramid.getMaxLevel());
+    // 62 buckets of 16, 31 of 32, 15 of 64, 7 of 128, 3 of 256 and 1 of 512
+    checkPyramid(pyramid, 119);
+    assertEquals(-1, pyramid.getLevel(1, 1000));
+    assertEquals(-1, pyramid.getLevel(992, 1000));
+    assertEquals(5, pyramid.getLevel(960, 1000));
+    assertEquals(4, pyramid.getLevel(960, 990));
+
+    assertEquals(MinMaxPyramid.MIN_LEVEL - 1, new MinMaxPyramid(sine(15)).getMaxLevel());
+    try {
+      new MinMaxPyramid(null);
+      fail("accepted null source.");
+    } catch (final NullPointerException npe) {
+      ; // should get here
+    }
+  }
+
+  public void testPyramidStreaming() {
+    final StreamingData2D data = new StreamingData2D(100);
+    final MinMaxPyramid pyramid = new MinMaxPyramid(data);
+    assertEquals(6, pyramid.getMaxLevel());
+    checkPyramid(pyramid, 0);
+    for (int i = 0; i < 50; i++) {
+      data.append(i, (float) Math.sin(i / 7.0));
+    }
+    pyramid.update();
+    checkPyramid(pyramid, 4);
+    for (int i = 50; i < 130; i++) {
+      data.append(i, (float) Math.sin(i / 7.0));
+    }
+    pyramid.update();
+    // points 30..129 are held: buckets 32, 48, ..., 112 of 16, 32, 64 and 96 of 32, and 64 of 64
+    assertEquals(-1, pyramid.getLevel(0, 100));
+    assertEquals(5, pyramid.getLevel(2, 100));
+    checkPyramid(pyramid, 10);
+    // points 400..499 are held after appending more than the capacity between updates
+    for (int i = 130; i < 500; i++) {
+      data.append(i, (float) Math.sin(i / 7.0));
+    }
+    pyramid.update();
+    checkPyramid(pyramid, 8);
+    // points 500..539 are held after clearing, only bucket 512 of 16 is whole
+    data.clear();
+    for (int i = 0; i < 40; i++) {
+      data.append(i, i);
+    }
+    pyramid.update();
+    checkPyramid(pyramid, 1);
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(DownsamplerTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+
+}
@@ -0,0 +1,140 @@
+package com.reeltwo.plot.ui;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the PngEncoder class.
+ *
+ * @author Richard Littin
+ */
+public class PngEncoderTest extends TestCase {
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public PngEncoderTest(String name) {
+    super(name);
+  }
+
+
+  // an image of horizontal bands drawn from colors, with random noise in the colors given
+  private static BufferedImage image(int type, int width, int height, int colors, long seed) {
+    final Random random = new Random(seed);
+    final int[] palette = new int[colors];
+    for (int i = 0; i < colors; i++) {
+      palette[i] = random.nextInt() | (type == BufferedImage.TYPE_INT_ARGB ? 0 : 0xff000000);
+    }
+    final BufferedImage image = new BufferedImage(width, height, type);
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        image.setRGB(x, y, palette[random.nextInt(8) == 0 ? random.nextInt(colors) : (y / 3 + x / 50) % colors]);
+      }
+    }
+    return image;
+  }
+
+  private static byte[] encode(PngEncoder encoder, BufferedImage image) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    encoder.encode(image, bytes);
+    return bytes.toByteArray();
+  }
+
+  private static void checkRoundTrip(PngEncoder encoder, BufferedImage image) throws IOException {
+    final BufferedImage read = ImageIO.read(new ByteArrayInputStream(encode(encoder, image)));
+    assertEquals(image.getWidth(), read.getWidth());
+    assertEquals(image.getHeight(), read.getHeight());
+    for (int y = 0; y < image.getHeight(); y++) {
+      for (int x = 0; x < image.getWidth(); x++) {
+        assertEquals("pixel " + x + "," + y, image.getRGB(x, y), read.getRGB(x, y));
+      }
+    }
+  }
+
+  public void testRoundTrip() throws IOException {
+    final PngEncoder encoder = new PngEncoder();
+    assertEquals(4, encoder.getCompressionLevel());
+    assertEquals(PngEncoder.Filter.NONE, encoder.getFilter());
+    assertTrue(encoder.isPalette());
+    assertNull(encoder.getPool());
+    // palettes of each bit depth, and true color with and without alpha
+    for (final int colors : new int[] {1, 2, 3, 11, 200, 1000}) {
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_RGB, 97, 31, colors, colors));
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_ARGB, 31, 17, colors, colors));
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_3BYTE_BGR, 13, 7, colors, colors));
+    }
+    encoder.setPalette(false);
+    for (final PngEncoder.Filter filter : PngEncoder.Filter.values()) {
+      encoder.setFilter(filter);
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_RGB, 61, 23, 5, 1));
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_ARGB, 61, 23, 5, 1));
+    }
+    encoder.setPalette(true);
+    for (int level = 0; level <= 9; level += 3) {
+      encoder.setCompressionLevel(level);
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_RGB, 61, 23, 11, 2));
+    }
+    try {
+      encoder.setCompressionLevel(10);
+      fail("accepted level 10.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+  public void testParallel() throws IOException {
+    final PngEncoder encoder = new PngEncoder();
+    final BufferedImage image = image(BufferedImage.TYPE_INT_RGB, 1000, 700, 1000, 3);
+    final byte[] sequential = encode(encoder, image);
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      encoder.setPool(pool);
+      assertTrue(encoder.getPool() == pool);
+      final byte[] parallel = encode(encoder, image);
+      // priming each chunk with the data before it keeps the file close in size
+      assertTrue(parallel.length < sequential.length * 1.05);
+      checkRoundTrip(encoder, image);
+      encoder.setPalette(true);
+      checkRoundTrip(encoder, image(BufferedImage.TYPE_INT_RGB, 2000, 900, 7, 4));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  public void testCombineAdler32() {
+    final Random random = new Random(5);
+    final byte[] data = new byte[100000];
+    random.nextBytes(data);
+    for (final int split : new int[] {0, 1, 65521, 70000, 100000}) {
+      final Adler32 whole = new Adler32();
+      whole.update(data);
+      final Adler32 first = new Adler32();
+      first.update(data, 0, split);
+      final Adler32 second = new Adler32();
+      second.update(data, split, data.length - split);
+      assertEquals(whole.getValue(), PngEncoder.combineAdler32(first.getValue(), second.getValue(), data.length - split));
+    }
+  }
+
+  public static Test suite() {
+    return new TestSuite(PngEncoderTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,194 @@
+package com.reeltwo.plot.ui;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.reeltwo.plot.DataSource2D;
+import com.reeltwo.plot.Graph2D;
+import com.reeltwo.plot.Point2D;
+import com.reeltwo.plot.PointPlot2D;
+import com.reeltwo.plot.renderer.GraphicsRenderer;
+import com.reeltwo.plot.renderer.Mapping;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+/**
+ * JUnit tests for the RenderService class.
+ *
+ * @author Richard Littin
+ */
+public class RenderServiceTest extends TestCase {
+
+  private static final int WIDTH = 120;
+  private static final int HEIGHT = 80;
+
+  /**
+   * Constructor (needed for JUnit)
+   *
+   * @param name A string which names the object.
+   */
+  public RenderServiceTest(String name) {
+    super(name);
+  }
+
+
+  private static Graph2D graph() {
+    final PointPlot2D plot = new PointPlot2D();
+    plot.setLines(true);
+    plot.setData(new Point2D[] {new Point2D(0, 0), new Point2D(1, 3), new Point2D(2, 1)});
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(plot);
+    return graph;
+  }
+
+  public void testFormats() throws Exception {
+    final RenderService service = new RenderService(new GraphicsRenderer(), 2, 4);
+    try {
+      final Future<RenderService.Rendered> png = service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null);
+      final Future<RenderService.Rendered> svg = service.submit(RenderService.Format.SVG, graph(), WIDTH, HEIGHT, null);
+      final byte[] pngBytes = png.get().getBytes();
+      assertEquals((byte) 0x89, pngBytes[0]);
+      assertEquals("PNG", new String(pngBytes, 1, 3, StandardCharsets.US_ASCII));
+      final String svgText = new String(svg.get().getBytes(), StandardCharsets.UTF_8);
+      assertTrue(svgText.contains("<svg"));
+      assertTrue(svgText.trim().endsWith("</svg>"));
+      for (final RenderService.Rendered rendered : new RenderService.Rendered[] {png.get(), svg.get()}) {
+        final Mapping[] mapping = rendered.getMapping();
+        assertEquals(4, mapping.length);
+        assertNotNull(mapping[0]);
+        assertNotNull(mapping[1]);
+      }
+      assertEquals(0, service.getPending());
+    } finally {
+      service.shutdown();
+    }
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  public void testBounded() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // holds up the executor until released
+    final CountDownLatch gate = new CountDownLatch(1);
+    executor.submit(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            gate.await();
+          } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    final RenderService service = new RenderService(new GraphicsRenderer(), executor, 2);
+    try {
+      checkBounded(service, gate);
+    } finally {
+      gate.countDown();
+      service.shutdown();
+    }
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  private void checkBounded(final RenderService service, CountDownLatch gate) throws Exception {
+    assertEquals(2, service.getMaxPending());
+    final Future<RenderService.Rendered> first = service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null);
+    service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null);
+    assertEquals(2, service.getPending());
+
+    // no room, so a timed submit gives up
+    assertNull(service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null, 20, TimeUnit.MILLISECONDS));
+
+    // and a plain submit waits until a job completes
+    final Future<?>[] third = new Future<?>[1];
+    final Thread submitter = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            third[0] = service.submit(RenderService.Format.SVG, graph(), WIDTH, HEIGHT, null);
+          } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      });
+    submitter.start();
+    submitter.join(200);
+    assertTrue(submitter.isAlive());
+    assertEquals(2, service.getPending());
+    gate.countDown();
+    submitter.join(10000);
+    assertFalse(submitter.isAlive());
+    assertNotNull(first.get().getBytes());
+    assertNotNull(third[0].get());
+    assertEquals(0, service.getPending());
+  }
+
+  public void testFailures() throws Exception {
+    final RenderService service = new RenderService(new GraphicsRenderer(), 1, 1);
+    final PointPlot2D broken = new PointPlot2D() {
+      @Override
+      public DataSource2D getDataSource() {
+        throw new IllegalStateException("broken plot");
+      }
+    };
+    broken.setData(new Point2D[] {new Point2D(0, 0), new Point2D(1, 1)});
+    final Graph2D graph = new Graph2D();
+    graph.addPlot(broken);
+    try {
+      service.submit(RenderService.Format.PNG, graph, WIDTH, HEIGHT, null).get();
+      fail("broken plot drawn.");
+    } catch (final ExecutionException ee) {
+      assertTrue(ee.getCause() instanceof IllegalStateException);
+    }
+    // the failed job gave back its room
+    assertEquals(0, service.getPending());
+    assertNotNull(service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null, 10, TimeUnit.SECONDS));
+
+    try {
+      service.submit(RenderService.Format.PNG, graph(), 0, HEIGHT, null);
+      fail("accepted empty image.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+    try {
+      service.submit(null, graph(), WIDTH, HEIGHT, null);
+      fail("accepted null format.");
+    } catch (final NullPointerException npe) {
+      ; // should get here
+    }
+
+    service.shutdown();
+    assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+    try {
+      service.submit(RenderService.Format.PNG, graph(), WIDTH, HEIGHT, null);
+      fail("accepted job after shutdown.");
+    } catch (final RejectedExecutionException ree) {
+      ; // should get here
+    }
+    assertEquals(0, service.getPending());
+
+    try {
+      new RenderService(new GraphicsRenderer(), 0, 1);
+      fail("accepted no threads.");
+    } catch (final IllegalArgumentException iae) {
+      ; // should get here
+    }
+  }
+
+
+  public static Test suite() {
+    return new TestSuite(RenderServiceTest.class);
+  }
+
+
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}